@@ -671,6 +671,9 @@ public interface IKeyword {
 	/** The location. */
 	String LOCATION = "location";
 
+	/** The lockstep. */
+	String LOCKSTEP = "lockstep";
+
 	/** The look at. */
 	String LOOK_AT = "look_at";
 
@@ -1148,6 +1151,9 @@ public interface IKeyword {
 	/** The source. */
 	String SOURCE = "source";
 
+	/** The spatial index. */
+	String SPATIAL_INDEX = "spatial_index";
+
 	/** The species. */
 	String SPECIES = "species";
 
@@ -55,6 +55,15 @@ public interface ISerialisationConstants {
 	/** The Constant UNCOMPRESSED. */
 	byte UNCOMPRESSED = 0;
 
+	/** The Constant LZ4_COMPRESSED. Data compressed by blocks with {@link msi.gama.util.LZ4BlockOutputStream} */
+	byte LZ4_COMPRESSED = 2;
+
+	/**
+	 * The Constant FRAMED. Flag added to the compression byte when the data is written as a sequence of frames (the
+	 * agent, then the chunks of its populations) rather than as a single serialised form
+	 */
+	byte FRAMED = 16;
+
 	/** The Constant GAMA_IDENTIFIER. */
 	byte GAMA_AGENT_IDENTIFIER = 42;
 
@@ -588,7 +588,8 @@ public class GamaPreferences {
 		/** The Constant CORE_SERVER_MODE. */
 		public static final Pref<Boolean> CORE_SERVER_MODE =
 				create("pref_enable_server", "Enables GAMA Server mode", true, IType.BOOL, true).in(NAME, SERVER)
-						.activates("pref_server_port", "pref_server_ping");
+						.activates("pref_server_port", "pref_server_ping", "pref_server_threads",
+								"pref_server_queue", "pref_server_pending");
 
 		/** The Constant CORE_SERVER_PORT. */
 		public static final Pref<Integer> CORE_SERVER_PORT =
@@ -599,6 +600,22 @@ public class GamaPreferences {
 		public static final Pref<Integer> CORE_SERVER_PING =
 				create("pref_server_ping", "Interval between two pings (-1 to disable)", 10000, IType.INT, true)
 						.in(NAME, SERVER);
+
+		/** The Constant CORE_SERVER_THREADS. */
+		public static final Pref<Integer> CORE_SERVER_THREADS = create("pref_server_threads",
+				"Maximum number of threads executing the commands of the clients",
+				Math.max(2, java.lang.Runtime.getRuntime().availableProcessors()), IType.INT, true).in(NAME, SERVER)
+						.between(1, null);
+
+		/** The Constant CORE_SERVER_QUEUE. */
+		public static final Pref<Integer> CORE_SERVER_QUEUE = create("pref_server_queue",
+				"Maximum number of commands waiting to be executed for each client (0 for no limit)", 100, IType.INT,
+				true).in(NAME, SERVER).between(0, null);
+
+		/** The Constant CORE_SERVER_PENDING. */
+		public static final Pref<Integer> CORE_SERVER_PENDING = create("pref_server_pending",
+				"Maximum number of commands waiting to be executed for all the clients (0 for no limit)", 1000,
+				IType.INT, true).in(NAME, SERVER).between(0, null);
 	}
 
 	/**
@@ -891,6 +908,16 @@ public class GamaPreferences {
 				"Optimize the path computation operators and goto action (but with possible 'jump' issues)", false,
 				IType.BOOL, true).in(NAME, OPTIMIZATIONS);
 
+		/** The Constant PATH_COMPUTATION_COMPRESSED. */
+		public static final Pref<Boolean> PATH_COMPUTATION_COMPRESSED = create("pref_compressed_graphs",
+				"Use a compact copy of static graphs to compute shortest paths (paths of equal length may differ)",
+				false, IType.BOOL, true).in(NAME, OPTIMIZATIONS);
+
+		/** The Constant PATH_CACHE_MEMORY. */
+		public static final Pref<Integer> PATH_CACHE_MEMORY = create("pref_path_cache_memory",
+				"Maximal memory (in MB) used by the cache of shortest paths of each graph (0 for no limit)", 64,
+				IType.INT, true).in(NAME, OPTIMIZATIONS).between(0, null);
+
 		/** The Constant USE_POOLING. */
 		public static final Pref<Boolean> USE_POOLING =
 				create("pref_use_pooling", "Use object pooling to reduce memory usage (still experimental)", false,
@@ -906,6 +933,21 @@ public class GamaPreferences {
 				"In-memory shapefile mapping (optimizes access to shapefile data in exchange for increased memory usage)",
 				true, IType.BOOL, true).in(NAME, OPTIMIZATIONS);
 
+		/** The Constant RECORDER_MEMORY. */
+		public static final Pref<Integer> RECORDER_MEMORY = create("pref_recorder_memory",
+				"Maximal memory (in MB) used to record the states of each simulation for stepping back", 256,
+				IType.INT, true).in(NAME, OPTIMIZATIONS).between(1, null);
+
+		/** The Constant RECORDER_KEYFRAME_INTERVAL. */
+		public static final Pref<Integer> RECORDER_KEYFRAME_INTERVAL = create("pref_recorder_keyframe_interval",
+				"Number of cycles between two complete records of a simulation (the others only record what has changed)",
+				20, IType.INT, true).in(NAME, OPTIMIZATIONS).between(1, null);
+
+		/** The Constant RECORDER_SPILL. */
+		public static final Pref<Boolean> RECORDER_SPILL = create("pref_recorder_spill",
+				"Move the oldest records of simulations to a file in the cache instead of discarding them", false,
+				IType.BOOL, true).in(NAME, OPTIMIZATIONS);
+
 		/**
 		 * Paths to libraries
 		 */
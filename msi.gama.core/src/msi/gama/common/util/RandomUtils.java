@@ -19,11 +19,14 @@ import java.util.Random;
 
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.kernel.experiment.ITopLevelAgent;
+import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.shape.GamaPoint;
 import msi.gama.util.random.IGamaRNG;
 import msi.gama.util.random.JavaRNG;
 import msi.gama.util.random.MersenneTwisterRNG;
 import msi.gama.util.random.ParallelMersenneTwisterRNG;
+import msi.gama.util.random.SplittableRNG;
 import msi.gama.util.random.ThreadLocalRNG;
 import msi.gaml.operators.Maths;
 
@@ -39,7 +42,7 @@ public class RandomUtils {
 
 	/** The Constant DOC. */
 	public static final String DOC =
-			"The random number generator to use. Four different ones are at the disposal of the modeler: " + "'"
+			"The random number generator to use. Five different ones are at the disposal of the modeler: " + "'"
 					+ IKeyword.MERSENNE + "'"
 					+ " represents the default generator, based on the Mersenne-Twister algorithm. Very reliable, fast and deterministic (that is, using the same seed and the same sequence of calls, it will return the same stream of pseudo-random numbers). This algorithm is however not safe to use in simulations where agents can behave in parallel; "
 					+ "'threaded'"
@@ -47,7 +50,9 @@ public class RandomUtils {
 					+ "'" + IKeyword.PARALLEL + "'"
 					+ " is a version of the Mersenne-Twister algorithm that can be safely used in parallel simulations by preventing a concurrent access to its internal state. Determinism is guaranteed (in terms of generation, but not in terms of execution, as the sequence in which the threads will access it cannot be determined) and it performs a bit slower than its base version."
 					+ "'" + IKeyword.JAVA + "'"
-					+ " invokes the standard generator provided by the JDK, deterministic and thread-safe, albeit slower than all the other ones";
+					+ " invokes the standard generator provided by the JDK, deterministic and thread-safe, albeit slower than all the other ones;"
+					+ "'splittable'"
+					+ " is a very fast, lock-free generator, based on the SplitMix64 algorithm. When it is used, each agent scheduled by a species receives its own stream of random numbers, derived from the seed, the cycle and its index, which allows parallel species to be reproducible";
 
 	/**
 	 * The Enum GeneratorNames.
@@ -64,7 +69,10 @@ public class RandomUtils {
 				" invokes the standard generator provided by the JDK, deterministic and thread-safe, albeit slower than all the other ones; "),
 		/** The threaded. */
 		THREADED("threaded",
-				" is a very fast generator, based on the DotMix algorithm, that can be safely used in parallel simulations as it creates one instance per thread. However, determinism cannot be guaranteed and this algorithm does not accept a seed as each instance will compute its own; ");
+				" is a very fast generator, based on the DotMix algorithm, that can be safely used in parallel simulations as it creates one instance per thread. However, determinism cannot be guaranteed and this algorithm does not accept a seed as each instance will compute its own; "),
+		/** The splittable. */
+		SPLITTABLE("splittable",
+				" is a very fast, lock-free generator, based on the SplitMix64 algorithm. When it is used, each agent scheduled by a species receives its own stream of random numbers, derived from the seed, the cycle and its index, which allows parallel species to be reproducible; ");
 
 		/** The name. */
 		private String name;
@@ -150,6 +158,83 @@ public class RandomUtils {
 		this(GamaPreferences.External.CORE_RNG.getValue());
 	}
 
+	/**
+	 * Instantiates a new random utils sharing the seed and name of another one, but using its own generator.
+	 *
+	 * @param source
+	 *            the source
+	 * @param generator
+	 *            the generator
+	 */
+	private RandomUtils(final RandomUtils source, final IGamaRNG generator) {
+		this.seed = source.seed;
+		this.generatorName = source.generatorName;
+		this.generator = generator;
+	}
+
+	/**
+	 * Whether the generator can provide independent and reproducible streams to the agents (see {@link #newStream()}).
+	 *
+	 * @return true, if is splittable
+	 */
+	public boolean isSplittable() { return generator instanceof SplittableRNG; }
+
+	/**
+	 * Returns a new random utils, with the same seed, whose generator can be repositioned using
+	 * {@link #moveStream(long, IAgent)}. Only meaningful if {@link #isSplittable()} returns true. The instance returned
+	 * is not thread-safe and is supposed to be used by only one thread.
+	 *
+	 * @return the random utils
+	 */
+	public RandomUtils newStream() {
+		return new RandomUtils(this, new SplittableRNG(0));
+	}
+
+	/**
+	 * Returns the base of the streams of the agents stepped at a given cycle (see {@link #moveStream(long, IAgent)}).
+	 * It only depends on the seed and on the cycle, so that an agent is given the same stream whether its species is
+	 * stepped sequentially or in parallel.
+	 *
+	 * @param cycle
+	 *            the cycle
+	 * @return the base of the streams
+	 */
+	public long streamBase(final long cycle) {
+		return SplittableRNG.streamSeed(Double.doubleToLongBits(seed), cycle);
+	}
+
+	/**
+	 * Draws a new base of streams from this generator (see {@link #moveStream(long, IAgent)}). Used when the same
+	 * agents can be executed several times during a cycle (e.g. by successive parallel asks), so that each execution
+	 * gives them new streams. Must be called by the thread that uses this generator.
+	 *
+	 * @return the base of the streams
+	 */
+	public long nextStreamBase() {
+		return generator.getRandomGenerator().nextLong();
+	}
+
+	/**
+	 * Repositions this stream, created by {@link #newStream()}, at the beginning of the sequence of random numbers
+	 * dedicated to an agent. The sequence only depends on the base and on the identity of the agent (its species and
+	 * index, and those of its hosts up to the simulation), not on the order in which agents are executed nor on the
+	 * thread executing them. Micro-agents that have the same index in different hosts are given different sequences.
+	 *
+	 * @param base
+	 *            the base of the streams, see {@link #streamBase(long)} and {@link #nextStreamBase()}
+	 * @param agent
+	 *            the agent
+	 */
+	public void moveStream(final long base, final IAgent agent) {
+		long key = base;
+		IAgent a = agent;
+		do {
+			key = SplittableRNG.childSeed(SplittableRNG.childSeed(key, a.getSpeciesName().hashCode()), a.getIndex());
+			a = a.getHost();
+		} while (a != null && !(a instanceof ITopLevelAgent));
+		((SplittableRNG) generator).reseed(key);
+	}
+
 	/**
 	 * Inits the generator.
 	 */
@@ -158,6 +243,7 @@ public class RandomUtils {
 			case JAVA -> new JavaRNG(this);
 			case THREADED -> new ThreadLocalRNG(this);
 			case PARALLEL -> new ParallelMersenneTwisterRNG(this);
+			case SPLITTABLE -> new SplittableRNG(this);
 			default -> new MersenneTwisterRNG(this);
 		};
 
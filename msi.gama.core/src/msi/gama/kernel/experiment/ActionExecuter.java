@@ -87,6 +87,26 @@ public class ActionExecuter {
 		return insertAction(action, END);
 	}
 
+	/**
+	 * Removes an end action.
+	 *
+	 * @param action
+	 *            the action
+	 */
+	public void removeEndAction(final IExecutable action) {
+		actions[END].remove(action);
+	}
+
+	/**
+	 * Removes a dispose action.
+	 *
+	 * @param action
+	 *            the action
+	 */
+	public void removeDisposeAction(final IExecutable action) {
+		actions[DISPOSE].remove(action);
+	}
+
 	/**
 	 * Insert one shot action.
 	 *
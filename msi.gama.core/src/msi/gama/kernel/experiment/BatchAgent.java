@@ -17,6 +17,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.DoubleStream;
 
 import org.jfree.data.statistics.Statistics;
@@ -329,38 +332,35 @@ public class BatchAgent extends ExperimentAgent {
 		Iterator<Map<String, Object>> it = simsToRun.iterator();
 		while (it.hasNext()) { createSimulation(it.next(), simToParameter); }
 
-		while (pop.hasScheduledSimulations() && !dead) {
-			// We step all the simulations
-			pop.step(getScope());
-			for (final IScopedStepable st : new ArrayList<>(pop.getActiveStepables())) {
-				final SimulationAgent agent = (SimulationAgent) st;
-				ParametersSet ps = simToParameter.get(agent);
-				currentSolution = new ParametersSet(ps);
-
-				// test the condition first in case it is paused
-				final boolean stopConditionMet = dead
-						|| Cast.asBool(agent.getScope(), agent.getScope().evaluate(stopCondition, agent).getValue());
-				final boolean mustStop = stopConditionMet || agent.dead();
-				// AD -- removed because it would prevent simulations from running if 'do pause' was called in the
-				// experiment
-				// || agent.getScope().isPaused();
-				if (mustStop) {
-					pop.unscheduleSimulation(agent);
-					// pop.remove(agent);
-					IMap<String, Object> localRes = manageOutputAndCloseSimulation(agent, ps, false, simDispose);
-
-					if (!res.containsKey(ps)) { res.put(ps, GamaMapFactory.create()); }
-					for (String output : localRes.keySet()) {
-						if (!res.get(ps).containsKey(output)) { res.get(ps).put(output, GamaListFactory.create()); }
-						res.get(ps).get(output).add(localRes.get(output));
-					}
+		if (!getSpecies().runsInLockstep()) {
+			runIndependently(pop, sims, simToParameter, res);
+		} else {
+			while (pop.hasScheduledSimulations() && !dead) {
+				// We step all the simulations
+				pop.step(getScope());
+				for (final IScopedStepable st : new ArrayList<>(pop.getActiveStepables())) {
+					final SimulationAgent agent = (SimulationAgent) st;
+					ParametersSet ps = simToParameter.get(agent);
+					currentSolution = new ParametersSet(ps);
 
-					if (!sims.isEmpty()) { createSimulation(sims.remove(0), simToParameter); }
+					// test the condition first in case it is paused
+					final boolean stopConditionMet = dead || Cast.asBool(agent.getScope(),
+							agent.getScope().evaluate(stopCondition, agent).getValue());
+					final boolean mustStop = stopConditionMet || agent.dead();
+					// AD -- removed because it would prevent simulations from running if 'do pause' was called in the
+					// experiment
+					// || agent.getScope().isPaused();
+					if (mustStop) {
+						pop.unscheduleSimulation(agent);
+						// pop.remove(agent);
+						addResults(res, ps, manageOutputAndCloseSimulation(agent, ps, false, simDispose));
+						if (!sims.isEmpty()) { createSimulation(sims.remove(0), simToParameter); }
 
+					}
 				}
+				// We then verify that the front scheduler has not been paused
+				while (getSpecies().getController().isPaused() && !dead) { THREADS.WAIT(100); }
 			}
-			// We then verify that the front scheduler has not been paused
-			while (getSpecies().getController().isPaused() && !dead) { THREADS.WAIT(100); }
 		}
 
 		// When the simulations are finished, we give a chance to the outputs of
@@ -405,6 +405,120 @@ public class BatchAgent extends ExperimentAgent {
 
 	}
 
+	/**
+	 * Runs the simulations already created, and the ones remaining to create, independently from each other (see the
+	 * facet 'lockstep:'): each simulation is stepped by a thread of the simulation executor until it meets its stop
+	 * condition, and is then collected by the experiment, which records its outputs and immediately creates and
+	 * submits the next simulation. A simulation that fails is reported, unscheduled and closed without outputs, and
+	 * is replaced by the next one in the same way.
+	 *
+	 * @param pop
+	 *            the population of simulations
+	 * @param sims
+	 *            the simulations remaining to create (parameters and seed)
+	 * @param simToParameter
+	 *            the parameters of the simulations already created
+	 * @param res
+	 *            the results
+	 */
+	private void runIndependently(final SimulationPopulation pop, final List<Map<String, Object>> sims,
+			final Map<IAgent, ParametersSet> simToParameter,
+			final IMap<ParametersSet, Map<String, List<Object>>> res) {
+		final CompletionService<SimulationAgent> service = pop.newCompletionService();
+		// The errors of the simulations, recorded by the threads that run them
+		final Map<SimulationAgent, RuntimeException> failures = new ConcurrentHashMap<>();
+		int running = 0;
+		for (final IAgent sim : new ArrayList<>(simToParameter.keySet())) {
+			service.submit(() -> runUntilStopped((SimulationAgent) sim, failures));
+			running++;
+		}
+		int finished = 0;
+		while (running > 0) {
+			SimulationAgent agent = null;
+			try {
+				agent = service.take().get();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (final ExecutionException e) {
+				// An error that is not a runtime exception: the simulation cannot be identified
+				GAMA.reportError(getScope(), GamaRuntimeException.create(e.getCause(), getScope()), false);
+			}
+			running--;
+			finished++;
+			if (agent != null) {
+				pop.unscheduleSimulation(agent);
+				final RuntimeException failure = failures.remove(agent);
+				if (failure == null) {
+					final ParametersSet ps = simToParameter.get(agent);
+					currentSolution = new ParametersSet(ps);
+					addResults(res, ps, manageOutputAndCloseSimulation(agent, ps, false, simDispose));
+				} else {
+					GAMA.reportError(getScope(), GamaRuntimeException.create(failure, getScope()), false);
+					if (simDispose && !agent.dead()) { agent.primDie(agent.getScope()); }
+				}
+			}
+			if (!sims.isEmpty() && !dead) {
+				final SimulationAgent next = createSimulation(sims.remove(0), simToParameter);
+				service.submit(() -> runUntilStopped(next, failures));
+				running++;
+			}
+			if (!dead) {
+				getScope().getGui().getStatus().setStatus(getScope(),
+						"Run " + runNumber + " | " + finished + " simulations finished, " + running + " running",
+						"overlays/small.exp.batch.white");
+			}
+		}
+	}
+
+	/**
+	 * Steps a simulation until it meets the stop condition or dies, or until the experiment is closed. Called by the
+	 * threads of the simulation executor.
+	 *
+	 * @param sim
+	 *            the simulation
+	 * @param failures
+	 *            the errors of the simulations, to which the one of this simulation is added if it fails
+	 * @return the simulation
+	 */
+	private SimulationAgent runUntilStopped(final SimulationAgent sim,
+			final Map<SimulationAgent, RuntimeException> failures) {
+		try {
+			while (!dead && !sim.dead()) {
+				// We verify that the front scheduler has not been paused
+				while (getSpecies().getController().isPaused() && !dead) { THREADS.WAIT(100); }
+				if (dead) { break; }
+				sim.step();
+				if (sim.dead()
+						|| Cast.asBool(sim.getScope(), sim.getScope().evaluate(stopCondition, sim).getValue())) {
+					break;
+				}
+			}
+		} catch (final RuntimeException e) {
+			failures.put(sim, e);
+		}
+		return sim;
+	}
+
+	/**
+	 * Adds the outputs of a simulation to the results.
+	 *
+	 * @param res
+	 *            the results
+	 * @param ps
+	 *            the parameters of the simulation
+	 * @param outputs
+	 *            the outputs of the simulation
+	 */
+	private void addResults(final IMap<ParametersSet, Map<String, List<Object>>> res, final ParametersSet ps,
+			final Map<String, Object> outputs) {
+		if (!res.containsKey(ps)) { res.put(ps, GamaMapFactory.create()); }
+		for (String output : outputs.keySet()) {
+			if (!res.get(ps).containsKey(output)) { res.get(ps).put(output, GamaListFactory.create()); }
+			res.get(ps).get(output).add(outputs.get(output));
+		}
+	}
+
 	/**
 	 * Launch simulations with solution.
 	 *
@@ -1152,6 +1152,17 @@ public class ExperimentAgent extends GamlAgent implements IExperimentAgent {
 
 	}
 
+	/**
+	 * Removes an end action.
+	 *
+	 * @param executable
+	 *            the executable
+	 */
+	@Override
+	public void removeEndAction(final IExecutable executable) {
+		executer.removeEndAction(executable);
+	}
+
 	/**
 	 * Post dispose action.
 	 *
@@ -1166,6 +1177,17 @@ public class ExperimentAgent extends GamlAgent implements IExperimentAgent {
 
 	}
 
+	/**
+	 * Removes a dispose action.
+	 *
+	 * @param executable
+	 *            the executable
+	 */
+	@Override
+	public void removeDisposeAction(final IExecutable executable) {
+		executer.removeDisposeAction(executable);
+	}
+
 	/**
 	 * Post one shot action.
 	 *
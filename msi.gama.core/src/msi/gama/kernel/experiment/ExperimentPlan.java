@@ -134,6 +134,11 @@ import msi.gaml.variables.IVariable;
 						type = IType.BOOL,
 						optional = true,
 						doc = @doc ("In the case of a batch experiment, specifies whether or not the simulations should be kept in memory for further analysis or immediately discarded with only their fitness kept in memory")),
+				@facet (
+						name = IKeyword.LOCKSTEP,
+						type = IType.BOOL,
+						optional = true,
+						doc = @doc ("In the case of a batch experiment, specifies whether the simulations run in parallel are stepped together, cycle after cycle (true by default), or if each of them runs until its stop condition independently from the others (false), a new simulation being started as soon as one ends. The latter is more efficient when the durations of the simulations vary a lot")),
 				@facet (
 						name = IKeyword.REPEAT,
 						type = IType.INT,
@@ -360,6 +365,9 @@ public class ExperimentPlan extends GamlSpecies implements IExperimentPlan {
 	/** The keep simulations. */
 	private final boolean keepSimulations;
 
+	/** Whether the simulations of a batch are stepped together. */
+	private final boolean lockstep;
+
 	/** The experiment type. */
 	private final String experimentType;
 
@@ -484,6 +492,8 @@ public class ExperimentPlan extends GamlSpecies implements IExperimentPlan {
 		} else {
 			keepSimulations = true;
 		}
+		final IExpression lsExpr = getFacet(IKeyword.LOCKSTEP);
+		lockstep = lsExpr == null || !lsExpr.isConst() || Cast.asBool(myScope, lsExpr.value(myScope));
 		final IExpression ar = getFacet(IKeyword.AUTORUN);
 		if (ar == null) {
 			autorun = GamaPreferences.Runtime.CORE_AUTO_RUN.getValue();
@@ -521,6 +531,11 @@ public class ExperimentPlan extends GamlSpecies implements IExperimentPlan {
 		return keepSimulations;
 	}
 
+	@Override
+	public boolean runsInLockstep() {
+		return lockstep;
+	}
+
 	@Override
 	public void dispose() {
 		GAMA.getPlatformAgent().restorePrefs();
@@ -226,6 +226,16 @@ public interface IExperimentPlan extends ISpecies {
 	 */
 	boolean keepsSimulations();
 
+	/**
+	 * Whether the simulations of a batch experiment are stepped together, cycle after cycle (the default), or run
+	 * independently from each other until they meet their stop condition.
+	 *
+	 * @return true, if successful
+	 */
+	default boolean runsInLockstep() {
+		return true;
+	}
+
 	/**
 	 * Checks for parameters or user commands.
 	 *
@@ -24,6 +24,16 @@ public interface ISimulationRecorder {
 	 */
 	void restore(SimulationAgent sim);
 
+	/**
+	 * Restores a simulation to one of its recorded cycles.
+	 *
+	 * @param sim
+	 *            the sim
+	 * @param cycle
+	 *            the cycle
+	 */
+	void restore(SimulationAgent sim, long cycle);
+
 	/**
 	 * Can step back.
 	 *
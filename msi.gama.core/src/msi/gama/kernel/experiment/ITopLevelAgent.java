@@ -63,6 +63,14 @@ public interface ITopLevelAgent extends IMacroAgent, IScopedStepable {
 	 */
 	void postEndAction(IExecutable executable);
 
+	/**
+	 * Removes an end action previously posted.
+	 *
+	 * @param executable
+	 *            the executable
+	 */
+	void removeEndAction(IExecutable executable);
+
 	/**
 	 * Post dispose action.
 	 *
@@ -71,6 +79,14 @@ public interface ITopLevelAgent extends IMacroAgent, IScopedStepable {
 	 */
 	void postDisposeAction(IExecutable executable);
 
+	/**
+	 * Removes a dispose action previously posted.
+	 *
+	 * @param executable
+	 *            the executable
+	 */
+	void removeDisposeAction(IExecutable executable);
+
 	/**
 	 * Post one shot action.
 	 *
@@ -51,7 +51,6 @@ import msi.gama.runtime.server.GamaWebSocketServer;
 import msi.gama.util.GamaColor;
 import msi.gama.util.GamaMapFactory;
 import msi.gama.util.IList;
-import msi.gama.util.file.json.Json;
 import msi.gaml.compilation.kernel.GamaMetaModel;
 import msi.gaml.expressions.IExpression;
 import msi.gaml.operators.Containers;
@@ -149,9 +148,6 @@ public class PlatformAgent extends GamlAgent implements ITopLevelAgent, IExpress
 	/** The my server. */
 	private GamaWebSocketServer myServer;
 
-	/** The json encoder. */
-	private final Json jsonEncoder = Json.getNew();
-
 	/**
 	 * Instantiates a new platform agent.
 	 */
@@ -289,9 +285,15 @@ public class PlatformAgent extends GamlAgent implements ITopLevelAgent, IExpress
 	@Override
 	public void postEndAction(final IExecutable executable) {}
 
+	@Override
+	public void removeEndAction(final IExecutable executable) {}
+
 	@Override
 	public void postDisposeAction(final IExecutable executable) {}
 
+	@Override
+	public void removeDisposeAction(final IExecutable executable) {}
+
 	@Override
 	public void postOneShotAction(final IExecutable executable) {}
 
@@ -523,8 +525,8 @@ public class PlatformAgent extends GamlAgent implements ITopLevelAgent, IExpress
 						+ message);
 				return;
 			}
-			socket.send(jsonEncoder.valueOf(new GamaServerMessage(GamaServerMessage.Type.SimulationOutput, message,
-					scope.getServerConfiguration().expId())).toString());
+			new GamaServerMessage(GamaServerMessage.Type.SimulationOutput, message,
+					scope.getServerConfiguration().expId()).sendTo(socket);
 		} catch (Exception ex) {
 			ex.printStackTrace();
 			DEBUG.OUT("Unable to send message:" + message);
@@ -994,12 +994,22 @@ public class SimulationAgent extends GamlAgent implements ITopLevelAgent {
 
 	}
 
+	@Override
+	public void removeEndAction(final IExecutable executable) {
+		executer.removeEndAction(executable);
+	}
+
 	@Override
 	public void postDisposeAction(final IExecutable executable) {
 		executer.insertDisposeAction(executable);
 
 	}
 
+	@Override
+	public void removeDisposeAction(final IExecutable executable) {
+		executer.removeDisposeAction(executable);
+	}
+
 	@Override
 	public void postOneShotAction(final IExecutable executable) {
 		executer.insertOneShotAction(executable);
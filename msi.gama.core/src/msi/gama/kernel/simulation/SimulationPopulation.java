@@ -15,6 +15,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+
 
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.interfaces.IScopedStepable;
@@ -245,6 +247,17 @@ public class SimulationPopulation extends GamaPopulation<SimulationAgent> {
 		runner.remove(sim);
 	}
 
+	/**
+	 * Returns a new completion service running its tasks with the executor of the simulations.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @return the completion service
+	 */
+	public <T> CompletionService<T> newCompletionService() {
+		return runner.newCompletionService();
+	}
+
 	/**
 	 * Gets the number of active stepables.
 	 *
@@ -29,11 +29,13 @@ import msi.gama.precompiler.GamlAnnotations.doc;
 import msi.gama.runtime.GAMA;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.BiConsumerWithPruning;
 import msi.gama.util.GamaListFactory;
 import msi.gama.util.GamaMapFactory;
 import msi.gama.util.IList;
 import msi.gama.util.IMap;
 import msi.gaml.descriptions.ModelDescription;
+import msi.gaml.descriptions.SlotLayout;
 import msi.gaml.operators.Cast;
 import msi.gaml.species.ISpecies;
 import msi.gaml.types.IType;
@@ -77,9 +79,12 @@ public abstract class AbstractAgent implements IAgent {
 	/** The dying. */
 	protected volatile boolean dying = false;
 
-	/** The attributes. */
+	/** The attributes that are not declared by the species (or not stored in slots). */
 	protected IMap<String, Object> attributes;
 
+	/** The values of the attributes declared by the species. Lazily created. */
+	protected AgentSlots slots;
+
 	/**
 	 * Instantiates a new abstract agent.
 	 *
@@ -129,6 +134,7 @@ public abstract class AbstractAgent implements IAgent {
 			attributes.clear();
 			attributes = null;
 		}
+		slots = null;
 	}
 
 	/**
@@ -199,6 +205,147 @@ public abstract class AbstractAgent implements IAgent {
 		return attributes;
 	}
 
+	/**
+	 * Returns a copy of all the attributes of the agent, including the ones stored in slots. Contrary to
+	 * {@link #getAttributes(boolean)}, modifying the map returned does not modify the agent
+	 *
+	 * @return the map of attributes
+	 */
+	@SuppressWarnings ("unchecked")
+	@Override
+	public IMap<String, Object> getOrCreateAttributes() {
+		if (slots == null) return getAttributes(true);
+		final IMap<String, Object> result = GamaMapFactory.create(Types.STRING, Types.NO_TYPE);
+		forEachAttribute((k, v) -> {
+			result.put(k, v);
+			return true;
+		});
+		return result;
+	}
+
+	/**
+	 * Gets the slot layout of the species of the agent.
+	 *
+	 * @return the slot layout
+	 */
+	protected SlotLayout getSlotLayout() {
+		final IPopulation<? extends IAgent> p = getPopulation();
+		if (p == null) return SlotLayout.EMPTY;
+		final ISpecies s = p.getSpecies();
+		return s == null ? SlotLayout.EMPTY : s.getSlotLayout();
+	}
+
+	/**
+	 * Gets the slots of the agent, creating them if needed.
+	 *
+	 * @return the slots or null if the species does not declare any stored attribute
+	 */
+	protected AgentSlots getSlots() {
+		if (slots == null && !dead) {
+			final SlotLayout layout = getSlotLayout();
+			if (layout.isEmpty()) return null;
+			slots = new AgentSlots(layout);
+		}
+		return slots;
+	}
+
+	/**
+	 * Returns the value stored in the slot, computed with the given layout, or {@link AgentSlots#UNASSIGNED} if no value
+	 * is stored there or if the layout is not compatible with the one of the agent.
+	 *
+	 * @param layout
+	 *            the layout with which the slot has been computed
+	 * @param slot
+	 *            the slot
+	 * @return the value
+	 */
+	public Object getSlotValue(final SlotLayout layout, final int slot) {
+		final AgentSlots s = slots;
+		if (s == null || s.layout != layout && !s.layout.extendsLayout(layout)) return AgentSlots.UNASSIGNED;
+		return s.get(slot);
+	}
+
+	/**
+	 * Stores the value in the slot, computed with the given layout.
+	 *
+	 * @param layout
+	 *            the layout with which the slot has been computed
+	 * @param slot
+	 *            the slot
+	 * @param value
+	 *            the value
+	 * @return true if the value has been stored, false if it has to be stored by name
+	 */
+	public boolean setSlotValue(final SlotLayout layout, final int slot, final Object value) {
+		final AgentSlots s = getSlots();
+		if (s == null || s.layout != layout && !s.layout.extendsLayout(layout)) return false;
+		return store(s, slot, value);
+	}
+
+	/**
+	 * Stores the value in an assigned slot or, the first time, in a slot whose value may have been stored by name
+	 * before, in which case the value stored by name is removed.
+	 *
+	 * @param s
+	 *            the slots of the agent
+	 * @param slot
+	 *            the slot
+	 * @param value
+	 *            the value
+	 * @return true if the value has been stored, false if the slot is not used anymore by the layout
+	 */
+	private boolean store(final AgentSlots s, final int slot, final Object value) {
+		final boolean first = !s.isAssigned(slot);
+		if (!s.set(slot, value)) return false;
+		if (first && attributes != null) { attributes.remove(s.layout.nameOf(slot)); }
+		return true;
+	}
+
+	@Override
+	public Object getAttribute(final String key) {
+		final AgentSlots s = slots;
+		if (s != null) {
+			final int slot = s.layout.indexOf(key);
+			if (slot >= 0 && s.isAssigned(slot)) return s.get(slot);
+		}
+		return attributes == null ? null : attributes.get(key);
+	}
+
+	@Override
+	public void setAttribute(final String key, final Object value) {
+		final AgentSlots s = getSlots();
+		if (s != null) {
+			final int slot = s.layout.indexOf(key);
+			if (slot >= 0 && store(s, slot, value)) return;
+		}
+		getAttributes(true).put(key, value);
+	}
+
+	@Override
+	public boolean hasAttribute(final String key) {
+		final AgentSlots s = slots;
+		if (s != null) {
+			final int slot = s.layout.indexOf(key);
+			if (slot >= 0 && s.isAssigned(slot)) return true;
+		}
+		return attributes != null && attributes.containsKey(key);
+	}
+
+	@Override
+	public void forEachAttribute(final BiConsumerWithPruning<String, Object> visitor) {
+		if (visitor == null) return;
+		if (slots != null && !slots.forEach(visitor) || attributes == null) return;
+		for (final Map.Entry<String, Object> entry : attributes.entrySet()) {
+			if (!visitor.process(entry.getKey(), entry.getValue())) return;
+		}
+	}
+
+	@Override
+	public void setAttributes(final Map<String, Object> attr) {
+		if (attr == null) return;
+		attr.forEach(this::setAttribute);
+	}
+
 	/**
 	 * Compare to.
 	 *
@@ -0,0 +1,128 @@
+/*******************************************************************************************************
+ *
+ * AgentSlots.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.agent;
+
+import msi.gama.util.BiConsumerWithPruning;
+import msi.gaml.descriptions.SlotLayout;
+
+/**
+ * The values of the declared attributes of an agent, stored according to the {@link SlotLayout} of its species. The
+ * values are kept as they are assigned (i.e. already boxed by the coercion of the attribute), so that reading them
+ * does not allocate anything. A bit mask records which slots have been assigned, so that an unassigned slot can be
+ * distinguished from a slot containing nil.
+ * <p>
+ * Note: 'float' and 'int' attributes are deliberately not kept unboxed in typed double[] / int[] side arrays. GAML
+ * expressions, variables and listeners exchange values as objects, so such arrays would box the value again at every
+ * read (and unbox it at every write) without any caller able to use the primitive value; a single array of objects
+ * keeps reads and writes to one array access.
+ */
+public final class AgentSlots {
+
+	/** The value returned when a slot has not been assigned. */
+	public static final Object UNASSIGNED = new Object() {
+		@Override
+		public String toString() {
+			return "unassigned";
+		}
+	};
+
+	/** The layout. */
+	final SlotLayout layout;
+
+	/** The values, indexed by slot. */
+	private final Object[] values;
+
+	/** The assigned slots. */
+	private final long[] assigned;
+
+	/**
+	 * Instantiates new slots for the given layout.
+	 *
+	 * @param layout
+	 *            the layout
+	 */
+	public AgentSlots(final SlotLayout layout) {
+		this.layout = layout;
+		values = new Object[layout.size()];
+		assigned = new long[(layout.size() + 63) >>> 6];
+	}
+
+	/**
+	 * Gets the layout.
+	 *
+	 * @return the layout
+	 */
+	public SlotLayout getLayout() { return layout; }
+
+	/**
+	 * Checks if the slot has been assigned.
+	 *
+	 * @param slot
+	 *            the slot
+	 * @return true, if is assigned
+	 */
+	public boolean isAssigned(final int slot) {
+		return (assigned[slot >>> 6] & 1L << slot) != 0;
+	}
+
+	/**
+	 * Returns the value of the slot, or {@link #UNASSIGNED}.
+	 *
+	 * @param slot
+	 *            the slot
+	 * @return the object
+	 */
+	public Object get(final int slot) {
+		return isAssigned(slot) ? values[slot] : UNASSIGNED;
+	}
+
+	/**
+	 * Stores a value in the slot.
+	 *
+	 * @param slot
+	 *            the slot
+	 * @param value
+	 *            the value
+	 * @return true if the value has been stored, false if the slot is not used anymore by the layout
+	 */
+	public boolean set(final int slot, final Object value) {
+		if (!layout.isStored(slot)) return false;
+		values[slot] = value;
+		assigned[slot >>> 6] |= 1L << slot;
+		return true;
+	}
+
+	/**
+	 * Marks the slot as unassigned.
+	 *
+	 * @param slot
+	 *            the slot
+	 */
+	public void unassign(final int slot) {
+		assigned[slot >>> 6] &= ~(1L << slot);
+		values[slot] = null;
+	}
+
+	/**
+	 * Visits the assigned slots in the order of the layout.
+	 *
+	 * @param visitor
+	 *            the visitor
+	 * @return false if the visit has been pruned, true otherwise
+	 */
+	public boolean forEach(final BiConsumerWithPruning<String, Object> visitor) {
+		for (int slot = 0; slot < values.length; slot++) {
+			if (isAssigned(slot) && !visitor.process(layout.nameOf(slot), values[slot])) return false;
+		}
+		return true;
+	}
+
+}
@@ -11,11 +11,14 @@
 package msi.gama.metamodel.agent;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.util.RandomUtils;
@@ -28,6 +31,7 @@ import msi.gama.metamodel.population.SerialisedPopulation;
 import msi.gama.metamodel.topology.grid.GridPopulation;
 import msi.gama.metamodel.topology.grid.IGridAgent;
 import msi.gama.runtime.IScope;
+import msi.gama.runtime.concurrent.GamaExecutorService;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.file.json.Json;
 import msi.gama.util.file.json.JsonGamlAgent;
@@ -51,6 +55,9 @@ public record SerialisedAgent(int index, String species, Map<String, Object> att
 	/** All the attributes that are not interesting to serialise for grid agents */
 	public static Set<String> GRID_NON_SERIALISABLE = Set.of(IKeyword.GRID_X, IKeyword.GRID_Y, IKeyword.NEIGHBORS);
 
+	/** The number of agents above which populations are serialised in parallel. */
+	public static final int PARALLEL_THRESHOLD = 1000;
+
 	/** The Constant KEY. */
 	public static final String HISTORY_KEY = "**history**";
 
@@ -69,10 +76,21 @@ public record SerialisedAgent(int index, String species, Map<String, Object> att
 	public static SerialisedAgent of(final IAgent target, final boolean serializePopulations) {
 		int index = target.getIndex();
 		String species = target.getSpeciesName();
-		Map<String, Object> attributes = filterAttributes(target, target instanceof IGridAgent,
-				target.getAttributes(true), serializePopulations);
-		Map<String, ISerialisedPopulation> populations = filterPopulations(target, target instanceof IGridAgent,
-				target.getAttributes(true), serializePopulations);
+		boolean isGrid = target instanceof IGridAgent;
+		// The declared attributes of the agent can be stored in slots, so we do not rely on getAttributes(). They are
+		// filtered in a single pass, without copying them first
+		final Map<String, Object> attributes = new HashMap<>();
+		final Map<String, IPopulation<?>> micro = new LinkedHashMap<>();
+		target.forEachAttribute((k, v) -> {
+			if (serializePopulations && v instanceof IPopulation<?> p) {
+				micro.put(k, p);
+			} else if (!NON_SERIALISABLE.contains(k) && (!isGrid || !GRID_NON_SERIALISABLE.contains(k))) {
+				attributes.put(k, v);
+			}
+			return true;
+		});
+		addComputedAttributes(target, isGrid, attributes);
+		Map<String, ISerialisedPopulation> populations = filterPopulations(micro, serializePopulations);
 		SerialisedAgent result = new SerialisedAgent(index, species, attributes, populations);
 		if (target instanceof SimulationAgent sa && !shouldSerializeHistory(sa)) {
 			result.attributes().remove(HISTORY_KEY);
@@ -97,30 +115,41 @@ public record SerialisedAgent(int index, String species, Map<String, Object> att
 		return new SerialisedAgent(index, species, attributes, Collections.EMPTY_MAP);
 	}
 
+	/**
+	 * Serialises a list of agents (with their populations). Large lists are divided in chunks that are serialised in
+	 * parallel, if more than one thread is allowed (see {@link GamaExecutorService#THREADS_NUMBER}).
+	 *
+	 * @param agents
+	 *            the agents
+	 * @return the list of serialised agents, in the same order
+	 */
+	public static List<ISerialisedAgent> ofAll(final List<? extends IAgent> agents) {
+		final IAgent[] array = agents.toArray(new IAgent[agents.size()]);
+		final ISerialisedAgent[] result = new ISerialisedAgent[array.length];
+		if (array.length < PARALLEL_THRESHOLD || GamaExecutorService.THREADS_NUMBER.getValue() <= 1) {
+			for (int i = 0; i < array.length; i++) { result[i] = of(array[i], true); }
+		} else {
+			GamaExecutorService.executeThreaded(() -> IntStream.range(0, array.length).parallel()
+					.forEach(i -> result[i] = of(array[i], true)));
+		}
+		return new ArrayList<>(Arrays.asList(result));
+	}
+
 	/**
 	 * Filter populations.
 	 *
 	 * @author Alexis Drogoul (alexis.drogoul@ird.fr)
-	 * @param target
-	 *            the target
-	 * @param b
-	 *            the b
 	 * @param m
-	 *            the m
+	 *            the micro-populations of the agent
 	 * @return the map
 	 * @date 29 oct. 2023
 	 */
-	private static Map<String, ISerialisedPopulation> filterPopulations(final IAgent target, final boolean b,
-			final Map<String, Object> m, final boolean serializePopulations) {
+	private static Map<String, ISerialisedPopulation> filterPopulations(final Map<String, IPopulation<?>> m,
+			final boolean serializePopulations) {
 		if (!serializePopulations) return Collections.EMPTY_MAP;
 		Map<String, ISerialisedPopulation> map = new HashMap<>();
-		for (Map.Entry<String, Object> entry : m.entrySet()) {
-			Object v = entry.getValue();
-			if (v instanceof IPopulation<?> p) {
-				map.put(entry.getKey(),
-						p.isGrid() ? new SerialisedGrid((GridPopulation) p) : new SerialisedPopulation(p));
-			}
-		}
+		m.forEach((name, p) -> map.put(name,
+				p.isGrid() ? new SerialisedGrid((GridPopulation) p) : new SerialisedPopulation(p)));
 		return map;
 	}
 
@@ -135,27 +164,17 @@ public record SerialisedAgent(int index, String species, Map<String, Object> att
 	public int getIndex() { return index; }
 
 	/**
-	 * Filter map.
+	 * Adds the attributes that are not stored in the agent: the random state, usage and cycle of simulations, the
+	 * shape (except for grid agents) and the name.
 	 *
-	 * @author Alexis Drogoul (alexis.drogoul@ird.fr)
-	 * @param m
-	 *            the m
-	 * @return the object
-	 * @date 31 juil. 2023
+	 * @param agent
+	 *            the agent
+	 * @param isGrid
+	 *            whether the agent is a grid agent
+	 * @param map
+	 *            the attributes
 	 */
-	@SuppressWarnings ("unchecked")
-	public static Map<String, Object> filterAttributes(final IAgent agent, final boolean isGrid,
-			final Map<String, Object> m, final boolean serializePopulations) {
-		Map<String, Object> map = new HashMap<>();
-		for (Map.Entry<String, Object> entry : m.entrySet()) {
-			String k = entry.getKey(); //
-			Object v = entry.getValue();
-			if (NON_SERIALISABLE.contains(k) || isGrid && GRID_NON_SERIALISABLE.contains(k)
-					|| serializePopulations && v instanceof IPopulation) {
-				continue;
-			}
-			map.put(k, v);
-		}
+	private static void addComputedAttributes(final IAgent agent, final boolean isGrid, final Map<String, Object> map) {
 		boolean isSim = agent instanceof SimulationAgent;
 		if (isSim) {
 			SimulationAgent sim = (SimulationAgent) agent;
@@ -166,7 +185,6 @@ public record SerialisedAgent(int index, String species, Map<String, Object> att
 		}
 		if (!isGrid) { map.put(IKeyword.SHAPE, agent.getGeometry()); }
 		map.put(IKeyword.NAME, agent.getName());
-		return map;
 	}
 
 	@Override
@@ -57,6 +57,7 @@ import msi.gama.runtime.GAMA;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.benchmark.StopWatch;
 import msi.gama.runtime.concurrent.GamaExecutorService;
+import msi.gama.runtime.concurrent.StepStatistics;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.GamaList;
 import msi.gama.util.GamaListFactory;
@@ -119,6 +120,9 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 	/** The mirror management. */
 	private final MirrorPopulationManagement mirrorManagement;
 
+	/** The statistics of the parallel steps. */
+	private final StepStatistics stepStatistics = new StepStatistics();
+
 	/**
 	 * Listeners, created in a lazy way
 	 */
@@ -957,4 +961,7 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 	@Override
 	public boolean isStepOverriden() { return isStepOverriden; }
 
+	@Override
+	public StepStatistics getStepStatistics() { return stepStatistics; }
+
 }
\ No newline at end of file
@@ -24,6 +24,7 @@ import msi.gama.metamodel.shape.GamaPoint;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.metamodel.topology.ITopology;
 import msi.gama.runtime.IScope;
+import msi.gama.runtime.concurrent.StepStatistics;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.IContainer;
 import msi.gama.util.IList;
@@ -419,6 +420,14 @@ public interface IPopulation<T extends IAgent>
 	 */
 	boolean isStepOverriden();
 
+	/**
+	 * The statistics of the parallel steps of this population, used to size the chunks of agents stepped in parallel.
+	 * Each population (i.e. each simulation, and each host of a micro-species) has its own.
+	 *
+	 * @return the step statistics
+	 */
+	StepStatistics getStepStatistics();
+
 	/**
 	 * Gets the or create agent. If the agent cannot be found at this index, creates a "blank" agent (no initialisation
 	 * of any kind except the index). Used for serialisation
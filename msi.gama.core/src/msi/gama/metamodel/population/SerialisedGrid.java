@@ -10,7 +10,6 @@
  ********************************************************************************************************/
 package msi.gama.metamodel.population;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import msi.gama.metamodel.agent.IAgent;
@@ -38,8 +37,7 @@ public record SerialisedGrid(String speciesName, List<ISerialisedAgent> agents,
 	 * @date 27 août 2023
 	 */
 	public SerialisedGrid(final GridPopulation pop) {
-		this(pop.getSpecies().getName(), new ArrayList<>(), pop.getTopology().getPlaces());
-		for (IAgent a : pop) { agents.add(SerialisedAgent.of(a, true)); }
+		this(pop.getSpecies().getName(), SerialisedAgent.ofAll(pop), pop.getTopology().getPlaces());
 	}
 
 	/**
@@ -10,7 +10,6 @@
  ********************************************************************************************************/
 package msi.gama.metamodel.population;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -29,7 +28,8 @@ import one.util.streamex.StreamEx;
 public record SerialisedPopulation(String speciesName, List<ISerialisedAgent> agents) implements ISerialisedPopulation {
 
 	/**
-	 * Instantiates a new population proxy. This is where the serialised agents are created
+	 * Instantiates a new population proxy. This is where the serialised agents are created (in parallel for large
+	 * populations)
 	 *
 	 * @author Alexis Drogoul (alexis.drogoul@ird.fr)
 	 * @param pop
@@ -37,8 +37,7 @@ public record SerialisedPopulation(String speciesName, List<ISerialisedAgent> ag
 	 * @date 31 juil. 2023
 	 */
 	public SerialisedPopulation(final IPopulation<? extends IAgent> pop) {
-		this(pop.getSpecies().getName(), new ArrayList<>());
-		for (IAgent a : pop) { agents.add(SerialisedAgent.of(a, true)); }
+		this(pop.getSpecies().getName(), SerialisedAgent.ofAll(pop));
 	}
 
 	/**
@@ -0,0 +1,136 @@
+/*******************************************************************************************************
+ *
+ * AbstractSpatialIndex.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology;
+
+import java.util.Collection;
+
+import org.locationtech.jts.geom.Envelope;
+
+import com.google.common.collect.Ordering;
+
+import msi.gama.common.geometry.Envelope3D;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.shape.IShape;
+import msi.gama.metamodel.topology.filter.IAgentFilter;
+import msi.gama.runtime.IScope;
+import msi.gama.util.Collector;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.ICollector;
+import msi.gaml.operators.Maths;
+
+/**
+ * The common implementation of the spatial queries of the spatial indexes. They all rely on
+ * {@link #findIntersects(Envelope, Collection)}, which has to return the agents whose bounds intersect an envelope.
+ */
+public abstract class AbstractSpatialIndex implements ISpatialIndex {
+
+	/**
+	 * Find intersects.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param source
+	 *            the source
+	 * @param r
+	 *            the r
+	 * @param filter
+	 *            the filter
+	 * @return the collection
+	 */
+	protected Collection<IAgent> findIntersects(final IScope scope, final IShape source, final Envelope r,
+			final IAgentFilter filter) {
+		// Adresses Issue 722 by explicitly shuffling the results with GAMA
+		// random procedures and removing duplicates
+		try (final ICollector<IAgent> list = Collector.getOrderedSet()) {
+			findIntersects(r, list);
+			if (list.isEmpty()) return GamaListFactory.create();
+			filter.filter(scope, source, list);
+			// DEBUG.OUT(list.size(), false);
+			list.shuffleInPlaceWith(scope.getRandom());
+			return list.items();
+		}
+	}
+
+	/**
+	 * Collects the agents whose envelope intersects the envelope passed.
+	 *
+	 * @param r
+	 *            the envelope
+	 * @param result
+	 *            the result
+	 */
+	protected abstract void findIntersects(final Envelope r, final Collection<IAgent> result);
+
+	@Override
+	public Collection<IAgent> allAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f) {
+		// TODO filter result by topology's bounds
+		final double exp = dist * Maths.SQRT2;
+		final Envelope3D env = Envelope3D.of(source.getEnvelope());
+		env.expandBy(exp);
+		try {
+			final Collection<IAgent> result = findIntersects(scope, source, env, f);
+			if (result.isEmpty()) return GamaListFactory.create();
+			result.removeIf(each -> source.euclidianDistanceTo(each) > dist);
+			return result;
+		} finally {
+			env.dispose();
+		}
+	}
+
+	@Override
+	public Collection<IAgent> firstAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f, final int number, final Collection<IAgent> alreadyChosen) {
+		final double exp = dist * Maths.SQRT2;
+		final Envelope3D env = Envelope3D.of(source.getEnvelope());
+		env.expandBy(exp);
+		try {
+			final Collection<IAgent> in_square = findIntersects(scope, source, env, f);
+			in_square.removeAll(alreadyChosen);
+			if (in_square.isEmpty()) return GamaListFactory.create();
+
+			if (in_square.size() <= number) return in_square;
+			final Ordering<IShape> ordering = Ordering.natural().onResultOf(input -> source.euclidianDistanceTo(input));
+			return ordering.leastOf(in_square, number);
+		} finally {
+			env.dispose();
+		}
+	}
+
+	@Override
+	public IAgent firstAtDistance(final IScope scope, final IShape source, final double dist, final IAgentFilter f) {
+		final Envelope3D env = Envelope3D.of(source.getEnvelope());
+		env.expandBy(dist * Maths.SQRT2);
+		try {
+			final Collection<IAgent> in_square = findIntersects(scope, source, env, f);
+			if (in_square.isEmpty()) return null;
+			double min_distance = dist;
+			IAgent min_agent = null;
+			for (final IAgent a : in_square) {
+				final Double dd = source.euclidianDistanceTo(a);
+				if (dd < min_distance) {
+					min_distance = dd;
+					min_agent = a;
+				}
+			}
+			return min_agent;
+		} finally {
+			env.dispose();
+		}
+	}
+
+	@Override
+	public Collection<IAgent> allInEnvelope(final IScope scope, final IShape source, final Envelope envelope,
+			final IAgentFilter f, final boolean contained) {
+		return findIntersects(scope, source, envelope, f);
+	}
+
+}
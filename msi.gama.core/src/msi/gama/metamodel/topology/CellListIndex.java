@@ -0,0 +1,550 @@
+/*******************************************************************************************************
+ *
+ * CellListIndex.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.locationtech.jts.geom.Envelope;
+
+import msi.gama.common.geometry.Envelope3D;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.shape.GamaPoint;
+
+/**
+ * A spatial index dividing the environment into a uniform grid of cells (a "cell list"), well suited for large numbers
+ * of point agents moving in a bounded space (crowds, epidemics...). Each agent occupies a slot, and the agents of each
+ * cell are chained through the slots in arrays of ints, so that moving an agent from one cell to another only consists
+ * in unlinking and linking its slot: no node has to be split or merged, and nothing is allocated.
+ * <p>
+ * The size of the cells follows the size of the queries (so that a query only visits a few cells) or, before any
+ * query, the density of the agents. The grid is rebuilt when the number of agents or the size of the queries changes
+ * significantly, which also recomputes the largest extent of the agents that are not points (these agents are stored
+ * in the cell of the centre of their envelope, and the queries are enlarged by this extent).
+ * <p>
+ * Moves and queries run concurrently: they only lock the cells they read or modify (through a fixed set of lock
+ * stripes). Insertions, removals and rebuilds, which may reallocate the arrays, are exclusive.
+ *
+ * Selected by species with the facet `spatial_index: cell_list`.
+ */
+public class CellListIndex extends AbstractSpatialIndex {
+
+	/** The maximal number of cells of the grid. */
+	static final int MAX_CELLS = 1 << 20;
+
+	/** The number of cells along the largest side of the environment, when nothing is known about the agents. */
+	static final int INITIAL_CELLS_PER_SIDE = 64;
+
+	/** The number of agents per cell targeted when the size of the queries is not known. */
+	static final int AGENTS_PER_CELL = 4;
+
+	/** The number of lock stripes (a power of 2). */
+	static final int STRIPES = 64;
+
+	/** The origin of the grid. */
+	final double minX, minY;
+
+	/** The size of the environment. */
+	final double width, height;
+
+	/** The size of the cells. */
+	double cellSize;
+
+	/** The number of columns and rows. */
+	int cols, rows;
+
+	/** The first slot of each cell, or -1. */
+	int[] heads;
+
+	/** The next and previous slots in the same cell (the next free slot for free slots), or -1. */
+	int[] next, prev;
+
+	/** The cell of each slot, or -1 if the slot is free. */
+	int[] cellOf;
+
+	/** The bounds of the agent of each slot (minx, miny, maxx, maxy). */
+	double[] bounds;
+
+	/** The agent of each slot. */
+	IAgent[] agents;
+
+	/** The slots of the agents: an open addressing table of agents (compared by identity) and of their slots. */
+	IAgent[] keys = new IAgent[16];
+
+	/** The slots of the agents in {@link #keys}. */
+	int[] values = new int[16];
+
+	/** The number of agents. */
+	int size;
+
+	/** The first free slot, or -1. */
+	int free = -1;
+
+	/** The number of slots used so far. */
+	int used;
+
+	/** The number of agents for which the grid has been built. */
+	int builtForSize;
+
+	/** The size of the queries for which the grid has been built (0 if unknown). */
+	volatile double builtForQuery;
+
+	/** The average size of the queries (0 if unknown). Updated without synchronization, as it is only a hint. */
+	volatile double querySize;
+
+	/** The largest half-size of the envelopes of the agents that are not points, since the last rebuild. */
+	final DoubleAccumulator extent = new DoubleAccumulator(Math::max, 0);
+
+	/** The locks of the cells. */
+	final Object[] stripes = new Object[STRIPES];
+
+	/** The lock protecting the arrays, shared by moves and queries, exclusive for insertions and removals. */
+	final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Instantiates a new cell list index.
+	 *
+	 * @param env
+	 *            the bounds of the environment
+	 */
+	CellListIndex(final Envelope env) {
+		minX = env.getMinX();
+		minY = env.getMinY();
+		width = env.getWidth();
+		height = env.getHeight();
+		for (int i = 0; i < STRIPES; i++) { stripes[i] = new Object(); }
+		allocate(64);
+		build(Math.max(width, height) / INITIAL_CELLS_PER_SIDE);
+	}
+
+	/**
+	 * Allocates the arrays of slots.
+	 *
+	 * @param capacity
+	 *            the capacity
+	 */
+	private void allocate(final int capacity) {
+		next = next == null ? new int[capacity] : Arrays.copyOf(next, capacity);
+		prev = prev == null ? new int[capacity] : Arrays.copyOf(prev, capacity);
+		cellOf = cellOf == null ? new int[capacity] : Arrays.copyOf(cellOf, capacity);
+		bounds = bounds == null ? new double[capacity * 4] : Arrays.copyOf(bounds, capacity * 4);
+		agents = agents == null ? new IAgent[capacity] : Arrays.copyOf(agents, capacity);
+	}
+
+	/**
+	 * Builds the grid with the given size of cells (bounded by the maximal number of cells) and links the agents in
+	 * it. Called with the exclusive lock (or from the constructor).
+	 *
+	 * @param size
+	 *            the size of the cells
+	 */
+	private void build(final double size) {
+		double cs = size > 0 ? size : Math.max(Math.max(width, height), 1);
+		final int maxCells =
+				(int) Math.min(MAX_CELLS, Math.max(INITIAL_CELLS_PER_SIDE * INITIAL_CELLS_PER_SIDE, 16L * this.size));
+		while (Math.ceil(width / cs) * Math.ceil(height / cs) > maxCells) { cs *= 2; }
+		cellSize = cs;
+		cols = Math.max(1, (int) Math.ceil(width / cs));
+		rows = Math.max(1, (int) Math.ceil(height / cs));
+		heads = new int[cols * rows];
+		Arrays.fill(heads, -1);
+		extent.reset();
+		for (int slot = 0; slot < used; slot++) {
+			// Free slots and agents without geometry are not linked
+			if (agents[slot] == null || cellOf[slot] < 0) { continue; }
+			final int i = slot * 4;
+			accumulateExtent(bounds[i], bounds[i + 1], bounds[i + 2], bounds[i + 3]);
+			link(slot, cellOf(bounds[i], bounds[i + 1], bounds[i + 2], bounds[i + 3]));
+		}
+		builtForSize = this.size;
+		builtForQuery = querySize;
+	}
+
+	/**
+	 * Rebuilds the grid if the number of agents or the size of the queries have changed too much since it was built.
+	 * Called with the exclusive lock.
+	 */
+	private void rebuildIfNeeded() {
+		final double q = querySize;
+		final boolean queriesChanged = q > 0 && (builtForQuery == 0 || q > 2 * builtForQuery || 2 * q < builtForQuery);
+		final boolean sizeChanged = size > 2 * builtForSize + 64 || 2 * size + 64 < builtForSize;
+		if (!queriesChanged && !sizeChanged) return;
+		if (q > 0) {
+			build(q);
+		} else {
+			build(Math.sqrt(width * height * AGENTS_PER_CELL / Math.max(1, size)));
+		}
+	}
+
+	/**
+	 * Column of an abscissa (clamped to the grid).
+	 *
+	 * @param x
+	 *            the x
+	 * @return the int
+	 */
+	private int col(final double x) {
+		final int c = (int) Math.floor((x - minX) / cellSize);
+		return c < 0 ? 0 : c >= cols ? cols - 1 : c;
+	}
+
+	/**
+	 * Row of an ordinate (clamped to the grid).
+	 *
+	 * @param y
+	 *            the y
+	 * @return the int
+	 */
+	private int row(final double y) {
+		final int r = (int) Math.floor((y - minY) / cellSize);
+		return r < 0 ? 0 : r >= rows ? rows - 1 : r;
+	}
+
+	/**
+	 * The cell of the centre of some bounds.
+	 *
+	 * @param x0
+	 *            the min x
+	 * @param y0
+	 *            the min y
+	 * @param x1
+	 *            the max x
+	 * @param y1
+	 *            the max y
+	 * @return the cell
+	 */
+	private int cellOf(final double x0, final double y0, final double x1, final double y1) {
+		return row((y0 + y1) / 2) * cols + col((x0 + x1) / 2);
+	}
+
+	/**
+	 * Records the half-size of some bounds in the extent.
+	 *
+	 * @param x0
+	 *            the min x
+	 * @param y0
+	 *            the min y
+	 * @param x1
+	 *            the max x
+	 * @param y1
+	 *            the max y
+	 */
+	private void accumulateExtent(final double x0, final double y0, final double x1, final double y1) {
+		if (x0 != x1 || y0 != y1) { extent.accumulate(Math.max(x1 - x0, y1 - y0) / 2); }
+	}
+
+	/**
+	 * The index of the lock of a cell.
+	 *
+	 * @param cell
+	 *            the cell
+	 * @return the index of the stripe
+	 */
+	private static int stripe(final int cell) {
+		return cell & STRIPES - 1;
+	}
+
+	/**
+	 * Links the slot at the head of the cell. Called with the lock of the cell.
+	 *
+	 * @param slot
+	 *            the slot
+	 * @param cell
+	 *            the cell
+	 */
+	private void link(final int slot, final int cell) {
+		final int head = heads[cell];
+		next[slot] = head;
+		prev[slot] = -1;
+		if (head >= 0) { prev[head] = slot; }
+		heads[cell] = slot;
+		cellOf[slot] = cell;
+	}
+
+	/**
+	 * Unlinks the slot from its cell. Called with the lock of the cell.
+	 *
+	 * @param slot
+	 *            the slot
+	 */
+	private void unlink(final int slot) {
+		final int cell = cellOf[slot];
+		if (cell < 0) return;
+		final int p = prev[slot], n = next[slot];
+		if (p >= 0) {
+			next[p] = n;
+		} else {
+			heads[cell] = n;
+		}
+		if (n >= 0) { prev[n] = p; }
+		cellOf[slot] = -1;
+	}
+
+	/**
+	 * Returns the slot of an agent, or -1.
+	 *
+	 * @param agent
+	 *            the agent
+	 * @return the slot
+	 */
+	private int slotOf(final IAgent agent) {
+		final int mask = keys.length - 1;
+		for (int i = System.identityHashCode(agent) & mask;; i = i + 1 & mask) {
+			final IAgent k = keys[i];
+			if (k == agent) return values[i];
+			if (k == null) return -1;
+		}
+	}
+
+	/**
+	 * Records the slot of an agent that is not present yet. Called with the exclusive lock.
+	 *
+	 * @param agent
+	 *            the agent
+	 * @param slot
+	 *            the slot
+	 */
+	private void putSlot(final IAgent agent, final int slot) {
+		if (2 * (size + 1) > keys.length) {
+			final IAgent[] oldKeys = keys;
+			final int[] oldValues = values;
+			keys = new IAgent[oldKeys.length * 2];
+			values = new int[oldKeys.length * 2];
+			for (int i = 0; i < oldKeys.length; i++) { if (oldKeys[i] != null) { putEntry(oldKeys[i], oldValues[i]); } }
+		}
+		putEntry(agent, slot);
+		size++;
+	}
+
+	/**
+	 * Places an entry in the table.
+	 *
+	 * @param agent
+	 *            the agent
+	 * @param slot
+	 *            the slot
+	 */
+	private void putEntry(final IAgent agent, final int slot) {
+		final int mask = keys.length - 1;
+		int i = System.identityHashCode(agent) & mask;
+		while (keys[i] != null) { i = i + 1 & mask; }
+		keys[i] = agent;
+		values[i] = slot;
+	}
+
+	/**
+	 * Removes the slot of an agent, shifting back the entries that follow it. Called with the exclusive lock.
+	 *
+	 * @param agent
+	 *            the agent
+	 * @return the slot, or -1 if the agent was not present
+	 */
+	private int removeSlot(final IAgent agent) {
+		final int mask = keys.length - 1;
+		int i = System.identityHashCode(agent) & mask;
+		while (keys[i] != agent) {
+			if (keys[i] == null) return -1;
+			i = i + 1 & mask;
+		}
+		final int slot = values[i];
+		for (int j = i + 1 & mask; keys[j] != null; j = j + 1 & mask) {
+			final int home = System.identityHashCode(keys[j]) & mask;
+			// Moves the entry j to the hole i if its home position is not between i (excluded) and j (included)
+			if (i <= j ? home <= i || home > j : home <= i && home > j) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				i = j;
+			}
+		}
+		keys[i] = null;
+		size--;
+		return slot;
+	}
+
+	@Override
+	public void insert(final IAgent agent) {
+		if (agent == null) return;
+		lock.writeLock().lock();
+		try {
+			int slot = slotOf(agent);
+			if (slot < 0) {
+				if (free >= 0) {
+					slot = free;
+					free = next[slot];
+				} else {
+					if (used == agents.length) { allocate(used * 2); }
+					slot = used++;
+				}
+				agents[slot] = agent;
+				cellOf[slot] = -1;
+				putSlot(agent, slot);
+			}
+			move(slot, agent);
+			rebuildIfNeeded();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void update(final Envelope3D previous, final IAgent agent) {
+		if (agent == null) return;
+		boolean present;
+		lock.readLock().lock();
+		try {
+			final int slot = slotOf(agent);
+			present = slot >= 0;
+			if (present) { move(slot, agent); }
+		} finally {
+			lock.readLock().unlock();
+		}
+		if (!present) { insert(agent); }
+		if (previous != null) { previous.dispose(); }
+	}
+
+	/**
+	 * Stores the current bounds of the agent in its slot and moves the slot to the corresponding cell, holding the
+	 * locks of the previous and of the new cell. Called with the shared or the exclusive lock.
+	 *
+	 * @param slot
+	 *            the slot
+	 * @param agent
+	 *            the agent
+	 */
+	private void move(final int slot, final IAgent agent) {
+		final double x0, y0, x1, y1;
+		if (agent.isPoint()) {
+			final GamaPoint p = agent.getLocation();
+			x0 = x1 = p.x;
+			y0 = y1 = p.y;
+		} else {
+			final Envelope3D e = agent.getEnvelope();
+			if (e == null) {
+				x0 = y0 = x1 = y1 = Double.NaN;
+			} else {
+				x0 = e.getMinX();
+				y0 = e.getMinY();
+				x1 = e.getMaxX();
+				y1 = e.getMaxY();
+				e.dispose();
+				accumulateExtent(x0, y0, x1, y1);
+			}
+		}
+		final int cell = Double.isNaN(x0) ? -1 : cellOf(x0, y0, x1, y1);
+		// Only the thread moving the agent, or a rebuild (exclusive), changes the cell of its slot
+		final int old = cellOf[slot];
+		if (old < 0 && cell < 0) return;
+		// The locks of the two cells are always taken in the same order
+		final int s0 = stripe(old < 0 ? cell : old), s1 = stripe(cell < 0 ? old : cell);
+		synchronized (stripes[Math.min(s0, s1)]) {
+			synchronized (stripes[Math.max(s0, s1)]) {
+				final int i = slot * 4;
+				bounds[i] = x0;
+				bounds[i + 1] = y0;
+				bounds[i + 2] = x1;
+				bounds[i + 3] = y1;
+				if (cell == old) return;
+				unlink(slot);
+				if (cell >= 0) { link(slot, cell); }
+			}
+		}
+	}
+
+	@Override
+	public void remove(final Envelope3D previous, final IAgent agent) {
+		lock.writeLock().lock();
+		try {
+			final int slot = removeSlot(agent);
+			if (slot >= 0) {
+				unlink(slot);
+				agents[slot] = null;
+				next[slot] = free;
+				free = slot;
+				rebuildIfNeeded();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+		if (previous != null) { previous.dispose(); }
+	}
+
+	@Override
+	public void dispose() {
+		lock.writeLock().lock();
+		try {
+			Arrays.fill(heads, -1);
+			Arrays.fill(agents, null);
+			Arrays.fill(keys, null);
+			size = 0;
+			free = -1;
+			used = 0;
+			extent.reset();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	protected void findIntersects(final Envelope r, final Collection<IAgent> result) {
+		recordQuery(r);
+		lock.readLock().lock();
+		try {
+			final double ext = extent.get();
+			final int c0 = col(r.getMinX() - ext), c1 = col(r.getMaxX() + ext);
+			final int r0 = row(r.getMinY() - ext), r1 = row(r.getMaxY() + ext);
+			for (int row = r0; row <= r1; row++) {
+				for (int col = c0; col <= c1; col++) {
+					final int cell = row * cols + col;
+					synchronized (stripes[stripe(cell)]) {
+						for (int slot = heads[cell]; slot >= 0; slot = next[slot]) {
+							final int i = slot * 4;
+							if (r.getMinX() > bounds[i + 2] || r.getMaxX() < bounds[i]
+									|| r.getMinY() > bounds[i + 3] || r.getMaxY() < bounds[i + 1]) {
+								continue;
+							}
+							result.add(agents[slot]);
+						}
+					}
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		final double q = querySize, built = builtForQuery;
+		if (q > 0 && (built == 0 || q > 2 * built || 2 * q < built)) {
+			// The size of the queries has changed: the grid is rebuilt if no other thread is using it
+			if (lock.writeLock().tryLock()) {
+				try {
+					rebuildIfNeeded();
+				} finally {
+					lock.writeLock().unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records the size of a query in the average size of the queries. Queries larger than the environment (e.g. the
+	 * ones looking for the closest agent at any distance) are not taken into account.
+	 *
+	 * @param r
+	 *            the envelope of the query
+	 */
+	private void recordQuery(final Envelope r) {
+		final double q = Math.max(r.getWidth(), r.getHeight());
+		if (q <= 0 || q > Math.max(width, height)) return;
+		final double current = querySize;
+		querySize = current == 0 ? q : current + (q - current) / 16;
+	}
+
+}
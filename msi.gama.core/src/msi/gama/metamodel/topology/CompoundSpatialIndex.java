@@ -23,6 +23,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
 
 import msi.gama.common.geometry.Envelope3D;
+import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.population.IPopulation;
@@ -57,6 +58,9 @@ public class CompoundSpatialIndex implements ISpatialIndex.Compound {
 	/** The steps. */
 	final protected double[] steps;
 
+	/** The single step used when all the indices search the nearest agents first. */
+	private static final double[] UNLIMITED = { Double.MAX_VALUE };
+
 	/**
 	 * The cached species indices. Keeps a correspondance between species and the spatial indices to use to look for
 	 * agents. Used when passing a list of agents with a common species (and not a population)
@@ -87,14 +91,87 @@ public class CompoundSpatialIndex implements ISpatialIndex.Compound {
 		if (index == null && !GamaPreferences.Experimental.QUADTREE_OPTIMIZATION.getValue()) {
 			index = add(pop, false);
 		}
-		if (index != null) { index.insert(agent); }
+		if (index != null) {
+			index.insert(agent);
+			replaceIfOutdated(pop.getSpecies(), index);
+		}
 	}
 
 	@Override
 	public void remove(final Envelope3D previous, final IAgent agent) {
 		if (disposed || agent == null) return;
 		ISpatialIndex index = spatialIndexes.getOrDefault(agent.getSpecies(), null);
-		if (index != null) { index.remove(previous, agent); }
+		if (index != null) {
+			index.remove(previous, agent);
+			replaceIfOutdated(agent.getSpecies(), index);
+		}
+	}
+
+	@Override
+	public void update(final Envelope3D previous, final IAgent agent) {
+		if (disposed || agent == null) return;
+		ISpatialIndex index = spatialIndexes.getOrDefault(agent.getSpecies(), null);
+		if (index == null) {
+			insert(agent);
+		} else {
+			index.update(previous, agent);
+			replaceIfOutdated(agent.getSpecies(), index);
+		}
+	}
+
+	/**
+	 * Replaces the index of a species by a quadtree containing the same agents, if it is a packed R-tree chosen
+	 * automatically whose agents have changed too much since it has been built (i.e. if the agents turn out not to be
+	 * static). The R-tree absorbs the first changes without being rebuilt (see {@link PackedRTree}).
+	 *
+	 * @param species
+	 *            the species
+	 * @param index
+	 *            the index of the species that has just been modified
+	 */
+	private void replaceIfOutdated(final ISpecies species, final ISpatialIndex index) {
+		if (!(index instanceof PackedRTree rtree) || !rtree.isAutomatic() || !rtree.isOutdated()) return;
+		synchronized (spatialIndexes) {
+			if (spatialIndexes.get(species) != rtree) return;
+			final ISpatialIndex quadtree = GamaQuadTree.create(bounds, parallel);
+			rtree.forEachAgent(quadtree::insert);
+			spatialIndexes.put(species, quadtree);
+			cachedSpeciesIndices.clear();
+			rtree.dispose();
+		}
+	}
+
+	/**
+	 * Packs the index of a species whose agents have just been created in bulk, for instance from a shapefile or an OSM
+	 * file, so that the first query does not have to, and so that the agents created one by one are not kept aside.
+	 *
+	 * @param species
+	 *            the species
+	 */
+	@Override
+	public void loaded(final ISpecies species) {
+		if (disposed) return;
+		if (spatialIndexes.getOrDefault(species, null) instanceof PackedRTree rtree) { rtree.pack(); }
+	}
+
+	/**
+	 * Creates the spatial index of a species, according to the value of its 'spatial_index' facet. When it is not
+	 * defined, species whose agents are not supposed to move (i.e. which do not have the 'moving' skill), like the
+	 * buildings or roads loaded from shapefiles or OSM files, are given a packed R-tree, replaced by a quadtree if
+	 * their agents change too much once it has been built. The other ones are given a quadtree. Species declared as
+	 * 'static' are treated like the former ones.
+	 *
+	 * @param species
+	 *            the species
+	 * @return the spatial index
+	 */
+	private ISpatialIndex createIndex(final ISpecies species) {
+		final String kind = species.getSpatialIndex();
+		if (ISpatialIndex.RTREE.equals(kind)) return new PackedRTree(false);
+		if (ISpatialIndex.CELL_LIST.equals(kind)) return new CellListIndex(bounds);
+		if (ISpatialIndex.STATIC.equals(kind) || kind == null && !species.implementsSkill(IKeyword.MOVING_SKILL))
+			return new PackedRTree(true);
+		return GamaQuadTree.create(bounds, parallel, kind);
 	}
 
 	@Override
@@ -102,7 +179,7 @@ public class CompoundSpatialIndex implements ISpatialIndex.Compound {
 		if (disposed) return null;
 		Iterable<ISpatialIndex> indices = add(scope, f);
 		try (final Collector.AsList<IAgent> shapes = Collector.getList()) {
-			for (final double step : steps) {
+			for (final double step : stepsFor(indices)) {
 				for (final ISpatialIndex si : indices) {
 					if (si == null) { continue; }
 					final IAgent first = si.firstAtDistance(scope, source, step, f);
@@ -129,6 +206,19 @@ public class CompoundSpatialIndex implements ISpatialIndex.Compound {
 		}
 	}
 
+	/**
+	 * Returns the successive distances at which the nearest agents are searched in the indices. If all of them search
+	 * the nearest agents first, a single search without any limit of distance is enough.
+	 *
+	 * @param indices
+	 *            the indices
+	 * @return the distances
+	 */
+	private double[] stepsFor(final Iterable<ISpatialIndex> indices) {
+		for (final ISpatialIndex si : indices) { if (si != null && !si.searchesNearestFirst()) return steps; }
+		return UNLIMITED;
+	}
+
 	/**
 	 * N first at distance in all spatial indexes.
 	 *
@@ -149,7 +239,7 @@ public class CompoundSpatialIndex implements ISpatialIndex.Compound {
 			final Iterable<ISpatialIndex> indices) {
 		if (disposed) return null;
 		final List<IAgent> shapes = new ArrayList<>(alreadyChosen);
-		for (final double step : steps) {
+		for (final double step : stepsFor(indices)) {
 			for (final ISpatialIndex si : indices) {
 				final Collection<IAgent> firsts = si.firstAtDistance(scope, source, step, filter, number, shapes);
 				shapes.addAll(firsts);
@@ -238,7 +328,7 @@ public class CompoundSpatialIndex implements ISpatialIndex.Compound {
 			if (pop.isGrid()) {
 				index = ((GridPopulation) pop).getTopology().getPlaces();
 			} else {
-				index = GamaQuadTree.create(bounds, parallel);
+				index = createIndex(spec);
 			}
 			spatialIndexes.put(spec, index);
 			if (insertAgents) { for (final IAgent ag : pop) { index.insert(ag); } }
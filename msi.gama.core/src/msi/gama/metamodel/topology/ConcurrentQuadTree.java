@@ -0,0 +1,419 @@
+/*******************************************************************************************************
+ *
+ * ConcurrentQuadTree.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.locationtech.jts.geom.Envelope;
+
+import msi.gama.common.geometry.Envelope3D;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.shape.GamaPoint;
+
+/**
+ * A quadtree that can be safely used by agents running in parallel, without synchronizing all its operations on a
+ * single monitor (like {@link GamaQuadTree.QuadTreeSynchronizer} does).
+ * <p>
+ * The content of each node is either an array of entries (leaf) or an array of four children (once the node has been
+ * split). The entries of a leaf are added, replaced and removed (by moving the last one in place of the removed one) in
+ * this array, which is only reallocated when it is full. All the operations on a leaf, including queries, therefore
+ * hold its monitor, and only its monitor: agents running in parallel only contend when they use the same leaf. When
+ * an agent moves inside the same leaf, its entry is replaced in place, instead of being removed and inserted again.
+ * Moves are applied as soon as they happen, not queued and relocated in batch, so that the agents stepped afterwards
+ * (or concurrently) query their current positions.
+ * <p>
+ * The bounds of the agents are copied in the entries, so that the envelopes passed by the agents can be disposed
+ * immediately.
+ *
+ * Selected by species with the facet `spatial_index: concurrent`.
+ */
+public class ConcurrentQuadTree extends AbstractSpatialIndex {
+
+	/** The empty content of leaves. */
+	static final Entry[] NO_ENTRIES = {};
+
+	/** The number of entries above which a leaf is split. */
+	final static int maxCapacity = 100;
+
+	/** The min size of the nodes. */
+	final double minSize;
+
+	/** The top node. */
+	final Node top;
+
+	/**
+	 * Instantiates a new concurrent quad tree.
+	 *
+	 * @param bounds
+	 *            the bounds
+	 */
+	ConcurrentQuadTree(final Envelope bounds) {
+		// As in GamaQuadTree, computations are made in 2D
+		minSize = bounds.getWidth() / 100d;
+		top = new Node(new Envelope(bounds));
+	}
+
+	@Override
+	public void dispose() {
+		synchronized (top) {
+			top.content = NO_ENTRIES;
+			top.size = 0;
+		}
+	}
+
+	@Override
+	public void insert(final IAgent agent) {
+		if (agent == null) return;
+		final Entry entry = Entry.of(agent);
+		if (entry != null) { top.add(entry); }
+	}
+
+	@Override
+	public void remove(final Envelope3D previous, final IAgent agent) {
+		final Envelope3D current = previous == null ? agent.getEnvelope() : previous;
+		if (current == null) return;
+		top.remove(current.getMinX(), current.getMinY(), current.getMaxX(), current.getMaxY(), agent);
+		current.dispose();
+	}
+
+	@Override
+	public void update(final Envelope3D previous, final IAgent agent) {
+		if (previous == null || previous.isNull()) {
+			insert(agent);
+			return;
+		}
+		final Entry entry = Entry.of(agent);
+		if (entry != null && entry.isPoint() && previous.getArea() == 0.0) {
+			// Most moves of point agents are small and the agent stays in the same leaf
+			final Node leaf = top.leafOf(previous.getMinX(), previous.getMinY());
+			if (leaf == top.leafOf(entry.minX, entry.minY) && leaf.replace(entry)) {
+				previous.dispose();
+				return;
+			}
+		}
+		remove(previous, agent);
+		if (entry != null) { top.add(entry); }
+	}
+
+	@Override
+	protected void findIntersects(final Envelope r, final Collection<IAgent> result) {
+		top.findIntersects(r, result);
+	}
+
+	/**
+	 * An agent and a copy of its bounds at the time of its insertion.
+	 */
+	record Entry(IAgent agent, double minX, double minY, double maxX, double maxY) {
+
+		/**
+		 * Creates the entry of an agent.
+		 *
+		 * @param agent
+		 *            the agent
+		 * @return the entry or null if the agent has no geometry
+		 */
+		static Entry of(final IAgent agent) {
+			if (agent.isPoint()) {
+				final GamaPoint p = agent.getLocation();
+				return new Entry(agent, p.x, p.y, p.x, p.y);
+			}
+			final Envelope3D e = agent.getEnvelope();
+			if (e == null) return null;
+			try {
+				return new Entry(agent, e.getMinX(), e.getMinY(), e.getMaxX(), e.getMaxY());
+			} finally {
+				e.dispose();
+			}
+		}
+
+		/**
+		 * Checks if is point.
+		 *
+		 * @return true, if is point
+		 */
+		boolean isPoint() { return minX == maxX && minY == maxY; }
+
+		/**
+		 * Intersects.
+		 *
+		 * @param r
+		 *            the r
+		 * @return true, if successful
+		 */
+		boolean intersects(final Envelope r) {
+			return !(r.getMinX() > maxX || r.getMaxX() < minX || r.getMinY() > maxY || r.getMaxY() < minY);
+		}
+
+	}
+
+	/**
+	 * The Class Node.
+	 */
+	final class Node {
+
+		/** The bounds. */
+		final Envelope bounds;
+
+		/** The halfy. */
+		final double halfx, halfy;
+
+		/** The can split. */
+		final boolean canSplit;
+
+		/**
+		 * Either an array of {@link Entry} (leaf), whose first {@link #size} elements are used, or an array of four
+		 * {@link Node} (split node). Only modified or replaced while holding the monitor of the node.
+		 */
+		volatile Object[] content = NO_ENTRIES;
+
+		/** The number of entries of a leaf. Guarded by the monitor of the node. */
+		int size;
+
+		/**
+		 * Instantiates a new node.
+		 *
+		 * @param bounds
+		 *            the bounds
+		 */
+		Node(final Envelope bounds) {
+			this.bounds = bounds;
+			final double hw = bounds.getWidth();
+			final double hh = bounds.getHeight();
+			halfx = bounds.getMinX() + hw / 2;
+			halfy = bounds.getMinY() + hh / 2;
+			canSplit = hw > minSize && hh > minSize;
+		}
+
+		/**
+		 * Adds the entry to this node or to its children.
+		 *
+		 * @param e
+		 *            the e
+		 */
+		void add(final Entry e) {
+			Object[] c = content;
+			if (c instanceof Entry[]) {
+				synchronized (this) {
+					c = content;
+					if (c instanceof Entry[] entries) {
+						if (!canSplit || size < maxCapacity) {
+							if (size == entries.length) {
+								// Full: the array grows by half its size
+								entries = Arrays.copyOf(entries, Math.max(4, size + (size >> 1)));
+								content = entries;
+							}
+							entries[size++] = e;
+							return;
+						}
+						c = split(entries, size);
+						size = 0;
+						content = c;
+					}
+				}
+			}
+			dispatch((Node[]) c, e);
+		}
+
+		/**
+		 * Dispatch an entry to the children.
+		 *
+		 * @param children
+		 *            the children
+		 * @param e
+		 *            the e
+		 */
+		private void dispatch(final Node[] children, final Entry e) {
+			if (e.isPoint()) {
+				children[quadrant(e.minX, e.minY)].add(e);
+			} else {
+				for (final Node child : children) {
+					if (child.intersects(e.minX, e.minY, e.maxX, e.maxY)) { child.add(e); }
+				}
+			}
+		}
+
+		/**
+		 * Creates the children of this node and fills them with the entries. As the children are not yet visible from
+		 * other threads, this is done while holding the lock of this node only. The entries of dead agents are kept:
+		 * like all the other ones, they only leave the tree when the agents are removed from it.
+		 *
+		 * @param entries
+		 *            the entries
+		 * @param count
+		 *            the number of entries used
+		 * @return the children
+		 */
+		private Node[] split(final Entry[] entries, final int count) {
+			final double maxx = bounds.getMaxX();
+			final double minx = bounds.getMinX();
+			final double miny = bounds.getMinY();
+			final double maxy = bounds.getMaxY();
+			final Node[] children = { new Node(new Envelope(minx, halfx, miny, halfy)),
+					new Node(new Envelope(halfx, maxx, miny, halfy)), new Node(new Envelope(minx, halfx, halfy, maxy)),
+					new Node(new Envelope(halfx, maxx, halfy, maxy)) };
+			for (int i = 0; i < count; i++) { dispatch(children, entries[i]); }
+			return children;
+		}
+
+		/**
+		 * Removes the agent from the leaves intersecting the bounds passed (or from the leaf where it would have been
+		 * inserted if the bounds are those of a point).
+		 *
+		 * @param minX
+		 *            the min X
+		 * @param minY
+		 *            the min Y
+		 * @param maxX
+		 *            the max X
+		 * @param maxY
+		 *            the max Y
+		 * @param a
+		 *            the a
+		 */
+		void remove(final double minX, final double minY, final double maxX, final double maxY, final IAgent a) {
+			Object[] c = content;
+			if (c instanceof Entry[]) {
+				synchronized (this) {
+					c = content;
+					if (c instanceof Entry[] entries) {
+						final int i = indexOf(entries, size, a);
+						if (i >= 0) {
+							// The order of the entries does not matter: the last one takes the place of the removed one
+							entries[i] = entries[--size];
+							entries[size] = null;
+						}
+						return;
+					}
+				}
+			}
+			final Node[] children = (Node[]) c;
+			if (minX == maxX && minY == maxY) {
+				children[quadrant(minX, minY)].remove(minX, minY, maxX, maxY, a);
+			} else {
+				for (final Node child : children) {
+					if (child.intersects(minX, minY, maxX, maxY)) { child.remove(minX, minY, maxX, maxY, a); }
+				}
+			}
+		}
+
+		/**
+		 * Replaces the entry of the agent in this leaf, if it is still a leaf and contains the agent.
+		 *
+		 * @param e
+		 *            the e
+		 * @return true, if successful
+		 */
+		synchronized boolean replace(final Entry e) {
+			if (!(content instanceof Entry[] entries)) return false;
+			final int i = indexOf(entries, size, e.agent);
+			if (i < 0) return false;
+			entries[i] = e;
+			return true;
+		}
+
+		/**
+		 * Returns the leaf where a point would be inserted.
+		 *
+		 * @param x
+		 *            the x
+		 * @param y
+		 *            the y
+		 * @return the node
+		 */
+		Node leafOf(final double x, final double y) {
+			Node node = this;
+			Object[] c = node.content;
+			while (c instanceof Node[] children) {
+				node = children[node.quadrant(x, y)];
+				c = node.content;
+			}
+			return node;
+		}
+
+		/**
+		 * Index, among the children, of the quadrant containing the point (same rules as in {@link GamaQuadTree}).
+		 *
+		 * @param x
+		 *            the x
+		 * @param y
+		 *            the y
+		 * @return the int
+		 */
+		int quadrant(final double x, final double y) {
+			final boolean north = y >= bounds.getMinY() && y < halfy;
+			final boolean west = x >= bounds.getMinX() && x < halfx;
+			return north ? west ? 0 : 1 : west ? 2 : 3;
+		}
+
+		/**
+		 * Intersects.
+		 *
+		 * @param minX
+		 *            the min X
+		 * @param minY
+		 *            the min Y
+		 * @param maxX
+		 *            the max X
+		 * @param maxY
+		 *            the max Y
+		 * @return true, if successful
+		 */
+		boolean intersects(final double minX, final double minY, final double maxX, final double maxY) {
+			return !(minX > bounds.getMaxX() || maxX < bounds.getMinX() || minY > bounds.getMaxY()
+					|| maxY < bounds.getMinY());
+		}
+
+		/**
+		 * Find intersects. Only locks the leaves, one at a time.
+		 *
+		 * @param r
+		 *            the r
+		 * @param result
+		 *            the result
+		 */
+		void findIntersects(final Envelope r, final Collection<IAgent> result) {
+			if (!bounds.intersects(r)) return;
+			Object[] c = content;
+			if (c instanceof Entry[]) {
+				synchronized (this) {
+					c = content;
+					if (c instanceof Entry[] entries) {
+						for (int i = 0; i < size; i++) {
+							final Entry e = entries[i];
+							if (e.intersects(r)) { result.add(e.agent); }
+						}
+						return;
+					}
+				}
+			}
+			for (final Node child : (Node[]) c) { child.findIntersects(r, result); }
+		}
+
+	}
+
+	/**
+	 * Index of the entry of an agent.
+	 *
+	 * @param entries
+	 *            the entries
+	 * @param size
+	 *            the number of entries used
+	 * @param a
+	 *            the a
+	 * @return the index or -1
+	 */
+	static int indexOf(final Entry[] entries, final int size, final IAgent a) {
+		for (int i = 0; i < size; i++) { if (entries[i].agent == a) return i; }
+		return -1;
+	}
+
+}
@@ -11,13 +11,16 @@
 
 package msi.gama.metamodel.topology;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.locationtech.jts.geom.Envelope;
 
-import com.google.common.collect.Ordering;
-
 import msi.gama.common.geometry.Envelope3D;
 import msi.gama.common.geometry.IIntersectable;
 import msi.gama.common.preferences.GamaPreferences;
@@ -26,11 +29,10 @@ import msi.gama.metamodel.shape.GamaPoint;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.metamodel.topology.filter.IAgentFilter;
 import msi.gama.runtime.IScope;
-import msi.gama.util.Collector;
 import msi.gama.util.GamaListFactory;
 import msi.gama.util.GamaMapFactory;
-import msi.gama.util.ICollector;
-import msi.gaml.operators.Maths;
+import msi.gama.util.IList;
+import msi.gaml.types.Types;
 import ummisco.gama.dev.utils.DEBUG;
 
 /**
@@ -47,7 +49,7 @@ import ummisco.gama.dev.utils.DEBUG;
  * The Class GamaQuadTree.
  */
 @SuppressWarnings ({ "unchecked", "rawtypes" })
-public class GamaQuadTree implements ISpatialIndex {
+public class GamaQuadTree extends AbstractSpatialIndex {
 
 	static {
 		DEBUG.OFF();
@@ -81,6 +83,23 @@ public class GamaQuadTree implements ISpatialIndex {
 		return qt;
 	}
 
+	/**
+	 * Creates the spatial index corresponding to the kind passed (see {@link ISpatialIndex#QUADTREE} and
+	 * {@link ISpatialIndex#CONCURRENT}). A concurrent quadtree does not need to be synchronized.
+	 *
+	 * @param envelope
+	 *            the envelope
+	 * @param parallel
+	 *            the parallel
+	 * @param kind
+	 *            the kind of index (can be null)
+	 * @return the spatial index
+	 */
+	public static ISpatialIndex create(final Envelope envelope, final boolean parallel, final String kind) {
+		if (ISpatialIndex.CONCURRENT.equals(kind)) return new ConcurrentQuadTree(envelope);
+		return create(envelope, parallel);
+	}
+
 	/**
 	 * The Class QuadTreeSynchronizer.
 	 */
@@ -109,6 +128,11 @@ public class GamaQuadTree implements ISpatialIndex {
 			quadtree.remove(previous, agent);
 		}
 
+		@Override
+		public synchronized void update(final Envelope3D previous, final IAgent agent) {
+			quadtree.update(previous, agent);
+		}
+
 		@Override
 		public synchronized IAgent firstAtDistance(final IScope scope, final IShape source, final double dist,
 				final IAgentFilter f) {
@@ -138,6 +162,11 @@ public class GamaQuadTree implements ISpatialIndex {
 			quadtree.dispose();
 		}
 
+		@Override
+		public boolean searchesNearestFirst() {
+			return quadtree.searchesNearestFirst();
+		}
+
 	}
 
 	/**
@@ -185,95 +214,292 @@ public class GamaQuadTree implements ISpatialIndex {
 		current.dispose();
 	}
 
-	/**
-	 * Find intersects.
-	 *
-	 * @param scope
-	 *            the scope
-	 * @param source
-	 *            the source
-	 * @param r
-	 *            the r
-	 * @param filter
-	 *            the filter
-	 * @return the collection
-	 */
-	protected Collection<IAgent> findIntersects(final IScope scope, final IShape source, final Envelope r,
-			final IAgentFilter filter) {
-		// Adresses Issue 722 by explicitly shuffling the results with GAMA
-		// random procedures and removing duplicates
-		try (final ICollector<IAgent> list = Collector.getOrderedSet()) {
-			root.findIntersects(r, list);
-			if (list.isEmpty()) return GamaListFactory.create();
-			filter.filter(scope, source, list);
-			// DEBUG.OUT(list.size(), false);
-			list.shuffleInPlaceWith(scope.getRandom());
-			return list.items();
-		}
+	@Override
+	protected void findIntersects(final Envelope r, final Collection<IAgent> result) {
+		root.findIntersects(r, result);
 	}
 
 	@Override
-	public Collection<IAgent> allAtDistance(final IScope scope, final IShape source, final double dist,
-			final IAgentFilter f) {
-		// TODO filter result by topology's bounds
-		final double exp = dist * Maths.SQRT2;
-		final Envelope3D env = Envelope3D.of(source.getEnvelope());
-		env.expandBy(exp);
-		try {
-			final Collection<IAgent> result = findIntersects(scope, source, env, f);
-			if (result.isEmpty()) return GamaListFactory.create();
-			result.removeIf(each -> source.euclidianDistanceTo(each) > dist);
-			return result;
-		} finally {
-			env.dispose();
-		}
+	public boolean searchesNearestFirst() {
+		return true;
 	}
 
 	@Override
 	public Collection<IAgent> firstAtDistance(final IScope scope, final IShape source, final double dist,
 			final IAgentFilter f, final int number, final Collection<IAgent> alreadyChosen) {
-		final double exp = dist * Maths.SQRT2;
-		final Envelope3D env = Envelope3D.of(source.getEnvelope());
-		env.expandBy(exp);
-		try {
-			final Collection<IAgent> in_square = findIntersects(scope, source, env, f);
-			in_square.removeAll(alreadyChosen);
-			if (in_square.isEmpty()) return GamaListFactory.create();
-
-			if (in_square.size() <= number) return in_square;
-			final Ordering<IShape> ordering = Ordering.natural().onResultOf(input -> source.euclidianDistanceTo(input));
-			return ordering.leastOf(in_square, number);
-		} finally {
-			env.dispose();
-		}
+		final IList<IAgent> result = GamaListFactory.create(Types.AGENT);
+		nearest(scope, source, dist, f, number, alreadyChosen, result);
+		return result;
 	}
 
 	@Override
 	public IAgent firstAtDistance(final IScope scope, final IShape source, final double dist, final IAgentFilter f) {
-		final Envelope3D env = Envelope3D.of(source.getEnvelope());
-		env.expandBy(dist * Maths.SQRT2);
+		final IList<IAgent> result = GamaListFactory.create(Types.AGENT);
+		nearest(scope, source, dist, f, 1, Collections.EMPTY_LIST, result);
+		return result.isEmpty() ? null : result.get(0);
+	}
+
+	/**
+	 * Best-first search of the nearest agents. Nodes and agents are visited in the order of their distance to the
+	 * source, using a single priority queue (reused by each thread, unless the filter itself runs a search on the same
+	 * thread, in which case a new queue is used): nodes and agents are first queued with the distance between their
+	 * bounds and the bounds of the source, which is a lower bound of the actual distance. Agents are then queued again
+	 * with their actual distance, which is only computed when they reach the head of the queue. An agent at the head of
+	 * the queue with its actual distance is therefore closer than all the agents not yet found. If several agents are
+	 * at the same distance than the last one returned, the ones returned are chosen randomly among them, using the
+	 * random generator of the scope (cf. Issue 722). The agents already met, which may be found in several leaves, and
+	 * the excluded ones are kept in an identity set.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param source
+	 *            the source
+	 * @param dist
+	 *            the maximal distance
+	 * @param f
+	 *            the filter
+	 * @param number
+	 *            the number of agents to find
+	 * @param excluded
+	 *            the agents to exclude
+	 * @param result
+	 *            the list in which the agents found are added, sorted by distance
+	 */
+	private void nearest(final IScope scope, final IShape source, final double dist, final IAgentFilter f,
+			final int number, final Collection<IAgent> excluded, final List<IAgent> result) {
+		if (number <= 0) return;
+		final Envelope3D env = source.getEnvelope();
+		if (env == null) return;
+		final NearestQueue shared = QUEUES.get();
+		final NearestQueue queue = shared.inUse ? new NearestQueue() : shared;
+		queue.inUse = true;
+		final Set<IAgent> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+		seen.addAll(excluded);
 		try {
-			final Collection<IAgent> in_square = findIntersects(scope, source, env, f);
-			if (in_square.isEmpty()) return null;
-			double min_distance = dist;
-			IAgent min_agent = null;
-			for (final IAgent a : in_square) {
-				final Double dd = source.euclidianDistanceTo(a);
-				if (dd < min_distance) {
-					min_distance = dd;
-					min_agent = a;
+			queue.push(distance(env, root.bounds), root, NearestQueue.NODE);
+			double last = -1;
+			int ties = 0;
+			while (!queue.isEmpty()) {
+				final double d = queue.peekKey();
+				if (d > dist || result.size() >= number && d > last) { break; }
+				final byte kind = queue.peekKind();
+				final Object o = queue.pop();
+				if (kind == NearestQueue.NODE) {
+					((QuadNode) o).queue(env, queue);
+				} else {
+					final IAgent a = (IAgent) o;
+					if (a.dead()) { continue; }
+					if (kind == NearestQueue.BOUNDS) {
+						// Each agent is filtered, and queued with its actual distance, at most once
+						if (!seen.add(a)) { continue; }
+						if (f.accept(scope, source, a)) {
+							queue.push(source.euclidianDistanceTo(a), a, NearestQueue.AGENT);
+						}
+					} else {
+						if (d > last) {
+							last = d;
+							ties = result.size();
+						}
+						result.add(a);
+					}
 				}
 			}
-			return min_agent;
+			if (result.size() > number) {
+				// The agents at the same distance than the last one are shuffled before keeping the first ones
+				scope.getRandom().shuffleInPlace(result.subList(ties, result.size()));
+				result.subList(number, result.size()).clear();
+			}
 		} finally {
+			queue.clear();
+			queue.inUse = false;
 			env.dispose();
 		}
 	}
 
-	@Override
-	public Collection<IAgent> allInEnvelope(final IScope scope, final IShape source, final Envelope envelope,
-			final IAgentFilter f, final boolean contained) {
-		return findIntersects(scope, source, envelope, f);
+	/**
+	 * Distance between the bounds of the source and a box (0 if they intersect).
+	 *
+	 * @param env
+	 *            the env
+	 * @param minx
+	 *            the minx
+	 * @param miny
+	 *            the miny
+	 * @param maxx
+	 *            the maxx
+	 * @param maxy
+	 *            the maxy
+	 * @return the double
+	 */
+	static double distance(final Envelope env, final double minx, final double miny, final double maxx,
+			final double maxy) {
+		final double dx = Math.max(0, Math.max(minx - env.getMaxX(), env.getMinX() - maxx));
+		final double dy = Math.max(0, Math.max(miny - env.getMaxY(), env.getMinY() - maxy));
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Distance between the bounds of the source and an envelope.
+	 *
+	 * @param env
+	 *            the env
+	 * @param e
+	 *            the e
+	 * @return the double
+	 */
+	static double distance(final Envelope env, final Envelope e) {
+		return distance(env, e.getMinX(), e.getMinY(), e.getMaxX(), e.getMaxY());
+	}
+
+	/** The queues used by the nearest neighbours searches, one per thread. */
+	private static final ThreadLocal<NearestQueue> QUEUES = ThreadLocal.withInitial(NearestQueue::new);
+
+	/**
+	 * A binary min-heap of nodes and agents, ordered by distance, stored in arrays that are reused from one search to
+	 * the next.
+	 */
+	static final class NearestQueue {
+
+		/** A node, queued with the distance to its bounds. */
+		static final byte NODE = 0;
+
+		/** An agent, queued with the distance to its bounds. */
+		static final byte BOUNDS = 1;
+
+		/** An agent, queued with its actual distance. */
+		static final byte AGENT = 2;
+
+		/** The keys. */
+		double[] keys = new double[64];
+
+		/** The values. */
+		Object[] values = new Object[64];
+
+		/** The kinds. */
+		byte[] kinds = new byte[64];
+
+		/** The size. */
+		int size;
+
+		/** Whether a search is using the queue. */
+		boolean inUse;
+
+		/**
+		 * Checks if is empty.
+		 *
+		 * @return true, if is empty
+		 */
+		boolean isEmpty() { return size == 0; }
+
+		/**
+		 * Peek key.
+		 *
+		 * @return the double
+		 */
+		double peekKey() {
+			return keys[0];
+		}
+
+		/**
+		 * Peek kind.
+		 *
+		 * @return the byte
+		 */
+		byte peekKind() {
+			return kinds[0];
+		}
+
+		/**
+		 * Push.
+		 *
+		 * @param key
+		 *            the key
+		 * @param value
+		 *            the value
+		 * @param kind
+		 *            the kind
+		 */
+		void push(final double key, final Object value, final byte kind) {
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+				kinds = Arrays.copyOf(kinds, size * 2);
+			}
+			int i = size++;
+			// An agent with its actual distance goes before nodes and bounds at the same distance
+			while (i > 0) {
+				final int parent = i - 1 >>> 1;
+				if (keys[parent] < key || keys[parent] == key && kinds[parent] >= kind) { break; }
+				set(i, keys[parent], values[parent], kinds[parent]);
+				i = parent;
+			}
+			set(i, key, value, kind);
+		}
+
+		/**
+		 * Removes the head of the queue.
+		 *
+		 * @return the value
+		 */
+		Object pop() {
+			final Object result = values[0];
+			final int last = --size;
+			final double key = keys[last];
+			final Object value = values[last];
+			final byte kind = kinds[last];
+			values[last] = null;
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= last) { break; }
+				if (child + 1 < last && before(child + 1, child)) { child++; }
+				if (keys[child] > key || keys[child] == key && kinds[child] <= kind) { break; }
+				set(i, keys[child], values[child], kinds[child]);
+				i = child;
+			}
+			if (last > 0) { set(i, key, value, kind); }
+			return result;
+		}
+
+		/**
+		 * Whether the element i goes before the element j.
+		 *
+		 * @param i
+		 *            the i
+		 * @param j
+		 *            the j
+		 * @return true, if successful
+		 */
+		private boolean before(final int i, final int j) {
+			return keys[i] < keys[j] || keys[i] == keys[j] && kinds[i] > kinds[j];
+		}
+
+		/**
+		 * Sets the element i.
+		 *
+		 * @param i
+		 *            the i
+		 * @param key
+		 *            the key
+		 * @param value
+		 *            the value
+		 * @param kind
+		 *            the kind
+		 */
+		private void set(final int i, final double key, final Object value, final byte kind) {
+			keys[i] = key;
+			values[i] = value;
+			kinds[i] = kind;
+		}
+
+		/**
+		 * Clears the queue and releases the references it contains.
+		 */
+		void clear() {
+			Arrays.fill(values, 0, size, null);
+			size = 0;
+		}
+
 	}
 
 	/**
@@ -454,6 +680,30 @@ public class GamaQuadTree implements ISpatialIndex {
 			}
 		}
 
+		/**
+		 * Queues the children of this node, or its agents, with the distance between their bounds and the bounds of
+		 * the source.
+		 *
+		 * @param env
+		 *            the bounds of the source
+		 * @param queue
+		 *            the queue
+		 */
+		public void queue(final Envelope env, final NearestQueue queue) {
+			if (nw == null) {
+				objects.forEach((a, e) -> {
+					if (e instanceof GamaPoint p) {
+						queue.push(distance(env, p.x, p.y, p.x, p.y), a, NearestQueue.BOUNDS);
+					} else if (e instanceof Envelope b) { queue.push(distance(env, b), a, NearestQueue.BOUNDS); }
+				});
+			} else {
+				queue.push(distance(env, nw.bounds), nw, NearestQueue.NODE);
+				queue.push(distance(env, ne.bounds), ne, NearestQueue.NODE);
+				queue.push(distance(env, sw.bounds), sw, NearestQueue.NODE);
+				queue.push(distance(env, se.bounds), se, NearestQueue.NODE);
+			}
+		}
+
 		/**
 		 * Find intersects.
 		 *
@@ -29,6 +29,24 @@ import msi.gaml.species.ISpecies;
  */
 public interface ISpatialIndex {
 
+	/** The default spatial index: a quadtree, synchronized if the preferences require it. */
+	String QUADTREE = "quadtree";
+
+	/** A quadtree supporting concurrent insertions, removals and queries (see {@link ConcurrentQuadTree}). */
+	String CONCURRENT = "concurrent";
+
+	/** A packed R-tree, built in one pass, for agents that do not move (see {@link PackedRTree}). */
+	String RTREE = "rtree";
+
+	/**
+	 * A hint that the agents do not change: a packed R-tree as long as they do not change too much, and a quadtree
+	 * afterwards (see {@link PackedRTree}). This is also the default for species without the 'moving' skill.
+	 */
+	String STATIC = "static";
+
+	/** A uniform grid of cells, for large numbers of moving point agents (see {@link CellListIndex}). */
+	String CELL_LIST = "cell_list";
+
 	/**
 	 * Insert.
 	 *
@@ -47,6 +65,20 @@ public interface ISpatialIndex {
 	 */
 	void remove(final Envelope3D previous, final IAgent agent);
 
+	/**
+	 * Updates the position of an agent that has moved or changed its shape. By default, removes it using its previous
+	 * envelope and inserts it again.
+	 *
+	 * @param previous
+	 *            the envelope of the agent before the update (can be null)
+	 * @param agent
+	 *            the agent
+	 */
+	default void update(final Envelope3D previous, final IAgent agent) {
+		if (previous != null && !previous.isNull()) { remove(previous, agent); }
+		insert(agent);
+	}
+
 	/**
 	 * First at distance.
 	 *
@@ -120,6 +152,17 @@ public interface ISpatialIndex {
 	 */
 	void dispose();
 
+	/**
+	 * Whether the searches of the nearest agents (see the firstAtDistance(...) methods) visit the agents by increasing
+	 * distance, without needing to be restricted to a given distance. If so, the distance passed to these methods can
+	 * be as large as necessary without any cost.
+	 *
+	 * @return true, if successful
+	 */
+	default boolean searchesNearestFirst() {
+		return false;
+	}
+
 	/**
 	 * The Interface Compound.
 	 */
@@ -153,6 +196,14 @@ public interface ISpatialIndex {
 		 */
 		void mergeWith(Compound spatialIndex);
 
+		/**
+		 * Signals that the agents of a species have just been created in bulk (e.g. from a shapefile or an OSM file).
+		 *
+		 * @param species
+		 *            the species
+		 */
+		void loaded(ISpecies species);
+
 	}
 
 }
\ No newline at end of file
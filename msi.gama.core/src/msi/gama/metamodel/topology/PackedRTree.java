@@ -0,0 +1,452 @@
+/*******************************************************************************************************
+ *
+ * PackedRTree.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.locationtech.jts.geom.Envelope;
+
+import msi.gama.common.geometry.Envelope3D;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.shape.GamaPoint;
+
+/**
+ * A spatial index for agents that do not move (roads, buildings, etc.), backed by an R-tree packed using the
+ * Sort-Tile-Recursive (STR) algorithm. The tree is built in one pass, the first time it is queried, and stored in
+ * arrays: each agent is stored only once, whatever the number of nodes its geometry spans, contrary to
+ * {@link GamaQuadTree}.
+ * <p>
+ * Insertions, moves and removals are accepted at any time. Once the tree is built, the agents inserted or moved are
+ * kept aside in a small list, scanned by the queries, and their former entries in the tree are ignored. The tree is
+ * only rebuilt, at the next query, when these changes concern more than an eighth of its agents, so that the cost of a
+ * rebuild is shared by many changes. When it is chosen automatically (for species that do not have the 'moving'
+ * skill) or with the hint `spatial_index: static`, {@link CompoundSpatialIndex} replaces it by a quadtree instead.
+ *
+ * Selected by species with the facet `spatial_index: rtree` (or `static`).
+ */
+public class PackedRTree extends AbstractSpatialIndex {
+
+	/** The maximal number of children of the nodes. */
+	static final int NODE_CAPACITY = 16;
+
+	/** The number of changes always accepted before rebuilding the tree. */
+	static final int MIN_CHANGES = 64;
+
+	/** The agents, in their order of insertion. */
+	private final LinkedHashSet<IAgent> agents = new LinkedHashSet<>();
+
+	/** Whether this index has been chosen automatically or with the 'static' hint (and can be replaced). */
+	private final boolean automatic;
+
+	/** The packed tree, or null if it needs to be built. */
+	private volatile Tree tree;
+
+	/** The agents inserted or moved since the tree has been built. */
+	private final LinkedHashSet<IAgent> pending = new LinkedHashSet<>();
+
+	/** The agents whose entries in the tree are obsolete, because they have been moved or removed. */
+	private final Set<IAgent> stale = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/** Whether there are pending or stale agents. */
+	private volatile boolean changed;
+
+	/**
+	 * Instantiates a new packed R-tree.
+	 *
+	 * @param automatic
+	 *            whether it has been chosen automatically or with the 'static' hint
+	 */
+	PackedRTree(final boolean automatic) {
+		this.automatic = automatic;
+	}
+
+	/**
+	 * Checks if is automatic.
+	 *
+	 * @return true, if is automatic
+	 */
+	public boolean isAutomatic() { return automatic; }
+
+	/**
+	 * Whether the tree has been built and is still valid.
+	 *
+	 * @return true, if is built
+	 */
+	public boolean isBuilt() { return tree != null; }
+
+	/**
+	 * Whether the agents have changed too much since the tree has been built, which then needs to be rebuilt.
+	 *
+	 * @return true, if the tree is built and too many agents have changed
+	 */
+	public synchronized boolean isOutdated() {
+		final Tree t = tree;
+		return t != null && pending.size() + stale.size() > Math.max(MIN_CHANGES, t.items.length / 8);
+	}
+
+	/**
+	 * Applies the consumer to all the agents of this index.
+	 *
+	 * @param consumer
+	 *            the consumer
+	 */
+	public synchronized void forEachAgent(final Consumer<IAgent> consumer) {
+		agents.forEach(consumer);
+	}
+
+	@Override
+	public synchronized void insert(final IAgent agent) {
+		if (agent == null) return;
+		agents.add(agent);
+		changed(agent, true);
+	}
+
+	@Override
+	public synchronized void remove(final Envelope3D previous, final IAgent agent) {
+		if (agents.remove(agent)) { changed(agent, false); }
+		if (previous != null) { previous.dispose(); }
+	}
+
+	@Override
+	public synchronized void update(final Envelope3D previous, final IAgent agent) {
+		if (agent == null) return;
+		agents.add(agent);
+		changed(agent, true);
+		if (previous != null) { previous.dispose(); }
+	}
+
+	/**
+	 * Records the change of an agent once the tree is built. Its entry in the tree, if any, becomes obsolete and, if it
+	 * is still present, it is kept aside until the next rebuild. The tree is discarded when it is outdated, unless it
+	 * is automatic (in which case it is replaced by {@link CompoundSpatialIndex}).
+	 *
+	 * @param agent
+	 *            the agent
+	 * @param present
+	 *            whether the agent is still in the index
+	 */
+	private void changed(final IAgent agent, final boolean present) {
+		if (tree == null) return;
+		stale.add(agent);
+		if (present) {
+			pending.add(agent);
+		} else {
+			pending.remove(agent);
+		}
+		changed = true;
+		if (!automatic && isOutdated()) { clear(); }
+	}
+
+	/**
+	 * Discards the tree and the changes recorded since it has been built.
+	 */
+	private void clear() {
+		tree = null;
+		pending.clear();
+		stale.clear();
+		changed = false;
+	}
+
+	@Override
+	public synchronized void dispose() {
+		agents.clear();
+		clear();
+	}
+
+	@Override
+	protected void findIntersects(final Envelope r, final Collection<IAgent> result) {
+		if (!changed) {
+			Tree t = tree;
+			if (t == null) { t = build(); }
+			if (!changed) {
+				t.findIntersects(r, null, result);
+				return;
+			}
+		}
+		synchronized (this) {
+			build().findIntersects(r, stale, result);
+			for (final IAgent a : pending) {
+				if (a.dead()) { continue; }
+				final double[] box = Tree.boundsOf(a);
+				if (box != null && Tree.intersects(box, 0, r)) { result.add(a); }
+			}
+		}
+	}
+
+	/**
+	 * Builds the tree if necessary.
+	 *
+	 * @return the tree
+	 */
+	private synchronized Tree build() {
+		if (tree == null) {
+			final Tree t = new Tree(agents);
+			clear();
+			tree = t;
+		}
+		return tree;
+	}
+
+	/**
+	 * Packs all the agents in a new tree if some of them have changed since the current one has been built, for
+	 * instance after they have been created in bulk.
+	 */
+	public synchronized void pack() {
+		if (changed) { clear(); }
+		build();
+	}
+
+	/**
+	 * An immutable R-tree, packed level by level. The level 0 contains the agents, the last level the root.
+	 */
+	static final class Tree {
+
+		/** The agents, in the order of the leaves. */
+		final IAgent[] items;
+
+		/** The bounds of the agents (minx, miny, maxx, maxy). */
+		final double[] itemBounds;
+
+		/** The bounds of the nodes of each level. */
+		final double[][] bounds;
+
+		/** The ranges of the children of the nodes of each level in the level below. */
+		final int[][] from, to;
+
+		/**
+		 * Builds a new tree.
+		 *
+		 * @param agents
+		 *            the agents
+		 */
+		Tree(final Collection<IAgent> agents) {
+			final List<IAgent> list = new ArrayList<>(agents.size());
+			final List<double[]> boxes = new ArrayList<>(agents.size());
+			for (final IAgent a : agents) {
+				if (a == null || a.dead()) { continue; }
+				final double[] box = boundsOf(a);
+				if (box == null) { continue; }
+				list.add(a);
+				boxes.add(box);
+			}
+			final int n = list.size();
+			double[] b = new double[n * 4];
+			for (int i = 0; i < n; i++) { System.arraycopy(boxes.get(i), 0, b, i * 4, 4); }
+			// Level 0: the agents
+			int[] order = new int[n];
+			int[] groups = pack(b, n, order);
+			items = new IAgent[n];
+			itemBounds = new double[n * 4];
+			for (int i = 0; i < n; i++) {
+				items[i] = list.get(order[i]);
+				System.arraycopy(b, order[i] * 4, itemBounds, i * 4, 4);
+			}
+			// Upper levels: the nodes, until there is only one
+			final List<double[]> levelBounds = new ArrayList<>();
+			final List<int[]> levelFrom = new ArrayList<>();
+			final List<int[]> levelTo = new ArrayList<>();
+			double[] below = itemBounds;
+			int count = groups.length - 1;
+			int[] f = new int[count];
+			int[] t = new int[count];
+			while (true) {
+				b = new double[count * 4];
+				for (int g = 0; g < count; g++) {
+					f[g] = groups[g];
+					t[g] = groups[g + 1];
+					union(below, f[g], t[g], b, g);
+				}
+				if (count <= 1) {
+					levelBounds.add(b);
+					levelFrom.add(f);
+					levelTo.add(t);
+					break;
+				}
+				// The nodes of this level are reordered before being grouped in the level above
+				order = new int[count];
+				groups = pack(b, count, order);
+				final double[] sb = new double[count * 4];
+				final int[] sf = new int[count];
+				final int[] st = new int[count];
+				for (int i = 0; i < count; i++) {
+					System.arraycopy(b, order[i] * 4, sb, i * 4, 4);
+					sf[i] = f[order[i]];
+					st[i] = t[order[i]];
+				}
+				levelBounds.add(sb);
+				levelFrom.add(sf);
+				levelTo.add(st);
+				below = sb;
+				count = groups.length - 1;
+				f = new int[count];
+				t = new int[count];
+			}
+			bounds = levelBounds.toArray(new double[0][]);
+			from = levelFrom.toArray(new int[0][]);
+			to = levelTo.toArray(new int[0][]);
+		}
+
+		/**
+		 * Returns the bounds of an agent.
+		 *
+		 * @param a
+		 *            the a
+		 * @return the bounds or null if the agent has no geometry
+		 */
+		static double[] boundsOf(final IAgent a) {
+			if (a.isPoint()) {
+				final GamaPoint p = a.getLocation();
+				return new double[] { p.x, p.y, p.x, p.y };
+			}
+			final Envelope3D e = a.getEnvelope();
+			if (e == null) return null;
+			try {
+				return new double[] { e.getMinX(), e.getMinY(), e.getMaxX(), e.getMaxY() };
+			} finally {
+				e.dispose();
+			}
+		}
+
+		/**
+		 * Sort-Tile-Recursive ordering of n boxes: the boxes are sorted by the x of their centre, divided into vertical
+		 * slices, each slice being sorted by the y of the centres and cut into groups of {@link #NODE_CAPACITY} boxes.
+		 *
+		 * @param b
+		 *            the bounds of the boxes
+		 * @param n
+		 *            the number of boxes
+		 * @param order
+		 *            filled with the indices of the boxes in the STR order
+		 * @return the indices (in order) at which each group begins, followed by n
+		 */
+		static int[] pack(final double[] b, final int n, final int[] order) {
+			final Integer[] indices = new Integer[n];
+			for (int i = 0; i < n; i++) { indices[i] = i; }
+			final Comparator<Integer> byX = Comparator.comparingDouble(i -> b[i * 4] + b[i * 4 + 2]);
+			final Comparator<Integer> byY = Comparator.comparingDouble(i -> b[i * 4 + 1] + b[i * 4 + 3]);
+			Arrays.sort(indices, byX);
+			final int nodes = (n + NODE_CAPACITY - 1) / NODE_CAPACITY;
+			final int slices = Math.max(1, (int) Math.ceil(Math.sqrt(nodes)));
+			final int sliceSize = slices * NODE_CAPACITY;
+			final int[] groups = new int[nodes + slices + 1];
+			int g = 0;
+			for (int s = 0; s < n; s += sliceSize) {
+				final int end = Math.min(s + sliceSize, n);
+				Arrays.sort(indices, s, end, byY);
+				for (int i = s; i < end; i += NODE_CAPACITY) { groups[g++] = i; }
+			}
+			groups[g++] = n;
+			for (int i = 0; i < n; i++) { order[i] = indices[i]; }
+			return Arrays.copyOf(groups, g);
+		}
+
+		/**
+		 * Computes the union of the boxes [from, to) of source in the box index of target.
+		 *
+		 * @param source
+		 *            the source
+		 * @param from
+		 *            the from
+		 * @param to
+		 *            the to
+		 * @param target
+		 *            the target
+		 * @param index
+		 *            the index
+		 */
+		static void union(final double[] source, final int from, final int to, final double[] target,
+				final int index) {
+			double minx = Double.POSITIVE_INFINITY, miny = Double.POSITIVE_INFINITY;
+			double maxx = Double.NEGATIVE_INFINITY, maxy = Double.NEGATIVE_INFINITY;
+			for (int i = from; i < to; i++) {
+				minx = Math.min(minx, source[i * 4]);
+				miny = Math.min(miny, source[i * 4 + 1]);
+				maxx = Math.max(maxx, source[i * 4 + 2]);
+				maxy = Math.max(maxy, source[i * 4 + 3]);
+			}
+			target[index * 4] = minx;
+			target[index * 4 + 1] = miny;
+			target[index * 4 + 2] = maxx;
+			target[index * 4 + 3] = maxy;
+		}
+
+		/**
+		 * Whether the box index of b intersects r.
+		 *
+		 * @param b
+		 *            the b
+		 * @param index
+		 *            the index
+		 * @param r
+		 *            the r
+		 * @return true, if successful
+		 */
+		static boolean intersects(final double[] b, final int index, final Envelope r) {
+			final int i = index * 4;
+			return !(r.getMinX() > b[i + 2] || r.getMaxX() < b[i] || r.getMinY() > b[i + 3] || r.getMaxY() < b[i + 1]);
+		}
+
+		/**
+		 * Find intersects.
+		 *
+		 * @param r
+		 *            the r
+		 * @param excluded
+		 *            the agents whose entries are obsolete, or null
+		 * @param result
+		 *            the result
+		 */
+		void findIntersects(final Envelope r, final Set<IAgent> excluded, final Collection<IAgent> result) {
+			if (items.length == 0) return;
+			findIntersects(bounds.length - 1, 0, r, excluded, result);
+		}
+
+		/**
+		 * Find intersects in a node.
+		 *
+		 * @param level
+		 *            the level
+		 * @param node
+		 *            the node
+		 * @param r
+		 *            the r
+		 * @param excluded
+		 *            the agents whose entries are obsolete, or null
+		 * @param result
+		 *            the result
+		 */
+		private void findIntersects(final int level, final int node, final Envelope r, final Set<IAgent> excluded,
+				final Collection<IAgent> result) {
+			if (!intersects(bounds[level], node, r)) return;
+			final int end = to[level][node];
+			if (level == 0) {
+				for (int i = from[level][node]; i < end; i++) {
+					if (intersects(itemBounds, i, r) && (excluded == null || !excluded.contains(items[i]))) {
+						result.add(items[i]);
+					}
+				}
+			} else {
+				for (int c = from[level][node]; c < end; c++) { findIntersects(level - 1, c, r, excluded, result); }
+			}
+		}
+
+	}
+
+}
@@ -14,6 +14,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import org.jgrapht.Graphs;
 import org.locationtech.jts.geom.Coordinate;
@@ -25,6 +26,7 @@ import msi.gama.metamodel.shape.GamaPoint;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.metamodel.topology.ITopology;
 import msi.gama.runtime.IScope;
+import msi.gama.runtime.concurrent.GamaExecutorService;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.GamaListFactory;
 import msi.gama.util.GamaMapFactory;
@@ -65,6 +67,12 @@ public class GamaSpatialGraph extends GamaGraph<IShape, IShape> implements ISpat
 	/** The vertices built. */
 	private final Map<Integer, IShape> verticesBuilt;
 
+	/** The grid of the vertices built, used to snap coordinates when the tolerance is positive. Lazily created. */
+	private VertexGrid verticesGrid;
+
+	/** The number of edges above which the weights of the edges are computed in parallel. */
+	private static final int PARALLEL_EDGES_THRESHOLD = 10_000;
+
 	/**
 	 * Determines the relationship among two polygons.
 	 */
@@ -345,11 +353,16 @@ public class GamaSpatialGraph extends GamaGraph<IShape, IShape> implements ISpat
 	 *            the vertex
 	 */
 	public void addBuiltVertex(final IShape vertex) {
-		verticesBuilt.put(vertex.getLocation().hashCode(), vertex);
+		final IShape previous = verticesBuilt.put(vertex.getLocation().hashCode(), vertex);
+		if (verticesGrid != null) {
+			if (previous != null) { verticesGrid.remove(previous); }
+			verticesGrid.add(vertex);
+		}
 	}
 
 	/**
-	 * Gets the built vertex.
+	 * Gets the built vertex at these coordinates or, if the tolerance is positive, the closest built vertex within the
+	 * tolerance. The latter are looked for in a grid whose cells have the size of the tolerance.
 	 *
 	 * @param vertex
 	 *            the vertex
@@ -359,10 +372,11 @@ public class GamaSpatialGraph extends GamaGraph<IShape, IShape> implements ISpat
 		if (tolerance == 0) return verticesBuilt.get(vertex.hashCode());
 		final IShape sh = verticesBuilt.get(vertex.hashCode());
 		if (sh != null) return sh;
-		for (final Object v : verticesBuilt.values()) {
-			if (vertex.distance3D(((IShape) v).getLocation()) <= tolerance) return (IShape) v;
+		if (verticesGrid == null || verticesGrid.cellSize != tolerance) {
+			verticesGrid = new VertexGrid(tolerance);
+			for (final IShape v : verticesBuilt.values()) { verticesGrid.add(v); }
 		}
-		return null;
+		return verticesGrid.closest(vertex);
 	}
 
 	/**
@@ -389,10 +403,22 @@ public class GamaSpatialGraph extends GamaGraph<IShape, IShape> implements ISpat
 			super.addVertex(ag);
 			nodes.put(((IShape) ag).getLocation(), (IShape) ag);
 		}
-		for (final Object p : edges.iterable(scope)) {
-			final boolean addEdge = addEdgeWithNodes(scope, (IShape) p, nodes);
+		// The lengths of the edges only depend on their geometries and can be computed in parallel, whereas the edges
+		// are added sequentially to keep the order of the vertices and edges of the graph
+		final IList list = edges.listValue(scope, Types.NO_TYPE, false);
+		final double[] weights = new double[list.size()];
+		if (weights.length < PARALLEL_EDGES_THRESHOLD || GamaExecutorService.THREADS_NUMBER.getValue() <= 1) {
+			for (int i = 0; i < weights.length; i++) { weights[i] = ((IShape) list.get(i)).getPerimeter(); }
+		} else {
+			GamaExecutorService.executeThreaded(() -> IntStream.range(0, weights.length).parallel().forEach(i -> {
+				weights[i] = ((IShape) list.get(i)).getPerimeter();
+			}));
+		}
+		for (int i = 0; i < weights.length; i++) {
+			final IShape p = (IShape) list.get(i);
+			final boolean addEdge = addEdgeWithNodes(scope, p, nodes);
 			if (!addEdge) { continue; }
-			getEdge(p).setWeight(((IShape) p).getPerimeter());
+			getEdge(p).setWeight(weights[i]);
 		}
 	}
 
@@ -512,6 +538,9 @@ public class GamaSpatialGraph extends GamaGraph<IShape, IShape> implements ISpat
 	 * @param tolerance
 	 *            the new tolerance
 	 */
-	public void setTolerance(final double tolerance) { this.tolerance = tolerance; }
+	public void setTolerance(final double tolerance) {
+		this.tolerance = tolerance;
+		verticesGrid = null;
+	}
 
 }
@@ -0,0 +1,123 @@
+/*******************************************************************************************************
+ *
+ * VertexGrid.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology.graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.Coordinate;
+
+import msi.gama.metamodel.shape.IShape;
+
+/**
+ * A grid hash of the vertices built by a {@link GamaSpatialGraph}, used to snap the extremities of the edges on the
+ * vertices closer than the tolerance of the graph. The side of the cells is equal to the tolerance, so that the
+ * vertices that can be snapped on a coordinate are all in the 3 x 3 cells around it, whatever the number of vertices.
+ */
+final class VertexGrid {
+
+	/** The side of the cells (i.e. the tolerance). */
+	final double cellSize;
+
+	/** The vertices, by cell. */
+	private final Map<Long, List<IShape>> cells = new HashMap<>();
+
+	/**
+	 * Instantiates a new vertex grid.
+	 *
+	 * @param tolerance
+	 *            the tolerance
+	 */
+	VertexGrid(final double tolerance) {
+		cellSize = tolerance;
+	}
+
+	/**
+	 * Returns the index of the cell along one axis.
+	 *
+	 * @param value
+	 *            the coordinate
+	 * @return the index of the cell
+	 */
+	private long cell(final double value) {
+		return (long) Math.floor(value / cellSize);
+	}
+
+	/**
+	 * Returns the key of a cell. Two cells may share the same key, which only adds candidates to the lookups.
+	 *
+	 * @param cx
+	 *            the index of the cell along x
+	 * @param cy
+	 *            the index of the cell along y
+	 * @return the key
+	 */
+	private static Long key(final long cx, final long cy) {
+		return cx << 32 ^ (cy & 0xffffffffL);
+	}
+
+	/**
+	 * Adds a vertex.
+	 *
+	 * @param vertex
+	 *            the vertex
+	 */
+	void add(final IShape vertex) {
+		final Coordinate c = vertex.getLocation();
+		cells.computeIfAbsent(key(cell(c.x), cell(c.y)), k -> new ArrayList<>(2)).add(vertex);
+	}
+
+	/**
+	 * Removes a vertex.
+	 *
+	 * @param vertex
+	 *            the vertex
+	 */
+	void remove(final IShape vertex) {
+		final Coordinate c = vertex.getLocation();
+		final Long key = key(cell(c.x), cell(c.y));
+		final List<IShape> list = cells.get(key);
+		if (list == null) return;
+		list.remove(vertex);
+		if (list.isEmpty()) { cells.remove(key); }
+	}
+
+	/**
+	 * Returns the closest vertex whose (3D) distance to the coordinate is lower or equal to the tolerance. As this
+	 * distance is greater than the distance in the plane, only the neighbouring cells need to be explored.
+	 *
+	 * @param c
+	 *            the coordinate
+	 * @return the closest vertex, or null if none is within the tolerance
+	 */
+	IShape closest(final Coordinate c) {
+		final long cx = cell(c.x), cy = cell(c.y);
+		IShape result = null;
+		double min = cellSize;
+		for (long x = cx - 1; x <= cx + 1; x++) {
+			for (long y = cy - 1; y <= cy + 1; y++) {
+				final List<IShape> list = cells.get(key(x, y));
+				if (list == null) { continue; }
+				for (final IShape v : list) {
+					final double d = c.distance3D(v.getLocation());
+					if (d < min || d == min && result == null) {
+						result = v;
+						min = d;
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,354 @@
+/*******************************************************************************************************
+ *
+ * DiffusionConvolution.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology.grid;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import msi.gama.runtime.concurrent.GamaExecutorService;
+
+/**
+ * The diffusion by convolution shared by {@link FieldDiffuser} and {@link GridDiffuser}. Each output cell receives the
+ * values of the input cells covered by the (flipped) diffusion matrix centred on it, either summed or, for gradients,
+ * maximized.
+ * <p>
+ * The output is divided into tiles of {@link #TILE} x {@link #TILE} cells, which are computed in parallel by
+ * {@link GamaExecutorService#AGENT_PARALLEL_EXECUTOR} when the grid is large enough. In each tile, the cells whose
+ * neighbourhood lies entirely inside the grid are computed without any bound check or torus wrapping; only the cells of
+ * the borders use the complete rules. The mask is flattened into an array of booleans indexed like the values. As each
+ * output cell is computed with the same operations, in the same order, as in the original algorithm, the results are
+ * identical whatever the number of threads.
+ * <p>
+ * When 'avoid_mask' is used, the values diffused on masked cells are redistributed on other cells, which prevents the
+ * cells from being computed independently: the grid is then processed sequentially, in the original order.
+ */
+final class DiffusionConvolution {
+
+	/** The size of the side of the tiles. */
+	static final int TILE = 64;
+
+	/** The number of multiplications (cells x size of the matrix) above which tiles are computed in parallel. */
+	static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	/** The sentinel of output cells that have not received any value yet. */
+	static final double NONE = -Double.MAX_VALUE;
+
+	/** The input and output values, indexed by y * nbCols + x. */
+	final double[] input, output;
+
+	/** The dimensions of the grid. */
+	final int nbCols, nbRows;
+
+	/** Whether the grid is a torus. */
+	final boolean torus;
+
+	/** The flipped diffusion matrix, indexed by m * kCols + n. */
+	final double[] kernel;
+
+	/** The dimensions and center of the diffusion matrix. */
+	final int kRows, kCols, kCenterX, kCenterY;
+
+	/** Whether the cells are open to diffusion (i.e. not masked), indexed like the values, or null if no mask. */
+	final boolean[] open;
+
+	/** Whether the diffusion is a gradient. */
+	final boolean gradient;
+
+	/** The limits of the coordinates that can be read without bound check nor wrapping. */
+	final int limX, limY;
+
+	/**
+	 * Diffuses the input into the output.
+	 *
+	 * @param input
+	 *            the input values
+	 * @param output
+	 *            the output values, {@link #NONE} for cells that have not received any value
+	 * @param nbCols
+	 *            the number of columns
+	 * @param nbRows
+	 *            the number of rows
+	 * @param torus
+	 *            whether the grid is a torus
+	 * @param matrix
+	 *            the diffusion matrix
+	 * @param mask
+	 *            the mask, or null
+	 * @param gradient
+	 *            whether the diffusion is a gradient
+	 * @param avoidMask
+	 *            whether the values diffused on masked cells are redistributed
+	 * @param proportion
+	 *            the sum of the diffusion matrix (used when avoidMask is true)
+	 */
+	static void convolve(final double[] input, final double[] output, final int nbCols, final int nbRows,
+			final boolean torus, final double[][] matrix, final double[][] mask, final boolean gradient,
+			final boolean avoidMask, final float proportion) {
+		final DiffusionConvolution c =
+				new DiffusionConvolution(input, output, nbCols, nbRows, torus, matrix, mask, gradient);
+		if (avoidMask && mask != null) {
+			c.convolveAvoidingMask(proportion);
+			return;
+		}
+		final int tilesX = (nbCols + TILE - 1) / TILE;
+		final int tilesY = (nbRows + TILE - 1) / TILE;
+		final ForkJoinPool pool = GamaExecutorService.AGENT_PARALLEL_EXECUTOR;
+		if (pool == null || tilesX * tilesY == 1 || GamaExecutorService.THREADS_NUMBER.getValue() <= 1
+				|| (long) nbCols * nbRows * c.kernel.length < PARALLEL_THRESHOLD) {
+			for (int t = 0; t < tilesX * tilesY; t++) { c.convolveTile(t % tilesX, t / tilesX); }
+		} else {
+			pool.invoke(c.new Tiles(0, tilesX * tilesY, tilesX));
+		}
+	}
+
+	/**
+	 * Instantiates a new diffusion convolution.
+	 *
+	 * @param input
+	 *            the input
+	 * @param output
+	 *            the output
+	 * @param nbCols
+	 *            the nb cols
+	 * @param nbRows
+	 *            the nb rows
+	 * @param torus
+	 *            the torus
+	 * @param matrix
+	 *            the matrix
+	 * @param mask
+	 *            the mask
+	 * @param gradient
+	 *            the gradient
+	 */
+	private DiffusionConvolution(final double[] input, final double[] output, final int nbCols, final int nbRows,
+			final boolean torus, final double[][] matrix, final double[][] mask, final boolean gradient) {
+		this.input = input;
+		this.output = output;
+		this.nbCols = nbCols;
+		this.nbRows = nbRows;
+		this.torus = torus;
+		this.gradient = gradient;
+		kRows = matrix.length;
+		kCols = matrix[0].length;
+		kCenterX = kCols / 2;
+		kCenterY = kRows / 2;
+		kernel = new double[kRows * kCols];
+		for (int m = 0; m < kRows; m++) {
+			for (int n = 0; n < kCols; n++) { kernel[m * kCols + n] = matrix[kRows - m - 1][kCols - n - 1]; }
+		}
+		if (mask == null) {
+			open = null;
+		} else {
+			// The mask is indexed by [x][y]
+			open = new boolean[nbCols * nbRows];
+			for (int x = 0; x < nbCols; x++) {
+				for (int y = 0; y < nbRows; y++) { open[y * nbCols + x] = mask[x][y] == 1; }
+			}
+		}
+		// On a torus, x is wrapped using the number of rows and y using the number of columns (as in the original
+		// algorithm), so coordinates are only safe below both dimensions
+		limX = torus ? Math.min(nbCols, nbRows) : nbCols;
+		limY = torus ? Math.min(nbCols, nbRows) : nbRows;
+	}
+
+	/**
+	 * Combines the value diffused by an input cell with the current value of an output cell.
+	 *
+	 * @param current
+	 *            the current value
+	 * @param value
+	 *            the value diffused
+	 * @return the new value
+	 */
+	private double combine(final double current, final double value) {
+		if (current == NONE) return value;
+		if (gradient) return current < value ? value : current;
+		return current + value;
+	}
+
+	/**
+	 * Computes the output cells of a tile.
+	 *
+	 * @param tx
+	 *            the column of the tile
+	 * @param ty
+	 *            the row of the tile
+	 */
+	void convolveTile(final int tx, final int ty) {
+		final int x0 = tx * TILE, x1 = Math.min(x0 + TILE, nbCols);
+		final int y0 = ty * TILE, y1 = Math.min(y0 + TILE, nbRows);
+		// The cells whose neighbourhood is entirely inside the grid
+		final int innerX0 = Math.max(x0, kCenterX), innerX1 = Math.min(x1, limX - (kCols - 1 - kCenterX));
+		final int innerY0 = kCenterY, innerY1 = limY - (kRows - 1 - kCenterY);
+		for (int y = y0; y < y1; y++) {
+			if (y < innerY0 || y >= innerY1 || innerX0 >= innerX1) {
+				for (int x = x0; x < x1; x++) { convolveBorderCell(x, y); }
+				continue;
+			}
+			for (int x = x0; x < innerX0; x++) { convolveBorderCell(x, y); }
+			for (int x = innerX0; x < innerX1; x++) { convolveInnerCell(x, y); }
+			for (int x = innerX1; x < x1; x++) { convolveBorderCell(x, y); }
+		}
+	}
+
+	/**
+	 * Computes an output cell whose neighbourhood is entirely inside the grid.
+	 *
+	 * @param x
+	 *            the x
+	 * @param y
+	 *            the y
+	 */
+	private void convolveInnerCell(final int x, final int y) {
+		final int index = y * nbCols + x;
+		double value = output[index];
+		for (int m = 0; m < kRows; m++) {
+			final int row = (y + m - kCenterY) * nbCols + x - kCenterX;
+			final int k = m * kCols;
+			for (int n = 0; n < kCols; n++) {
+				final int in = row + n;
+				if (open == null || open[in]) { value = combine(value, input[in] * kernel[k + n]); }
+			}
+		}
+		output[index] = value;
+	}
+
+	/**
+	 * Computes an output cell of the borders, wrapping the coordinates if the grid is a torus.
+	 *
+	 * @param x
+	 *            the x
+	 * @param y
+	 *            the y
+	 */
+	private void convolveBorderCell(final int x, final int y) {
+		final int index = y * nbCols + x;
+		double value = output[index];
+		for (int m = 0; m < kRows; m++) {
+			for (int n = 0; n < kCols; n++) {
+				final int in = inputIndex(x + n - kCenterX, y + m - kCenterY);
+				if (in >= 0 && (open == null || open[in])) {
+					value = combine(value, input[in] * kernel[m * kCols + n]);
+				}
+			}
+		}
+		output[index] = value;
+	}
+
+	/**
+	 * Returns the index of an input cell, wrapping its coordinates if the grid is a torus.
+	 *
+	 * @param xx
+	 *            the x of the cell
+	 * @param yy
+	 *            the y of the cell
+	 * @return the index of the cell, or -1 if it is outside the grid
+	 */
+	private int inputIndex(final int xx, final int yy) {
+		int ii = xx, jj = yy;
+		if (torus) {
+			if (ii < 0) {
+				ii = nbRows + ii;
+			} else if (ii >= nbRows) { ii = ii - nbRows; }
+			if (jj < 0) {
+				jj = nbCols + jj;
+			} else if (jj >= nbCols) { jj = jj - nbCols; }
+		}
+		if (ii < 0 || ii >= nbCols || jj < 0 || jj >= nbRows) return -1;
+		return jj * nbCols + ii;
+	}
+
+	/**
+	 * Sequential convolution used when the values diffused on masked output cells are redistributed on the open
+	 * cells that diffused them.
+	 *
+	 * @param proportion
+	 *            the sum of the diffusion matrix
+	 */
+	private void convolveAvoidingMask(final float proportion) {
+		final int[] openCells = new int[kernel.length];
+		for (int x = 0; x < nbCols; ++x) {
+			for (int y = 0; y < nbRows; ++y) {
+				final int index = y * nbCols + x;
+				final boolean masked = !open[index];
+				double toRedistribute = 0;
+				int count = 0;
+				for (int m = 0; m < kRows; ++m) {
+					for (int n = 0; n < kCols; ++n) {
+						final int in = inputIndex(x + n - kCenterX, y + m - kCenterY);
+						if (in < 0 || !open[in]) { continue; }
+						final double before = output[index];
+						output[index] = combine(before, input[in] * kernel[m * kCols + n]);
+						if (masked) {
+							// undo the change and keep the value to redistribute it
+							toRedistribute += output[index];
+							output[index] = before;
+							openCells[count++] = in;
+						}
+					}
+				}
+				if (toRedistribute != 0) {
+					final double toAdd = toRedistribute * proportion / count;
+					for (int c = 0; c < count; c++) {
+						final int cell = openCells[c];
+						if (output[cell] == NONE) {
+							output[cell] = toAdd;
+						} else if (!gradient) { output[cell] += toAdd; }
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * The task computing a range of tiles, split in halves until it contains only one tile.
+	 */
+	private final class Tiles extends RecursiveAction {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The range of tiles. */
+		final int from, to;
+
+		/** The number of tiles per row. */
+		final int tilesX;
+
+		/**
+		 * Instantiates a new tiles.
+		 *
+		 * @param from
+		 *            the from
+		 * @param to
+		 *            the to
+		 * @param tilesX
+		 *            the tiles X
+		 */
+		Tiles(final int from, final int to, final int tilesX) {
+			this.from = from;
+			this.to = to;
+			this.tilesX = tilesX;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= 1) {
+				for (int t = from; t < to; t++) { convolveTile(t % tilesX, t / tilesX); }
+				return;
+			}
+			final int middle = (from + to) >>> 1;
+			invokeAll(new Tiles(from, middle, tilesX), new Tiles(middle, to, tilesX));
+		}
+
+	}
+
+}
@@ -51,6 +51,7 @@ import msi.gama.runtime.GAMA;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.benchmark.StopWatch;
 import msi.gama.runtime.concurrent.GamaExecutorService;
+import msi.gama.runtime.concurrent.StepStatistics;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.GamaListFactory;
 import msi.gama.util.IContainer;
@@ -189,6 +190,9 @@ public class GridPopulation implements IPopulation<IGridAgent> {
 	/** The is step overriden. */
 	private final boolean isInitOverriden, isStepOverriden;
 
+	/** The statistics of the parallel steps. */
+	private final StepStatistics stepStatistics = new StepStatistics();
+
 	/** The ordered var names. */
 	public final LinkedHashSet<String> orderedVarNames = new LinkedHashSet<>();
 
@@ -357,7 +361,7 @@ public class GridPopulation implements IPopulation<IGridAgent> {
 	 */
 	// @Override
 	protected boolean stepAgents(final IScope scope) {
-		return GamaExecutorService.step(scope, grid.matrix, getSpecies());
+		return GamaExecutorService.step(scope, grid.matrix, getSpecies(), this);
 	}
 
 	/**
@@ -1263,6 +1267,9 @@ public class GridPopulation implements IPopulation<IGridAgent> {
 	@Override
 	public boolean isStepOverriden() { return isStepOverriden; }
 
+	@Override
+	public StepStatistics getStepStatistics() { return stepStatistics; }
+
 	@Override
 	public final int hashCode() {
 		return hashCode;
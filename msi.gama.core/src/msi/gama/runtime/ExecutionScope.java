@@ -108,6 +108,9 @@ public class ExecutionScope implements IScope {
 		/** The current error. */
 		GamaRuntimeException currentError;
 
+		/** The random generator used instead of the one of the root agent, if any. */
+		RandomUtils random;
+
 		/**
 		 * Clear.
 		 */
@@ -119,6 +122,7 @@ public class ExecutionScope implements IScope {
 			gui = null;
 			types = null;
 			currentError = null;
+			random = null;
 		}
 
 		/**
@@ -136,6 +140,7 @@ public class ExecutionScope implements IScope {
 			gui = specialContext.gui;
 			types = specialContext.types;
 			currentError = specialContext.currentError;
+			random = specialContext.random;
 		}
 
 		/**
@@ -1037,11 +1042,19 @@ public class ExecutionScope implements IScope {
 	 */
 	@Override
 	public RandomUtils getRandom() {
+		if (additionalContext.random != null) return additionalContext.random;
 		final ITopLevelAgent root = getRoot();
 		if (root == null) return new RandomUtils();
 		return root.getRandomGenerator();
 	}
 
+	@Override
+	public RandomUtils setRandom(final RandomUtils random) {
+		final RandomUtils previous = additionalContext.random;
+		additionalContext.random = random;
+		return previous;
+	}
+
 	@Override
 	public IScope copy(final String additionalName) {
 		final ExecutionScope scope = new ExecutionScope(getRoot(), additionalName);
@@ -373,6 +373,16 @@ public interface IScope extends Closeable, IBenchmarkable {
 
 	RandomUtils getRandom();
 
+	/**
+	 * Replaces, in this scope only, the random number generator of the root agent by another one (e.g. a stream
+	 * dedicated to the agent being executed). Passing null restores the generator of the root agent.
+	 *
+	 * @param random
+	 *            the random generator to use, or null
+	 * @return the random generator previously set in this scope, or null
+	 */
+	RandomUtils setRandom(RandomUtils random);
+
 	/**
 	 * Gets the gui.
 	 *
@@ -19,8 +19,10 @@ import java.util.concurrent.ForkJoinTask;
 
 import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.common.preferences.Pref;
+import msi.gama.common.util.RandomUtils;
 import msi.gama.kernel.experiment.IExperimentAgent;
 import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.population.IPopulation;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.runtime.FlowStatus;
 import msi.gama.runtime.GAMA;
@@ -96,14 +98,19 @@ public abstract class GamaExecutorService {
 					+ "[WARNING: disables reflexes and permanent displays of batch experiments]",
 			false, IType.BOOL, true).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
 
+	/** The Constant SHARED_THREADS. */
+	public static final Pref<Boolean> SHARED_THREADS = create("pref_shared_threads",
+			"Run simulations and the actions of 'thread' agents as lightweight tasks on a pool of threads shared by all experiments (recommended for experiments with many small simulations)",
+			false, IType.BOOL, true).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
+
 	/** The Constant CONCURRENCY_GRID. */
 	public static final Pref<Boolean> CONCURRENCY_GRID = create("pref_parallel_grids",
-			"Make grids schedule their agents in parallel (beware that setting this to true no longer allows GAMA to ensure the reproducibility of simulations)",
+			"Make grids schedule their agents in parallel (beware that setting this to true no longer allows GAMA to ensure the reproducibility of simulations, unless they use the 'splittable' random number generator and their agents do not compete for shared resources)",
 			false, IType.BOOL, true).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
 
 	/** The Constant CONCURRENCY_SPECIES. */
 	public static final Pref<Boolean> CONCURRENCY_SPECIES = create("pref_parallel_species",
-			"Make species schedule their agents in parallel (beware that setting this to true no longer allows GAMA to ensure the reproducibility of simulations)",
+			"Make species schedule their agents in parallel (beware that setting this to true no longer allows GAMA to ensure the reproducibility of simulations, unless they use the 'splittable' random number generator and their agents do not compete for shared resources)",
 			false, IType.BOOL, true).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
 
 	/** The Constant CONCURRENCY_THRESHOLD. */
@@ -130,6 +137,7 @@ public abstract class GamaExecutorService {
 	public static void reset() {
 		// Called by the activator to init the preferences and executor services
 		setConcurrencyLevel(THREADS_NUMBER.getValue());
+		SharedExecutor.reset();
 	}
 
 	/**
@@ -229,13 +237,13 @@ public abstract class GamaExecutorService {
 	 * @throws GamaRuntimeException
 	 *             the gama runtime exception
 	 */
-	public static <A extends IAgent> Boolean step(final IScope scope, final IList<A> pop, final ISpecies species)
-			throws GamaRuntimeException {
+	public static <A extends IAgent> Boolean step(final IScope scope, final IPopulation<A> pop,
+			final ISpecies species) throws GamaRuntimeException {
 		final IExpression schedule = species.getSchedule();
 		final IList<? extends IAgent> agents = schedule == null ? pop : Cast.asList(scope, schedule.value(scope));
 		final int threshold =
 				getParallelism(scope, species.getConcurrency(), species.isGrid() ? Caller.GRID : Caller.SPECIES);
-		return doStep(scope, agents.toArray(new IAgent[agents.size()]), threshold, species);
+		return doStep(scope, agents.toArray(new IAgent[agents.size()]), threshold, species, pop);
 	}
 
 	/**
@@ -249,12 +257,14 @@ public abstract class GamaExecutorService {
 	 *            the array
 	 * @param species
 	 *            the species
+	 * @param population
+	 *            the population of the agents, which holds the statistics of their parallel steps
 	 * @return the boolean
 	 * @throws GamaRuntimeException
 	 *             the gama runtime exception
 	 */
-	public static <A extends IShape> Boolean step(final IScope scope, final A[] array, final ISpecies species)
-			throws GamaRuntimeException {
+	public static <A extends IShape> Boolean step(final IScope scope, final A[] array, final ISpecies species,
+			final IPopulation<?> population) throws GamaRuntimeException {
 		final IExpression schedule = species.getSchedule();
 		final IShape[] scheduledAgents;
 		if (schedule == null) {
@@ -265,7 +275,7 @@ public abstract class GamaExecutorService {
 		}
 		final int threshold =
 				getParallelism(scope, species.getConcurrency(), species.isGrid() ? Caller.GRID : Caller.SPECIES);
-		return doStep(scope, scheduledAgents, threshold, species);
+		return doStep(scope, scheduledAgents, threshold, species, population);
 	}
 
 	/**
@@ -281,13 +291,21 @@ public abstract class GamaExecutorService {
 	 *            the threshold
 	 * @param species
 	 *            the species
+	 * @param population
+	 *            the population
 	 * @return the boolean
 	 */
 	private static <A extends IShape> Boolean doStep(final IScope scope, final A[] array, final int threshold,
-			final ISpecies species) {
+			final ISpecies species, final IPopulation<?> population) {
 		try (final StopWatch w = GAMA.benchmark(scope, species)) {
 			int concurrency = threshold;
 			if (array.length <= threshold) { concurrency = 0; }
+			final RandomUtils random = scope.getRandom();
+			// With a splittable generator, each agent draws from its own stream, whether the species is run in
+			// parallel or not, so that both give the same results
+			if (concurrency == 0 && random.isSplittable())
+				return ParallelAgentStepper.stepWithStreams(scope, ParallelAgentStepper.streamBase(scope),
+						AgentSpliterator.of(array, array.length));
 			switch (concurrency) {
 				case 0:
 					for (final A aa : array) {
@@ -298,11 +316,10 @@ public abstract class GamaExecutorService {
 						if (!scope.step(agent).passed()) return false;
 					}
 					break;
-				case 1:
-					for (final A agent : array) { executeThreaded(() -> scope.step((IAgent) agent)); }
-					break;
 				default:
-					ParallelAgentRunner.step(scope, array, threshold);
+					// A threshold of 1 no longer means one task per agent: the size of the chunks is adapted to the
+					// cost of the agents of the species
+					ParallelAgentRunner.step(scope, array, concurrency, population.getStepStatistics());
 			}
 		}
 		return true;
@@ -337,6 +354,11 @@ public abstract class GamaExecutorService {
 				return;
 			// Break doesnt really make sense for parallel execution
 			case 1:
+				// The threads would share the stream of the scope: chunks of one agent are given their own streams
+				if (scope.getRandom().isSplittable()) {
+					ParallelAgentRunner.execute(scope, executable, array, 1);
+					return;
+				}
 				for (final A agent : array) { executeThreaded(() -> scope.execute(executable, (IAgent) agent, null)); }
 				return;
 			default:
@@ -12,6 +12,7 @@ package msi.gama.runtime.concurrent;
 
 import java.util.Spliterator;
 
+import msi.gama.common.util.RandomUtils;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
@@ -33,12 +34,42 @@ public class ParallelAgentExecuter extends ParallelAgentRunner<Object> {
 	 * @param agents the agents
 	 */
 	public ParallelAgentExecuter(final IScope scope, final IExecutable executable, final Spliterator<IAgent> agents) {
-		super(scope, agents);
+		this(scope, executable, agents, streamBase(scope));
+	}
+
+	/**
+	 * Instantiates a new parallel agent executer that gives the agents streams derived from a given base.
+	 *
+	 * @param scope the scope
+	 * @param executable the executable
+	 * @param agents the agents
+	 * @param streamBase the base of the streams
+	 */
+	ParallelAgentExecuter(final IScope scope, final IExecutable executable, final Spliterator<IAgent> agents,
+			final long streamBase) {
+		super(scope, agents, streamBase);
 		this.executable = executable;
 	}
 
+	/**
+	 * Draws the base of the streams given to the agents from the generator of the scope (see
+	 * {@link RandomUtils#nextStreamBase()}), in the thread that creates the executer: the same agents can be asked
+	 * several times during a cycle, and each ask must give them new streams. If the scope is itself run with the stream
+	 * of an agent (e.g. in a nested parallel ask), the base is drawn from this stream, and therefore is reproducible.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @return the base of the streams, or 0 if the generator is not splittable
+	 */
+	static long streamBase(final IScope scope) {
+		final RandomUtils random = scope.getRandom();
+		return random.isSplittable() ? random.nextStreamBase() : 0;
+	}
+
 	@Override
 	public Object executeOn(final IScope scope) throws GamaRuntimeException {
+		if (scope.getRandom().isSplittable())
+			return runWithStreams(scope, streamBase, agents, each -> scope.execute(executable, each, null).passed());
 		final Boolean[] mutableBoolean = { Boolean.TRUE };
 		// final AccumulatingExecutionResult result = new AccumulatingExecutionResult();
 		agents.forEachRemaining(each -> {
@@ -54,7 +85,7 @@ public class ParallelAgentExecuter extends ParallelAgentRunner<Object> {
 
 	@Override
 	ParallelAgentExecuter subTask(final Spliterator<IAgent> sub) {
-		return new ParallelAgentExecuter(originalScope, executable, sub);
+		return new ParallelAgentExecuter(originalScope, executable, sub, streamBase);
 	}
 
 }
\ No newline at end of file
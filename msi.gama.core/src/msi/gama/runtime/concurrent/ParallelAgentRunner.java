@@ -13,7 +13,9 @@ package msi.gama.runtime.concurrent;
 import java.util.Spliterator;
 import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
 
+import msi.gama.common.util.RandomUtils;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.runtime.IScope;
@@ -33,6 +35,9 @@ public abstract class ParallelAgentRunner<T> extends RecursiveTask<T> implements
 	/** The original scope. */
 	final IScope originalScope;
 
+	/** The base of the streams of random numbers given to the agents, if the generator is splittable. */
+	final long streamBase;
+
 	/**
 	 * Execute.
 	 *
@@ -63,6 +68,31 @@ public abstract class ParallelAgentRunner<T> extends RecursiveTask<T> implements
 		return execute(runner);
 	}
 
+	/**
+	 * Steps the agents in chunks whose size is adapted to the cost of the agents measured during the previous steps
+	 * (see {@link StepStatistics}). The chunks are stolen by the workers of {@link GamaExecutorService#AGENT_PARALLEL_EXECUTOR}
+	 * as soon as they are idle.
+	 *
+	 * @param <A> the generic type
+	 * @param scope the scope
+	 * @param array the array
+	 * @param threshold the threshold, used until the cost of the agents is known
+	 * @param statistics the statistics of the species
+	 * @return the boolean
+	 * @throws GamaRuntimeException the gama runtime exception
+	 */
+	public static <A extends IShape> Boolean step(final IScope scope, final A[] array, final int threshold,
+			final StepStatistics statistics) throws GamaRuntimeException {
+		final int workers = GamaExecutorService.AGENT_PARALLEL_EXECUTOR.getParallelism();
+		final int grain = statistics.grainFor(array.length, workers, threshold);
+		final long start = System.nanoTime();
+		try {
+			return execute(new ParallelAgentStepper(scope, AgentSpliterator.of(array, grain), statistics));
+		} finally {
+			statistics.recordStep(array.length, grain, workers, System.nanoTime() - start);
+		}
+	}
+
 	/**
 	 * Execute.
 	 *
@@ -118,10 +148,48 @@ public abstract class ParallelAgentRunner<T> extends RecursiveTask<T> implements
 	 * @param <A> the generic type
 	 * @param scope the scope
 	 * @param agents the agents
+	 * @param streamBase the base of the streams of random numbers given to the agents
 	 */
-	protected <A extends IShape> ParallelAgentRunner(final IScope scope, final Spliterator<IAgent> agents) {
+	protected <A extends IShape> ParallelAgentRunner(final IScope scope, final Spliterator<IAgent> agents,
+			final long streamBase) {
 		this.agents = agents;
 		this.originalScope = scope.copy(" - forked - ");
+		this.streamBase = streamBase;
+	}
+
+	/**
+	 * Runs an action on the agents, each with its own stream of random numbers provided by a splittable generator (see
+	 * {@link RandomUtils#moveStream(long, IAgent)}), so that the random numbers drawn by an agent do not depend on the
+	 * order in which the agents are run nor on the thread running them. A new stream is created for the whole sequence
+	 * and repositioned before each agent: the stream of the scope, which may be shared by the copies of the scope
+	 * running in other threads (e.g. in nested parallel asks), is never used.
+	 *
+	 * @param scope
+	 *            the scope, whose generator is splittable
+	 * @param base
+	 *            the base of the streams
+	 * @param agents
+	 *            the agents
+	 * @param action
+	 *            the action, which returns false to stop running the agents
+	 * @return true if the action has succeeded on all the agents
+	 */
+	static Boolean runWithStreams(final IScope scope, final long base, final Spliterator<IAgent> agents,
+			final Predicate<IAgent> action) throws GamaRuntimeException {
+		final RandomUtils stream = scope.getRandom().newStream();
+		final RandomUtils previous = scope.setRandom(stream);
+		final Boolean[] mutableBoolean = { Boolean.TRUE };
+		try {
+			agents.forEachRemaining(each -> {
+				if (mutableBoolean[0].booleanValue()) {
+					if (!each.dead()) { stream.moveStream(base, each); }
+					mutableBoolean[0] = Boolean.valueOf(action.test(each));
+				}
+			});
+		} finally {
+			scope.setRandom(previous);
+		}
+		return mutableBoolean[0];
 	}
 
 	/**
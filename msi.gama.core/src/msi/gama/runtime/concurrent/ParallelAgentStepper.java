@@ -12,6 +12,8 @@ package msi.gama.runtime.concurrent;
 
 import java.util.Spliterator;
 
+import msi.gama.common.util.RandomUtils;
+import msi.gama.kernel.simulation.SimulationClock;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
@@ -21,6 +23,9 @@ import msi.gama.runtime.exceptions.GamaRuntimeException;
  */
 public class ParallelAgentStepper extends ParallelAgentRunner<Boolean> {
 
+	/** The statistics in which the chunks are recorded, if any. */
+	final StepStatistics statistics;
+
 	/**
 	 * Instantiates a new parallel agent stepper.
 	 *
@@ -28,11 +33,88 @@ public class ParallelAgentStepper extends ParallelAgentRunner<Boolean> {
 	 * @param agents the agents
 	 */
 	public ParallelAgentStepper(final IScope scope, final Spliterator<IAgent> agents) {
-		super(scope, agents);
+		this(scope, agents, null);
+	}
+
+	/**
+	 * Instantiates a new parallel agent stepper that records the time spent by each chunk.
+	 *
+	 * @param scope the scope
+	 * @param agents the agents
+	 * @param statistics the statistics (can be null)
+	 */
+	public ParallelAgentStepper(final IScope scope, final Spliterator<IAgent> agents,
+			final StepStatistics statistics) {
+		this(scope, agents, statistics, streamBase(scope));
+	}
+
+	/**
+	 * Instantiates a new parallel agent stepper that gives the agents streams derived from a given base.
+	 *
+	 * @param scope the scope
+	 * @param agents the agents
+	 * @param statistics the statistics (can be null)
+	 * @param streamBase the base of the streams
+	 */
+	ParallelAgentStepper(final IScope scope, final Spliterator<IAgent> agents, final StepStatistics statistics,
+			final long streamBase) {
+		super(scope, agents, streamBase);
+		this.statistics = statistics;
+	}
+
+	/**
+	 * Returns the base of the streams given to the agents stepped in a scope, which only depends on the seed and the
+	 * current cycle (see {@link RandomUtils#streamBase(long)}): the agents are stepped once per cycle, and are
+	 * distinguished by their identity.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @return the base of the streams, or 0 if the generator is not splittable
+	 */
+	static long streamBase(final IScope scope) {
+		final RandomUtils random = scope.getRandom();
+		if (!random.isSplittable()) return 0;
+		final SimulationClock clock = scope.getClock();
+		return random.streamBase(clock == null ? 0 : clock.getCycle());
+	}
+
+	/**
+	 * Steps the agents, each with its own stream of random numbers provided by a splittable generator (see
+	 * {@link ParallelAgentRunner#runWithStreams(IScope, long, Spliterator, java.util.function.Predicate)}).
+	 *
+	 * @param scope
+	 *            the scope, whose generator is splittable
+	 * @param base
+	 *            the base of the streams, see {@link #streamBase(IScope)}
+	 * @param agents
+	 *            the agents
+	 * @return true if all the agents have been stepped successfully
+	 */
+	static Boolean stepWithStreams(final IScope scope, final long base, final Spliterator<IAgent> agents)
+			throws GamaRuntimeException {
+		return runWithStreams(scope, base, agents, each -> each.dead() || scope.step(each).passed());
 	}
 
 	@Override
 	public Boolean executeOn(final IScope scope) throws GamaRuntimeException {
+		if (statistics == null) return stepChunk(scope);
+		final long start = System.nanoTime();
+		try {
+			return stepChunk(scope);
+		} finally {
+			statistics.recordChunk(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Steps the agents of this chunk.
+	 *
+	 * @param scope the scope
+	 * @return true if all the agents have been stepped successfully
+	 * @throws GamaRuntimeException the gama runtime exception
+	 */
+	private Boolean stepChunk(final IScope scope) throws GamaRuntimeException {
+		if (scope.getRandom().isSplittable()) return stepWithStreams(scope, streamBase, agents);
 		final Boolean[] mutableBoolean = { Boolean.TRUE };
 		agents.forEachRemaining(each -> {
 			if (mutableBoolean[0].booleanValue()) {
@@ -44,7 +126,7 @@ public class ParallelAgentStepper extends ParallelAgentRunner<Boolean> {
 
 	@Override
 	ParallelAgentRunner<Boolean> subTask(final Spliterator<IAgent> sub) {
-		return new ParallelAgentStepper(originalScope, sub);
+		return new ParallelAgentStepper(originalScope, sub, statistics, streamBase);
 	}
 
 }
\ No newline at end of file
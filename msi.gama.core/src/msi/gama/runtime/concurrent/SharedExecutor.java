@@ -0,0 +1,127 @@
+/*******************************************************************************************************
+ *
+ * SharedExecutor.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.runtime.concurrent;
+
+import static msi.gama.runtime.concurrent.GamaExecutorService.EXCEPTION_HANDLER;
+import static msi.gama.runtime.concurrent.GamaExecutorService.THREADS_NUMBER;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of threads shared by all the experiments, used (when the preference
+ * {@link GamaExecutorService#SHARED_THREADS} is set) to step the simulations and to run the actions of the agents
+ * provided with the 'thread' skill, instead of creating a pool of threads per experiment and per skill.
+ * <p>
+ * Simulations and thread actions are run as lightweight tasks by a bounded number of carrier threads (the number of
+ * threads defined in the preferences), in FIFO order. Delayed and periodic tasks are handled by a single timer thread,
+ * which only hands them over to the pool.
+ */
+public class SharedExecutor {
+
+	/** The maximal number of threads added to the carriers to compensate blocked tasks. */
+	public static final int MAX_SPARE_THREADS = 256;
+
+	/** The pool. */
+	private static volatile ForkJoinPool pool;
+
+	/** The timer. */
+	private static volatile ScheduledExecutorService timer;
+
+	/**
+	 * Gets the pool, creating it if necessary.
+	 *
+	 * @return the pool
+	 */
+	public static ForkJoinPool getPool() {
+		ForkJoinPool result = pool;
+		if (result == null) {
+			synchronized (SharedExecutor.class) {
+				result = pool;
+				if (result == null) { pool = result = createPool(THREADS_NUMBER.getValue()); }
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Creates the pool: carrier threads are daemons named after GAMA, the pool works in asynchronous (FIFO) mode and
+	 * keeps accepting tasks when the maximal number of spare threads is reached.
+	 *
+	 * @param carriers
+	 *            the number of carrier threads
+	 * @return the fork join pool
+	 */
+	private static ForkJoinPool createPool(final int carriers) {
+		final ForkJoinWorkerThreadFactory factory = p -> {
+			final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+			thread.setName("GAMA shared " + thread.getPoolIndex());
+			thread.setDaemon(true);
+			return thread;
+		};
+		return new ForkJoinPool(carriers, factory, EXCEPTION_HANDLER, true, 0, carriers + MAX_SPARE_THREADS, 1,
+				p -> true, 60, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Gets the timer, creating it if necessary.
+	 *
+	 * @return the timer
+	 */
+	private static ScheduledExecutorService getTimer() {
+		ScheduledExecutorService result = timer;
+		if (result == null) {
+			synchronized (SharedExecutor.class) {
+				result = timer;
+				if (result == null) {
+					timer = result = Executors.newSingleThreadScheduledExecutor(r -> {
+						final Thread thread = new Thread(r, "GAMA shared timer");
+						thread.setDaemon(true);
+						thread.setUncaughtExceptionHandler(EXCEPTION_HANDLER);
+						return thread;
+					});
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Runs the task in the pool after the delay.
+	 *
+	 * @param task
+	 *            the task
+	 * @param delay
+	 *            the delay, in nanoseconds (the task is submitted immediately if it is not positive)
+	 * @return the future that can be used to cancel the task
+	 */
+	public static Future<?> schedule(final Runnable task, final long delay) {
+		if (delay <= 0) return getPool().submit(task);
+		return getTimer().schedule(() -> { getPool().execute(task); }, delay, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Resets the pool, for instance when the number of threads has changed. The tasks already submitted are completed
+	 * by the previous pool.
+	 */
+	public static void reset() {
+		synchronized (SharedExecutor.class) {
+			if (pool != null) { pool.shutdown(); }
+			pool = null;
+		}
+	}
+
+}
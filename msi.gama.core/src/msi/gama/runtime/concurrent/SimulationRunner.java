@@ -13,16 +13,22 @@ package msi.gama.runtime.concurrent;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static msi.gama.runtime.concurrent.GamaExecutorService.EXCEPTION_HANDLER;
+import static msi.gama.runtime.concurrent.GamaExecutorService.SHARED_THREADS;
 import static msi.gama.runtime.concurrent.GamaExecutorService.THREADS_NUMBER;
 import static msi.gama.runtime.concurrent.GamaExecutorService.getParallelism;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -30,7 +36,10 @@ import java.util.concurrent.ThreadPoolExecutor;
 import msi.gama.common.interfaces.IScopedStepable;
 import msi.gama.kernel.experiment.IExperimentPlan;
 import msi.gama.kernel.simulation.SimulationPopulation;
+import msi.gama.runtime.GAMA;
+import msi.gama.runtime.IScope;
 import msi.gama.runtime.concurrent.GamaExecutorService.Caller;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
 
 /**
  * The Class SimulationRunner.
@@ -125,15 +134,42 @@ public class SimulationRunner {
 	}
 
 	/**
-	 * Step.
+	 * Steps all the simulations and reports the exceptions they have thrown. The {@link Executor} of the runner
+	 * already reports them (in {@link Executor#afterExecute(Runnable, Throwable)}), but the other executors (the
+	 * single thread one and the shared one) keep them in the futures.
 	 */
 	public void step() {
+		final ExecutorService e = getExecutor();
+		final List<IScopedStepable> agents = new ArrayList<>(runnables.keySet());
+		final List<Callable<Boolean>> tasks = new ArrayList<>(runnables.values());
 		try {
-			getExecutor().invokeAll(runnables.values());
-		} catch (final InterruptedException e) {
-
+			final List<Future<Boolean>> futures = e.invokeAll(tasks);
+			if (e instanceof Executor) return;
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					futures.get(i).get();
+				} catch (final ExecutionException ee) {
+					final IScope scope = agents.get(i).getScope();
+					GAMA.reportError(scope, GamaRuntimeException.create(ee.getCause(), scope), false);
+				} catch (final CancellationException ce) {
+					// The simulation has been cancelled: nothing to report
+				}
+			}
+		} catch (final InterruptedException ie) {
+			Thread.currentThread().interrupt();
 		}
+	}
 
+	/**
+	 * Returns a new completion service running its tasks with the executor of the simulations. Used by batch
+	 * experiments to run simulations independently from each other and collect them as soon as they have finished.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @return the completion service
+	 */
+	public <T> CompletionService<T> newCompletionService() {
+		return new ExecutorCompletionService<>(getExecutor());
 	}
 
 	/**
@@ -142,7 +178,10 @@ public class SimulationRunner {
 	 * @return the int
 	 */
 	private int computeNumberOfThreads() {
-		return getExecutor() instanceof ThreadPoolExecutor tpe ? Math.min(concurrency, tpe.getActiveCount()) : 1;
+		final ExecutorService e = getExecutor();
+		if (e instanceof ThreadPoolExecutor tpe) return Math.min(concurrency, tpe.getActiveCount());
+		if (e instanceof ForkJoinPool fjp) return Math.min(concurrency, fjp.getActiveThreadCount());
+		return 1;
 	}
 
 	/**
@@ -151,6 +190,9 @@ public class SimulationRunner {
 	 * @return the executor
 	 */
 	protected ExecutorService getExecutor() {
+		// The shared executor is never kept, as the preference can change and the executor be replaced when the
+		// number of threads changes
+		if (concurrency != 0 && SHARED_THREADS.getValue()) return SharedExecutor.getPool();
 		return executor == null
 				? executor = concurrency == 0 ? newSingleThreadExecutor() : new Executor(THREADS_NUMBER.getValue())
 				: executor;
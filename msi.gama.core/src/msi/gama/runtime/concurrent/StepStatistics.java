@@ -0,0 +1,145 @@
+/*******************************************************************************************************
+ *
+ * StepStatistics.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.runtime.concurrent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import msi.gama.runtime.IScope;
+import msi.gama.util.GamaMapFactory;
+import msi.gama.util.IMap;
+import msi.gaml.types.Types;
+
+/**
+ * The statistics of the parallel steps of a species. They are used to size the chunks of agents stepped by each task:
+ * the average time needed to step an agent, measured during the previous cycles, gives the number of agents that can
+ * be stepped in {@link #TARGET_CHUNK_NANOS}. Chunks are also kept small enough for each worker to receive several of
+ * them, so that workers that are done with cheap agents can steal the chunks left by the others.
+ */
+public class StepStatistics {
+
+	/** The duration targeted for the step of a chunk of agents (in nanoseconds). */
+	public static final long TARGET_CHUNK_NANOS = 100_000;
+
+	/** The minimal number of chunks per worker. */
+	public static final int MIN_CHUNKS_PER_WORKER = 4;
+
+	/** The time spent by the tasks stepping the agents, and the number of chunks, during the current cycle. */
+	private final LongAdder busy = new LongAdder(), chunks = new LongAdder();
+
+	/** The average time needed to step one agent (in nanoseconds), or 0 if unknown. */
+	private volatile double nanosPerAgent;
+
+	/** The number of parallel steps. */
+	private volatile long cycles;
+
+	/** The values observed during the last parallel step. */
+	private volatile long lastAgents, lastChunks, lastGrain, lastWallNanos, lastBusyNanos;
+
+	/** The number of workers available during the last parallel step. */
+	private volatile int lastWorkers;
+
+	/**
+	 * Returns the number of agents to put in each chunk.
+	 *
+	 * @param agents
+	 *            the number of agents to step
+	 * @param workers
+	 *            the number of workers
+	 * @param threshold
+	 *            the threshold defined by the user or the preferences, used until the cost of the agents is known
+	 * @return the number of agents per chunk (at least 1)
+	 */
+	public int grainFor(final int agents, final int workers, final int threshold) {
+		final int max = Math.max(1, agents / (Math.max(1, workers) * MIN_CHUNKS_PER_WORKER));
+		final double cost = nanosPerAgent;
+		final int grain = cost <= 0 ? threshold : (int) Math.min(Integer.MAX_VALUE, TARGET_CHUNK_NANOS / cost);
+		return Math.max(1, Math.min(grain, max));
+	}
+
+	/**
+	 * Records the step of a chunk.
+	 *
+	 * @param nanos
+	 *            the time spent stepping the agents of the chunk
+	 */
+	void recordChunk(final long nanos) {
+		busy.add(nanos);
+		chunks.increment();
+	}
+
+	/**
+	 * Records the end of a parallel step and updates the average cost of the agents.
+	 *
+	 * @param agents
+	 *            the number of agents stepped
+	 * @param grain
+	 *            the number of agents per chunk
+	 * @param workers
+	 *            the number of workers
+	 * @param wallNanos
+	 *            the duration of the step
+	 */
+	void recordStep(final int agents, final int grain, final int workers, final long wallNanos) {
+		final long b = busy.sumThenReset();
+		lastChunks = chunks.sumThenReset();
+		lastAgents = agents;
+		lastGrain = grain;
+		lastWorkers = workers;
+		lastWallNanos = wallNanos;
+		lastBusyNanos = b;
+		if (agents > 0) {
+			final double cost = (double) b / agents;
+			final double previous = nanosPerAgent;
+			nanosPerAgent = previous <= 0 ? cost : (previous + cost) / 2;
+		}
+		cycles++;
+	}
+
+	/**
+	 * The balance of the last step: the ratio between the time spent stepping agents and the time available to all
+	 * the workers. 1 means that no worker has been idle.
+	 *
+	 * @return the balance, between 0 and 1
+	 */
+	public double getBalance() {
+		final long available = lastWallNanos * Math.max(1, Math.min(lastWorkers, lastChunks));
+		return available == 0 ? 1d : Math.min(1d, (double) lastBusyNanos / available);
+	}
+
+	/**
+	 * Returns the statistics as a map (times are in milliseconds).
+	 *
+	 * @param scope
+	 *            the scope
+	 * @return the map
+	 */
+	@SuppressWarnings ("unchecked")
+	public IMap<String, Object> toMap(final IScope scope) {
+		final IMap<String, Object> result = GamaMapFactory.create(Types.STRING, Types.NO_TYPE);
+		result.put("cycles", (int) cycles);
+		result.put("agents", (int) lastAgents);
+		result.put("chunks", (int) lastChunks);
+		result.put("agents_per_chunk", (int) lastGrain);
+		result.put("workers", lastWorkers);
+		result.put("agent_time", nanosPerAgent / 1_000_000d);
+		result.put("step_time", lastWallNanos / 1_000_000d);
+		result.put("busy_time", lastBusyNanos / 1_000_000d);
+		result.put("balance", getBalance());
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "cycles: " + cycles + ", agents: " + lastAgents + ", chunks: " + lastChunks + " of " + lastGrain
+				+ " agents, balance: " + Math.round(getBalance() * 100) + "%";
+	}
+
+}
@@ -21,28 +21,44 @@ import static msi.gama.runtime.server.ISocketCommand.LOAD;
 import static msi.gama.runtime.server.ISocketCommand.PAUSE;
 import static msi.gama.runtime.server.ISocketCommand.PLAY;
 import static msi.gama.runtime.server.ISocketCommand.RELOAD;
+import static msi.gama.runtime.server.ISocketCommand.STATISTICS;
+import static msi.gama.runtime.server.ISocketCommand.SUBSCRIBE;
+import static msi.gama.runtime.server.ISocketCommand.UNSUBSCRIBE;
 import static msi.gama.runtime.server.ISocketCommand.STEP;
 import static msi.gama.runtime.server.ISocketCommand.STEPBACK;
 import static msi.gama.runtime.server.ISocketCommand.STOP;
 import static msi.gama.runtime.server.ISocketCommand.UPLOAD;
 
 import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.java_websocket.WebSocket;
 import org.java_websocket.enums.ReadyState;
 
+import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.runtime.GAMA;
 import msi.gama.runtime.concurrent.GamaExecutorService;
+import msi.gama.util.GamaMapFactory;
 import msi.gama.util.IList;
 import msi.gama.util.IMap;
 import msi.gama.util.file.json.Json;
 import msi.gaml.types.Types;
 
 /**
- * The Class CommandExecutor.
+ * The Class CommandExecutor. The commands are executed by a bounded number of threads (see
+ * {@link GamaPreferences.Runtime#CORE_SERVER_THREADS}). The commands of a client are executed one after the other, in
+ * the order in which they have been received, while the commands of different clients are executed concurrently. When
+ * too many commands are waiting to be executed, for one client or for all of them, the new ones are rejected with a
+ * {@link GamaServerMessage.Type#ServerBusy} response.
  *
  * @author Alexis Drogoul (alexis.drogoul@ird.fr)
  * @date 15 oct. 2023
@@ -61,8 +77,47 @@ public class CommandExecutor {
 	/** The command queue. */
 	protected volatile LinkedBlockingQueue<Entry<WebSocket, IMap<String, Object>>> commandQueue;
 
-	/** The json encoder. */
-	protected static Json jsonEncoder = Json.getNew();
+	/**
+	 * The commands waiting to be executed for a client, and whether one of them is being executed or scheduled.
+	 */
+	static class SocketQueue {
+
+		/** The commands. */
+		final ArrayDeque<PendingCommand> commands = new ArrayDeque<>();
+
+		/** Whether the queue has been scheduled for execution. */
+		boolean scheduled;
+
+		/** Whether the queue has been removed from the map of queues. */
+		boolean removed;
+	}
+
+	/**
+	 * A command waiting to be executed.
+	 *
+	 * @param command
+	 *            the command
+	 * @param map
+	 *            the parameters of the command
+	 * @param received
+	 *            the time at which it has been received, in nanoseconds
+	 */
+	record PendingCommand(ISocketCommand command, IMap<String, Object> map, long received) {}
+
+	/** The executor of the commands, with a bounded number of threads. */
+	protected final ThreadPoolExecutor executor;
+
+	/** The commands waiting to be executed for each client. */
+	protected final Map<WebSocket, SocketQueue> queues = new ConcurrentHashMap<>();
+
+	/** The number of commands waiting to be executed, and its maximum. */
+	protected final AtomicInteger pending = new AtomicInteger(), maxPending = new AtomicInteger();
+
+	/** The number of commands executed and rejected. */
+	protected final AtomicLong executed = new AtomicLong(), rejected = new AtomicLong();
+
+	/** The total and maximal latencies of the commands (from their reception to the end of their execution). */
+	protected final AtomicLong totalLatency = new AtomicLong(), maxLatency = new AtomicLong();
 
 	/** The command execution thread. */
 	protected final Thread commandExecutionThread = new Thread(() -> {
@@ -90,6 +145,14 @@ public class CommandExecutor {
 		this.server = server;
 		commands = GAMA.getGui().getServerCommands();
 		commandQueue = new LinkedBlockingQueue<>();
+		final int threads = GamaPreferences.Runtime.CORE_SERVER_THREADS.getValue();
+		final AtomicInteger count = new AtomicInteger();
+		executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+			final Thread t = new Thread(r, "GAMA Server command " + count.incrementAndGet());
+			t.setUncaughtExceptionHandler(GamaExecutorService.EXCEPTION_HANDLER);
+			return t;
+		});
+		executor.allowCoreThreadTimeOut(true);
 		commandExecutionThread.setUncaughtExceptionHandler(GamaExecutorService.EXCEPTION_HANDLER);
 		commandExecutionThread.start();
 	}
@@ -119,18 +182,165 @@ public class CommandExecutor {
 	 * @date 15 oct. 2023
 	 */
 	protected void process(final WebSocket socket, final IMap<String, Object> map) {
-		final String cmd_type = map.get("type").toString();
+		final String cmd_type = String.valueOf(map.get("type"));
 		ISocketCommand command = commands.get(cmd_type);
-		if (command == null) throw new IllegalArgumentException("Invalid command type: " + cmd_type);
-
-		// Executes the command in a separate thread so the executor can
-		// continue with the next one without waiting for it to finish
-		new Thread(() -> {
-			var res = command.execute(server, socket, map);
-			if (res != null && ReadyState.OPEN.equals(socket.getReadyState())) {
-				socket.send(jsonEncoder.valueOf(res).toString());
+		if (command == null) {
+			send(socket, new CommandResponse(GamaServerMessage.Type.MalformedRequest,
+					"Invalid command type: " + cmd_type, map, false));
+			return;
+		}
+		final int maxGlobal = GamaPreferences.Runtime.CORE_SERVER_PENDING.getValue();
+		final int maxSocket = GamaPreferences.Runtime.CORE_SERVER_QUEUE.getValue();
+		// Executes the command in the pool of threads so the executor can continue with the next one without waiting
+		// for it to finish, after the commands of the same client received before it
+		while (true) {
+			final SocketQueue queue = queues.computeIfAbsent(socket, s -> new SocketQueue());
+			final boolean schedule;
+			synchronized (queue) {
+				if (queue.removed) { continue; }
+				if (maxGlobal > 0 && pending.get() >= maxGlobal || maxSocket > 0 && queue.commands.size() >= maxSocket) {
+					reject(socket, map, "Too many commands waiting to be executed (" + queue.commands.size()
+							+ " for this client, " + pending.get() + " in total). Please retry later");
+					return;
+				}
+				queue.commands.add(new PendingCommand(command, map, System.nanoTime()));
+				maxPending.accumulateAndGet(pending.incrementAndGet(), Math::max);
+				schedule = !queue.scheduled;
+				queue.scheduled = true;
 			}
-		}).start();
+			if (schedule) { schedule(socket, queue); }
+			return;
+		}
+	}
+
+	/**
+	 * Schedules the execution of the next command of a client. If the executor refuses it, all the commands waiting
+	 * for this client are rejected.
+	 *
+	 * @param socket
+	 *            the socket
+	 * @param queue
+	 *            the queue
+	 */
+	private void schedule(final WebSocket socket, final SocketQueue queue) {
+		try {
+			executor.execute(() -> executeNext(socket, queue));
+		} catch (RejectedExecutionException e) {
+			synchronized (queue) {
+				for (PendingCommand c : queue.commands) {
+					pending.decrementAndGet();
+					reject(socket, c.map(), "The server is unable to execute the command");
+				}
+				queue.commands.clear();
+				queue.scheduled = false;
+				queue.removed = true;
+				queues.remove(socket, queue);
+			}
+		}
+	}
+
+	/**
+	 * Executes the next command of a client, then schedules the following one (rather than executing it in the same
+	 * thread, so that the clients share the threads fairly). A command that fails with an exception is answered with a
+	 * {@link GamaServerMessage.Type#GamaServerError} response, and does not prevent the following ones from being
+	 * executed.
+	 *
+	 * @param socket
+	 *            the socket
+	 * @param queue
+	 *            the queue
+	 */
+	private void executeNext(final WebSocket socket, final SocketQueue queue) {
+		final PendingCommand next;
+		synchronized (queue) {
+			next = queue.commands.poll();
+		}
+		if (next == null) {
+			scheduleNext(socket, queue);
+			return;
+		}
+		pending.decrementAndGet();
+		try {
+			send(socket, next.command().execute(server, socket, next.map()));
+		} catch (RuntimeException e) {
+			send(socket, new CommandResponse(GamaServerMessage.Type.GamaServerError, e, next.map(), false));
+		} finally {
+			final long latency = System.nanoTime() - next.received();
+			executed.incrementAndGet();
+			totalLatency.addAndGet(latency);
+			maxLatency.accumulateAndGet(latency, Math::max);
+			scheduleNext(socket, queue);
+		}
+	}
+
+	/**
+	 * Schedules the next command of a client if there is one, or releases its queue otherwise.
+	 *
+	 * @param socket
+	 *            the socket
+	 * @param queue
+	 *            the queue
+	 */
+	private void scheduleNext(final WebSocket socket, final SocketQueue queue) {
+		synchronized (queue) {
+			if (queue.commands.isEmpty()) {
+				queue.scheduled = false;
+				queue.removed = true;
+				queues.remove(socket, queue);
+				return;
+			}
+		}
+		schedule(socket, queue);
+	}
+
+	/**
+	 * Rejects a command with a {@link GamaServerMessage.Type#ServerBusy} response.
+	 *
+	 * @param socket
+	 *            the socket
+	 * @param map
+	 *            the map
+	 * @param reason
+	 *            the reason
+	 */
+	private void reject(final WebSocket socket, final IMap<String, Object> map, final String reason) {
+		rejected.incrementAndGet();
+		send(socket, new CommandResponse(GamaServerMessage.Type.ServerBusy, reason, map, false));
+	}
+
+	/**
+	 * Sends a response to a client, if it is still connected.
+	 *
+	 * @param socket
+	 *            the socket
+	 * @param res
+	 *            the response
+	 */
+	private void send(final WebSocket socket, final GamaServerMessage res) {
+		if (res != null && ReadyState.OPEN.equals(socket.getReadyState())) {
+			res.sendTo(socket);
+		}
+	}
+
+	/**
+	 * The statistics of the execution of the commands: number of commands waiting (now and at most), executed and
+	 * rejected, latencies (from the reception of the commands to the end of their execution) and threads in use.
+	 *
+	 * @return the statistics
+	 */
+	public IMap<String, Object> getStatistics() {
+		final long n = executed.get();
+		final IMap<String, Object> stats = GamaMapFactory.create(Types.STRING, Types.NO_TYPE);
+		stats.put("pending", pending.get());
+		stats.put("max_pending", maxPending.get());
+		stats.put("clients_waiting", queues.size());
+		stats.put("executed", n);
+		stats.put("rejected", rejected.get());
+		stats.put("average_latency_ms", n == 0 ? 0d : totalLatency.get() / 1000000d / n);
+		stats.put("max_latency_ms", maxLatency.get() / 1000000d);
+		stats.put("active_threads", executor.getActiveCount());
+		stats.put("max_threads", executor.getMaximumPoolSize());
+		return stats;
 	}
 
 	/**
@@ -151,11 +361,11 @@ public class CommandExecutor {
 				var value = m.get("value");
 				if (name == null) return new CommandResponse(
 						GamaServerMessage.Type.MalformedRequest, "Parameter number " + i
-								+ " is missing its `name` field. Parameter received: " + jsonEncoder.valueOf(m),
+								+ " is missing its `name` field. Parameter received: " + Json.getNew().valueOf(m),
 						commandMap, false);
 				if (value == null) return new CommandResponse(
 						GamaServerMessage.Type.MalformedRequest, "Parameter number " + i
-								+ " is missing its `value` field. Parameter received: " + jsonEncoder.valueOf(m),
+								+ " is missing its `value` field. Parameter received: " + Json.getNew().valueOf(m),
 						commandMap, false);
 				i++;
 			}
@@ -180,7 +390,9 @@ public class CommandExecutor {
 					entry(RELOAD, DefaultServerCommands::RELOAD), entry(EXPRESSION, DefaultServerCommands::EVAL),
 					entry(EVALUATE, DefaultServerCommands::EVAL), entry(EXIT, DefaultServerCommands::EXIT),
 					entry(DOWNLOAD, DefaultServerCommands::DOWNLOAD), entry(UPLOAD, DefaultServerCommands::UPLOAD),
-					entry(ASK, DefaultServerCommands::ASK));
+					entry(ASK, DefaultServerCommands::ASK), entry(STATISTICS, DefaultServerCommands::STATISTICS),
+					entry(SUBSCRIBE, DefaultServerCommands::SUBSCRIBE),
+					entry(UNSUBSCRIBE, DefaultServerCommands::UNSUBSCRIBE));
 		}
 		return DEFAULT_COMMANDS;
 	}
@@ -11,7 +11,10 @@
 package msi.gama.runtime.server;
 
 import msi.gama.util.IMap;
+import java.util.Map;
+
 import msi.gama.util.file.json.Json;
+import msi.gama.util.file.json.JsonStreamer;
 import msi.gama.util.file.json.JsonValue;
 
 /**
@@ -56,4 +59,22 @@ public class CommandResponse extends GamaServerMessage {
 		return json.object("type", type, "content", isJson ? json.parse((String) content) : content, "command", params);
 	}
 
+	@Override
+	public void streamTo(final JsonStreamer streamer) {
+		streamer.beginObject().member("type", type);
+		streamer.member("content", isJson ? Json.getNew().parse((String) content) : content);
+		streamer.name("command");
+		if (commandParameters == null) {
+			streamer.value(null);
+		} else {
+			// The parameters are written without the server, as in serializeToJson()
+			streamer.beginObject();
+			for (Map.Entry<String, Object> entry : commandParameters.entrySet()) {
+				if (!"server".equals(entry.getKey())) { streamer.member(entry.getKey(), entry.getValue()); }
+			}
+			streamer.endObject();
+		}
+		streamer.endObject();
+	}
+
 }
@@ -12,11 +12,16 @@ package msi.gama.runtime.server;
 
 import static msi.gama.runtime.server.ISocketCommand.ESCAPED;
 import static msi.gama.runtime.server.ISocketCommand.EVALUATE;
+import static msi.gama.runtime.server.ISocketCommand.EVERY;
 import static msi.gama.runtime.server.ISocketCommand.EXPR;
+import static msi.gama.runtime.server.ISocketCommand.EXPRESSIONS;
+import static msi.gama.runtime.server.ISocketCommand.EXP_ID;
 import static msi.gama.runtime.server.ISocketCommand.NB_STEP;
 import static msi.gama.runtime.server.ISocketCommand.PARAMETERS;
 import static msi.gama.runtime.server.ISocketCommand.STEP;
 import static msi.gama.runtime.server.ISocketCommand.STEPBACK;
+import static msi.gama.runtime.server.ISocketCommand.SUBSCRIBE;
+import static msi.gama.runtime.server.ISocketCommand.SUBSCRIPTION;
 import static msi.gama.runtime.server.ISocketCommand.SYNC;
 
 import java.io.BufferedReader;
@@ -26,6 +31,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.java_websocket.WebSocket;
@@ -48,6 +54,7 @@ import msi.gama.util.IMap;
 import msi.gaml.compilation.GAML;
 import msi.gaml.compilation.GamlCompilationError;
 import msi.gaml.compilation.GamlIdiomsProvider;
+import msi.gaml.expressions.IExpression;
 import msi.gaml.operators.Cast;
 import msi.gaml.statements.Arguments;
 import msi.gaml.statements.IExecutable;
@@ -423,4 +430,98 @@ public class DefaultServerCommands {
 		}
 	}
 
+	/**
+	 * Statistics. Returns the statistics of the server (execution of the commands, subscriptions and, in headless
+	 * mode, pool of experiments).
+	 *
+	 * @param socket
+	 *            the socket
+	 * @param map
+	 *            the map
+	 * @return the gama server message
+	 */
+	public static GamaServerMessage STATISTICS(final GamaWebSocketServer server, final WebSocket socket,
+			final IMap<String, Object> map) {
+		return new CommandResponse(GamaServerMessage.Type.CommandExecutedSuccessfully, server.getStatistics(), map,
+				false);
+	}
+
+	/**
+	 * Subscribe. Compiles a set of expressions once and registers them in the experiment, which sends their values to
+	 * the client, when they change, every 'every' cycles (1 by default). Returns the id of the subscription.
+	 *
+	 * @param socket
+	 *            the socket
+	 * @param map
+	 *            the map
+	 * @return the gama server message
+	 */
+	public static GamaServerMessage SUBSCRIBE(final GamaWebSocketServer server, final WebSocket socket,
+			final IMap<String, Object> map) {
+		IExperimentPlan plan;
+		try {
+			plan = server.retrieveExperimentPlan(socket, map);
+		} catch (CommandException e) {
+			return e.getResponse();
+		}
+		final Object exprs = map.get(EXPRESSIONS);
+		if (exprs == null) return new CommandResponse(GamaServerMessage.Type.MalformedRequest,
+				"For " + SUBSCRIBE + ", mandatory parameter is: " + EXPRESSIONS, map, false);
+		final ExperimentAgent agent = plan.getAgent();
+		if (agent == null) return new CommandResponse(GamaServerMessage.Type.UnableToExecuteRequest,
+				"The experiment is not running", map, false);
+		final int every;
+		try {
+			every = map.get(EVERY) != null ? Integer.parseInt(map.get(EVERY).toString().trim()) : 1;
+		} catch (NumberFormatException e) {
+			return new CommandResponse(GamaServerMessage.Type.MalformedRequest,
+					"For " + SUBSCRIBE + ", '" + EVERY + "' must be a number of cycles", map, false);
+		}
+		if (every <= 0) return new CommandResponse(GamaServerMessage.Type.MalformedRequest,
+				"For " + SUBSCRIBE + ", '" + EVERY + "' must be strictly positive", map, false);
+		final List<String> texts = new ArrayList<>();
+		if (exprs instanceof Collection<?> c) {
+			for (Object o : c) { texts.add(o.toString().trim()); }
+		} else {
+			texts.add(exprs.toString().trim());
+		}
+		final IExpression[] expressions = new IExpression[texts.size()];
+		for (int i = 0; i < expressions.length; i++) {
+			try {
+				expressions[i] = GAML.compileExpression(texts.get(i), agent, false);
+			} catch (final Exception e) {
+				return new CommandResponse(GamaServerMessage.Type.UnableToExecuteRequest,
+						"Impossible to compile '" + texts.get(i) + "': " + e.getMessage(), map, false);
+			} finally {
+				agent.getSpecies().removeTemporaryAction();
+			}
+			if (expressions[i] == null) return new CommandResponse(GamaServerMessage.Type.UnableToExecuteRequest,
+					"Impossible to compile '" + texts.get(i) + "'", map, false);
+		}
+		final String expId = map.get(EXP_ID) != null ? map.get(EXP_ID).toString() : null;
+		final String id = server.getSubscriptions().subscribe(socket, expId, agent, texts.toArray(new String[0]),
+				expressions, every);
+		return new CommandResponse(GamaServerMessage.Type.CommandExecutedSuccessfully, id, map, false);
+	}
+
+	/**
+	 * Unsubscribe. Cancels a subscription created by 'subscribe'.
+	 *
+	 * @param socket
+	 *            the socket
+	 * @param map
+	 *            the map
+	 * @return the gama server message
+	 */
+	public static GamaServerMessage UNSUBSCRIBE(final GamaWebSocketServer server, final WebSocket socket,
+			final IMap<String, Object> map) {
+		final Object id = map.get(SUBSCRIPTION);
+		if (id == null) return new CommandResponse(GamaServerMessage.Type.MalformedRequest,
+				"For " + ISocketCommand.UNSUBSCRIBE + ", mandatory parameter is: " + SUBSCRIPTION, map, false);
+		if (!server.getSubscriptions().unsubscribe(socket, id.toString().trim()))
+			return new CommandResponse(GamaServerMessage.Type.UnableToExecuteRequest,
+					"Subscription does not exist: " + id, map, false);
+		return new CommandResponse(GamaServerMessage.Type.CommandExecutedSuccessfully, "", map, false);
+	}
+
 }
@@ -18,7 +18,6 @@ import msi.gama.runtime.GAMA;
 import msi.gama.runtime.IExperimentStateListener;
 import msi.gama.runtime.server.ISocketCommand.CommandException;
 import msi.gama.util.IMap;
-import msi.gama.util.file.json.Json;
 import ummisco.gama.dev.utils.DEBUG;
 
 /**
@@ -163,9 +162,7 @@ public class GamaGuiWebSocketServer extends GamaWebSocketServer implements IExpe
 			currentState = state;
 			WebSocket ws = currentServerConfig.socket();
 			if (ws == null) return;
-			ws.send(Json.getNew()
-					.valueOf(new GamaServerMessage(GamaServerMessage.Type.SimulationStatus, state.name(), "0"))
-					.toString());
+			new GamaServerMessage(GamaServerMessage.Type.SimulationStatus, state.name(), "0").sendTo(ws);
 		}
 	}
 
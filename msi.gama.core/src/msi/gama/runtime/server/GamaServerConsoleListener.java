@@ -43,14 +43,14 @@ public final class GamaServerConsoleListener extends GamaServerMessager implemen
 	public void informConsole(final String s, final ITopLevelAgent root, final GamaColor color) {
 		System.out.println(s);
 		if (!canSendMessage(root.getExperiment())) return;
-		sendMessage(root.getExperiment(), json.object("message", s, "color", color),
+		sendMessage(root.getExperiment(), members("message", s, "color", color),
 				GamaServerMessage.Type.SimulationOutput);
 	}
 
 	@Override
 	public void debugConsole(final int cycle, final String s, final ITopLevelAgent root, final GamaColor color) {
 		if (!canSendMessage(root.getExperiment())) return;
-		sendMessage(root.getExperiment(), json.object("cycle", cycle, "message", s, "color", color),
+		sendMessage(root.getExperiment(), members("cycle", cycle, "message", s, "color", color),
 				GamaServerMessage.Type.SimulationDebug);
 	}
 }
\ No newline at end of file
@@ -10,8 +10,12 @@
  ********************************************************************************************************/
 package msi.gama.runtime.server;
 
+import org.java_websocket.WebSocket;
+import org.java_websocket.framing.TextFrame;
+
 import msi.gama.util.file.json.Json;
 import msi.gama.util.file.json.JsonObject;
+import msi.gama.util.file.json.JsonStreamer;
 import msi.gama.util.file.json.JsonValue;
 import msi.gaml.interfaces.IJsonable;
 
@@ -21,7 +25,7 @@ import msi.gaml.interfaces.IJsonable;
  * @author Alexis Drogoul (alexis.drogoul@ird.fr)
  * @date 15 oct. 2023
  */
-public class GamaServerMessage implements IJsonable {
+public class GamaServerMessage implements IJsonable, JsonStreamer.Streamable {
 
 	/**
 	 * The Enum Type.
@@ -109,7 +113,17 @@ public class GamaServerMessage implements IJsonable {
 		/**
 		 * Used when a command is syntactically and semantically correct, but cannot be run for some reason
 		 */
-		UnableToExecuteRequest
+		UnableToExecuteRequest,
+
+		/**
+		 * Used when a command is rejected because too many commands are waiting to be executed
+		 */
+		ServerBusy,
+
+		/**
+		 * Used to send the values of the expressions a client has subscribed to, when they have changed
+		 */
+		SubscriptionUpdate
 
 	}
 
@@ -170,4 +184,38 @@ public class GamaServerMessage implements IJsonable {
 		return o;
 	}
 
+	@Override
+	public void streamTo(final JsonStreamer streamer) {
+		streamer.beginObject().member("type", type).member("content", content);
+		if (exp_id != null) { streamer.member(ISocketCommand.EXP_ID, exp_id); }
+		streamer.endObject();
+	}
+
+	/**
+	 * Sends the message to a client. The message is encoded directly in the pooled buffers of a {@link JsonStreamer}.
+	 *
+	 * @param socket
+	 *            the socket
+	 */
+	public void sendTo(final WebSocket socket) {
+		try (JsonStreamer streamer = JsonStreamer.get()) {
+			send(socket, streamer.value(this));
+		}
+	}
+
+	/**
+	 * Sends the JSON text written in a streamer to a client, in a text frame whose payload is the UTF-8 buffer of the
+	 * streamer (copied by the socket when the frame is sent, so that the buffer can be reused right after).
+	 *
+	 * @param socket
+	 *            the socket
+	 * @param streamer
+	 *            the streamer
+	 */
+	public static void send(final WebSocket socket, final JsonStreamer streamer) {
+		final TextFrame frame = new TextFrame();
+		frame.setPayload(streamer.toUTF8());
+		socket.sendFrame(frame);
+	}
+
 }
@@ -11,7 +11,7 @@
 package msi.gama.runtime.server;
 
 import msi.gama.kernel.experiment.IExperimentAgent;
-import msi.gama.util.file.json.Json;
+import msi.gama.util.file.json.JsonStreamer;
 import ummisco.gama.dev.utils.DEBUG;
 
 /**
@@ -22,9 +22,6 @@ import ummisco.gama.dev.utils.DEBUG;
  */
 public abstract class GamaServerMessager {
 
-	/** The json. */
-	Json json = Json.getNew();
-
 	/**
 	 * Can send message.
 	 *
@@ -62,8 +59,7 @@ public abstract class GamaServerMessager {
 				DEBUG.OUT("No socket found, maybe the client is already disconnected. Unable to send message: " + m);
 				return;
 			}
-			socket.send(
-					json.valueOf(new GamaServerMessage(type, m, scope.getServerConfiguration().expId())).toString());
+			new GamaServerMessage(type, m, scope.getServerConfiguration().expId()).sendTo(socket);
 
 		} catch (Exception ex) {
 			ex.printStackTrace();
@@ -72,4 +68,35 @@ public abstract class GamaServerMessager {
 		}
 	}
 
+	/**
+	 * A content made of members (names followed by their values), written directly by the {@link JsonStreamer} that
+	 * encodes the message, without building a tree of JSON values.
+	 *
+	 * @param namesAndValues
+	 *            the names and values of the members
+	 * @return the content
+	 */
+	protected static JsonStreamer.Streamable members(final Object... namesAndValues) {
+		return streamer -> {
+			streamer.beginObject();
+			for (int i = 0; i < namesAndValues.length; i += 2) {
+				streamer.member((String) namesAndValues[i], namesAndValues[i + 1]);
+			}
+			streamer.endObject();
+		};
+	}
+
+	/**
+	 * Encodes a content in a JSON string.
+	 *
+	 * @param content
+	 *            the content
+	 * @return the string
+	 */
+	protected static String encode(final JsonStreamer.Streamable content) {
+		try (JsonStreamer streamer = JsonStreamer.get()) {
+			return streamer.value(content).toString();
+		}
+	}
+
 }
\ No newline at end of file
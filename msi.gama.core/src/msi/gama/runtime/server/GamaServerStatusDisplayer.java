@@ -56,21 +56,21 @@ public final class GamaServerStatusDisplayer extends GamaServerMessager implemen
 	@Override
 	public void setStatus(final IScope scope, final String msg, final GamaColor color) {
 		if (!canSendMessage(scope.getExperiment())) return;
-		sendMessage(scope.getExperiment(), json.object("message", msg, "color", color).toString(),
+		sendMessage(scope.getExperiment(), encode(members("message", msg, "color", color)),
 				GamaServerMessage.Type.SimulationStatus);
 	}
 
 	@Override
 	public void informStatus(final IScope scope, final String message, final String icon) {
 		if (!canSendMessage(scope.getExperiment())) return;
-		sendMessage(scope.getExperiment(), json.object("message", message, "icon", icon).toString(),
+		sendMessage(scope.getExperiment(), encode(members("message", message, "icon", icon)),
 				GamaServerMessage.Type.SimulationStatusInform);
 	}
 
 	@Override
 	public void setStatus(final IScope scope, final String msg, final String icon) {
 		if (!canSendMessage(scope.getExperiment())) return;
-		sendMessage(scope.getExperiment(), json.object("message", msg, "icon", icon).toString(),
+		sendMessage(scope.getExperiment(), encode(members("message", msg, "icon", icon)),
 				GamaServerMessage.Type.SimulationStatus);
 
 	}
@@ -78,7 +78,7 @@ public final class GamaServerStatusDisplayer extends GamaServerMessager implemen
 	@Override
 	public void neutralStatus(final IScope scope, final String string) {
 		if (!canSendMessage(scope.getExperiment())) return;
-		sendMessage(scope.getExperiment(), json.object("message", string).toString(),
+		sendMessage(scope.getExperiment(), encode(members("message", string)),
 				GamaServerMessage.Type.SimulationStatusNeutral);
 	}
 }
\ No newline at end of file
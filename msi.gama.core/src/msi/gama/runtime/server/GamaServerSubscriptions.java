@@ -0,0 +1,367 @@
+/*******************************************************************************************************
+ *
+ * GamaServerSubscriptions.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.runtime.server;
+
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.java_websocket.WebSocket;
+
+import msi.gama.kernel.experiment.ExperimentAgent;
+import msi.gama.kernel.simulation.SimulationAgent;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.GamaMapFactory;
+import msi.gama.util.IMap;
+import msi.gama.util.file.json.JsonStreamer;
+import msi.gaml.expressions.IExpression;
+import msi.gaml.statements.IExecutable;
+import msi.gaml.types.Types;
+
+/**
+ * The subscriptions of the clients of a server to the values of expressions in their experiments. The expressions of
+ * a subscription are compiled once, when it is created. They are then evaluated every n cycles by the thread of the
+ * experiment, at the end of its step, and only the values that have changed since the last update are sent to the
+ * client, in a {@link GamaServerMessage.Type#SubscriptionUpdate} message. The values and the messages are encoded by
+ * a {@link JsonStreamer}, in buffers reused from one update to the other. When the client does not read its messages
+ * as fast as they are produced (i.e. when its connection still has data waiting to be sent), the updates are
+ * coalesced: the latest value of each expression is kept and sent as soon as the connection has been drained (which
+ * is checked every {@link #FLUSH_PERIOD} milliseconds), or with the next update if it comes first. The subscriptions
+ * are cancelled when their client disconnects, or when the simulations of their experiment are closed (i.e. when the
+ * experiment is closed or reloaded), in which case the values still waiting are sent first.
+ */
+public class GamaServerSubscriptions {
+
+	/** The period, in milliseconds, at which the connections holding coalesced updates are checked. */
+	static final int FLUSH_PERIOD = 50;
+
+	/**
+	 * A subscription of a client to the values of expressions in an experiment.
+	 */
+	class Subscription implements IExecutable {
+
+		/** The id. */
+		final String id;
+
+		/** The socket of the client. */
+		final WebSocket socket;
+
+		/** The id of the experiment, sent back in the updates. */
+		final String expId;
+
+		/** The experiment agent. */
+		final ExperimentAgent agent;
+
+		/** The compiled expressions. */
+		final IExpression[] expressions;
+
+		/** The texts of the expressions. */
+		final String[] texts;
+
+		/** The number of cycles between two evaluations. */
+		final int every;
+
+		/** The last values sent, encoded in JSON. */
+		final String[] sent;
+
+		/** The values that have changed but have not been sent yet, encoded in JSON. Null if none. */
+		final String[] waiting;
+
+		/** The number of steps of the experiment since the subscription. */
+		long steps;
+
+		/** Whether the subscription has been cancelled. */
+		volatile boolean cancelled;
+
+		/** The task sending the coalesced values once the connection has been drained. Null if none. */
+		TimerTask flusher;
+
+		/**
+		 * The action that sends the values still waiting and cancels the subscription when the simulations of the
+		 * experiment are closed.
+		 */
+		final IExecutable disposer = scope -> {
+			synchronized (this) {
+				if (socket.isOpen() && hasWaiting()) { send(); }
+			}
+			cancel(this);
+			return null;
+		};
+
+		/**
+		 * Instantiates a new subscription.
+		 *
+		 * @param id
+		 *            the id
+		 * @param socket
+		 *            the socket
+		 * @param expId
+		 *            the exp id
+		 * @param agent
+		 *            the agent
+		 * @param texts
+		 *            the texts of the expressions
+		 * @param expressions
+		 *            the expressions
+		 * @param every
+		 *            the number of cycles between two evaluations
+		 */
+		Subscription(final String id, final WebSocket socket, final String expId, final ExperimentAgent agent,
+				final String[] texts, final IExpression[] expressions, final int every) {
+			this.id = id;
+			this.socket = socket;
+			this.expId = expId;
+			this.agent = agent;
+			this.expressions = expressions;
+			this.every = every;
+			this.texts = texts;
+			this.sent = new String[texts.length];
+			this.waiting = new String[texts.length];
+		}
+
+		@Override
+		public synchronized Object executeOn(final IScope scope) throws GamaRuntimeException {
+			if (cancelled) return null;
+			if (!socket.isOpen()) {
+				cancel(this);
+				return null;
+			}
+			if (steps++ % every != 0) return null;
+			boolean changed = false;
+			for (int i = 0; i < expressions.length; i++) {
+				final String value = encode(scope, expressions[i]);
+				if (!value.equals(sent[i])) {
+					waiting[i] = value;
+					changed = true;
+				} else if (waiting[i] != null) {
+					// The value has come back to the one last sent: nothing to send anymore
+					waiting[i] = null;
+				}
+			}
+			if (!changed && !hasWaiting()) return null;
+			if (socket.hasBufferedData()) {
+				coalesced.incrementAndGet();
+				if (flusher == null) {
+					flusher = new TimerTask() {
+
+						@Override
+						public void run() {
+							flush();
+						}
+					};
+					getTimer().schedule(flusher, FLUSH_PERIOD, FLUSH_PERIOD);
+				}
+				return null;
+			}
+			send();
+			return null;
+		}
+
+		/**
+		 * Called periodically while values are waiting: sends them if the connection has been drained in the
+		 * meantime, and stops when there is nothing left to send.
+		 */
+		synchronized void flush() {
+			if (cancelled || !socket.isOpen()) {
+				stopFlushing();
+				return;
+			}
+			if (!hasWaiting()) {
+				stopFlushing();
+			} else if (!socket.hasBufferedData()) {
+				send();
+				stopFlushing();
+			}
+		}
+
+		/**
+		 * Stops the task sending the coalesced values, if any.
+		 */
+		synchronized void stopFlushing() {
+			if (flusher != null) {
+				flusher.cancel();
+				flusher = null;
+			}
+		}
+
+		/**
+		 * Evaluates an expression and encodes its value in JSON. Evaluation errors are encoded as values.
+		 *
+		 * @param scope
+		 *            the scope
+		 * @param expression
+		 *            the expression
+		 * @return the string
+		 */
+		private String encode(final IScope scope, final IExpression expression) {
+			try (JsonStreamer streamer = JsonStreamer.get()) {
+				try {
+					streamer.value(scope.evaluate(expression, agent).getValue());
+				} catch (final GamaRuntimeException e) {
+					streamer.reset();
+					streamer.beginObject().member("error", e.getMessage()).endObject();
+				}
+				return streamer.toString();
+			}
+		}
+
+		/**
+		 * Whether some changed values have not been sent yet.
+		 *
+		 * @return true, if successful
+		 */
+		private boolean hasWaiting() {
+			for (final String value : waiting) { if (value != null) return true; }
+			return false;
+		}
+
+		/**
+		 * Sends the changed values to the client.
+		 */
+		private void send() {
+			try (JsonStreamer streamer = JsonStreamer.get()) {
+				streamer.beginObject().member("type", GamaServerMessage.Type.SubscriptionUpdate).name("content")
+						.beginObject().member("subscription", id).name("cycle").value(cycle()).name("values")
+						.beginObject();
+				for (int i = 0; i < waiting.length; i++) {
+					if (waiting[i] == null) { continue; }
+					streamer.name(texts[i]).raw(waiting[i]);
+					sent[i] = waiting[i];
+					waiting[i] = null;
+				}
+				streamer.endObject().endObject();
+				if (expId != null) { streamer.member(ISocketCommand.EXP_ID, expId); }
+				GamaServerMessage.send(socket, streamer.endObject());
+			}
+			updates.incrementAndGet();
+		}
+
+		/**
+		 * The current cycle of the simulation, or of the experiment if there is no simulation.
+		 *
+		 * @return the int
+		 */
+		private int cycle() {
+			final SimulationAgent sim = agent.getSimulation();
+			return sim == null ? agent.getClock().getCycle() : sim.getClock().getCycle();
+		}
+
+	}
+
+	/** The subscriptions, indexed by id. */
+	final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+	/** The counter used to create the ids of the subscriptions. */
+	final AtomicLong ids = new AtomicLong();
+
+	/** The number of updates sent and of updates coalesced with the next ones. */
+	final AtomicLong updates = new AtomicLong(), coalesced = new AtomicLong();
+
+	/** The timer running the tasks that send the coalesced values. Created when an update is first coalesced. */
+	private Timer timer;
+
+	/**
+	 * Gets the timer, creating it if necessary.
+	 *
+	 * @return the timer
+	 */
+	synchronized Timer getTimer() {
+		if (timer == null) { timer = new Timer("GAMA server subscriptions", true); }
+		return timer;
+	}
+
+	/**
+	 * Creates a subscription and registers it in the experiment.
+	 *
+	 * @param socket
+	 *            the socket of the client
+	 * @param expId
+	 *            the id of the experiment, sent back in the updates
+	 * @param agent
+	 *            the experiment agent
+	 * @param texts
+	 *            the texts of the expressions
+	 * @param expressions
+	 *            the compiled expressions
+	 * @param every
+	 *            the number of cycles between two evaluations, strictly positive
+	 * @return the id of the subscription
+	 */
+	public String subscribe(final WebSocket socket, final String expId, final ExperimentAgent agent,
+			final String[] texts, final IExpression[] expressions, final int every) {
+		final String id = String.valueOf(ids.incrementAndGet());
+		final Subscription subscription = new Subscription(id, socket, expId, agent, texts, expressions, every);
+		subscriptions.put(id, subscription);
+		agent.postEndAction(subscription);
+		agent.postDisposeAction(subscription.disposer);
+		return id;
+	}
+
+	/**
+	 * Cancels a subscription of a client.
+	 *
+	 * @param socket
+	 *            the socket of the client
+	 * @param id
+	 *            the id of the subscription
+	 * @return true, if the subscription existed and belonged to the client
+	 */
+	public boolean unsubscribe(final WebSocket socket, final String id) {
+		final Subscription subscription = subscriptions.get(id);
+		if (subscription == null || subscription.socket != socket) return false;
+		cancel(subscription);
+		return true;
+	}
+
+	/**
+	 * Cancels all the subscriptions of a client, for instance when it disconnects.
+	 *
+	 * @param socket
+	 *            the socket of the client
+	 */
+	public void unsubscribeAll(final WebSocket socket) {
+		for (final Subscription subscription : subscriptions.values()) {
+			if (subscription.socket == socket) { cancel(subscription); }
+		}
+	}
+
+	/**
+	 * Cancels a subscription.
+	 *
+	 * @param subscription
+	 *            the subscription
+	 */
+	void cancel(final Subscription subscription) {
+		subscription.cancelled = true;
+		subscriptions.remove(subscription.id);
+		subscription.agent.removeEndAction(subscription);
+		subscription.agent.removeDisposeAction(subscription.disposer);
+		subscription.stopFlushing();
+	}
+
+	/**
+	 * The statistics of the subscriptions.
+	 *
+	 * @return the statistics
+	 */
+	@SuppressWarnings ("unchecked")
+	public IMap<String, Object> getStatistics() {
+		final IMap<String, Object> stats = GamaMapFactory.create(Types.STRING, Types.NO_TYPE);
+		stats.put("subscriptions", subscriptions.size());
+		stats.put("updates_sent", updates.get());
+		stats.put("updates_coalesced", coalesced.get());
+		return stats;
+	}
+
+}
@@ -30,6 +30,7 @@ import msi.gama.runtime.server.ISocketCommand.CommandException;
 import msi.gama.util.GamaMapFactory;
 import msi.gama.util.IMap;
 import msi.gama.util.file.json.Json;
+import msi.gama.util.file.json.JsonStreamer;
 import ummisco.gama.dev.utils.DEBUG;
 
 /**
@@ -46,6 +47,9 @@ public abstract class GamaWebSocketServer extends WebSocketServer {
 	/** The cmd helper. */
 	protected final CommandExecutor cmdHelper = new CommandExecutor(this);
 
+	/** The subscriptions of the clients to the values of expressions. */
+	protected final GamaServerSubscriptions subscriptions = new GamaServerSubscriptions();
+
 	/** The can ping. false if pingInterval is negative */
 	public final boolean canPing;
 
@@ -55,9 +59,6 @@ public abstract class GamaWebSocketServer extends WebSocketServer {
 	/** The ping timers. map of all connected clients and their associated timers running ping requests */
 	protected final Map<WebSocket, Timer> pingTimers = new HashMap<>();
 
-	/** The json err. */
-	protected Json jsonErr = Json.getNew();
-
 	/** The console. */
 	protected final IConsoleListener console = new GamaServerConsoleListener();
 
@@ -100,7 +101,10 @@ public abstract class GamaWebSocketServer extends WebSocketServer {
 			@Override
 			public void println(final String x) {
 				super.println(x);
-				broadcast(jsonErr.valueOf(new GamaServerMessage(GamaServerMessage.Type.GamaServerError, x)).toString());
+				try (JsonStreamer streamer = JsonStreamer.get()) {
+					streamer.value(new GamaServerMessage(GamaServerMessage.Type.GamaServerError, x));
+					broadcast(streamer.toString());
+				}
 			}
 		};
 		System.setErr(errorStream);
@@ -119,11 +123,29 @@ public abstract class GamaWebSocketServer extends WebSocketServer {
 		return String.valueOf(socket.hashCode());
 	}
 
+	/**
+	 * Gets the subscriptions of the clients to the values of expressions.
+	 *
+	 * @return the subscriptions
+	 */
+	public GamaServerSubscriptions getSubscriptions() { return subscriptions; }
+
+	/**
+	 * The statistics of the server, returned by the 'statistics' command: the ones of the execution of the commands
+	 * and of the subscriptions.
+	 *
+	 * @return the statistics
+	 */
+	public IMap<String, Object> getStatistics() {
+		final IMap<String, Object> stats = cmdHelper.getStatistics();
+		stats.putAll(subscriptions.getStatistics());
+		return stats;
+	}
+
 	@Override
 	public void onOpen(final WebSocket socket, final ClientHandshake handshake) {
-		socket.send(Json.getNew().valueOf(
-				new GamaServerMessage(GamaServerMessage.Type.ConnectionSuccessful, String.valueOf(socket.hashCode())))
-				.toString());
+		new GamaServerMessage(GamaServerMessage.Type.ConnectionSuccessful, String.valueOf(socket.hashCode()))
+				.sendTo(socket);
 		if (canPing) {
 			var timer = new Timer();
 			timer.scheduleAtFixedRate(new TimerTask() {
@@ -140,6 +162,7 @@ public abstract class GamaWebSocketServer extends WebSocketServer {
 	public void onClose(final WebSocket conn, final int code, final String reason, final boolean remote) {
 		var timer = pingTimers.remove(conn);
 		if (timer != null) { timer.cancel(); }
+		subscriptions.unsubscribeAll(conn);
 		DEBUG.OUT(conn + " has left the room!");
 	}
 
@@ -165,7 +188,7 @@ public abstract class GamaWebSocketServer extends WebSocketServer {
 			}
 		} catch (Exception e1) {
 			DEBUG.OUT(e1.toString());
-			socket.send(jsonErr.valueOf(new GamaServerMessage(GamaServerMessage.Type.MalformedRequest, e1)).toString());
+			new GamaServerMessage(GamaServerMessage.Type.MalformedRequest, e1).sendTo(socket);
 		}
 		return map;
 	}
@@ -197,7 +220,7 @@ public abstract class GamaWebSocketServer extends WebSocketServer {
 
 		} catch (Exception e1) {
 			DEBUG.OUT(e1);
-			socket.send(jsonErr.valueOf(new GamaServerMessage(GamaServerMessage.Type.GamaServerError, e1)).toString());
+			new GamaServerMessage(GamaServerMessage.Type.GamaServerError, e1).sendTo(socket);
 
 		}
 	}
@@ -132,6 +132,24 @@ public interface ISocketCommand {
 	/** The ask. This action allows to ask an agent to execute an action */
 	String ASK = IKeyword.ASK;
 
+	/** The statistics. Returns the statistics of the execution of the commands by the server */
+	String STATISTICS = "statistics";
+
+	/** The subscribe. Registers expressions whose values are sent to the client when they change */
+	String SUBSCRIBE = "subscribe";
+
+	/** The unsubscribe. */
+	String UNSUBSCRIBE = "unsubscribe";
+
+	/** The Constant EXPRESSIONS. */
+	String EXPRESSIONS = "expressions";
+
+	/** The Constant EVERY. */
+	String EVERY = "every";
+
+	/** The Constant SUBSCRIPTION. */
+	String SUBSCRIPTION = "subscription";
+
 	/**
 	 * Execute.
 	 *
@@ -0,0 +1,214 @@
+/*******************************************************************************************************
+ *
+ * LZ4BlockInputStream.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream that decompresses the blocks written by {@link LZ4BlockOutputStream}. Only one block is held in
+ * memory. The stream ends with the empty block that marks the end of the data (the underlying stream is not read
+ * further) or with the end of the underlying stream.
+ */
+public class LZ4BlockInputStream extends FilterInputStream {
+
+	/** The decompressed block. */
+	byte[] buffer = new byte[LZ4BlockOutputStream.BLOCK_SIZE];
+
+	/** The compressed block. */
+	byte[] compressed = new byte[LZ4BlockOutputStream.maxCompressedLength(LZ4BlockOutputStream.BLOCK_SIZE)];
+
+	/** The header of a block. */
+	final byte[] header = new byte[8];
+
+	/** The position in the block and its length. */
+	int pos, count;
+
+	/** Whether the end of the data has been reached. */
+	boolean finished;
+
+	/**
+	 * Instantiates a new LZ4 block input stream.
+	 *
+	 * @param in
+	 *            the stream from which the compressed blocks are read
+	 */
+	public LZ4BlockInputStream(final InputStream in) {
+		super(in);
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (pos == count && !readBlock()) return -1;
+		return buffer[pos++] & 0xFF;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) return 0;
+		if (pos == count && !readBlock()) return -1;
+		int n = Math.min(len, count - pos);
+		System.arraycopy(buffer, pos, b, off, n);
+		pos += n;
+		return n;
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		long skipped = 0;
+		while (skipped < n && (pos < count || readBlock())) {
+			int k = (int) Math.min(n - skipped, count - pos);
+			pos += k;
+			skipped += k;
+		}
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return count - pos;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	/**
+	 * Reads and decompresses the next block.
+	 *
+	 * @return true, if a block has been read, false at the end of the data
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private boolean readBlock() throws IOException {
+		if (finished) return false;
+		int first = in.read();
+		if (first < 0) {
+			finished = true;
+			return false;
+		}
+		header[0] = (byte) first;
+		readFully(header, 1, 7);
+		int length = readInt(header, 0);
+		int compressedLength = readInt(header, 4);
+		if (length == 0) {
+			finished = true;
+			return false;
+		}
+		if (length < 0 || length > buffer.length || compressedLength < 0 || compressedLength > compressed.length)
+			throw new IOException("Corrupted LZ4 block");
+		if (compressedLength == length) {
+			readFully(buffer, 0, length);
+		} else {
+			readFully(compressed, 0, compressedLength);
+			decompress(compressed, compressedLength, buffer, length);
+		}
+		pos = 0;
+		count = length;
+		return true;
+	}
+
+	/**
+	 * Reads exactly a number of bytes from the underlying stream.
+	 *
+	 * @param b
+	 *            the b
+	 * @param off
+	 *            the off
+	 * @param len
+	 *            the len
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void readFully(final byte[] b, final int off, final int len) throws IOException {
+		int n = 0;
+		while (n < len) {
+			int r = in.read(b, off + n, len - n);
+			if (r < 0) throw new EOFException("Truncated LZ4 block");
+			n += r;
+		}
+	}
+
+	/**
+	 * Reads an int in big-endian order.
+	 *
+	 * @param b
+	 *            the b
+	 * @param i
+	 *            the i
+	 * @return the int
+	 */
+	private static int readInt(final byte[] b, final int i) {
+		return (b[i] & 0xFF) << 24 | (b[i + 1] & 0xFF) << 16 | (b[i + 2] & 0xFF) << 8 | b[i + 3] & 0xFF;
+	}
+
+	/**
+	 * Decompresses a block in the LZ4 block format.
+	 *
+	 * @param src
+	 *            the compressed block
+	 * @param length
+	 *            the length of the compressed block
+	 * @param dst
+	 *            the destination
+	 * @param expected
+	 *            the expected length of the decompressed block
+	 * @throws IOException
+	 *             if the block is corrupted
+	 */
+	static void decompress(final byte[] src, final int length, final byte[] dst, final int expected)
+			throws IOException {
+		int ip = 0, op = 0;
+		try {
+			while (true) {
+				final int token = src[ip++] & 0xFF;
+				int literals = token >>> 4;
+				if (literals == 15) {
+					int b;
+					do {
+						b = src[ip++] & 0xFF;
+						literals += b;
+					} while (b == 255);
+				}
+				System.arraycopy(src, ip, dst, op, literals);
+				ip += literals;
+				op += literals;
+				if (ip >= length) { break; }
+				final int offset = src[ip++] & 0xFF | (src[ip++] & 0xFF) << 8;
+				int matchLength = token & 15;
+				if (matchLength == 15) {
+					int b;
+					do {
+						b = src[ip++] & 0xFF;
+						matchLength += b;
+					} while (b == 255);
+				}
+				matchLength += LZ4BlockOutputStream.MIN_MATCH;
+				final int ref = op - offset;
+				if (offset == 0 || ref < 0 || op + matchLength > expected)
+					throw new IOException("Corrupted LZ4 block");
+				if (offset >= matchLength) {
+					System.arraycopy(dst, ref, dst, op, matchLength);
+				} else {
+					for (int i = 0; i < matchLength; i++) { dst[op + i] = dst[ref + i]; }
+				}
+				op += matchLength;
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IOException("Corrupted LZ4 block", e);
+		}
+		if (op != expected) throw new IOException("Corrupted LZ4 block");
+	}
+
+}
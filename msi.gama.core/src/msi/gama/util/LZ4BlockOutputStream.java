@@ -0,0 +1,280 @@
+/*******************************************************************************************************
+ *
+ * LZ4BlockOutputStream.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * An output stream that compresses its data by blocks, using the LZ4 block format (fast, with a moderate compression
+ * ratio, see https://github.com/lz4/lz4/blob/dev/doc/lz4_Block_format.md). Each block is written as its uncompressed
+ * length, its compressed length (equal to the uncompressed one if the block has been stored as is) and its bytes. An
+ * empty block marks the end of the data. The data can be read back with {@link LZ4BlockInputStream}.
+ * <p>
+ * Only one block is held in memory, which allows to compress large amounts of data without keeping them in memory.
+ */
+public class LZ4BlockOutputStream extends FilterOutputStream {
+
+	/** The size of the blocks. */
+	public static final int BLOCK_SIZE = 1 << 18;
+
+	/** The minimal length of a match. */
+	static final int MIN_MATCH = 4;
+
+	/** The number of literals that end a block. */
+	static final int LAST_LITERALS = 5;
+
+	/** The minimal distance between the start of the last match and the end of a block. */
+	static final int MF_LIMIT = 12;
+
+	/** The maximal distance of a match. */
+	static final int MAX_DISTANCE = 65535;
+
+	/** The number of bits of the hash table. */
+	static final int HASH_LOG = 14;
+
+	/** The buffer. */
+	final byte[] buffer = new byte[BLOCK_SIZE];
+
+	/** The compressed block. */
+	final byte[] compressed = new byte[maxCompressedLength(BLOCK_SIZE)];
+
+	/** The hash table, the last position of each hashed sequence of 4 bytes. */
+	final int[] table = new int[1 << HASH_LOG];
+
+	/** The number of bytes in the buffer. */
+	int count;
+
+	/** Whether the end of the data has been written. */
+	boolean finished;
+
+	/**
+	 * Instantiates a new LZ4 block output stream.
+	 *
+	 * @param out
+	 *            the stream to which the compressed blocks are written
+	 */
+	public LZ4BlockOutputStream(final OutputStream out) {
+		super(out);
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		if (count == BLOCK_SIZE) { writeBlock(); }
+		buffer[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(final byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (count == BLOCK_SIZE) { writeBlock(); }
+			int n = Math.min(len, BLOCK_SIZE - count);
+			System.arraycopy(b, off, buffer, count, n);
+			count += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writeBlock();
+		out.flush();
+	}
+
+	/**
+	 * Writes the last block and the end of the data, without closing the underlying stream.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void finish() throws IOException {
+		if (finished) return;
+		writeBlock();
+		writeInt(0);
+		writeInt(0);
+		out.flush();
+		finished = true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Compresses and writes the current block.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void writeBlock() throws IOException {
+		if (count == 0) return;
+		int length = compress(buffer, count, compressed, table);
+		writeInt(count);
+		if (length < count) {
+			writeInt(length);
+			out.write(compressed, 0, length);
+		} else {
+			writeInt(count);
+			out.write(buffer, 0, count);
+		}
+		count = 0;
+	}
+
+	/**
+	 * Writes an int in big-endian order.
+	 *
+	 * @param v
+	 *            the v
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void writeInt(final int v) throws IOException {
+		out.write(v >>> 24);
+		out.write(v >>> 16);
+		out.write(v >>> 8);
+		out.write(v);
+	}
+
+	/**
+	 * The maximal length of a compressed block.
+	 *
+	 * @param length
+	 *            the length of the block
+	 * @return the maximal length once compressed
+	 */
+	static int maxCompressedLength(final int length) {
+		return length + length / 255 + 16;
+	}
+
+	/**
+	 * Compresses a block in the LZ4 block format.
+	 *
+	 * @param src
+	 *            the bytes to compress
+	 * @param length
+	 *            the number of bytes to compress
+	 * @param dst
+	 *            the destination, at least {@link #maxCompressedLength(int)} long
+	 * @param table
+	 *            the hash table
+	 * @return the length of the compressed block
+	 */
+	static int compress(final byte[] src, final int length, final byte[] dst, final int[] table) {
+		int anchor = 0, op = 0;
+		if (length > MF_LIMIT) {
+			Arrays.fill(table, -1);
+			final int matchLimit = length - LAST_LITERALS;
+			final int inputLimit = length - MF_LIMIT;
+			int ip = 0;
+			while (ip < inputLimit) {
+				final int sequence = readInt(src, ip);
+				final int hash = sequence * -1640531535 >>> 32 - HASH_LOG;
+				int ref = table[hash];
+				table[hash] = ip;
+				if (ref < 0 || ip - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+					ip += 1 + (ip - anchor >>> 6);
+					continue;
+				}
+				while (ip > anchor && ref > 0 && src[ip - 1] == src[ref - 1]) {
+					ip--;
+					ref--;
+				}
+				int matchLength = MIN_MATCH;
+				while (ip + matchLength < matchLimit && src[ip + matchLength] == src[ref + matchLength]) {
+					matchLength++;
+				}
+				op = writeSequence(src, anchor, ip - anchor, dst, op, ip - ref, matchLength);
+				ip += matchLength;
+				anchor = ip;
+			}
+		}
+		return writeSequence(src, anchor, length - anchor, dst, op, 0, 0);
+	}
+
+	/**
+	 * Writes a sequence: literals followed by a match (or by nothing, for the last sequence of the block).
+	 *
+	 * @param src
+	 *            the source
+	 * @param start
+	 *            the start of the literals
+	 * @param literals
+	 *            the number of literals
+	 * @param dst
+	 *            the destination
+	 * @param op
+	 *            the position in the destination
+	 * @param offset
+	 *            the offset of the match, 0 if there is no match
+	 * @param matchLength
+	 *            the match length
+	 * @return the new position in the destination
+	 */
+	private static int writeSequence(final byte[] src, final int start, final int literals, final byte[] dst, int op,
+			final int offset, final int matchLength) {
+		final int token = op++;
+		int t = Math.min(literals, 15) << 4;
+		if (literals >= 15) { op = writeLength(dst, op, literals - 15); }
+		System.arraycopy(src, start, dst, op, literals);
+		op += literals;
+		if (offset > 0) {
+			dst[op++] = (byte) offset;
+			dst[op++] = (byte) (offset >>> 8);
+			final int ml = matchLength - MIN_MATCH;
+			t |= Math.min(ml, 15);
+			if (ml >= 15) { op = writeLength(dst, op, ml - 15); }
+		}
+		dst[token] = (byte) t;
+		return op;
+	}
+
+	/**
+	 * Writes the remainder of a length as a sequence of 255 terminated by a smaller byte.
+	 *
+	 * @param dst
+	 *            the dst
+	 * @param op
+	 *            the op
+	 * @param length
+	 *            the length
+	 * @return the new position in the destination
+	 */
+	private static int writeLength(final byte[] dst, int op, int length) {
+		while (length >= 255) {
+			dst[op++] = (byte) 255;
+			length -= 255;
+		}
+		dst[op++] = (byte) length;
+		return op;
+	}
+
+	/**
+	 * Reads 4 bytes as an int (little-endian).
+	 *
+	 * @param b
+	 *            the b
+	 * @param i
+	 *            the i
+	 * @return the int
+	 */
+	private static int readInt(final byte[] b, final int i) {
+		return b[i] & 0xFF | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | (b[i + 3] & 0xFF) << 24;
+	}
+
+}
@@ -24,7 +24,7 @@ import msi.gaml.operators.Cast;
 class JsonFloat extends JsonValue {
 
 	/** The Constant DEFAULT_NUMBER_OF_DIGITS. */
-	private static final int DEFAULT_NUMBER_OF_DIGITS = 8;
+	static final int DEFAULT_NUMBER_OF_DIGITS = 8;
 	/** The string. */
 	private final String string;
 
@@ -62,11 +62,24 @@ class JsonFloat extends JsonValue {
 	 * @return the string
 	 * @date 4 nov. 2023
 	 */
-	public static String formatOrdinate(double x, final int numberOfDigits) {
+	public static String formatOrdinate(final double x, final int numberOfDigits) {
+		return Double.toString(roundOrdinate(x, numberOfDigits));
+
+	}
+
+	/**
+	 * Rounds an ordinate to a number of digits, as it is written by {@link #formatOrdinate(double, int)}.
+	 *
+	 * @param x
+	 *            the ordinate
+	 * @param numberOfDigits
+	 *            the number of digits
+	 * @return the double
+	 */
+	static double roundOrdinate(double x, final int numberOfDigits) {
 		double scale = Math.pow(10, numberOfDigits);
 		if (Math.abs(x) >= Math.pow(10, -3) && x < Math.pow(10, 7)) { x = Math.floor(x * scale + 0.5) / scale; }
-		return Double.toString(x);
-
+		return x;
 	}
 
 	/**
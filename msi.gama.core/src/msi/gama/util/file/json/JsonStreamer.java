@@ -0,0 +1,480 @@
+/*******************************************************************************************************
+ *
+ * JsonStreamer.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.file.json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+import msi.gama.util.IList;
+import msi.gama.util.IMap;
+import msi.gaml.interfaces.IJsonable;
+
+/**
+ * A JSON encoder that writes the values directly into a buffer, instead of building a tree of {@link JsonValue} and
+ * converting it to a string. The output is the same as the one of {@link Json#valueOf(Object)}: maps, lists,
+ * strings, numbers and booleans are written without any intermediate object, and the other values (agents,
+ * geometries, points, colors...) are converted by {@link Json} and written in the buffer, the references to agents
+ * being gathered in a single table at the end of the value.
+ * <p>
+ * Encoders are pooled, one per thread: {@link #get()} returns the encoder of the current thread, emptied, and
+ * {@link #close()} gives it back, so that its buffers (characters and UTF-8 bytes) are reused from one value to the
+ * other. The content of an encoder must be consumed before it is closed.
+ */
+public final class JsonStreamer extends Writer implements IJsonConstants {
+
+	/**
+	 * A value that can write itself in a {@link JsonStreamer}, without building a tree of {@link JsonValue}.
+	 */
+	public interface Streamable {
+
+		/**
+		 * Writes the value, which must be a single JSON value (usually an object).
+		 *
+		 * @param streamer
+		 *            the streamer
+		 */
+		void streamTo(JsonStreamer streamer);
+	}
+
+	/** The initial size of the buffers. */
+	static final int INITIAL_SIZE = 1024;
+
+	/** The size above which the buffers are not kept after use. */
+	static final int MAX_RETAINED_SIZE = 1 << 20;
+
+	/** The encoders of the threads. */
+	private static final ThreadLocal<JsonStreamer> POOL = ThreadLocal.withInitial(JsonStreamer::new);
+
+	/** The classes whose instances are written like maps or lists, as they do not redefine their serialisation. */
+	private static final ClassValue<Boolean> DEFAULT_CONTAINERS = new ClassValue<>() {
+
+		@Override
+		protected Boolean computeValue(final Class<?> type) {
+			try {
+				final Class<?> declaring = type.getMethod("serializeToJson", Json.class).getDeclaringClass();
+				return declaring == IMap.class || declaring == IList.class;
+			} catch (final NoSuchMethodException e) {
+				return false;
+			}
+		}
+	};
+
+	/** The buffer. */
+	private StringBuilder buffer = new StringBuilder(INITIAL_SIZE);
+
+	/** The buffer of the UTF-8 bytes. */
+	private ByteBuffer bytes = ByteBuffer.allocate(INITIAL_SIZE);
+
+	/** The UTF-8 encoder. */
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	/** The writer used for the strings and the values converted by {@link Json}. */
+	private final JsonWriter writer = new JsonWriter(this);
+
+	/** The converter used for the values that cannot be written directly, created when needed. */
+	private Json json;
+
+	/** Whether the encoder has been given by {@link #get()} and not closed yet. */
+	private boolean inUse;
+
+	/** The depth of the current value, 0 at the top level. */
+	private int depth;
+
+	/** Whether the containers being written are objects (or arrays). */
+	private boolean[] objects = new boolean[16];
+
+	/** The number of elements already written in the containers being written. */
+	private int[] counts = new int[16];
+
+	/** The position of the current top-level value in the buffer. */
+	private int start;
+
+	/**
+	 * Returns the encoder of the current thread, emptied, or a new encoder if this one is in use.
+	 *
+	 * @return the json streamer
+	 */
+	public static JsonStreamer get() {
+		JsonStreamer streamer = POOL.get();
+		if (streamer.inUse) { streamer = new JsonStreamer(); }
+		streamer.inUse = true;
+		streamer.reset();
+		return streamer;
+	}
+
+	/**
+	 * Instantiates a new json streamer. Use {@link #get()}.
+	 */
+	private JsonStreamer() {}
+
+	/**
+	 * Empties the encoder.
+	 */
+	public void reset() {
+		buffer.setLength(0);
+		depth = 0;
+		json = null;
+	}
+
+	/**
+	 * Writes a value.
+	 *
+	 * @param object
+	 *            the object
+	 * @return this
+	 */
+	public JsonStreamer value(final Object object) {
+		if (object instanceof Streamable s) {
+			s.streamTo(this);
+			return this;
+		}
+		beforeValue();
+		if (object == null) {
+			buffer.append("null");
+		} else if (object instanceof JsonValue jv) {
+			writeConverted(jv);
+		} else if (object instanceof IJsonable j) {
+			if (!DEFAULT_CONTAINERS.get(j.getClass())) {
+				writeConverted(converter().valueOf(j));
+			} else if (j instanceof IMap<?, ?> m) {
+				map(m);
+			} else {
+				collection((IList<?>) j);
+			}
+		} else if (object instanceof String s) {
+			string(s);
+		} else if (object instanceof Character c) {
+			string(c.toString());
+		} else if (object instanceof Double d) {
+			number(d);
+		} else if (object instanceof Float f) {
+			number(f.doubleValue());
+		} else if (object instanceof Integer n) {
+			buffer.append(n.intValue());
+		} else if (object instanceof Long n) {
+			// Same conversion as Json.valueOf(long)
+			buffer.append((int) n.longValue());
+		} else if (object instanceof Boolean b) {
+			buffer.append(b.booleanValue());
+		} else if (object instanceof Collection<?> c) {
+			collection(c);
+		} else if (object instanceof Map<?, ?> m) {
+			map(m);
+		} else if (object instanceof Exception) {
+			writeConverted(converter().valueOf(object));
+		} else {
+			string(object.toString());
+		}
+		afterValue();
+		return this;
+	}
+
+	/**
+	 * Writes an int.
+	 *
+	 * @param value
+	 *            the value
+	 * @return this
+	 */
+	public JsonStreamer value(final int value) {
+		beforeValue();
+		buffer.append(value);
+		afterValue();
+		return this;
+	}
+
+	/**
+	 * Writes a value already encoded in JSON, as it is.
+	 *
+	 * @param encoded
+	 *            the encoded value
+	 * @return this
+	 */
+	public JsonStreamer raw(final CharSequence encoded) {
+		beforeValue();
+		buffer.append(encoded);
+		afterValue();
+		return this;
+	}
+
+	/**
+	 * Writes the name of the next member of the current object.
+	 *
+	 * @param name
+	 *            the name
+	 * @return this
+	 */
+	public JsonStreamer name(final String name) {
+		if (counts[depth]++ > 0) { buffer.append(','); }
+		string(name);
+		buffer.append(':');
+		return this;
+	}
+
+	/**
+	 * Writes a member of the current object.
+	 *
+	 * @param name
+	 *            the name
+	 * @param value
+	 *            the value
+	 * @return this
+	 */
+	public JsonStreamer member(final String name, final Object value) {
+		return name(name).value(value);
+	}
+
+	/**
+	 * Begins an object.
+	 *
+	 * @return this
+	 */
+	public JsonStreamer beginObject() {
+		beforeValue();
+		buffer.append('{');
+		push(true);
+		return this;
+	}
+
+	/**
+	 * Ends the current object.
+	 *
+	 * @return this
+	 */
+	public JsonStreamer endObject() {
+		buffer.append('}');
+		depth--;
+		afterValue();
+		return this;
+	}
+
+	/**
+	 * Begins an array.
+	 *
+	 * @return this
+	 */
+	public JsonStreamer beginArray() {
+		beforeValue();
+		buffer.append('[');
+		push(false);
+		return this;
+	}
+
+	/**
+	 * Ends the current array.
+	 *
+	 * @return this
+	 */
+	public JsonStreamer endArray() {
+		buffer.append(']');
+		depth--;
+		afterValue();
+		return this;
+	}
+
+	/**
+	 * Writes a map as an object, the keys being converted to strings.
+	 *
+	 * @param map
+	 *            the map
+	 */
+	private void map(final Map<?, ?> map) {
+		buffer.append('{');
+		push(true);
+		for (final Map.Entry<?, ?> entry : map.entrySet()) { name(entry.getKey().toString()).value(entry.getValue()); }
+		buffer.append('}');
+		depth--;
+	}
+
+	/**
+	 * Writes a collection as an array.
+	 *
+	 * @param collection
+	 *            the collection
+	 */
+	private void collection(final Collection<?> collection) {
+		buffer.append('[');
+		push(false);
+		for (final Object element : collection) { value(element); }
+		buffer.append(']');
+		depth--;
+	}
+
+	/**
+	 * Writes a string.
+	 *
+	 * @param s
+	 *            the s
+	 */
+	private void string(final String s) {
+		try {
+			writer.writeString(s);
+		} catch (final IOException e) {
+			// Cannot happen, as the encoder writes in its buffer
+		}
+	}
+
+	/**
+	 * Writes a double, rounded like in {@link JsonFloat}.
+	 *
+	 * @param d
+	 *            the d
+	 */
+	private void number(final double d) {
+		if (Double.isInfinite(d) || Double.isNaN(d)) {
+			buffer.append("null");
+		} else {
+			buffer.append(JsonFloat.roundOrdinate(d, JsonFloat.DEFAULT_NUMBER_OF_DIGITS));
+		}
+	}
+
+	/**
+	 * Writes a value converted by {@link Json}.
+	 *
+	 * @param value
+	 *            the value
+	 */
+	private void writeConverted(final JsonValue value) {
+		try {
+			value.write(writer);
+		} catch (final IOException e) {
+			// Cannot happen, as the encoder writes in its buffer
+		}
+	}
+
+	/**
+	 * The converter used for the values that cannot be written directly. The references to agents it gathers are
+	 * written at the end of the top-level value.
+	 *
+	 * @return the json
+	 */
+	private Json converter() {
+		if (json == null) {
+			json = Json.getNew();
+			// So that the references are not written in each value, but once for the top-level one
+			json.firstPass = false;
+		}
+		return json;
+	}
+
+	/**
+	 * Writes the separator before a value, if it is an element of an array.
+	 */
+	private void beforeValue() {
+		if (depth == 0) {
+			start = buffer.length();
+		} else if (!objects[depth] && counts[depth]++ > 0) { buffer.append(','); }
+	}
+
+	/**
+	 * Completes the top-level value, by adding the references to agents if there are some.
+	 */
+	private void afterValue() {
+		if (depth > 0 || json == null) return;
+		if (!json.agentReferences.isEmpty()) {
+			buffer.insert(start, "{\"" + CONTENTS_WITH_REFERENCES_LABEL + "\":");
+			buffer.append(",\"").append(REFERENCE_TABLE_LABEL).append("\":");
+			writeConverted(json.agentReferences);
+			buffer.append('}');
+		}
+		json = null;
+	}
+
+	/**
+	 * Enters a container.
+	 *
+	 * @param object
+	 *            whether the container is an object or an array
+	 */
+	private void push(final boolean object) {
+		if (++depth == objects.length) {
+			objects = Arrays.copyOf(objects, depth * 2);
+			counts = Arrays.copyOf(counts, depth * 2);
+		}
+		objects[depth] = object;
+		counts[depth] = 0;
+	}
+
+	/**
+	 * The JSON text written so far.
+	 *
+	 * @return the char sequence, valid until the encoder is modified
+	 */
+	public CharSequence chars() {
+		return buffer;
+	}
+
+	/**
+	 * Encodes the JSON text written so far in UTF-8.
+	 *
+	 * @return a buffer ready to be read, valid until the encoder is used again or closed
+	 */
+	public ByteBuffer toUTF8() {
+		final CharBuffer chars = CharBuffer.wrap(buffer);
+		encoder.reset();
+		bytes.clear();
+		while (encoder.encode(chars, bytes, true).isOverflow()) {
+			final ByteBuffer larger = ByteBuffer.allocate(bytes.capacity() * 2 + chars.remaining());
+			bytes.flip();
+			bytes = larger.put(bytes);
+		}
+		// The UTF-8 encoder does not keep any state to flush
+		encoder.flush(bytes);
+		bytes.flip();
+		return bytes;
+	}
+
+	@Override
+	public String toString() {
+		return buffer.toString();
+	}
+
+	/**
+	 * Gives the encoder back to the pool of its thread. Its buffers are dropped if they have become too large.
+	 */
+	@Override
+	public void close() {
+		inUse = false;
+		reset();
+		if (buffer.capacity() > MAX_RETAINED_SIZE) { buffer = new StringBuilder(INITIAL_SIZE); }
+		if (bytes.capacity() > MAX_RETAINED_SIZE) { bytes = ByteBuffer.allocate(INITIAL_SIZE); }
+	}
+
+	// Writer methods, used by the JsonWriter to write in the buffer
+
+	@Override
+	public void write(final int c) {
+		buffer.append((char) c);
+	}
+
+	@Override
+	public void write(final char[] cbuf, final int off, final int len) {
+		buffer.append(cbuf, off, len);
+	}
+
+	@Override
+	public void write(final String str, final int off, final int len) {
+		buffer.append(str, off, off + len);
+	}
+
+	@Override
+	public void flush() {}
+
+}
@@ -0,0 +1,765 @@
+/*******************************************************************************************************
+ *
+ * CompressedGraph.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.graph;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import msi.gama.metamodel.shape.GamaPoint;
+import msi.gama.metamodel.shape.IShape;
+import msi.gama.metamodel.topology.graph.GamaSpatialGraph;
+import msi.gama.runtime.concurrent.GamaExecutorService;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.IList;
+import msi.gaml.types.IType;
+
+/**
+ * An immutable copy of a {@link GamaGraph} in compressed sparse row (CSR) format, used by {@link PathComputer} to
+ * compute shortest paths on graphs that are not modified. Vertices and edges are numbered in the order of the graph;
+ * the edges leaving (and, for directed graphs, entering) each vertex are stored contiguously in primitive arrays,
+ * together with their weights. Dijkstra, A* (using the euclidean distance between the locations of the vertices of
+ * spatial graphs) and bidirectional Dijkstra searches use a primitive binary heap and work arrays that are reused by
+ * each thread, so that a query does not allocate anything but its result.
+ * <p>
+ * Snapshots can only be built for graphs whose weights are all positive or zero. Self loops are ignored, as they never
+ * belong to a shortest path.
+ *
+ * @param <V>
+ *            the type of the vertices
+ * @param <E>
+ *            the type of the edges
+ */
+@SuppressWarnings ("unchecked")
+public class CompressedGraph<V, E> {
+
+	/** The vertices and edges of the graph, by index. */
+	final Object[] vertices, edges;
+
+	/** The index of each vertex. */
+	final Map<Object, Integer> indices;
+
+	/** The type of the contents of the lists of edges returned. */
+	final IType<?> edgeType;
+
+	/**
+	 * The edges leaving each vertex v are stored from outOffsets[v] to outOffsets[v + 1] - 1: outVertices contains the
+	 * vertex they lead to, outEdges their index and outWeights their weight. For undirected graphs, each edge is stored
+	 * for its two extremities.
+	 */
+	final int[] outOffsets, outVertices, outEdges;
+
+	/** The out weights. */
+	final double[] outWeights;
+
+	/** The same arrays for the edges entering each vertex (identical to the previous ones for undirected graphs). */
+	final int[] inOffsets, inVertices, inEdges;
+
+	/** The in weights. */
+	final double[] inWeights;
+
+	/** The coordinates of the vertices of spatial graphs (used by A*), or null. */
+	final double[] xs, ys;
+
+	/** The work arrays of the searches, by thread. */
+	private final ThreadLocal<Search[]> searches;
+
+	/** The content hash, computed lazily. */
+	private volatile String contentHash;
+
+	/** The contraction hierarchy, computed (or loaded) lazily. */
+	private volatile ContractionHierarchy hierarchy;
+
+	/**
+	 * Builds a snapshot of the graph.
+	 *
+	 * @param graph
+	 *            the graph
+	 * @return the snapshot, or null if the graph contains negative weights
+	 */
+	public static <V, E> CompressedGraph<V, E> of(final GamaGraph<V, E> graph) {
+		final Object[] vertices = graph.vertexMap.keySet().toArray();
+		final Map<Object, Integer> indices = new HashMap<>(vertices.length * 2);
+		for (int i = 0; i < vertices.length; i++) { indices.put(vertices[i], i); }
+		final Object[] edges = graph.edgeMap.keySet().toArray();
+		final int[] sources = new int[edges.length], targets = new int[edges.length];
+		final double[] weights = new double[edges.length];
+		for (int i = 0; i < edges.length; i++) {
+			final _Edge<V, E> edge = graph.edgeMap.get(edges[i]);
+			final Integer s = indices.get(edge.getSource()), t = indices.get(edge.getTarget());
+			weights[i] = edge.getWeight();
+			if (weights[i] < 0 || Double.isNaN(weights[i])) return null;
+			// Edges whose extremities are not (or no longer) in the graph cannot be traversed
+			sources[i] = s == null || t == null ? -1 : s;
+			targets[i] = s == null || t == null ? -1 : t;
+		}
+		double[] xs = null, ys = null;
+		if (graph instanceof GamaSpatialGraph) {
+			xs = new double[vertices.length];
+			ys = new double[vertices.length];
+			for (int v = 0; v < vertices.length; v++) {
+				final GamaPoint p = ((IShape) vertices[v]).getLocation();
+				xs[v] = p.x;
+				ys[v] = p.y;
+			}
+		}
+		return new CompressedGraph<>(vertices, indices, edges, sources, targets, weights,
+				graph.getGamlType().getContentType(), graph.isDirected(), xs, ys);
+	}
+
+	/**
+	 * Instantiates a new compressed graph.
+	 *
+	 * @param vertices
+	 *            the vertices
+	 * @param indices
+	 *            the indices of the vertices
+	 * @param edges
+	 *            the edges
+	 * @param sources
+	 *            the index of the source of each edge (-1 if the edge is ignored)
+	 * @param targets
+	 *            the index of the target of each edge
+	 * @param weights
+	 *            the weight of each edge
+	 * @param edgeType
+	 *            the type of the edges
+	 * @param directed
+	 *            whether the graph is directed
+	 * @param xs
+	 *            the abscissa of each vertex, or null if the graph is not spatial
+	 * @param ys
+	 *            the ordinate of each vertex, or null if the graph is not spatial
+	 */
+	private CompressedGraph(final Object[] vertices, final Map<Object, Integer> indices, final Object[] edges,
+			final int[] sources, final int[] targets, final double[] weights, final IType<?> edgeType,
+			final boolean directed, final double[] xs, final double[] ys) {
+		this.vertices = vertices;
+		this.indices = indices;
+		this.edges = edges;
+		this.edgeType = edgeType;
+		this.xs = xs;
+		this.ys = ys;
+		final int n = vertices.length;
+		outOffsets = new int[n + 1];
+		for (int i = 0; i < edges.length; i++) {
+			if (sources[i] < 0 || sources[i] == targets[i]) { continue; }
+			outOffsets[sources[i] + 1]++;
+			if (!directed) { outOffsets[targets[i] + 1]++; }
+		}
+		for (int v = 0; v < n; v++) { outOffsets[v + 1] += outOffsets[v]; }
+		final int size = outOffsets[n];
+		outVertices = new int[size];
+		outEdges = new int[size];
+		outWeights = new double[size];
+		final int[] next = Arrays.copyOf(outOffsets, n);
+		for (int i = 0; i < edges.length; i++) {
+			final int s = sources[i], t = targets[i];
+			if (s < 0 || s == t) { continue; }
+			store(outVertices, outEdges, outWeights, next[s]++, t, i, weights[i]);
+			if (!directed) { store(outVertices, outEdges, outWeights, next[t]++, s, i, weights[i]); }
+		}
+		if (directed) {
+			inOffsets = new int[n + 1];
+			for (int i = 0; i < edges.length; i++) {
+				if (sources[i] >= 0 && sources[i] != targets[i]) { inOffsets[targets[i] + 1]++; }
+			}
+			for (int v = 0; v < n; v++) { inOffsets[v + 1] += inOffsets[v]; }
+			inVertices = new int[size];
+			inEdges = new int[size];
+			inWeights = new double[size];
+			System.arraycopy(inOffsets, 0, next, 0, n);
+			for (int i = 0; i < edges.length; i++) {
+				final int s = sources[i], t = targets[i];
+				if (s < 0 || s == t) { continue; }
+				store(inVertices, inEdges, inWeights, next[t]++, s, i, weights[i]);
+			}
+		} else {
+			inOffsets = outOffsets;
+			inVertices = outVertices;
+			inEdges = outEdges;
+			inWeights = outWeights;
+		}
+		searches = ThreadLocal.withInitial(() -> new Search[] { new Search(n), new Search(n) });
+	}
+
+	/**
+	 * Stores an adjacency.
+	 *
+	 * @param vs
+	 *            the array of the adjacent vertices
+	 * @param es
+	 *            the array of the edges
+	 * @param ws
+	 *            the array of the weights
+	 * @param position
+	 *            the position
+	 * @param v
+	 *            the adjacent vertex
+	 * @param e
+	 *            the edge
+	 * @param w
+	 *            the weight
+	 */
+	private static void store(final int[] vs, final int[] es, final double[] ws, final int position, final int v,
+			final int e, final double w) {
+		vs[position] = v;
+		es[position] = e;
+		ws[position] = w;
+	}
+
+	/**
+	 * Returns the index of a vertex.
+	 *
+	 * @param vertex
+	 *            the vertex
+	 * @return the index, or -1 if the vertex is not in the graph
+	 */
+	public int indexOf(final Object vertex) {
+		final Integer i = indices.get(vertex);
+		return i == null ? -1 : i;
+	}
+
+	/**
+	 * Computes the shortest path between two vertices with the Dijkstra algorithm.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return the list of edges, empty if the target cannot be reached
+	 */
+	public IList<E> dijkstra(final V source, final V target) {
+		return aStar(source, target, false);
+	}
+
+	/**
+	 * Computes the shortest path between two vertices with the A* algorithm. The heuristic is the distance between
+	 * the locations of the vertices for spatial graphs and 0 (i.e. Dijkstra) for the others.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return the list of edges, empty if the target cannot be reached
+	 */
+	public IList<E> aStar(final V source, final V target) {
+		return aStar(source, target, xs != null);
+	}
+
+	/**
+	 * Computes a shortest path with the A* algorithm.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @param heuristic
+	 *            whether to use the distance between vertices as heuristic
+	 * @return the list of edges
+	 */
+	private IList<E> aStar(final V source, final V target, final boolean heuristic) {
+		final int s = indexOf(source), t = indexOf(target);
+		if (s < 0 || t < 0) return emptyPath();
+		final Search f = searches.get()[0];
+		f.reset();
+		f.reach(s, 0, heuristic ? distance(s, t) : 0, -1, -1);
+		while (!f.isEmpty()) {
+			final int u = f.pop();
+			if (u == t) return pathTo(f, t);
+			final double du = f.dist[u];
+			for (int i = outOffsets[u], end = outOffsets[u + 1]; i < end; i++) {
+				final int v = outVertices[i];
+				if (f.isClosed(v)) { continue; }
+				final double d = du + outWeights[i];
+				f.reach(v, d, heuristic ? d + distance(v, t) : d, u, outEdges[i]);
+			}
+		}
+		return emptyPath();
+	}
+
+	/**
+	 * Computes the shortest path between two vertices with a bidirectional Dijkstra algorithm: a forward search from
+	 * the source and a backward search from the target are alternately extended until the sum of their frontiers
+	 * exceeds the best path found where they met.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return the list of edges, empty if the target cannot be reached
+	 */
+	public IList<E> bidirectionalDijkstra(final V source, final V target) {
+		final int s = indexOf(source), t = indexOf(target);
+		if (s < 0 || t < 0) return emptyPath();
+		final Search[] work = searches.get();
+		final Search f = work[0], b = work[1];
+		f.reset();
+		b.reset();
+		f.reach(s, 0, 0, -1, -1);
+		b.reach(t, 0, 0, -1, -1);
+		double best = s == t ? 0 : Double.POSITIVE_INFINITY;
+		int meeting = s == t ? s : -1;
+		while (!f.isEmpty() && !b.isEmpty() && f.topKey() + b.topKey() < best) {
+			final boolean forward = f.topKey() <= b.topKey();
+			final Search search = forward ? f : b, other = forward ? b : f;
+			final int[] offsets = forward ? outOffsets : inOffsets, adjacent = forward ? outVertices : inVertices,
+					edgesOf = forward ? outEdges : inEdges;
+			final double[] weights = forward ? outWeights : inWeights;
+			final int u = search.pop();
+			final double du = search.dist[u];
+			for (int i = offsets[u], end = offsets[u + 1]; i < end; i++) {
+				final int v = adjacent[i];
+				if (search.isClosed(v)) { continue; }
+				final double d = du + weights[i];
+				if (search.reach(v, d, d, u, edgesOf[i]) && other.isReached(v) && d + other.dist[v] < best) {
+					best = d + other.dist[v];
+					meeting = v;
+				}
+			}
+		}
+		if (meeting < 0) return emptyPath();
+		final IList<E> result = pathTo(f, meeting);
+		for (int v = meeting; b.previous[v] >= 0; v = b.previous[v]) { result.add((E) edges[b.edge[v]]); }
+		return result;
+	}
+
+	/**
+	 * Computes the shortest path between two vertices using the contraction hierarchy of the graph, which is computed
+	 * or loaded at the first call.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return the list of edges, empty if the target cannot be reached
+	 */
+	public IList<E> contractionHierarchy(final V source, final V target) {
+		final int s = indexOf(source), t = indexOf(target);
+		if (s < 0 || t < 0) return emptyPath();
+		ContractionHierarchy ch = hierarchy;
+		if (ch == null) {
+			synchronized (this) {
+				ch = hierarchy;
+				if (ch == null) { hierarchy = ch = ContractionHierarchy.of(this); }
+			}
+		}
+		final int[] path = ch.shortestPath(s, t);
+		final IList<E> result = emptyPath();
+		if (path != null) { for (final int e : path) { result.add((E) edges[e]); } }
+		return result;
+	}
+
+	/**
+	 * Computes the shortest path trees of several sources with the Dijkstra algorithm, each search stopping as soon as
+	 * all the targets are settled. The sources are processed in parallel when several threads are allowed.
+	 *
+	 * @param sources
+	 *            the indices of the sources (-1 for the ones that are not in the graph)
+	 * @param targets
+	 *            the indices of the targets (-1 for the ones that are not in the graph)
+	 * @param distances
+	 *            the distance between each source and each target, filled by the method (infinite if the target cannot
+	 *            be reached)
+	 * @param trees
+	 *            the tree of each source, filled by the method (see {@link #pathInTree(int[], int)}), or null if only
+	 *            the distances are needed
+	 */
+	void shortestPathTrees(final int[] sources, final int[] targets, final double[][] distances, final int[][] trees) {
+		// The number of times each vertex is a target
+		final int[] wanted = new int[vertices.length];
+		int count = 0;
+		for (final int t : targets) {
+			if (t >= 0) {
+				wanted[t]++;
+				count++;
+			}
+		}
+		final int remaining = count;
+		if (sources.length < 2 || GamaExecutorService.THREADS_NUMBER.getValue() <= 1) {
+			for (int i = 0; i < sources.length; i++) {
+				final int[] tree = shortestPathTree(sources[i], targets, wanted, remaining, distances[i], trees != null);
+				if (trees != null) { trees[i] = tree; }
+			}
+		} else {
+			GamaExecutorService.executeThreaded(() -> IntStream.range(0, sources.length).parallel().forEach(i -> {
+				final int[] tree = shortestPathTree(sources[i], targets, wanted, remaining, distances[i], trees != null);
+				if (trees != null) { trees[i] = tree; }
+			}));
+		}
+	}
+
+	/**
+	 * Computes the shortest path tree of a source.
+	 *
+	 * @param s
+	 *            the index of the source
+	 * @param targets
+	 *            the indices of the targets
+	 * @param wanted
+	 *            the number of times each vertex is a target
+	 * @param remaining
+	 *            the number of targets in the graph
+	 * @param distances
+	 *            the distance of each target, filled by the method
+	 * @param withTree
+	 *            whether to return the tree
+	 * @return for each vertex, the position in {@link #outVertices} of the arc through which it has been reached (-1
+	 *         for the source and the vertices that have not been reached), or null if the source is not in the graph
+	 *         or if the tree is not asked for
+	 */
+	private int[] shortestPathTree(final int s, final int[] targets, final int[] wanted, final int remaining,
+			final double[] distances, final boolean withTree) {
+		Arrays.fill(distances, Double.POSITIVE_INFINITY);
+		if (s < 0) return null;
+		final Search f = searches.get()[0];
+		f.reset();
+		f.reach(s, 0, 0, -1, -1);
+		int left = remaining;
+		while (left > 0 && !f.isEmpty()) {
+			final int u = f.pop();
+			left -= wanted[u];
+			final double du = f.dist[u];
+			for (int i = outOffsets[u], end = outOffsets[u + 1]; i < end; i++) {
+				final int v = outVertices[i];
+				if (f.isClosed(v)) { continue; }
+				final double d = du + outWeights[i];
+				// The position of the arc is kept instead of the edge
+				f.reach(v, d, d, u, i);
+			}
+		}
+		for (int j = 0; j < targets.length; j++) {
+			final int t = targets[j];
+			if (t >= 0 && f.isClosed(t)) { distances[j] = f.dist[t]; }
+		}
+		if (!withTree) return null;
+		final int[] tree = new int[vertices.length];
+		for (int v = 0; v < tree.length; v++) { tree[v] = f.isClosed(v) ? f.edge[v] : -1; }
+		return tree;
+	}
+
+	/**
+	 * Returns the path leading to a vertex in a shortest path tree.
+	 *
+	 * @param tree
+	 *            the tree, as returned by {@link #shortestPathTrees(int[], int[], double[][], int[][])}
+	 * @param v
+	 *            the vertex
+	 * @return the list of edges, empty if the vertex has not been reached
+	 */
+	IList<E> pathInTree(final int[] tree, final int v) {
+		int length = 0;
+		for (int u = v; tree[u] >= 0; u = sourceOfArc(tree[u])) { length++; }
+		final int[] arcs = new int[length];
+		for (int u = v; tree[u] >= 0; u = sourceOfArc(tree[u])) { arcs[--length] = tree[u]; }
+		final IList<E> result = emptyPath();
+		for (final int a : arcs) { result.add((E) edges[outEdges[a]]); }
+		return result;
+	}
+
+	/**
+	 * Returns the vertex from which an arc leaves, i.e. the vertex u such that outOffsets[u] <= arc < outOffsets[u +
+	 * 1].
+	 *
+	 * @param arc
+	 *            the position of the arc in {@link #outVertices}
+	 * @return the vertex
+	 */
+	private int sourceOfArc(final int arc) {
+		int low = 0, high = vertices.length - 1;
+		while (low < high) {
+			final int middle = low + high + 1 >>> 1;
+			if (outOffsets[middle] <= arc) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns a hash of the structure and weights of the graph, which identifies its contraction hierarchy.
+	 *
+	 * @return the content hash, in hexadecimal
+	 */
+	public String getContentHash() {
+		String result = contentHash;
+		if (result == null) {
+			try {
+				final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+				final ByteBuffer buffer = ByteBuffer.allocate(8192);
+				buffer.putInt(vertices.length).putInt(edges.length).put((byte) (inOffsets == outOffsets ? 0 : 1));
+				for (final int[] array : new int[][] { outOffsets, outVertices, outEdges }) {
+					for (final int i : array) {
+						if (buffer.remaining() < 8) { flush(digest, buffer); }
+						buffer.putInt(i);
+					}
+				}
+				for (final double w : outWeights) {
+					if (buffer.remaining() < 8) { flush(digest, buffer); }
+					buffer.putDouble(w);
+				}
+				flush(digest, buffer);
+				result = HexFormat.of().formatHex(digest.digest());
+			} catch (final NoSuchAlgorithmException e) {
+				result = Integer.toHexString(Arrays.hashCode(outVertices) * 31 + Arrays.hashCode(outWeights));
+			}
+			contentHash = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the contents of the buffer to the digest and clears it.
+	 *
+	 * @param digest
+	 *            the digest
+	 * @param buffer
+	 *            the buffer
+	 */
+	private static void flush(final MessageDigest digest, final ByteBuffer buffer) {
+		buffer.flip();
+		digest.update(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * Returns the path leading to a vertex in the tree of a search.
+	 *
+	 * @param search
+	 *            the search
+	 * @param v
+	 *            the vertex
+	 * @return the list of edges
+	 */
+	IList<E> pathTo(final Search search, final int v) {
+		int length = 0;
+		for (int u = v; search.previous[u] >= 0; u = search.previous[u]) { length++; }
+		final Object[] path = new Object[length];
+		for (int u = v; search.previous[u] >= 0; u = search.previous[u]) { path[--length] = edges[search.edge[u]]; }
+		final IList<E> result = emptyPath();
+		for (final Object e : path) { result.add((E) e); }
+		return result;
+	}
+
+	/**
+	 * Returns a new empty list of edges.
+	 *
+	 * @return the list
+	 */
+	IList<E> emptyPath() {
+		return GamaListFactory.create(edgeType);
+	}
+
+	/**
+	 * The euclidean distance between the locations of two vertices.
+	 *
+	 * @param u
+	 *            the u
+	 * @param v
+	 *            the v
+	 * @return the distance
+	 */
+	private double distance(final int u, final int v) {
+		final double dx = xs[u] - xs[v], dy = ys[u] - ys[v];
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * The work arrays of a search: the tentative distances and the tree of the reached vertices, and an indexed binary
+	 * heap of the vertices to explore. Vertices are marked with the number of the current search, so that nothing needs
+	 * to be cleared between two searches.
+	 */
+	static final class Search {
+
+		/** The distances from the origin of the search and the priorities of the vertices in the heap. */
+		final double[] dist, key;
+
+		/** The previous vertex and the edge through which each vertex has been reached (-1 for the origin). */
+		final int[] previous, edge;
+
+		/** The number of the search in which each vertex has been reached and closed. */
+		private final int[] reached, closed;
+
+		/** The heap of vertices and the position of each vertex in it. */
+		private final int[] heap, position;
+
+		/** The number of the current search and the size of the heap. */
+		private int mark, size;
+
+		/**
+		 * Instantiates a new search.
+		 *
+		 * @param n
+		 *            the number of vertices
+		 */
+		Search(final int n) {
+			dist = new double[n];
+			key = new double[n];
+			previous = new int[n];
+			edge = new int[n];
+			reached = new int[n];
+			closed = new int[n];
+			heap = new int[n];
+			position = new int[n];
+		}
+
+		/**
+		 * Starts a new search.
+		 */
+		void reset() {
+			if (++mark == Integer.MAX_VALUE) {
+				Arrays.fill(reached, 0);
+				Arrays.fill(closed, 0);
+				mark = 1;
+			}
+			size = 0;
+		}
+
+		/**
+		 * Checks if the vertex has been reached.
+		 *
+		 * @param v
+		 *            the v
+		 * @return true, if it has been reached
+		 */
+		boolean isReached(final int v) {
+			return reached[v] == mark;
+		}
+
+		/**
+		 * Checks if the vertex has been closed (i.e. its distance is final).
+		 *
+		 * @param v
+		 *            the v
+		 * @return true, if it has been closed
+		 */
+		boolean isClosed(final int v) {
+			return closed[v] == mark;
+		}
+
+		/**
+		 * Checks if the heap is empty.
+		 *
+		 * @return true, if is empty
+		 */
+		boolean isEmpty() { return size == 0; }
+
+		/**
+		 * The smallest key of the heap.
+		 *
+		 * @return the key
+		 */
+		double topKey() {
+			return key[heap[0]];
+		}
+
+		/**
+		 * Records that a vertex can be reached with this distance, if it is better than the previous one.
+		 *
+		 * @param v
+		 *            the vertex
+		 * @param d
+		 *            the distance
+		 * @param k
+		 *            the key of the vertex in the heap
+		 * @param from
+		 *            the previous vertex
+		 * @param e
+		 *            the edge
+		 * @return true, if the distance of the vertex has been improved
+		 */
+		boolean reach(final int v, final double d, final double k, final int from, final int e) {
+			if (reached[v] != mark) {
+				reached[v] = mark;
+				position[v] = size;
+				heap[size++] = v;
+			} else if (d >= dist[v]) return false;
+			dist[v] = d;
+			key[v] = k;
+			previous[v] = from;
+			edge[v] = e;
+			up(position[v]);
+			return true;
+		}
+
+		/**
+		 * Removes the vertex with the smallest key from the heap and closes it.
+		 *
+		 * @return the vertex
+		 */
+		int pop() {
+			final int v = heap[0];
+			final int last = heap[--size];
+			if (size > 0) {
+				heap[0] = last;
+				position[last] = 0;
+				down(0);
+			}
+			closed[v] = mark;
+			return v;
+		}
+
+		/**
+		 * Moves up the vertex at this position of the heap.
+		 *
+		 * @param i
+		 *            the position
+		 */
+		private void up(final int i) {
+			final int v = heap[i];
+			final double k = key[v];
+			int child = i;
+			while (child > 0) {
+				final int parent = (child - 1) >>> 1;
+				final int p = heap[parent];
+				if (key[p] <= k) { break; }
+				heap[child] = p;
+				position[p] = child;
+				child = parent;
+			}
+			heap[child] = v;
+			position[v] = child;
+		}
+
+		/**
+		 * Moves down the vertex at this position of the heap.
+		 *
+		 * @param i
+		 *            the position
+		 */
+		private void down(final int i) {
+			final int v = heap[i];
+			final double k = key[v];
+			int parent = i;
+			while (true) {
+				int child = 2 * parent + 1;
+				if (child >= size) { break; }
+				if (child + 1 < size && key[heap[child + 1]] < key[heap[child]]) { child++; }
+				final int c = heap[child];
+				if (key[c] >= k) { break; }
+				heap[parent] = c;
+				position[c] = parent;
+				parent = child;
+			}
+			heap[parent] = v;
+			position[v] = parent;
+		}
+
+	}
+
+}
@@ -0,0 +1,683 @@
+/*******************************************************************************************************
+ *
+ * ContractionHierarchy.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import msi.gama.common.util.FileUtils;
+import msi.gama.runtime.concurrent.GamaExecutorService;
+import msi.gama.util.graph.CompressedGraph.Search;
+import ummisco.gama.dev.utils.DEBUG;
+
+/**
+ * A contraction hierarchy computed on a {@link CompressedGraph}, used to answer shortest path queries on large static
+ * graphs with two small searches instead of a Dijkstra search on the whole graph.
+ * <p>
+ * Vertices are contracted one after the other, in the order given by their priority (the number of shortcuts their
+ * contraction adds minus the number of arcs it removes, plus the number of their neighbours already contracted), which
+ * is lazily updated. When a vertex is contracted, a shortcut is added between each pair of its neighbours that are not
+ * linked by a shorter path (a "witness", found by a bounded Dijkstra search). The initial priorities, which require a
+ * witness search for every vertex, are computed in parallel. A query is a bidirectional Dijkstra search that only
+ * follows arcs leading to vertices contracted later (upward), whose shortcuts are then unpacked into the edges of the
+ * graph.
+ * <p>
+ * As a hierarchy only depends on the structure and weights of the graph, it is kept in memory and saved in the cache
+ * folder of the workspace, in a file named after the content hash of the graph: the following runs of the same model,
+ * and the replications of a batch experiment, reload it instead of computing it again.
+ */
+public class ContractionHierarchy {
+
+	/** The maximal number of vertices settled by a witness search when contracting a vertex. */
+	static final int MAX_SETTLED = 100;
+
+	/** The maximal number of vertices settled by a witness search when estimating the priority of a vertex. */
+	static final int MAX_SETTLED_ESTIMATE = 15;
+
+	/** The maximal number of hierarchy files kept in the cache folder. */
+	static final int MAX_FILES = 20;
+
+	/** The header of the files. */
+	static final int MAGIC = 0x47434831; // "GCH1"
+
+	/** The hierarchies already built or loaded, by content hash. */
+	static final Map<String, SoftReference<ContractionHierarchy>> HIERARCHIES = new ConcurrentHashMap<>();
+
+	/** The number of vertices. */
+	final int n;
+
+	/** The arcs: original edges (whose index is in edge) and shortcuts (made of the arcs first and second). */
+	final int[] arcFrom, arcTo, arcEdge, arcFirst, arcSecond;
+
+	/** The weights of the arcs. */
+	final double[] arcWeight;
+
+	/** The upward arcs leaving each vertex, between upOffsets[v] and upOffsets[v + 1] - 1 in upArcs. */
+	final int[] upOffsets, upArcs;
+
+	/** The upward arcs entering each vertex (i.e. coming from vertices contracted later). */
+	final int[] downOffsets, downArcs;
+
+	/** The work arrays of the queries, by thread. */
+	private final ThreadLocal<Search[]> searches;
+
+	/**
+	 * Returns the hierarchy of a graph: the one in memory or in the cache folder if it exists, otherwise a new one
+	 * (which is then saved).
+	 *
+	 * @param graph
+	 *            the graph
+	 * @return the contraction hierarchy
+	 */
+	public static ContractionHierarchy of(final CompressedGraph<?, ?> graph) {
+		final String hash = graph.getContentHash();
+		ContractionHierarchy result = cached(hash);
+		if (result != null) return result;
+		final File file = fileFor(hash);
+		if (file.exists()) {
+			try {
+				result = load(file, graph.vertices.length);
+			} catch (final IOException e) {
+				DEBUG.ERR("Impossible to read the contraction hierarchy " + file + ": " + e);
+			}
+		}
+		if (result == null) {
+			result = new Builder(graph).build();
+			try {
+				result.save(file);
+			} catch (final IOException e) {
+				DEBUG.ERR("Impossible to save the contraction hierarchy " + file + ": " + e);
+			}
+		}
+		HIERARCHIES.put(hash, new SoftReference<>(result));
+		return result;
+	}
+
+	/**
+	 * Returns the hierarchy kept in memory for a content hash. The entries whose hierarchy has been collected are
+	 * removed, so that the map does not grow with the graphs that are no longer used.
+	 *
+	 * @param hash
+	 *            the content hash of the graph
+	 * @return the hierarchy, or null if it is not in memory
+	 */
+	static ContractionHierarchy cached(final String hash) {
+		final SoftReference<ContractionHierarchy> ref = HIERARCHIES.get(hash);
+		final ContractionHierarchy result = ref == null ? null : ref.get();
+		if (result == null) { HIERARCHIES.values().removeIf(r -> r.get() == null); }
+		return result;
+	}
+
+	/**
+	 * The file of the hierarchy of a graph.
+	 *
+	 * @param hash
+	 *            the content hash of the graph
+	 * @return the file
+	 */
+	static File fileFor(final String hash) {
+		return new File(new File(FileUtils.CACHE, "graphs"), "ch-" + hash + ".bin");
+	}
+
+	/**
+	 * Instantiates a new contraction hierarchy.
+	 *
+	 * @param n
+	 *            the number of vertices
+	 * @param arcFrom
+	 *            the sources of the arcs
+	 * @param arcTo
+	 *            the targets of the arcs
+	 * @param arcWeight
+	 *            the weights of the arcs
+	 * @param arcEdge
+	 *            the edges of the arcs (-1 for shortcuts)
+	 * @param arcFirst
+	 *            the first arcs of the shortcuts (-1 for edges)
+	 * @param arcSecond
+	 *            the second arcs of the shortcuts (-1 for edges)
+	 * @param upOffsets
+	 *            the up offsets
+	 * @param upArcs
+	 *            the up arcs
+	 * @param downOffsets
+	 *            the down offsets
+	 * @param downArcs
+	 *            the down arcs
+	 */
+	ContractionHierarchy(final int n, final int[] arcFrom, final int[] arcTo, final double[] arcWeight,
+			final int[] arcEdge, final int[] arcFirst, final int[] arcSecond, final int[] upOffsets, final int[] upArcs,
+			final int[] downOffsets, final int[] downArcs) {
+		this.n = n;
+		this.arcFrom = arcFrom;
+		this.arcTo = arcTo;
+		this.arcWeight = arcWeight;
+		this.arcEdge = arcEdge;
+		this.arcFirst = arcFirst;
+		this.arcSecond = arcSecond;
+		this.upOffsets = upOffsets;
+		this.upArcs = upArcs;
+		this.downOffsets = downOffsets;
+		this.downArcs = downArcs;
+		searches = ThreadLocal.withInitial(() -> new Search[] { new Search(n), new Search(n) });
+	}
+
+	/**
+	 * Computes the shortest path between two vertices.
+	 *
+	 * @param s
+	 *            the index of the source
+	 * @param t
+	 *            the index of the target
+	 * @return the indices of the edges of the path, or null if the target cannot be reached
+	 */
+	public int[] shortestPath(final int s, final int t) {
+		if (s == t) return new int[0];
+		final Search[] work = searches.get();
+		final Search f = work[0], b = work[1];
+		f.reset();
+		b.reset();
+		f.reach(s, 0, 0, -1, -1);
+		b.reach(t, 0, 0, -1, -1);
+		double best = Double.POSITIVE_INFINITY;
+		int meeting = -1;
+		while (true) {
+			final boolean canForward = !f.isEmpty() && f.topKey() < best;
+			final boolean canBackward = !b.isEmpty() && b.topKey() < best;
+			if (!canForward && !canBackward) { break; }
+			final boolean forward = canForward && (!canBackward || f.topKey() <= b.topKey());
+			final Search search = forward ? f : b, other = forward ? b : f;
+			final int[] offsets = forward ? upOffsets : downOffsets, arcs = forward ? upArcs : downArcs;
+			final int[] ends = forward ? arcTo : arcFrom;
+			final int u = search.pop();
+			final double du = search.dist[u];
+			for (int i = offsets[u], end = offsets[u + 1]; i < end; i++) {
+				final int a = arcs[i];
+				final int v = ends[a];
+				if (search.isClosed(v)) { continue; }
+				final double d = du + arcWeight[a];
+				if (search.reach(v, d, d, u, a) && other.isReached(v) && d + other.dist[v] < best) {
+					best = d + other.dist[v];
+					meeting = v;
+				}
+			}
+		}
+		if (meeting < 0) return null;
+		int length = 0;
+		for (int v = meeting; f.previous[v] >= 0; v = f.previous[v]) { length++; }
+		for (int v = meeting; b.previous[v] >= 0; v = b.previous[v]) { length++; }
+		final int[] arcs = new int[length];
+		int i = 0;
+		for (int v = meeting; f.previous[v] >= 0; v = f.previous[v]) { arcs[i++] = f.edge[v]; }
+		reverse(arcs, 0, i);
+		for (int v = meeting; b.previous[v] >= 0; v = b.previous[v]) { arcs[i++] = b.edge[v]; }
+		return unpack(arcs);
+	}
+
+	/**
+	 * Replaces the shortcuts of a sequence of arcs by the edges they represent.
+	 *
+	 * @param arcs
+	 *            the arcs
+	 * @return the indices of the edges
+	 */
+	int[] unpack(final int[] arcs) {
+		int[] result = new int[arcs.length * 2];
+		int size = 0;
+		int[] st = new int[64];
+		for (final int arc : arcs) {
+			int top = 0;
+			st[top++] = arc;
+			while (top > 0) {
+				final int a = st[--top];
+				if (arcEdge[a] >= 0) {
+					if (size == result.length) { result = Arrays.copyOf(result, size * 2); }
+					result[size++] = arcEdge[a];
+				} else {
+					if (top + 2 > st.length) { st = Arrays.copyOf(st, st.length * 2); }
+					st[top++] = arcSecond[a];
+					st[top++] = arcFirst[a];
+				}
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * Reverses a part of an array.
+	 *
+	 * @param array
+	 *            the array
+	 * @param from
+	 *            the first index (inclusive)
+	 * @param to
+	 *            the last index (exclusive)
+	 */
+	private static void reverse(final int[] array, final int from, final int to) {
+		for (int i = from, j = to - 1; i < j; i++, j--) {
+			final int tmp = array[i];
+			array[i] = array[j];
+			array[j] = tmp;
+		}
+	}
+
+	/**
+	 * Saves the hierarchy. Only the {@link #MAX_FILES} most recent files are kept in the folder.
+	 *
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void save(final File file) throws IOException {
+		final File folder = file.getParentFile();
+		folder.mkdirs();
+		final File tmp = new File(folder, file.getName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(n);
+			out.writeInt(arcFrom.length);
+			for (final int[] array : new int[][] { arcFrom, arcTo, arcEdge, arcFirst, arcSecond, upOffsets, upArcs,
+					downOffsets, downArcs }) {
+				out.writeInt(array.length);
+				for (final int i : array) { out.writeInt(i); }
+			}
+			for (final double w : arcWeight) { out.writeDouble(w); }
+		}
+		// The file appears complete or not at all for the other runs
+		if (!tmp.renameTo(file)) {
+			tmp.delete();
+			return;
+		}
+		final File[] files = folder.listFiles((d, name) -> name.startsWith("ch-") && name.endsWith(".bin"));
+		if (files != null && files.length > MAX_FILES) {
+			Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+			for (int i = MAX_FILES; i < files.length; i++) { files[i].delete(); }
+		}
+	}
+
+	/**
+	 * Loads a hierarchy.
+	 *
+	 * @param file
+	 *            the file
+	 * @param n
+	 *            the number of vertices of the graph
+	 * @return the contraction hierarchy, or null if the file does not correspond to the graph
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static ContractionHierarchy load(final File file, final int n) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != n) return null;
+			final int arcs = in.readInt();
+			final int[][] arrays = new int[9][];
+			for (int k = 0; k < arrays.length; k++) {
+				arrays[k] = new int[in.readInt()];
+				for (int i = 0; i < arrays[k].length; i++) { arrays[k][i] = in.readInt(); }
+			}
+			final double[] weights = new double[arcs];
+			for (int i = 0; i < arcs; i++) { weights[i] = in.readDouble(); }
+			file.setLastModified(System.currentTimeMillis());
+			return new ContractionHierarchy(n, arrays[0], arrays[1], weights, arrays[2], arrays[3], arrays[4],
+					arrays[5], arrays[6], arrays[7], arrays[8]);
+		}
+	}
+
+	/**
+	 * The computation of a hierarchy.
+	 */
+	static final class Builder {
+
+		/** The number of vertices. */
+		final int n;
+
+		/** The arcs (growing when shortcuts are added). */
+		int[] from, to, edge, first, second;
+
+		/** The weights of the arcs. */
+		double[] weight;
+
+		/** The number of arcs. */
+		int arcs;
+
+		/** The arcs leaving and entering each vertex, and their number. */
+		final int[][] out, in;
+
+		/** The out count. */
+		final int[] outCount, inCount;
+
+		/** The rank of each vertex in the order of contraction (-1 if not contracted yet). */
+		final int[] rank;
+
+		/** The number of neighbours of each vertex already contracted. */
+		final int[] contractedNeighbours;
+
+		/** The work arrays of the witness searches, by thread. */
+		final ThreadLocal<Search> witnesses;
+
+		/**
+		 * Instantiates a new builder with the edges of the graph.
+		 *
+		 * @param graph
+		 *            the graph
+		 */
+		Builder(final CompressedGraph<?, ?> graph) {
+			n = graph.vertices.length;
+			final int size = graph.outVertices.length;
+			from = new int[size];
+			to = new int[size];
+			edge = new int[size];
+			first = new int[size];
+			second = new int[size];
+			weight = new double[size];
+			out = new int[n][];
+			in = new int[n][];
+			outCount = new int[n];
+			inCount = new int[n];
+			rank = new int[n];
+			Arrays.fill(rank, -1);
+			contractedNeighbours = new int[n];
+			for (int v = 0; v < n; v++) {
+				out[v] = new int[Math.max(2, graph.outOffsets[v + 1] - graph.outOffsets[v])];
+				in[v] = new int[Math.max(2, graph.inOffsets[v + 1] - graph.inOffsets[v])];
+			}
+			// Undirected edges are already stored in both directions
+			for (int u = 0; u < n; u++) {
+				for (int i = graph.outOffsets[u]; i < graph.outOffsets[u + 1]; i++) {
+					addArc(u, graph.outVertices[i], graph.outWeights[i], graph.outEdges[i], -1, -1);
+				}
+			}
+			witnesses = ThreadLocal.withInitial(() -> new Search(n));
+		}
+
+		/**
+		 * Adds an arc.
+		 *
+		 * @param u
+		 *            the source
+		 * @param v
+		 *            the target
+		 * @param w
+		 *            the weight
+		 * @param e
+		 *            the edge (-1 for shortcuts)
+		 * @param a1
+		 *            the first arc of the shortcut
+		 * @param a2
+		 *            the second arc of the shortcut
+		 */
+		void addArc(final int u, final int v, final double w, final int e, final int a1, final int a2) {
+			if (arcs == from.length) {
+				final int size = Math.max(16, arcs * 3 / 2);
+				from = Arrays.copyOf(from, size);
+				to = Arrays.copyOf(to, size);
+				edge = Arrays.copyOf(edge, size);
+				first = Arrays.copyOf(first, size);
+				second = Arrays.copyOf(second, size);
+				weight = Arrays.copyOf(weight, size);
+			}
+			final int a = arcs++;
+			from[a] = u;
+			to[a] = v;
+			weight[a] = w;
+			edge[a] = e;
+			first[a] = a1;
+			second[a] = a2;
+			if (outCount[u] == out[u].length) { out[u] = Arrays.copyOf(out[u], outCount[u] * 2); }
+			out[u][outCount[u]++] = a;
+			if (inCount[v] == in[v].length) { in[v] = Arrays.copyOf(in[v], inCount[v] * 2); }
+			in[v][inCount[v]++] = a;
+		}
+
+		/**
+		 * Computes the hierarchy.
+		 *
+		 * @return the contraction hierarchy
+		 */
+		ContractionHierarchy build() {
+			final int[] priorities = new int[n];
+			if (n < 1000 || GamaExecutorService.THREADS_NUMBER.getValue() <= 1) {
+				for (int v = 0; v < n; v++) { priorities[v] = priority(v); }
+			} else {
+				GamaExecutorService.executeThreaded(
+						() -> IntStream.range(0, n).parallel().forEach(v -> priorities[v] = priority(v)));
+			}
+			final PriorityQueue<Long> queue = new PriorityQueue<>(Math.max(1, n));
+			for (int v = 0; v < n; v++) { queue.add(key(priorities[v], v)); }
+			int next = 0;
+			while (!queue.isEmpty()) {
+				final long k = queue.poll();
+				final int v = (int) (k & 0xffffffffL);
+				// Skips the vertices already contracted and the outdated entries
+				if (rank[v] >= 0 || k >> 32 != priorities[v]) { continue; }
+				// Lazy update: the priority is recomputed when the vertex reaches the head of the queue, and the vertex is
+				// put back if it is no longer the smallest
+				final int p = priority(v);
+				priorities[v] = p;
+				if (!queue.isEmpty() && p > queue.peek() >> 32) {
+					queue.add(key(p, v));
+					continue;
+				}
+				contract(v, true);
+				rank[v] = next++;
+				detach(v);
+				for (int i = 0; i < outCount[v]; i++) { contractedNeighbours[to[out[v][i]]]++; }
+				for (int i = 0; i < inCount[v]; i++) { contractedNeighbours[from[in[v][i]]]++; }
+			}
+			return toHierarchy();
+		}
+
+		/**
+		 * Removes the arcs of a contracted vertex from the adjacencies of its neighbours, so that they only contain the
+		 * arcs between vertices that are not contracted yet.
+		 *
+		 * @param v
+		 *            the vertex
+		 */
+		private void detach(final int v) {
+			for (int i = 0; i < outCount[v]; i++) {
+				final int a = out[v][i];
+				inCount[to[a]] = remove(in[to[a]], inCount[to[a]], a);
+			}
+			for (int i = 0; i < inCount[v]; i++) {
+				final int a = in[v][i];
+				outCount[from[a]] = remove(out[from[a]], outCount[from[a]], a);
+			}
+		}
+
+		/**
+		 * Removes an arc from a list of arcs, by replacing it with the last one.
+		 *
+		 * @param arcs
+		 *            the arcs
+		 * @param count
+		 *            the number of arcs
+		 * @param a
+		 *            the arc to remove
+		 * @return the new number of arcs
+		 */
+		private static int remove(final int[] arcs, final int count, final int a) {
+			for (int i = 0; i < count; i++) {
+				if (arcs[i] == a) {
+					arcs[i] = arcs[count - 1];
+					return count - 1;
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * The key of a vertex in the queue.
+		 *
+		 * @param priority
+		 *            the priority
+		 * @param v
+		 *            the vertex
+		 * @return the key
+		 */
+		private static Long key(final int priority, final int v) {
+			return (long) priority << 32 | v & 0xffffffffL;
+		}
+
+		/**
+		 * The priority of a vertex: the number of shortcuts added by its contraction, minus the number of arcs it
+		 * removes, plus the number of its neighbours already contracted.
+		 *
+		 * @param v
+		 *            the vertex
+		 * @return the priority
+		 */
+		int priority(final int v) {
+			return contract(v, false) - outCount[v] - inCount[v] + contractedNeighbours[v];
+		}
+
+		/**
+		 * Computes (and adds, if required) the shortcuts needed to contract a vertex. When they are not added, the
+		 * witness searches are smaller, which only gives an estimate (by excess) of their number.
+		 *
+		 * @param v
+		 *            the vertex
+		 * @param add
+		 *            whether to add the shortcuts
+		 * @return the number of shortcuts
+		 */
+		int contract(final int v, final boolean add) {
+			int shortcuts = 0;
+			final int ins = inCount[v], outs = outCount[v];
+			double maxOut = 0;
+			for (int j = 0; j < outs; j++) {
+				final int a = out[v][j];
+				if (weight[a] > maxOut) { maxOut = weight[a]; }
+			}
+			final Search search = witnesses.get();
+			for (int i = 0; i < ins; i++) {
+				final int a1 = in[v][i];
+				final int u = from[a1];
+				if (!isShortestArc(a1, i)) { continue; }
+				witnessSearch(search, u, v, weight[a1] + maxOut, add ? MAX_SETTLED : MAX_SETTLED_ESTIMATE);
+				for (int j = 0; j < outs; j++) {
+					final int a2 = out[v][j];
+					final int w = to[a2];
+					if (w == u) { continue; }
+					final double d = weight[a1] + weight[a2];
+					if (search.isReached(w) && search.dist[w] <= d) { continue; }
+					shortcuts++;
+					if (add) { addArc(u, w, d, -1, a1, a2); }
+				}
+			}
+			return shortcuts;
+		}
+
+		/**
+		 * Checks if an arc entering a vertex is the shortest (or the first of the shortest) arc coming from its source.
+		 *
+		 * @param a
+		 *            the arc
+		 * @param index
+		 *            the index of the arc among the arcs entering its target
+		 * @return true, if it is the shortest
+		 */
+		private boolean isShortestArc(final int a, final int index) {
+			final int[] arcs = in[to[a]];
+			for (int i = 0; i < inCount[to[a]]; i++) {
+				final int b = arcs[i];
+				if (from[b] == from[a] && (weight[b] < weight[a] || weight[b] == weight[a] && i < index)) return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Searches the paths from a vertex that avoid the vertex being contracted, until all the vertices it leads to are
+		 * settled, or up to a distance and a number of settled vertices.
+		 *
+		 * @param search
+		 *            the search
+		 * @param u
+		 *            the origin
+		 * @param excluded
+		 *            the vertex being contracted
+		 * @param max
+		 *            the maximal distance
+		 * @param limit
+		 *            the maximal number of vertices settled
+		 */
+		private void witnessSearch(final Search search, final int u, final int excluded, final double max,
+				final int limit) {
+			final int[] targets = out[excluded];
+			final int count = outCount[excluded];
+			int remaining = 0;
+			for (int j = 0; j < count; j++) { if (to[targets[j]] != u) { remaining++; } }
+			search.reset();
+			search.reach(u, 0, 0, -1, -1);
+			int settled = 0;
+			while (remaining > 0 && !search.isEmpty() && search.topKey() <= max && settled++ < limit) {
+				final int x = search.pop();
+				for (int j = 0; j < count; j++) { if (to[targets[j]] == x && x != u) { remaining--; } }
+				final double dx = search.dist[x];
+				for (int i = 0; i < outCount[x]; i++) {
+					final int a = out[x][i];
+					final int y = to[a];
+					if (y == excluded || search.isClosed(y)) { continue; }
+					final double d = dx + weight[a];
+					search.reach(y, d, d, x, a);
+				}
+			}
+		}
+
+		/**
+		 * Builds the upward and downward adjacencies of the hierarchy.
+		 *
+		 * @return the contraction hierarchy
+		 */
+		ContractionHierarchy toHierarchy() {
+			final int[] upOffsets = new int[n + 1], downOffsets = new int[n + 1];
+			for (int a = 0; a < arcs; a++) {
+				if (rank[from[a]] < rank[to[a]]) {
+					upOffsets[from[a] + 1]++;
+				} else {
+					downOffsets[to[a] + 1]++;
+				}
+			}
+			for (int v = 0; v < n; v++) {
+				upOffsets[v + 1] += upOffsets[v];
+				downOffsets[v + 1] += downOffsets[v];
+			}
+			final int[] upArcs = new int[upOffsets[n]], downArcs = new int[downOffsets[n]];
+			final int[] up = Arrays.copyOf(upOffsets, n), down = Arrays.copyOf(downOffsets, n);
+			for (int a = 0; a < arcs; a++) {
+				if (rank[from[a]] < rank[to[a]]) {
+					upArcs[up[from[a]]++] = a;
+				} else {
+					downArcs[down[to[a]]++] = a;
+				}
+			}
+			return new ContractionHierarchy(n, Arrays.copyOf(from, arcs), Arrays.copyOf(to, arcs),
+					Arrays.copyOf(weight, arcs), Arrays.copyOf(edge, arcs), Arrays.copyOf(first, arcs),
+					Arrays.copyOf(second, arcs), upOffsets, upArcs, downOffsets, downArcs);
+		}
+
+	}
+
+}
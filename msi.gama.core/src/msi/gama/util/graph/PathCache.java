@@ -0,0 +1,669 @@
+/*******************************************************************************************************
+ *
+ * PathCache.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.graph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jgrapht.alg.util.Pair;
+
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.GamaMapFactory;
+import msi.gama.util.IList;
+import msi.gama.util.IMap;
+import msi.gaml.types.IType;
+import msi.gaml.types.Types;
+
+/**
+ * The cache of the shortest paths computed by a {@link PathComputer}, indexed by their source and target.
+ * <p>
+ * The paths are not kept as lists of edges, but as arrays of indices in a dictionary of the edges met so far. The
+ * sub-paths leading to the same target, which are cached with each path, share its array and only store the position
+ * of their first edge. The cache is bounded by a number of paths and by an estimate of the memory it uses (by default
+ * the one of {@link GamaPreferences.External#PATH_CACHE_MEMORY}): beyond, the least recently used paths, or the least
+ * frequently used among the least recently used ones, are evicted. The edges that are no longer used by any path are
+ * then removed from the dictionary. The cache is cleared each time the graph is modified.
+ * <p>
+ * The cache can be used by several threads: it is split into {@link #SEGMENTS} segments, by target, each with its own
+ * lock, dictionary and order of eviction. The limits apply to the whole cache.
+ *
+ * @param <V>
+ *            the type of the vertices
+ * @param <E>
+ *            the type of the edges
+ */
+public class PathCache<V, E> {
+
+	/**
+	 * The eviction policies.
+	 */
+	public enum Policy {
+
+		/** The least recently used paths are evicted first. */
+		LRU,
+
+		/** The least frequently used of the {@link PathCache#LFU_SAMPLE} least recently used paths is evicted first. */
+		LFU
+	}
+
+	/** The number of segments (a power of 2). */
+	static final int SEGMENTS = 16;
+
+	/** The number of least recently used entries among which the least frequently used one is evicted. */
+	static final int LFU_SAMPLE = 8;
+
+	/** The estimated size of an entry (node of the map, pair of vertices and entry), in bytes. */
+	static final long ENTRY_BYTES = 112;
+
+	/** The estimated size of a route, without its edges, in bytes. */
+	static final long ROUTE_BYTES = 32;
+
+	/** The estimated size of an edge in the dictionary, in bytes. */
+	static final long EDGE_BYTES = 64;
+
+	/**
+	 * An array of edge indices, shared by a path and its sub-paths.
+	 */
+	static final class Route {
+
+		/** The indices of the edges. */
+		final int[] edges;
+
+		/** The number of entries referring to this route (guarded by the lock of its segment). */
+		int references;
+
+		/**
+		 * Instantiates a new route.
+		 *
+		 * @param edges
+		 *            the edges
+		 */
+		Route(final int[] edges) {
+			this.edges = edges;
+		}
+
+		/**
+		 * The estimated size of the route.
+		 *
+		 * @return the size in bytes
+		 */
+		long bytes() {
+			return ROUTE_BYTES + 4L * edges.length;
+		}
+	}
+
+	/**
+	 * The paths between a source and a target: the edges of the i-th path start at starts[i] in routes[i].
+	 */
+	static final class Entry {
+
+		/** The routes. */
+		final Route[] routes;
+
+		/** The position of the first edge of each path in its route. */
+		final int[] starts;
+
+		/** The number of times the entry has been read (guarded by the lock of its segment). */
+		int uses;
+
+		/**
+		 * Instantiates a new entry.
+		 *
+		 * @param routes
+		 *            the routes
+		 * @param starts
+		 *            the starts
+		 */
+		Entry(final Route[] routes, final int[] starts) {
+			this.routes = routes;
+			this.starts = starts;
+		}
+
+		/**
+		 * The estimated size of the entry, without its routes.
+		 *
+		 * @return the size in bytes
+		 */
+		long bytes() {
+			return ENTRY_BYTES + 12L * routes.length;
+		}
+	}
+
+	/**
+	 * A part of the cache, with its own lock. All the paths leading to the same target are in the same segment: the
+	 * routes shared by a path and its sub-paths, and the dictionary of the edges they use, are thus only accessed
+	 * under the lock of their segment.
+	 */
+	final class Segment {
+
+		/** The entries, in access order. */
+		private final LinkedHashMap<Pair<V, V>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+		/** The indices of the edges in the dictionary. */
+		private final Map<Object, Integer> edgeIndices = new HashMap<>();
+
+		/** The dictionary of the edges (null at the indices that are free). */
+		private final List<Object> edgeList = new ArrayList<>();
+
+		/** The number of routes using each edge of the dictionary. */
+		private int[] edgeReferences = new int[16];
+
+		/** The indices of the dictionary freed by the edges no longer used. */
+		private final Deque<Integer> freeIndices = new ArrayDeque<>();
+
+		/** The estimated memory used by the segment, in bytes. */
+		private long bytes;
+
+		/**
+		 * Returns the first path cached between two vertices.
+		 *
+		 * @param key
+		 *            the source and the target
+		 * @param type
+		 *            the type of the edges
+		 * @return the path, or null if it is not in the cache (or empty)
+		 */
+		synchronized IList<E> get(final Pair<V, V> key, final IType<?> type) {
+			final Entry entry = entries.get(key);
+			if (entry == null || entry.routes.length == 0 || entry.starts[0] == entry.routes[0].edges.length) {
+				misses.increment();
+				return null;
+			}
+			hits.increment();
+			entry.uses++;
+			return decode(entry.routes[0], entry.starts[0], type);
+		}
+
+		/**
+		 * Returns all the paths cached between two vertices.
+		 *
+		 * @param key
+		 *            the source and the target
+		 * @param type
+		 *            the type of the edges
+		 * @return the paths, or null if they are not in the cache
+		 */
+		@SuppressWarnings ("unchecked")
+		synchronized IList<IList<E>> getAll(final Pair<V, V> key, final IType<?> type) {
+			final Entry entry = entries.get(key);
+			if (entry == null) {
+				misses.increment();
+				return null;
+			}
+			hits.increment();
+			entry.uses++;
+			final IList<IList<E>> result = GamaListFactory.create(Types.LIST.of(type), entry.routes.length);
+			for (int i = 0; i < entry.routes.length; i++) { result.add(decode(entry.routes[i], entry.starts[i], type)); }
+			return result;
+		}
+
+		/**
+		 * Checks if paths are cached between two vertices.
+		 *
+		 * @param key
+		 *            the source and the target
+		 * @return true, if there are paths in the segment
+		 */
+		synchronized boolean contains(final Pair<V, V> key) {
+			return entries.containsKey(key);
+		}
+
+		/**
+		 * Caches a path and its sub-paths (see {@link PathCache#put(List, Object, List)}).
+		 *
+		 * @param starts
+		 *            the vertex from which each sub-path starts
+		 * @param target
+		 *            the target
+		 * @param edges
+		 *            the edges of the path
+		 */
+		synchronized void put(final List<V> starts, final V target, final List<E> edges) {
+			final Route route = encode(edges);
+			store(new Pair<>(starts.get(0), target), new Entry(new Route[] { route }, new int[] { 0 }), true);
+			for (int i = 1; i < starts.size() && i < edges.size(); i++) {
+				store(new Pair<>(starts.get(i), target), new Entry(new Route[] { route }, new int[] { i }), false);
+			}
+		}
+
+		/**
+		 * Caches a path if no path is known between its extremities.
+		 *
+		 * @param key
+		 *            the source and the target
+		 * @param edges
+		 *            the edges
+		 */
+		synchronized void putIfAbsent(final Pair<V, V> key, final List<E> edges) {
+			if (entries.containsKey(key)) return;
+			store(key, new Entry(new Route[] { encode(edges) }, new int[] { 0 }), false);
+		}
+
+		/**
+		 * Caches several paths between two vertices.
+		 *
+		 * @param key
+		 *            the source and the target
+		 * @param paths
+		 *            the paths
+		 */
+		synchronized void putAll(final Pair<V, V> key, final List<? extends List<E>> paths) {
+			final Route[] routes = new Route[paths.size()];
+			for (int i = 0; i < routes.length; i++) { routes[i] = encode(paths.get(i)); }
+			store(key, new Entry(routes, new int[routes.length]), true);
+		}
+
+		/**
+		 * Stores an entry. The routes are only counted (with their edges) when a first entry refers to them.
+		 *
+		 * @param key
+		 *            the key
+		 * @param entry
+		 *            the entry
+		 * @param replace
+		 *            whether to replace an existing entry
+		 */
+		private void store(final Pair<V, V> key, final Entry entry, final boolean replace) {
+			if (!replace && entries.containsKey(key)) return;
+			for (final Route route : entry.routes) {
+				if (route.references++ == 0) {
+					add(route.bytes());
+					for (final int edge : route.edges) { edgeReferences[edge]++; }
+				}
+			}
+			add(entry.bytes());
+			final Entry previous = entries.put(key, entry);
+			if (previous != null) {
+				release(previous);
+			} else {
+				size.incrementAndGet();
+			}
+		}
+
+		/**
+		 * Releases the memory used by an entry that has been removed, and removes from the dictionary the edges that
+		 * are no longer used by any route.
+		 *
+		 * @param entry
+		 *            the entry
+		 */
+		private void release(final Entry entry) {
+			add(-entry.bytes());
+			for (final Route route : entry.routes) {
+				if (--route.references > 0) { continue; }
+				add(-route.bytes());
+				for (final int edge : route.edges) {
+					if (--edgeReferences[edge] == 0) {
+						edgeIndices.remove(edgeList.set(edge, null));
+						freeIndices.push(edge);
+						add(-EDGE_BYTES);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Evicts the least recently used entry, or the least frequently used among the {@link PathCache#LFU_SAMPLE}
+		 * least recently used ones.
+		 *
+		 * @return true, if an entry has been evicted (false if the segment is empty)
+		 */
+		synchronized boolean evict() {
+			if (entries.isEmpty()) return false;
+			final Iterator<Map.Entry<Pair<V, V>, Entry>> iterator = entries.entrySet().iterator();
+			Map.Entry<Pair<V, V>, Entry> victim = iterator.next();
+			if (policy == Policy.LFU) {
+				for (int i = 1; i < LFU_SAMPLE && iterator.hasNext(); i++) {
+					final Map.Entry<Pair<V, V>, Entry> candidate = iterator.next();
+					if (candidate.getValue().uses < victim.getValue().uses) { victim = candidate; }
+				}
+			}
+			entries.remove(victim.getKey());
+			release(victim.getValue());
+			size.decrementAndGet();
+			evictions.increment();
+			return true;
+		}
+
+		/**
+		 * Encodes a list of edges. The edges that are not in the dictionary yet are added to it, at a free index if
+		 * there is one.
+		 *
+		 * @param edges
+		 *            the edges
+		 * @return the route
+		 */
+		private Route encode(final List<E> edges) {
+			final int[] indices = new int[edges.size()];
+			for (int i = 0; i < indices.length; i++) {
+				final Object edge = edges.get(i);
+				Integer index = edgeIndices.get(edge);
+				if (index == null) {
+					if (freeIndices.isEmpty()) {
+						index = edgeList.size();
+						edgeList.add(edge);
+						if (index == edgeReferences.length) {
+							edgeReferences = Arrays.copyOf(edgeReferences, index * 2);
+						}
+					} else {
+						index = freeIndices.pop();
+						edgeList.set(index, edge);
+					}
+					edgeIndices.put(edge, index);
+					add(EDGE_BYTES);
+				}
+				indices[i] = index;
+			}
+			return new Route(indices);
+		}
+
+		/**
+		 * Decodes a path.
+		 *
+		 * @param route
+		 *            the route
+		 * @param start
+		 *            the position of the first edge
+		 * @param type
+		 *            the type of the edges
+		 * @return the list of edges
+		 */
+		@SuppressWarnings ("unchecked")
+		private IList<E> decode(final Route route, final int start, final IType<?> type) {
+			final IList<E> result = GamaListFactory.create(type, route.edges.length - start);
+			for (int i = start; i < route.edges.length; i++) { result.add((E) edgeList.get(route.edges[i])); }
+			return result;
+		}
+
+		/**
+		 * Adds to the estimated memory of the segment and of the cache.
+		 *
+		 * @param delta
+		 *            the number of bytes (negative when memory is released)
+		 */
+		private void add(final long delta) {
+			bytes += delta;
+			memory.addAndGet(delta);
+		}
+
+		/**
+		 * Removes all the paths and edges of the segment.
+		 *
+		 * @return true, if the segment was not empty
+		 */
+		synchronized boolean clear() {
+			if (entries.isEmpty() && edgeIndices.isEmpty()) return false;
+			size.addAndGet(-entries.size());
+			entries.clear();
+			edgeIndices.clear();
+			edgeList.clear();
+			freeIndices.clear();
+			Arrays.fill(edgeReferences, 0);
+			add(-bytes);
+			return true;
+		}
+
+		/**
+		 * The number of edges in the dictionary.
+		 *
+		 * @return the number of edges
+		 */
+		synchronized int edges() {
+			return edgeIndices.size();
+		}
+	}
+
+	/** The segments. */
+	@SuppressWarnings ({ "unchecked", "rawtypes" })
+	private final Segment[] segments = new PathCache.Segment[SEGMENTS];
+
+	/** The number of entries. */
+	private final AtomicInteger size = new AtomicInteger();
+
+	/** The estimated memory used by the cache, in bytes. */
+	private final AtomicLong memory = new AtomicLong();
+
+	/** The maximal number of paths (0 for no limit). */
+	private volatile int maxPaths;
+
+	/** The maximal memory, in bytes (0 for no limit, negative to use the preference). */
+	private volatile long maxMemory = -1;
+
+	/** The eviction policy. */
+	private volatile Policy policy = Policy.LRU;
+
+	/** The statistics of the cache. */
+	private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder(),
+			invalidations = new LongAdder();
+
+	/**
+	 * Instantiates a new path cache.
+	 */
+	public PathCache() {
+		for (int i = 0; i < SEGMENTS; i++) { segments[i] = new Segment(); }
+	}
+
+	/**
+	 * Returns the index of the segment of the paths leading to a target.
+	 *
+	 * @param target
+	 *            the target
+	 * @return the index
+	 */
+	private static int segmentOf(final Object target) {
+		final int h = Objects.hashCode(target);
+		return (h ^ h >>> 16) & SEGMENTS - 1;
+	}
+
+	/**
+	 * Returns the first path cached between two vertices.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @param type
+	 *            the type of the edges
+	 * @return the path, or null if it is not in the cache (or empty)
+	 */
+	public IList<E> get(final V source, final V target, final IType<?> type) {
+		return segments[segmentOf(target)].get(new Pair<>(source, target), type);
+	}
+
+	/**
+	 * Returns all the paths cached between two vertices (several ones when they have been computed by a k shortest
+	 * paths algorithm).
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @param type
+	 *            the type of the edges
+	 * @return the paths, or null if they are not in the cache
+	 */
+	public IList<IList<E>> getAll(final V source, final V target, final IType<?> type) {
+		return segments[segmentOf(target)].getAll(new Pair<>(source, target), type);
+	}
+
+	/**
+	 * Checks if paths are cached between two vertices, without modifying the statistics nor the order of eviction.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return true, if there are paths in the cache
+	 */
+	public boolean contains(final V source, final V target) {
+		return segments[segmentOf(target)].contains(new Pair<>(source, target));
+	}
+
+	/**
+	 * Caches a path and the sub-paths leading to its target: the i-th sub-path is the one that starts with the i-th
+	 * edge, from the i-th vertex of starts. The path replaces the paths already cached between its extremities, while
+	 * the sub-paths are only cached if no path is known between theirs.
+	 *
+	 * @param starts
+	 *            the vertex from which each sub-path starts (the first one being the source of the path)
+	 * @param target
+	 *            the target
+	 * @param edges
+	 *            the edges of the path
+	 */
+	public void put(final List<V> starts, final V target, final List<E> edges) {
+		if (edges == null || edges.isEmpty() || starts.isEmpty()) return;
+		final int segment = segmentOf(target);
+		segments[segment].put(starts, target, edges);
+		evict(segment);
+	}
+
+	/**
+	 * Caches a path if no path is known between its extremities.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @param edges
+	 *            the edges
+	 */
+	public void putIfAbsent(final V source, final V target, final List<E> edges) {
+		final int segment = segmentOf(target);
+		segments[segment].putIfAbsent(new Pair<>(source, target), edges);
+		evict(segment);
+	}
+
+	/**
+	 * Caches several paths between two vertices (replacing the ones already cached).
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @param paths
+	 *            the paths
+	 */
+	public void putAll(final V source, final V target, final List<? extends List<E>> paths) {
+		final int segment = segmentOf(target);
+		segments[segment].putAll(new Pair<>(source, target), paths);
+		evict(segment);
+	}
+
+	/**
+	 * Evicts entries until the cache is within its limits: first from the given segment (the one in which paths have
+	 * just been added), then from the next ones if it becomes empty.
+	 *
+	 * @param first
+	 *            the index of the first segment
+	 */
+	private void evict(final int first) {
+		final long limit = maxMemory < 0 ? GamaPreferences.External.PATH_CACHE_MEMORY.getValue() * 1024L * 1024L
+				: maxMemory;
+		int i = first, empty = 0;
+		while (empty < SEGMENTS && (maxPaths > 0 && size.get() > maxPaths || limit > 0 && memory.get() > limit)) {
+			if (segments[i].evict()) {
+				empty = 0;
+			} else {
+				empty++;
+				i = i + 1 & SEGMENTS - 1;
+			}
+		}
+	}
+
+	/**
+	 * Removes all the paths (when the graph is modified). The limits and the statistics are kept.
+	 */
+	public void clear() {
+		boolean cleared = false;
+		for (final Segment segment : segments) { cleared |= segment.clear(); }
+		if (cleared) { invalidations.increment(); }
+	}
+
+	/**
+	 * Sets the maximal number of paths.
+	 *
+	 * @param max
+	 *            the max (0 or less for no limit)
+	 */
+	public void setMaxPaths(final int max) {
+		maxPaths = Math.max(0, max);
+		evict(0);
+	}
+
+	/**
+	 * Sets the maximal memory.
+	 *
+	 * @param megabytes
+	 *            the max in MB (0 for no limit, negative to use the preference)
+	 */
+	public void setMaxMemory(final double megabytes) {
+		maxMemory = megabytes < 0 ? -1 : (long) (megabytes * 1024 * 1024);
+		evict(0);
+	}
+
+	/**
+	 * Sets the eviction policy.
+	 *
+	 * @param policy
+	 *            the new policy
+	 */
+	public void setPolicy(final Policy policy) { this.policy = policy; }
+
+	/**
+	 * Returns the number of entries (i.e. of pairs of vertices).
+	 *
+	 * @return the size
+	 */
+	public int size() {
+		return size.get();
+	}
+
+	/**
+	 * Returns the statistics and the settings of the cache.
+	 *
+	 * @return a map with the hits, misses, hit ratio, evictions, invalidations, number of paths, estimated memory (in
+	 *         bytes), limits and policy
+	 */
+	@SuppressWarnings ("unchecked")
+	public IMap<String, Object> getStatistics() {
+		final IMap<String, Object> result = GamaMapFactory.create(Types.STRING, Types.NO_TYPE);
+		final long h = hits.sum(), m = misses.sum();
+		int edges = 0;
+		for (final Segment segment : segments) { edges += segment.edges(); }
+		result.put("hits", (int) h);
+		result.put("misses", (int) m);
+		result.put("hit_ratio", h + m == 0 ? 0d : (double) h / (h + m));
+		result.put("evictions", (int) evictions.sum());
+		result.put("invalidations", (int) invalidations.sum());
+		result.put("paths", size.get());
+		result.put("edges", edges);
+		result.put("memory", (double) memory.get());
+		result.put("max_paths", maxPaths);
+		result.put("max_memory", maxMemory < 0
+				? GamaPreferences.External.PATH_CACHE_MEMORY.getValue() * 1024d * 1024d : (double) maxMemory);
+		result.put("policy", policy.name().toLowerCase());
+		return result;
+	}
+
+}
@@ -10,12 +10,13 @@
  ********************************************************************************************************/
 package msi.gama.util.graph;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jgrapht.GraphPath;
 import org.jgrapht.alg.interfaces.KShortestPathAlgorithm;
@@ -28,7 +29,6 @@ import org.jgrapht.alg.shortestpath.DeltaSteppingShortestPath;
 import org.jgrapht.alg.shortestpath.DijkstraShortestPath;
 import org.jgrapht.alg.shortestpath.TransitNodeRoutingShortestPath;
 import org.jgrapht.alg.shortestpath.YenKShortestPath;
-import org.jgrapht.alg.util.Pair;
 import org.jgrapht.graph.AbstractBaseGraph;
 import org.jgrapht.graph.DefaultDirectedGraph;
 import org.jgrapht.graph.DefaultUndirectedGraph;
@@ -37,6 +37,7 @@ import org.jgrapht.util.SupplierUtil;
 
 import com.google.common.collect.ImmutableList;
 
+import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.metamodel.topology.graph.AStar;
 import msi.gama.metamodel.topology.graph.FloydWarshallShortestPathsGAMA;
 import msi.gama.metamodel.topology.graph.NBAStarPathfinder;
@@ -134,8 +135,8 @@ public class PathComputer<V, E> {
 	/** The version. */
 	protected int version = 1;
 
-	/** The shortest path computed. */
-	protected Map<Pair<V, V>, IList<IList<E>>> shortestPathComputed = new ConcurrentHashMap<>();
+	/** The cache of the shortest paths computed. */
+	protected final PathCache<V, E> pathCache = new PathCache<>();
 
 	/** The shortest path matrix. */
 	protected GamaIntMatrix shortestPathMatrix = null;
@@ -165,12 +166,24 @@ public class PathComputer<V, E> {
 	/** The from linked gto edges. */
 	protected Map<Object, Object> fromLinkedGtoEdges;
 
+	/** The number of queries answered without modification of the graph after which it is considered as static. */
+	static final int STATIC_QUERIES = 10;
+
+	/** The compressed copy of the graph, built once the graph is static and discarded when it is modified. */
+	protected volatile CompressedGraph<V, E> compressedGraph;
+
+	/** Whether the compressed copy cannot be built for the current version of the graph (negative weights). */
+	private volatile boolean notCompressible;
+
+	/** The number of queries since the last modification of the graph. */
+	private final AtomicInteger queriesSinceChange = new AtomicInteger();
+
 	/**
-	 * Gets the shortest path computed.
+	 * Gets the cache of the shortest paths computed.
 	 *
-	 * @return the shortest path computed
+	 * @return the path cache
 	 */
-	public Map<Pair<V, V>, IList<IList<E>>> getShortestPathComputed() { return shortestPathComputed; }
+	public PathCache<V, E> getPathCache() { return pathCache; }
 
 	/**
 	 * Gets the shortest path.
@@ -182,10 +195,7 @@ public class PathComputer<V, E> {
 	 * @return the shortest path
 	 */
 	public IList<E> getShortestPath(final V s, final V t) {
-		final Pair<V, V> vp = new Pair<>(s, t);
-		final IList<IList<E>> ppc = shortestPathComputed.get(vp);
-		if (ppc == null || ppc.isEmpty()) return null;
-		return ppc.get(0);
+		return pathCache.get(s, t, graph.getGamlType().getContentType());
 	}
 
 	/**
@@ -299,6 +309,7 @@ public class PathComputer<V, E> {
 	 *            the t
 	 * @return the i list
 	 */
+	@SuppressWarnings ({ "unchecked", "rawtypes" })
 	public IList savePaths(final int M[], final IList vertices, final int nbvertices, final Object v1, final int i,
 			final int t) {
 		IList edgesVertices = GamaListFactory.create(graph.getGamlType().getContentType());
@@ -325,12 +336,7 @@ public class PathComputer<V, E> {
 				next = M[next];
 				vc = vn;
 			} while (previous != i);
-			final Pair vv = new Pair<>(v1, vt);
-			if (!shortestPathComputed.containsKey(vv)) {
-				final IList<IList<E>> ssp = GamaListFactory.create(Types.LIST.of(graph.getGamlType().getContentType()));
-				ssp.add(edges);
-				shortestPathComputed.put(vv, ssp);
-			}
+			pathCache.putIfAbsent((V) v1, vt, edges);
 			if (j == t) { edgesVertices = edges; }
 		}
 		return edgesVertices;
@@ -492,11 +498,19 @@ public class PathComputer<V, E> {
 			if (path == null) return GamaListFactory.create(graph.getGamlType().getContentType());
 			return GamaListFactory.create(scope, graph.getGamlType().getContentType(), path.getEdgeList());
 		}
-		IList<IList<E>> sp = null;
-		if (saveComputedShortestPaths) { sp = shortestPathComputed.get(new Pair<>(source, target)); }
 		IList<E> spl = null;
-		if (sp == null || sp.isEmpty() || sp.get(0).isEmpty()) {
-			if (pathFindingAlgo == shortestPathAlgorithm.NBAStar) {
+		if (saveComputedShortestPaths) { spl = pathCache.get(source, target, graph.getGamlType().getContentType()); }
+		if (spl == null) {
+			final CompressedGraph<V, E> compressed = getCompressedGraph();
+			if (compressed != null) {
+				spl = switch (pathFindingAlgo) {
+					case Dijkstra -> compressed.dijkstra(source, target);
+					case BidirectionalDijkstra -> compressed.bidirectionalDijkstra(source, target);
+					case CHBidirectionalDijkstra, TransitNodeRouting -> compressed.contractionHierarchy(source,
+							target);
+					default -> compressed.aStar(source, target);
+				};
+			} else if (pathFindingAlgo == shortestPathAlgorithm.NBAStar) {
 				final NBAStarPathfinder<V, E> p = new NBAStarPathfinder<>(graph, false);
 				spl = p.search(source, target);
 			} else if (pathFindingAlgo == shortestPathAlgorithm.NBAStarApprox) {
@@ -532,13 +546,144 @@ public class PathComputer<V, E> {
 			}
 
 			if (saveComputedShortestPaths) { saveShortestPaths(spl, source, target); }
-
-		} else {
-			spl = GamaListFactory.create(scope, graph.getGamlType().getContentType(), sp.get(0));
 		}
 		return spl;
 	}
 
+	/**
+	 * Returns the compressed copy of the graph if it can be used by the current algorithm (Dijkstra, A*, NBA*,
+	 * bidirectional Dijkstra and contraction hierarchies) and if the graph is static, i.e. if it has answered
+	 * {@link #STATIC_QUERIES} queries without being modified. The copy is built at that moment and kept until the next
+	 * modification of the graph. As contraction hierarchies are only meant for static graphs, the copy is built at the
+	 * first query when they are used.
+	 *
+	 * @return the compressed graph, or null if it cannot be used
+	 */
+	CompressedGraph<V, E> getCompressedGraph() {
+		if (!GamaPreferences.External.PATH_COMPUTATION_COMPRESSED.getValue()) return null;
+		final int threshold;
+		switch (pathFindingAlgo) {
+			case Dijkstra, AStar, NBAStar, BidirectionalDijkstra:
+				threshold = STATIC_QUERIES;
+				break;
+			case CHBidirectionalDijkstra, TransitNodeRouting:
+				threshold = 1;
+				break;
+			default:
+				return null;
+		}
+		final CompressedGraph<V, E> result = compressedGraph;
+		if (result != null || notCompressible || queriesSinceChange.incrementAndGet() < threshold) return result;
+		return buildCompressedGraph();
+	}
+
+	/**
+	 * Builds the compressed copy of the graph, if it does not exist yet.
+	 *
+	 * @return the compressed graph, or null if it cannot be built
+	 */
+	private CompressedGraph<V, E> buildCompressedGraph() {
+		synchronized (this) {
+			if (compressedGraph == null && !notCompressible) {
+				final int v = version;
+				final CompressedGraph<V, E> built = CompressedGraph.of(graph);
+				// The graph may have been modified in the meantime
+				if (v == version) {
+					compressedGraph = built;
+					notCompressible = built == null;
+				}
+			}
+			return compressedGraph;
+		}
+	}
+
+	/**
+	 * Computes the shortest paths between several sources and several targets. On graphs that can be compressed (see
+	 * {@link GamaPreferences.External#PATH_COMPUTATION_COMPRESSED}), a single search is run from each source, which
+	 * stops when all the targets are reached, and the sources are processed in parallel; only the distances and the
+	 * shortest path trees are computed, the paths being built when they are asked for. Otherwise, each path is
+	 * computed with the current algorithm.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param sources
+	 *            the sources
+	 * @param targets
+	 *            the targets
+	 * @return the distances and paths between each source and each target
+	 */
+	public PathMatrix<V, E> computeShortestPathsBetween(final IScope scope, final List<V> sources,
+			final List<V> targets) {
+		return computeShortestPathsBetween(scope, sources, targets, true);
+	}
+
+	/**
+	 * Computes the shortest paths, or only their lengths, between several sources and several targets (see
+	 * {@link #computeShortestPathsBetween(IScope, List, List)}). When the paths are not asked for, the shortest path
+	 * trees and the edges of the paths are not kept.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param sources
+	 *            the sources
+	 * @param targets
+	 *            the targets
+	 * @param withPaths
+	 *            whether the paths can be asked for (otherwise, only the distances are kept)
+	 * @return the distances, and the paths if asked for, between each source and each target
+	 */
+	public PathMatrix<V, E> computeShortestPathsBetween(final IScope scope, final List<V> sources,
+			final List<V> targets, final boolean withPaths) {
+		CompressedGraph<V, E> compressed = null;
+		if (GamaPreferences.External.PATH_COMPUTATION_COMPRESSED.getValue()) {
+			compressed = compressedGraph;
+			if (compressed == null && !notCompressible) { compressed = buildCompressedGraph(); }
+		}
+		final PathMatrix<V, E> result = new PathMatrix<>(graph, sources, targets, compressed, withPaths);
+		if (compressed != null) {
+			final int[] s = new int[sources.size()], t = new int[targets.size()];
+			for (int i = 0; i < s.length; i++) { s[i] = compressed.indexOf(sources.get(i)); }
+			for (int j = 0; j < t.length; j++) { t[j] = compressed.indexOf(targets.get(j)); }
+			compressed.shortestPathTrees(s, t, result.distances, result.trees);
+			return result;
+		}
+		for (int i = 0; i < sources.size(); i++) {
+			final V source = sources.get(i);
+			for (int j = 0; j < targets.size(); j++) {
+				final V target = targets.get(j);
+				IList<E> edges = computeBestRouteBetween(scope, source, target);
+				if (source.equals(target)) {
+					result.distances[i][j] = 0;
+				} else if (edges == null || edges.isEmpty()) {
+					edges = GamaListFactory.create(graph.getGamlType().getContentType());
+					result.distances[i][j] = Double.POSITIVE_INFINITY;
+				} else {
+					double d = 0;
+					for (final E e : edges) { d += graph.getEdgeWeight(e); }
+					result.distances[i][j] = d;
+				}
+				if (withPaths) { result.edges[i][j] = edges; }
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the shortest paths between a source and several targets (see
+	 * {@link #computeShortestPathsBetween(IScope, List, List)}).
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param source
+	 *            the source
+	 * @param targets
+	 *            the targets
+	 * @return the distances and paths between the source (index 0) and each target
+	 */
+	public PathMatrix<V, E> computeShortestPathsFrom(final IScope scope, final V source, final List<V> targets) {
+		return computeShortestPathsBetween(scope, List.of(source), targets);
+	}
+
 	/**
 	 * Save shortest paths.
 	 *
@@ -550,26 +695,19 @@ public class PathComputer<V, E> {
 	 *            the target
 	 */
 	private void saveShortestPaths(final List<E> edges, final V source, final V target) {
+		if (edges == null || edges.isEmpty()) return;
+		// The vertex from which each sub-path leading to the target starts
+		final List<V> starts = new ArrayList<>(edges.size());
 		V s = source;
-		final IList<IList<E>> spl = GamaListFactory.create(Types.LIST.of(graph.getGamlType().getContentType()));
-		spl.add(GamaListFactory.createWithoutCasting(graph.getGamlType().getContentType(), edges));
-		shortestPathComputed.put(new Pair<>(source, target), spl);
-		final List<E> edges2 = GamaListFactory.create(graph.graphScope, graph.getGamlType().getContentType(), edges);
-		for (int i = 0; i < edges.size(); i++) {
-			final E edge = edges2.remove(0);
-			if (edges2.isEmpty()) { break; }
-			// DEBUG.LOG("s : " + s + " j : " + j + " i: " + i);
+		starts.add(s);
+		for (int i = 0; i < edges.size() - 1; i++) {
+			final E edge = edges.get(i);
 			V nwS = (V) graph.getEdgeTarget(edge);
 			if (!graph.directed && nwS.equals(s)) { nwS = (V) graph.getEdgeSource(edge); }
-			final Pair<V, V> pp = new Pair<>(nwS, target);
-			if (!shortestPathComputed.containsKey(pp)) {
-				final IList<IList<E>> spl2 = GamaListFactory.create(graph.getGamlType().getContentType());
-				spl2.add(GamaListFactory.createWithoutCasting(graph.getGamlType().getContentType(), edges2));
-				shortestPathComputed.put(pp, spl2);
-			}
+			starts.add(nwS);
 			s = nwS;
-
 		}
+		pathCache.put(starts, target, edges);
 	}
 
 	/**
@@ -628,7 +766,6 @@ public class PathComputer<V, E> {
 				useLinkedGraph ? target.toString() : target, k);
 
 		if (pathsJGT == null) return GamaListFactory.create(graph.getGamlType().getContentType());
-		final IList<IList<E>> el = GamaListFactory.create(Types.LIST.of(graph.getGamlType().getContentType()));
 		final IList<IList<E>> paths = GamaListFactory.create(Types.LIST.of(graph.getGamlType().getContentType()));
 
 		for (final GraphPath p : pathsJGT) {
@@ -639,9 +776,8 @@ public class PathComputer<V, E> {
 				path.addAll(p.getEdgeList());
 			}
 			paths.add(path);
-			if (saveComputedShortestPaths) { el.add(path); }
 		}
-		if (saveComputedShortestPaths) { shortestPathComputed.put(new Pair<>(source, target), el); }
+		if (saveComputedShortestPaths) { pathCache.putAll(source, target, paths); }
 		return paths;
 	}
 
@@ -661,15 +797,8 @@ public class PathComputer<V, E> {
 	 * @date 30 oct. 2023
 	 */
 	public IList<IList<E>> computeKBestRoutesBetween(final IScope scope, final V source, final V target, final int k) {
-		final Pair<V, V> pp = new Pair<>(source, target);
-		final IList<IList<E>> sps = shortestPathComputed.get(pp);
-		if (sps != null && sps.size() >= k) {
-			IList<IList<E>> paths = GamaListFactory.create(Types.LIST.of(graph.getGamlType().getContentType()));
-			for (final IList<E> sp : sps) {
-				paths.add(GamaListFactory.create(scope, graph.getGamlType().getContentType(), sp));
-			}
-			return paths;
-		}
+		final IList<IList<E>> sps = pathCache.getAll(source, target, graph.getGamlType().getContentType());
+		if (sps != null && sps.size() >= k) return sps;
 		IList<IList<E>> paths = GamaListFactory.create(Types.LIST.of(graph.getGamlType().getContentType()));
 		if (kPathFindingAlgo == kShortestPathAlgorithm.Yen) {
 			paths = geKtShortestPath(scope, new YenKShortestPath<>(graph), source, target, k, false);
@@ -745,7 +874,7 @@ public class PathComputer<V, E> {
 	 */
 	public void setVersion(final int version) {
 		this.version = version;
-		shortestPathComputed.clear();
+		pathCache.clear();
 	}
 
 	/**
@@ -756,11 +885,14 @@ public class PathComputer<V, E> {
 	 */
 	public void incVersion() {
 		version++;
-		shortestPathComputed.clear();
+		pathCache.clear();
 		contractionHierarchyBD = null;
 		transitNodeRouting = null;
 		linkedJGraph = null;
 		fromLinkedGtoEdges = null;
+		compressedGraph = null;
+		notCompressible = false;
+		queriesSinceChange.set(0);
 	}
 
 	/**
@@ -0,0 +1,165 @@
+/*******************************************************************************************************
+ *
+ * PathMatrix.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.graph;
+
+import java.util.List;
+
+import msi.gama.runtime.IScope;
+import msi.gama.util.IList;
+import msi.gama.util.path.IPath;
+
+/**
+ * The result of a batched shortest path query (see {@link PathComputer#computeShortestPathsBetween}): the distances
+ * between each source and each target, and the paths between them, which are only built when they are asked for.
+ * <p>
+ * When the query has been answered on a {@link CompressedGraph}, only the shortest path tree of each source is kept
+ * (one int per vertex, the arc through which it has been reached), from which the edges of the paths are extracted.
+ * When only the distances are asked for, neither the trees nor the edges are kept.
+ *
+ * @param <V>
+ *            the type of the vertices
+ * @param <E>
+ *            the type of the edges
+ */
+@SuppressWarnings ("unchecked")
+public class PathMatrix<V, E> {
+
+	/** The graph. */
+	final GamaGraph<V, E> graph;
+
+	/** The sources and targets. */
+	final List<V> sources, targets;
+
+	/** The distance between each source and each target (infinite if the target cannot be reached). */
+	final double[][] distances;
+
+	/** The compressed graph on which the trees have been computed, or null. */
+	final CompressedGraph<V, E> compressed;
+
+	/**
+	 * The shortest path tree of each source, or null if the edges of the paths have been computed directly or if only
+	 * the distances are kept.
+	 */
+	final int[][] trees;
+
+	/** The edges of the paths, built lazily (null if only the distances are kept). */
+	final IList<E>[][] edges;
+
+	/** The paths, built lazily (null if only the distances are kept). */
+	final IPath<V, E, IGraph<V, E>>[][] paths;
+
+	/**
+	 * Instantiates a new path matrix.
+	 *
+	 * @param graph
+	 *            the graph
+	 * @param sources
+	 *            the sources
+	 * @param targets
+	 *            the targets
+	 * @param compressed
+	 *            the compressed graph, or null if the edges of the paths are given
+	 * @param withPaths
+	 *            whether the paths can be asked for (otherwise, only the distances are kept)
+	 */
+	@SuppressWarnings ({ "unchecked", "rawtypes" })
+	PathMatrix(final GamaGraph<V, E> graph, final List<V> sources, final List<V> targets,
+			final CompressedGraph<V, E> compressed, final boolean withPaths) {
+		this.graph = graph;
+		this.sources = sources;
+		this.targets = targets;
+		this.compressed = compressed;
+		distances = new double[sources.size()][targets.size()];
+		trees = compressed == null || !withPaths ? null : new int[sources.size()][];
+		edges = withPaths ? new IList[sources.size()][targets.size()] : null;
+		paths = withPaths ? new IPath[sources.size()][targets.size()] : null;
+	}
+
+	/**
+	 * The sources.
+	 *
+	 * @return the sources
+	 */
+	public List<V> getSources() { return sources; }
+
+	/**
+	 * The targets.
+	 *
+	 * @return the targets
+	 */
+	public List<V> getTargets() { return targets; }
+
+	/**
+	 * The distances, indexed by source then target.
+	 *
+	 * @return the distances
+	 */
+	public double[][] getDistances() { return distances; }
+
+	/**
+	 * The distance between a source and a target.
+	 *
+	 * @param i
+	 *            the index of the source
+	 * @param j
+	 *            the index of the target
+	 * @return the distance, infinite if the target cannot be reached
+	 */
+	public double getDistance(final int i, final int j) {
+		return distances[i][j];
+	}
+
+	/**
+	 * The edges of the shortest path between a source and a target.
+	 *
+	 * @param i
+	 *            the index of the source
+	 * @param j
+	 *            the index of the target
+	 * @return the edges, empty if the target cannot be reached
+	 * @throws IllegalStateException
+	 *             if only the distances have been computed
+	 */
+	public IList<E> getEdges(final int i, final int j) {
+		if (edges == null) throw new IllegalStateException("Only the distances have been computed");
+		IList<E> result = edges[i][j];
+		if (result == null) {
+			final int t = compressed.indexOf(targets.get(j));
+			result = t < 0 || trees[i] == null ? compressed.emptyPath() : compressed.pathInTree(trees[i], t);
+			edges[i][j] = result;
+		}
+		return result;
+	}
+
+	/**
+	 * The shortest path between a source and a target.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param i
+	 *            the index of the source
+	 * @param j
+	 *            the index of the target
+	 * @return the path
+	 * @throws IllegalStateException
+	 *             if only the distances have been computed
+	 */
+	public IPath<V, E, IGraph<V, E>> getPath(final IScope scope, final int i, final int j) {
+		if (paths == null) throw new IllegalStateException("Only the distances have been computed");
+		IPath<V, E, IGraph<V, E>> result = paths[i][j];
+		if (result == null) {
+			result = graph.pathFromEdges(scope, sources.get(i), targets.get(j), getEdges(i, j));
+			paths[i][j] = result;
+		}
+		return result;
+	}
+
+}
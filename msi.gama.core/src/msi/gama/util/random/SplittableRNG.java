@@ -0,0 +1,182 @@
+/*******************************************************************************************************
+ *
+ * SplittableRNG.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.random;
+
+import java.util.Random;
+
+import msi.gama.common.util.RandomUtils;
+
+/**
+ * A lock-free generator based on the SplitMix64 algorithm (the one used by {@link java.util.SplittableRandom}). Its
+ * whole state is a single long, which makes it possible to derive, without any synchronization, independent and
+ * reproducible streams from a root seed and a set of keys (e.g. the cycle and the index of an agent). Instances are
+ * not thread-safe: each thread (or each agent) is supposed to use its own stream.
+ *
+ * Each draw advances the state by exactly one step, whatever the kind of numbers drawn, so that {@link #setUsage(int)}
+ * can restore the state of a generator by jumping over the draws instead of replaying them.
+ */
+@SuppressWarnings ("serial")
+public class SplittableRNG extends Random implements IGamaRNG {
+
+	/** The increment of the state (odd, fractional part of the golden ratio). */
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	/** The state of the generator. */
+	private long state;
+
+	/** The number of draws since the last seeding. */
+	private int usage;
+
+	/**
+	 * Instantiates a new splittable RNG seeded by the random utils.
+	 *
+	 * @param seedGenerator
+	 *            the seed generator
+	 */
+	public SplittableRNG(final RandomUtils seedGenerator) {
+		this(seedOf(seedGenerator.generateSeed(8)));
+	}
+
+	/**
+	 * Instantiates a new splittable RNG.
+	 *
+	 * @param seed
+	 *            the seed
+	 */
+	public SplittableRNG(final long seed) {
+		super(0);
+		state = seed;
+	}
+
+	/**
+	 * Converts an array of bytes into a long seed.
+	 *
+	 * @param seed
+	 *            the seed
+	 * @return the long
+	 */
+	private static long seedOf(final byte[] seed) {
+		long value = 0;
+		for (int i = 0; i < 8; i++) { value = value << 8 | seed[i] & 0xff; }
+		return value;
+	}
+
+	/**
+	 * The SplitMix64 finalizer.
+	 *
+	 * @param z
+	 *            the z
+	 * @return the long
+	 */
+	private static long mix64(long z) {
+		z = (z ^ z >>> 30) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ z >>> 27) * 0x94d049bb133111ebL;
+		return z ^ z >>> 31;
+	}
+
+	/**
+	 * Derives the seed of an independent stream from a root seed and a sequence of keys. The same root and keys always
+	 * produce the same seed.
+	 *
+	 * @param root
+	 *            the root seed
+	 * @param keys
+	 *            the keys
+	 * @return the seed of the stream
+	 */
+	public static long streamSeed(final long root, final long... keys) {
+		long s = mix64(root);
+		for (final long key : keys) { s = childSeed(s, key); }
+		return s;
+	}
+
+	/**
+	 * Derives the seed of an independent stream from the seed of a parent stream and a key. Allows to derive seeds
+	 * from keys of variable length without allocating them in an array.
+	 *
+	 * @param parent
+	 *            the seed of the parent stream
+	 * @param key
+	 *            the key
+	 * @return the seed of the child stream
+	 */
+	public static long childSeed(final long parent, final long key) {
+		return mix64(parent + GOLDEN_GAMMA * (key + 1));
+	}
+
+	/**
+	 * Repositions this generator at the beginning of the stream with the given seed. Allows to reuse the same instance
+	 * for successive agents.
+	 *
+	 * @param seed
+	 *            the seed
+	 */
+	public void reseed(final long seed) {
+		state = seed;
+		usage = 0;
+	}
+
+	/**
+	 * Advances the state and returns the next 64 bits.
+	 *
+	 * @return the long
+	 */
+	private long nextSeed() {
+		usage++;
+		return mix64(state += GOLDEN_GAMMA);
+	}
+
+	@Override
+	protected int next(final int bits) {
+		return (int) (nextSeed() >>> 64 - bits);
+	}
+
+	@Override
+	public long nextLong() {
+		return nextSeed();
+	}
+
+	@Override
+	public double nextDouble() {
+		return (nextSeed() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * Polar method, without caching the second value (contrary to Random), so that the stream only depends on its seed
+	 * and the number of draws.
+	 */
+	@Override
+	public double nextGaussian() {
+		double v1, v2, s;
+		do {
+			v1 = 2 * nextDouble() - 1;
+			v2 = 2 * nextDouble() - 1;
+			s = v1 * v1 + v2 * v2;
+		} while (s >= 1 || s == 0);
+		return v1 * StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+	}
+
+	@Override
+	public int getUsage() { return usage; }
+
+	/**
+	 * Advances the generator by the given number of draws, in constant time.
+	 */
+	@Override
+	public void setUsage(final int draws) {
+		state += GOLDEN_GAMMA * draws;
+		usage += draws;
+	}
+
+	@Override
+	public Random getRandomGenerator() { return this; }
+
+}
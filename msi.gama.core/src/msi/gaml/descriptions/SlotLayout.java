@@ -0,0 +1,192 @@
+/*******************************************************************************************************
+ *
+ * SlotLayout.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gaml.descriptions;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The fixed layout of the attributes stored by the agents of a species. Each declared attribute whose value is stored
+ * in the agent (i.e. which has no getter, setter or function) receives a slot index. The layout of a species always
+ * begins with the layout of its parent, so that the slot of an inherited attribute is the same in the parent and in
+ * all its descendants. Attributes that are not declared (or not stored) remain in the map of attributes of the agents.
+ *
+ * @see SpeciesDescription#getSlotLayout()
+ * @see msi.gama.metamodel.agent.AgentSlots
+ */
+public final class SlotLayout {
+
+	/** The empty layout, used by species that do not declare any stored attribute. */
+	public static final SlotLayout EMPTY = new SlotLayout(null, new String[0], new boolean[0]);
+
+	/** The layout of the parent species, if any. */
+	private final SlotLayout parent;
+
+	/** The names of the attributes, indexed by slot. */
+	private final String[] names;
+
+	/** Whether the slots are used (false for inherited attributes redefined as functions, etc.). */
+	private final boolean[] stored;
+
+	/** The slots indexed by the name of the attributes. */
+	private final Map<String, Integer> indices;
+
+	/**
+	 * Instantiates a new slot layout.
+	 *
+	 * @param parent
+	 *            the parent layout
+	 * @param names
+	 *            the names of the attributes
+	 * @param stored
+	 *            whether the slots are used
+	 */
+	private SlotLayout(final SlotLayout parent, final String[] names, final boolean[] stored) {
+		this.parent = parent;
+		this.names = names;
+		this.stored = stored;
+		this.indices = new HashMap<>();
+		for (int slot = 0; slot < names.length; slot++) { if (stored[slot]) { indices.put(names[slot], slot); } }
+	}
+
+	/**
+	 * Builds the layout of a species from the layout of its parent and its own attributes.
+	 *
+	 * @param parent
+	 *            the layout of the parent species (can be null)
+	 * @param own
+	 *            the attributes declared or redefined in the species
+	 * @return the slot layout
+	 */
+	public static SlotLayout of(final SlotLayout parent, final Iterable<VariableDescription> own) {
+		final SlotLayout p = parent == null ? EMPTY : parent;
+		String[] names = Arrays.copyOf(p.names, p.names.length);
+		boolean[] stored = Arrays.copyOf(p.stored, p.stored.length);
+		int size = names.length;
+		boolean changed = false;
+		for (final VariableDescription vd : own) {
+			final String name = vd.getName();
+			final boolean isStored = isStored(vd);
+			final Integer existing = p.indices.get(name);
+			if (existing != null) {
+				// An inherited slot is kept only if the redefinition still stores its values in the agents. Otherwise,
+				// the attribute goes back to the map of attributes in this species
+				if (!isStored) {
+					stored[existing] = false;
+					changed = true;
+				}
+				continue;
+			}
+			if (!isStored) { continue; }
+			if (size == names.length) {
+				names = Arrays.copyOf(names, size + 8);
+				stored = Arrays.copyOf(stored, size + 8);
+			}
+			names[size] = name;
+			stored[size++] = true;
+			changed = true;
+		}
+		if (!changed) return p;
+		return new SlotLayout(p, Arrays.copyOf(names, size), Arrays.copyOf(stored, size));
+	}
+
+	/**
+	 * Whether the value of the attribute is stored in the agents.
+	 *
+	 * @param vd
+	 *            the description of the attribute
+	 * @return true, if it receives a slot
+	 */
+	public static boolean isStored(final VariableDescription vd) {
+		return vd.getGetter() == null && vd.getSetter() == null && !vd.isFunction()
+				&& !vd.isSyntheticSpeciesContainer();
+	}
+
+	/**
+	 * Returns the slot of the attribute, or -1 if it is not stored in a slot.
+	 *
+	 * @param name
+	 *            the name of the attribute
+	 * @return the slot index
+	 */
+	public int indexOf(final String name) {
+		final Integer slot = indices.get(name);
+		return slot == null ? -1 : slot;
+	}
+
+	/**
+	 * Whether this layout is the one of the species or of one of its descendants. Only in this case can a slot index
+	 * computed from the layout be used with an agent having this layout.
+	 *
+	 * @param other
+	 *            the other layout
+	 * @return true, if successful
+	 */
+	public boolean extendsLayout(final SlotLayout other) {
+		SlotLayout l = this;
+		while (l != null) {
+			if (l == other) return true;
+			l = l.parent;
+		}
+		return false;
+	}
+
+	/**
+	 * The number of slots (including the ones not used anymore).
+	 *
+	 * @return the int
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * Whether the slot is used by this layout.
+	 *
+	 * @param slot
+	 *            the slot
+	 * @return true, if is stored
+	 */
+	public boolean isStored(final int slot) {
+		return stored[slot];
+	}
+
+	/**
+	 * Name of the attribute stored in the slot.
+	 *
+	 * @param slot
+	 *            the slot
+	 * @return the name
+	 */
+	public String nameOf(final int slot) {
+		return names[slot];
+	}
+
+	/**
+	 * Checks if is empty.
+	 *
+	 * @return true, if is empty
+	 */
+	public boolean isEmpty() { return indices.isEmpty(); }
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("[");
+		for (int slot = 0; slot < names.length; slot++) {
+			if (!stored[slot]) { continue; }
+			if (sb.length() > 1) { sb.append(", "); }
+			sb.append(slot).append(':').append(names[slot]);
+		}
+		return sb.append(']').toString();
+	}
+
+}
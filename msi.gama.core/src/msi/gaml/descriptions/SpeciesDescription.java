@@ -86,6 +86,9 @@ public class SpeciesDescription extends TypeDescription {
 	/** The java base. */
 	protected Class javaBase;
 
+	/** The layout of the attributes stored in slots by the agents of this species. Lazily computed */
+	private SlotLayout slotLayout;
+
 	/**
 	 * Instantiates a new species description.
 	 *
@@ -187,6 +190,7 @@ public class SpeciesDescription extends TypeDescription {
 			control = null;
 		}
 		microSpecies = null;
+		slotLayout = null;
 
 	}
 
@@ -371,6 +375,7 @@ public class SpeciesDescription extends TypeDescription {
 			}
 		} else if (desc instanceof VariableDescription) {
 			addOwnAttribute((VariableDescription) desc);
+			slotLayout = null;
 		} else if (desc instanceof SpeciesDescription) { addMicroSpecies((SpeciesDescription) desc); }
 		return desc;
 	}
@@ -595,6 +600,20 @@ public class SpeciesDescription extends TypeDescription {
 	@Override
 	public SpeciesDescription getParent() { return (SpeciesDescription) super.getParent(); }
 
+	/**
+	 * Returns the layout of the attributes stored in slots by the agents of this species. It extends the layout of the
+	 * parent species, so that inherited attributes keep the same slot. Computed once, when the attributes are known.
+	 *
+	 * @return the slot layout
+	 */
+	public synchronized SlotLayout getSlotLayout() {
+		if (slotLayout == null) {
+			final SpeciesDescription p = getParent();
+			slotLayout = SlotLayout.of(p == null || p == this ? null : p.getSlotLayout(), getOwnAttributes());
+		}
+		return slotLayout;
+	}
+
 	@Override
 	public void inheritFromParent() {
 		final SpeciesDescription parent = getParent();
@@ -621,6 +640,9 @@ public class SpeciesDescription extends TypeDescription {
 
 		}
 		super.inheritFromParent();
+		// The inherited attributes are now known: a layout computed before (e.g. by an expression compiled early) is
+		// replaced, and the slots resolved with it will simply not be used
+		slotLayout = null;
 
 	}
 
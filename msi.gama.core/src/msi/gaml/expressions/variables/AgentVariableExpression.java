@@ -10,12 +10,16 @@
  ********************************************************************************************************/
 package msi.gaml.expressions.variables;
 
+import msi.gama.metamodel.agent.AbstractAgent;
+import msi.gama.metamodel.agent.AgentSlots;
+import msi.gama.metamodel.agent.IAgent;
 import msi.gama.precompiler.GamlProperties;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.ICollector;
 import msi.gaml.descriptions.IDescription;
 import msi.gaml.descriptions.IVarDescriptionUser;
+import msi.gaml.descriptions.SlotLayout;
 import msi.gaml.descriptions.SpeciesDescription;
 import msi.gaml.descriptions.VariableDescription;
 import msi.gaml.expressions.IExpression;
@@ -27,8 +31,16 @@ import msi.gaml.types.IType;
  */
 public class AgentVariableExpression extends VariableExpression implements IVarExpression.Agent {
 
+	/** The layout of the species in which the expression is defined. */
+	private final SlotLayout layout;
+
+	/** The slot of the attribute in this layout, or -1 if its value is not stored in a slot. */
+	private final int slot;
+
 	/**
-	 * Instantiates a new agent variable expression.
+	 * Instantiates a new agent variable expression. The slot of the attribute is resolved when the expression is
+	 * compiled, in the layout of the species in which it is defined: as inherited attributes keep their slot, it is
+	 * also valid for the agents of the sub-species.
 	 *
 	 * @param n
 	 *            the n
@@ -43,6 +55,9 @@ public class AgentVariableExpression extends VariableExpression implements IVarE
 	public AgentVariableExpression(final String n, final IType type, final boolean notModifiable,
 			final IDescription def) {
 		super(n, type, notModifiable, def);
+		final SpeciesDescription species = def == null ? null : def.getSpeciesContext();
+		layout = species == null ? SlotLayout.EMPTY : species.getSlotLayout();
+		slot = layout.indexOf(n);
 	}
 
 	@Override
@@ -52,7 +67,15 @@ public class AgentVariableExpression extends VariableExpression implements IVarE
 
 	@Override
 	public Object _value(final IScope scope) throws GamaRuntimeException {
-		return scope.getAgentVarValue(scope.getAgent(), getName());
+		final IAgent agent = scope.getAgent();
+		if (agent == null || agent.dead() || scope.interrupted()) return null;
+		// Stored attributes are read directly in the slots of the agent, without looking the attribute up by name.
+		// Agents of other species, unassigned slots and computed attributes go through the variable of the species
+		if (slot >= 0 && agent instanceof AbstractAgent aa) {
+			final Object value = aa.getSlotValue(layout, slot);
+			if (value != AgentSlots.UNASSIGNED) return value;
+		}
+		return scope.getAgentVarValue(agent, getName());
 	}
 
 	@Override
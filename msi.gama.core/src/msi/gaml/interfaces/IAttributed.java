@@ -89,7 +89,10 @@ public interface IAttributed {
 
 	default void copyAttributesOf(final IAttributed source) {
 		if (source == null) return;
-		setAttributes(source.getAttributes(false));
+		source.forEachAttribute((k, v) -> {
+			setAttribute(k, v);
+			return true;
+		});
 	}
 
 	/**
@@ -79,7 +79,9 @@ import msi.gama.util.graph.GamaGraph;
 import msi.gama.util.graph.GraphAlgorithmsHandmade;
 import msi.gama.util.graph.GraphFromAgentContainerSynchronizer;
 import msi.gama.util.graph.IGraph;
+import msi.gama.util.graph.PathCache;
 import msi.gama.util.graph.PathComputer;
+import msi.gama.util.graph.PathMatrix;
 import msi.gama.util.graph.layout.LayoutCircle;
 import msi.gama.util.graph.layout.LayoutForceDirected;
 import msi.gama.util.graph.layout.LayoutGrid;
@@ -2000,6 +2002,120 @@ public class Graphs {
 		return g;
 	}
 
+	/**
+	 * Sets the maximal number of paths of the cache of shortest paths.
+	 *
+	 * @param g
+	 *            the g
+	 * @param size
+	 *            the size
+	 * @return the i graph
+	 */
+	@operator (
+			value = "with_cache_size",
+			content_type = ITypeProvider.CONTENT_TYPE_AT_INDEX + 1,
+			index_type = ITypeProvider.KEY_TYPE_AT_INDEX + 1,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH, IConcept.OPTIMIZATION })
+	@doc (
+			value = "sets the maximal number of shortest paths kept in the cache of the graph (0 for no limit, the default). Beyond, the least recently used paths are evicted (see 'with_cache_policy').",
+			comment = "WARNING / side effect: this operator modifies the operand and does not create a new graph.",
+			examples = @example (
+					value = "road_network <- road_network with_cache_size 50000;",
+					isExecutable = false),
+			see = { "use_cache", "with_cache_memory", "with_cache_policy", "cache_statistics" })
+	@no_test
+	public static IGraph setCacheSize(final IGraph g, final int size) {
+		g.getPathComputer().getPathCache().setMaxPaths(size);
+		return g;
+	}
+
+	/**
+	 * Sets the maximal memory of the cache of shortest paths.
+	 *
+	 * @param g
+	 *            the g
+	 * @param megabytes
+	 *            the megabytes
+	 * @return the i graph
+	 */
+	@operator (
+			value = "with_cache_memory",
+			content_type = ITypeProvider.CONTENT_TYPE_AT_INDEX + 1,
+			index_type = ITypeProvider.KEY_TYPE_AT_INDEX + 1,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH, IConcept.OPTIMIZATION })
+	@doc (
+			value = "sets the maximal memory (in MB, estimated) used by the cache of shortest paths of the graph: 0 for no limit, a negative value to use the one defined in the preferences (the default). Beyond, the least recently used paths are evicted (see 'with_cache_policy').",
+			comment = "WARNING / side effect: this operator modifies the operand and does not create a new graph.",
+			examples = @example (
+					value = "road_network <- road_network with_cache_memory 256.0;",
+					isExecutable = false),
+			see = { "use_cache", "with_cache_size", "with_cache_policy", "cache_statistics" })
+	@no_test
+	public static IGraph setCacheMemory(final IGraph g, final double megabytes) {
+		g.getPathComputer().getPathCache().setMaxMemory(megabytes);
+		return g;
+	}
+
+	/**
+	 * Sets the eviction policy of the cache of shortest paths.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param g
+	 *            the g
+	 * @param policy
+	 *            the policy
+	 * @return the i graph
+	 */
+	@operator (
+			value = "with_cache_policy",
+			content_type = ITypeProvider.CONTENT_TYPE_AT_INDEX + 1,
+			index_type = ITypeProvider.KEY_TYPE_AT_INDEX + 1,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH, IConcept.OPTIMIZATION })
+	@doc (
+			value = "sets the policy used to evict shortest paths from the cache of the graph when it is full: 'lru' (the least recently used paths, the default) or 'lfu' (the least frequently used among the least recently used ones)",
+			comment = "WARNING / side effect: this operator modifies the operand and does not create a new graph.",
+			examples = @example (
+					value = "road_network <- road_network with_cache_policy \"lfu\";",
+					isExecutable = false),
+			see = { "use_cache", "with_cache_size", "with_cache_memory", "cache_statistics" })
+	@no_test
+	public static IGraph setCachePolicy(final IScope scope, final IGraph g, final String policy) {
+		final PathCache.Policy p = switch (policy == null ? "" : policy.toLowerCase()) {
+			case "lru" -> PathCache.Policy.LRU;
+			case "lfu" -> PathCache.Policy.LFU;
+			default -> throw GamaRuntimeException
+					.error("The cache policy " + policy + " does not exist. Possible policies: [lru, lfu]", scope);
+		};
+		g.getPathComputer().getPathCache().setPolicy(p);
+		return g;
+	}
+
+	/**
+	 * Returns the statistics of the cache of shortest paths.
+	 *
+	 * @param g
+	 *            the g
+	 * @return the map
+	 */
+	@operator (
+			value = "cache_statistics",
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH, IConcept.OPTIMIZATION })
+	@doc (
+			value = "Returns the statistics of the cache of shortest paths of the graph: the number of paths found in the cache ('hits') or not ('misses'), the 'hit_ratio', the number of paths evicted ('evictions'), the number of times the cache has been cleared because the graph was modified ('invalidations'), the number of paths ('paths') and of distinct edges ('edges') it contains, its estimated memory in bytes ('memory'), its limits ('max_paths', 'max_memory') and its eviction 'policy'",
+			examples = @example (
+					value = "write cache_statistics(road_network)[\"hit_ratio\"];",
+					isExecutable = false),
+			see = { "use_cache", "with_cache_size", "with_cache_memory", "with_cache_policy" })
+	@no_test
+	public static IMap<String, Object> getCacheStatistics(final IGraph g) {
+		return g.getPathComputer().getPathCache().getStatistics();
+	}
+
 	/**
 	 * As directed graph.
 	 *
@@ -2377,6 +2493,199 @@ public class Graphs {
 		return graph.getPathComputer().computeShortestPathBetween(scope, source, target);
 	}
 
+	/**
+	 * Returns the vertices of the graph corresponding to a list of objects: the objects themselves if they are
+	 * vertices, or, for spatial graphs, the vertices at their location.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param graph
+	 *            the graph
+	 * @param objects
+	 *            the objects
+	 * @return the vertices (or the objects themselves, which cannot be reached, if no vertex is found)
+	 */
+	private static List<Object> verticesOf(final IScope scope, final IGraph graph, final IContainer<?, ?> objects) {
+		final List<Object> result = new ArrayList<>();
+		if (objects == null) return result;
+		for (final Object o : objects.iterable(scope)) {
+			Object vertex = o;
+			if (!graph.containsVertex(o) && graph instanceof GamaSpatialGraph gsg && o instanceof IShape shape) {
+				final IShape built = gsg.getBuiltVertex(shape.getLocation());
+				if (built != null) { vertex = built; }
+			}
+			result.add(vertex);
+		}
+		return result;
+	}
+
+	/**
+	 * Distances between several sources and several targets.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param graph
+	 *            the graph
+	 * @param sources
+	 *            the sources
+	 * @param targets
+	 *            the targets
+	 * @return the matrix of distances
+	 */
+	@operator (
+			value = "distances_between",
+			type = IType.MATRIX,
+			content_type = IType.FLOAT,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH })
+	@doc (
+			value = "The matrix of the lengths of the shortest paths in the graph between each source (rows) and each target (columns), #infinity when a target cannot be reached. Sources and targets that are not vertices of a spatial graph are replaced by the vertex at their location. When the graph can be compressed (see the preferences), a single search is run from each source until all the targets are reached, and the sources are processed in parallel.",
+			examples = { @example (
+					value = "matrix<float> od <- distances_between(road_network, origins, destinations);",
+					isExecutable = false) },
+			see = { "paths_between", "distances_from", "paths_from", "path_between" })
+	@test ("""
+			graph<geometry, geometry> g <- directed(as_edge_graph([edge({10,5}, {20,3}), edge({10,5}, {30,30}),edge({30,30}, {80,35}),edge({80,35}, {40,60}),edge({80,35}, {10,5})]));
+			matrix<float> m <- distances_between(g, [{10,5}, {30,30}], [{80,35}, {40,60}]);
+			m[1, 0] = (g path_between ({10,5}, {40,60})).weight
+			""")
+	public static GamaFloatMatrix distancesBetween(final IScope scope, final IGraph graph,
+			final IContainer<?, ?> sources, final IContainer<?, ?> targets) throws GamaRuntimeException {
+		final PathMatrix<?, ?> paths = graph.getPathComputer().computeShortestPathsBetween(scope,
+				verticesOf(scope, graph, sources), verticesOf(scope, graph, targets), false);
+		final double[][] distances = paths.getDistances();
+		final int cols = paths.getTargets().size();
+		final GamaFloatMatrix result = new GamaFloatMatrix(cols, distances.length);
+		for (int i = 0; i < distances.length; i++) {
+			java.lang.System.arraycopy(distances[i], 0, result.getMatrix(), i * cols, cols);
+		}
+		return result;
+	}
+
+	/**
+	 * Paths between several sources and several targets.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param graph
+	 *            the graph
+	 * @param sources
+	 *            the sources
+	 * @param targets
+	 *            the targets
+	 * @return the list of the paths from each source
+	 */
+	@operator (
+			value = "paths_between",
+			type = IType.LIST,
+			content_type = IType.LIST,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH })
+	@doc (
+			value = "The shortest paths in the graph between each source and each target, as a list (one element per source) of lists of paths (one per target). Sources and targets that are not vertices of a spatial graph are replaced by the vertex at their location. When the graph can be compressed (see the preferences), a single search is run from each source until all the targets are reached, and the sources are processed in parallel.",
+			examples = { @example (
+					value = "list<list<path>> routes <- paths_between(road_network, origins, destinations);",
+					isExecutable = false) },
+			see = { "distances_between", "distances_from", "paths_from", "path_between" })
+	@test ("""
+			graph<geometry, geometry> g <- directed(as_edge_graph([edge({10,5}, {20,3}), edge({10,5}, {30,30}),edge({30,30}, {80,35}),edge({80,35}, {40,60}),edge({80,35}, {10,5})]));
+			list<list<path>> p <- paths_between(g, [{10,5}, {30,30}], [{80,35}, {40,60}]);
+			length(p) = 2 and length(p[1]) = 2 and p[0][1].weight = (g path_between ({10,5}, {40,60})).weight
+					and p[1][0].weight = (g path_between ({30,30}, {80,35})).weight
+			""")
+	public static IList<IList<IPath>> pathsBetween(final IScope scope, final IGraph graph,
+			final IContainer<?, ?> sources, final IContainer<?, ?> targets) throws GamaRuntimeException {
+		final PathMatrix<?, ?> paths = graph.getPathComputer().computeShortestPathsBetween(scope,
+				verticesOf(scope, graph, sources), verticesOf(scope, graph, targets));
+		final IList<IList<IPath>> result = GamaListFactory.create(Types.LIST.of(Types.PATH));
+		for (int i = 0; i < paths.getSources().size(); i++) {
+			final IList<IPath> row = GamaListFactory.create(Types.PATH);
+			for (int j = 0; j < paths.getTargets().size(); j++) { row.add(paths.getPath(scope, i, j)); }
+			result.add(row);
+		}
+		return result;
+	}
+
+	/**
+	 * Distances from a source to several targets.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param graph
+	 *            the graph
+	 * @param source
+	 *            the source
+	 * @param targets
+	 *            the targets
+	 * @return the list of distances
+	 */
+	@operator (
+			value = "distances_from",
+			type = IType.LIST,
+			content_type = IType.FLOAT,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH })
+	@doc (
+			value = "The lengths of the shortest paths in the graph between the source and each target, computed with a single search (#infinity when a target cannot be reached)",
+			examples = { @example (
+					value = "list<float> d <- distances_from(road_network, home, shops);",
+					isExecutable = false) },
+			see = { "distances_between", "paths_between", "paths_from", "path_between" })
+	@test ("""
+			graph<geometry, geometry> g <- directed(as_edge_graph([edge({10,5}, {20,3}), edge({10,5}, {30,30}),edge({30,30}, {80,35}),edge({80,35}, {40,60}),edge({80,35}, {10,5})]));
+			list<float> d <- distances_from(g, {10,5}, [{80,35}, {40,60}]);
+			d[1] = (g path_between ({10,5}, {40,60})).weight and distances_from(g, {20,3}, [{10,5}])[0] = #infinity
+			""")
+	public static IList<Double> distancesFrom(final IScope scope, final IGraph graph, final Object source,
+			final IContainer<?, ?> targets) throws GamaRuntimeException {
+		final PathMatrix<?, ?> paths = graph.getPathComputer().computeShortestPathsBetween(scope,
+				verticesOf(scope, graph, GamaListFactory.wrap(Types.NO_TYPE, source)),
+				verticesOf(scope, graph, targets), false);
+		final IList<Double> result = GamaListFactory.create(Types.FLOAT);
+		for (final double d : paths.getDistances()[0]) { result.add(d); }
+		return result;
+	}
+
+	/**
+	 * Paths from a source to several targets.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param graph
+	 *            the graph
+	 * @param source
+	 *            the source
+	 * @param targets
+	 *            the targets
+	 * @return the list of paths
+	 */
+	@operator (
+			value = "paths_from",
+			type = IType.LIST,
+			content_type = IType.PATH,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH })
+	@doc (
+			value = "The shortest paths in the graph between the source and each target, computed with a single search",
+			examples = { @example (
+					value = "list<path> routes <- paths_from(road_network, home, shops);",
+					isExecutable = false) },
+			see = { "distances_between", "paths_between", "distances_from", "path_between" })
+	@test ("""
+			graph<geometry, geometry> g <- directed(as_edge_graph([edge({10,5}, {20,3}), edge({10,5}, {30,30}),edge({30,30}, {80,35}),edge({80,35}, {40,60}),edge({80,35}, {10,5})]));
+			list<path> p <- paths_from(g, {10,5}, [{80,35}, {40,60}]);
+			length(p) = 2 and p[1].weight = (g path_between ({10,5}, {40,60})).weight and length(p[1].edges) = 3
+			""")
+	public static IList<IPath> pathsFrom(final IScope scope, final IGraph graph, final Object source,
+			final IContainer<?, ?> targets) throws GamaRuntimeException {
+		final PathMatrix<?, ?> paths = graph.getPathComputer().computeShortestPathsBetween(scope,
+				verticesOf(scope, graph, GamaListFactory.wrap(Types.NO_TYPE, source)),
+				verticesOf(scope, graph, targets));
+		final IList<IPath> result = GamaListFactory.create(Types.PATH);
+		for (int j = 0; j < paths.getTargets().size(); j++) { result.add(paths.getPath(scope, 0, j)); }
+		return result;
+	}
+
 	/**
 	 * Kpaths between.
 	 *
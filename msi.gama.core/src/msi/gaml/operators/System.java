@@ -30,6 +30,7 @@ import msi.gama.common.util.FileUtils;
 import msi.gama.kernel.experiment.IParameter;
 import msi.gama.kernel.experiment.InputParameter;
 import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.population.IPopulation;
 import msi.gama.precompiler.GamlAnnotations.doc;
 import msi.gama.precompiler.GamlAnnotations.example;
 import msi.gama.precompiler.GamlAnnotations.no_test;
@@ -49,6 +50,7 @@ import msi.gama.util.IList;
 import msi.gama.util.IMap;
 import msi.gaml.descriptions.ActionDescription;
 import msi.gaml.expressions.IExpression;
+import msi.gaml.species.ISpecies;
 import msi.gaml.types.GamaType;
 import msi.gaml.types.IType;
 import msi.gaml.types.Types;
@@ -119,6 +121,33 @@ public class System {
 		return false;
 	}
 
+	/**
+	 * Parallel statistics.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param species
+	 *            the species
+	 * @return the map
+	 */
+	@operator (
+			value = "parallel_statistics",
+			category = { IOperatorCategory.SYSTEM },
+			concept = { IConcept.SYSTEM, IConcept.SPECIES, IConcept.SCHEDULER })
+	@doc (
+			value = "Returns the statistics of the last parallel step of the population of the species in the current simulation, or in the current host for micro-species (see the facet 'parallel:'): the number of parallel steps ('cycles'), the number of agents stepped ('agents'), the number of chunks of agents ('chunks') and their size ('agents_per_chunk'), the number of workers ('workers'), the average time needed to step an agent ('agent_time'), the duration of the step ('step_time') and the time spent by the workers ('busy_time') in milliseconds, and the balance of the work between the workers, between 0 and 1 ('balance'). The size of the chunks is adapted, step after step, to the cost of the agents",
+			examples = @example (
+					value = "write parallel_statistics(ant)[\"balance\"];",
+					isExecutable = false))
+	@no_test
+	@SuppressWarnings ("unchecked")
+	public static IMap<String, Object> opParallelStatistics(final IScope scope, final ISpecies species) {
+		final IAgent agent = scope.getAgent();
+		final IPopulation<?> population = species == null || agent == null ? null : agent.getPopulationFor(species);
+		if (population == null) return GamaMapFactory.create(Types.STRING, Types.NO_TYPE);
+		return population.getStepStatistics().toMap(scope);
+	}
+
 	/**
 	 * Checks if is warning.
 	 *
@@ -11,6 +11,7 @@
 package msi.gaml.skills;
 
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -25,6 +26,7 @@ import msi.gama.precompiler.GamlAnnotations.skill;
 import msi.gama.precompiler.IConcept;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.concurrent.GamaExecutorService;
+import msi.gama.runtime.concurrent.SharedExecutor;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gaml.species.ISpecies;
 import msi.gaml.statements.IStatement;
@@ -45,8 +47,8 @@ import msi.gaml.types.IType;
 		concept = { IConcept.SKILL, IConcept.SYSTEM })
 public class ThreadSkill extends Skill {
 
-	/** The executor. */
-	ScheduledExecutorService executor = Executors.newScheduledThreadPool(GamaExecutorService.THREADS_NUMBER.getValue());
+	/** The executor, created when the first thread is started, unless the threads are shared. */
+	ScheduledExecutorService executor;
 
 	/** The Constant ACTION_NAME. */
 	private static final String ACTION_NAME = "thread_action";
@@ -148,7 +150,22 @@ public class ThreadSkill extends Skill {
 	}
 
 	/**
-	 * The Class ControlSubThread.
+	 * Gets the executor.
+	 *
+	 * @return the executor
+	 */
+	synchronized ScheduledExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newScheduledThreadPool(GamaExecutorService.THREADS_NUMBER.getValue());
+		}
+		return executor;
+	}
+
+	/**
+	 * The Class ControlSubThread. When the preference {@link GamaExecutorService#SHARED_THREADS} is set, the action is
+	 * run as a task of the {@link SharedExecutor}, which reschedules itself after each execution, instead of occupying
+	 * a thread of the executor of the skill. Actions run continuously (with an interval of 0) are the exception: they
+	 * always use the executor of the skill, so as not to keep one of the carrier threads of the shared executor busy.
 	 */
 	public class ControlSubThread implements Runnable {
 
@@ -161,6 +178,18 @@ public class ThreadSkill extends Skill {
 		/** The agent. */
 		private final IAgent agent;
 
+		/** Whether the action is run by the shared executor. */
+		private final boolean shared;
+
+		/** Whether the thread has been stopped. */
+		private volatile boolean stopped;
+
+		/** The next execution, when the action is run by the shared executor. */
+		private volatile Future<?> next;
+
+		/** The time of the next execution at a fixed rate (in nanoseconds). */
+		private long deadline;
+
 		/**
 		 * Instantiates a new control sub thread.
 		 *
@@ -175,12 +204,19 @@ public class ThreadSkill extends Skill {
 			this.interval = interval;
 			this.rate = rate;
 			agent = ag;
+			shared = GamaExecutorService.SHARED_THREADS.getValue() && (rate > 0 || interval != 0);
 		}
 
 		/**
 		 * Start.
 		 */
 		public void start() {
+			if (shared) {
+				deadline = System.nanoTime();
+				next = SharedExecutor.schedule(this::runShared, 0);
+				return;
+			}
+			final ScheduledExecutorService executor = getExecutor();
 			if (rate > 0) {
 				sf = executor.scheduleAtFixedRate(this, 0, rate, TimeUnit.MILLISECONDS);
 			} else if (interval > 0) {
@@ -196,7 +232,29 @@ public class ThreadSkill extends Skill {
 		 * Stop.
 		 */
 		public void stop() {
+			stopped = true;
 			if (sf != null && !sf.isCancelled()) { sf.cancel(true); }
+			final Future<?> f = next;
+			if (f != null && !f.isDone()) { f.cancel(false); }
+		}
+
+		/**
+		 * Runs the action once in the shared executor and schedules the next execution: at the next multiple of the
+		 * rate (immediately if the action has taken longer than the rate) or after the interval.
+		 */
+		private void runShared() {
+			if (stopped) return;
+			run();
+			if (stopped) return;
+			final long delay;
+			if (rate > 0) {
+				deadline += rate * 1_000_000L;
+				delay = deadline - System.nanoTime();
+			} else if (interval > 0) {
+				delay = interval * 1_000_000L;
+			} else
+				return;
+			next = SharedExecutor.schedule(this::runShared, delay);
 		}
 
 		@Override
@@ -37,6 +37,7 @@ import msi.gaml.compilation.ISymbol;
 import msi.gaml.compilation.Symbol;
 import msi.gaml.descriptions.IDescription;
 import msi.gaml.descriptions.SkillDescription;
+import msi.gaml.descriptions.SlotLayout;
 import msi.gaml.descriptions.SpeciesDescription;
 import msi.gaml.descriptions.TypeDescription;
 import msi.gaml.expressions.IExpressionFactory;
@@ -98,6 +99,9 @@ public abstract class AbstractSpecies extends Symbol implements ISpecies {
 	/** The control. */
 	final IArchitecture control;
 
+	/** The layout of the attributes stored by the agents. Computed once the variables are known */
+	private SlotLayout slotLayout;
+
 	/**
 	 * Instantiates a new abstract species.
 	 *
@@ -299,6 +303,12 @@ public abstract class AbstractSpecies extends Symbol implements ISpecies {
 		return variables.get(n);
 	}
 
+	@Override
+	public SlotLayout getSlotLayout() {
+		if (slotLayout == null) { slotLayout = getDescription().getSlotLayout(); }
+		return slotLayout;
+	}
+
 	@Override
 	public boolean hasVar(final String name) {
 		return variables.containsKey(name);
@@ -16,6 +16,7 @@ import msi.gama.common.interfaces.IKeyword;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.population.IPopulation;
 import msi.gama.metamodel.shape.IShape;
+import msi.gama.metamodel.topology.ISpatialIndex;
 import msi.gama.precompiler.GamlAnnotations.doc;
 import msi.gama.precompiler.GamlAnnotations.example;
 import msi.gama.precompiler.GamlAnnotations.facet;
@@ -62,6 +63,13 @@ import one.util.streamex.StreamEx;
 				type = { IType.BOOL, IType.INT },
 				optional = true,
 				doc = @doc ("(experimental) setting this facet to 'true' will allow this species to use concurrency when scheduling its agents; setting it to an integer will set the threshold under which they will be run sequentially (the default is initially 20, but can be fixed in the preferences). This facet has a default set in the preferences (Under Performances > Concurrency)")),
+				@facet (
+						name = IKeyword.SPATIAL_INDEX,
+						type = IType.LABEL,
+						optional = true,
+						values = { ISpatialIndex.QUADTREE, ISpatialIndex.CONCURRENT, ISpatialIndex.RTREE,
+								ISpatialIndex.STATIC, ISpatialIndex.CELL_LIST },
+						doc = @doc ("(experimental) the kind of spatial index used to store the agents of this species and to answer the spatial queries made on them. 'quadtree' is the standard quadtree; 'concurrent' is a quadtree that can be safely and efficiently accessed by agents running in parallel (see the facet 'parallel'), without synchronizing all its operations; 'rtree' is a compact R-tree, built in one pass, well suited for agents that do not move (buildings, roads...); 'static' uses such an R-tree as long as few of its agents change (i.e. are created, killed or moved) after it has been built, and a quadtree afterwards; 'cell_list' is a uniform grid of cells, well suited for large numbers of point agents moving in a bounded environment (crowds, epidemics...), as moving an agent is almost free. If not defined, the kind of index of the parent species is used. If no kind is defined at all, species without the 'moving' skill (e.g. the buildings or roads created from shapefiles or OSM files) behave as 'static', while the other ones use a quadtree")),
 				@facet (
 						name = IKeyword.WIDTH,
 						type = IType.INT,
@@ -432,6 +440,13 @@ public class GamlSpecies extends AbstractSpecies {
 	@Override
 	public IExpression getConcurrency() { return concurrency; }
 
+	@Override
+	public String getSpatialIndex() {
+		final String kind = getLiteral(IKeyword.SPATIAL_INDEX);
+		if (kind == null && getParentSpecies() != null) return getParentSpecies().getSpatialIndex();
+		return kind;
+	}
+
 	/**
 	 * Method getSpecies()
 	 *
@@ -28,6 +28,7 @@ import msi.gama.util.IAddressableContainer;
 import msi.gama.util.IList;
 import msi.gaml.architecture.IArchitecture;
 import msi.gaml.compilation.ISymbol;
+import msi.gaml.descriptions.SlotLayout;
 import msi.gaml.descriptions.SpeciesDescription;
 import msi.gaml.expressions.IExpression;
 import msi.gaml.operators.Containers;
@@ -129,6 +130,14 @@ public interface ISpecies
 	 */
 	IExpression getConcurrency();
 
+	/**
+	 * Gets the kind of spatial index in which the agents of this species are stored (see the constants defined in
+	 * {@link msi.gama.metamodel.topology.ISpatialIndex}).
+	 *
+	 * @return the kind of spatial index, or null if the default one is to be used
+	 */
+	default String getSpatialIndex() { return null; }
+
 	/**
 	 * Extends species.
 	 *
@@ -343,6 +352,13 @@ public interface ISpecies
 	 */
 	IVariable getVar(final String n);
 
+	/**
+	 * Gets the layout of the attributes stored in slots by the agents of this species.
+	 *
+	 * @return the slot layout
+	 */
+	default SlotLayout getSlotLayout() { return SlotLayout.EMPTY; }
+
 	/**
 	 * Gets the var names.
 	 *
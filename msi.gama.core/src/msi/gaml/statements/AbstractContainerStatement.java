@@ -10,11 +10,16 @@
  ********************************************************************************************************/
 package msi.gaml.statements;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import msi.gama.common.interfaces.IKeyword;
+import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.IContainer;
+import msi.gama.util.IMap;
 import msi.gama.util.graph.IGraph;
 import msi.gama.util.matrix.GamaFloatMatrix;
 import msi.gaml.compilation.GAML;
@@ -29,6 +34,7 @@ import msi.gaml.expressions.IVarExpression;
 import msi.gaml.expressions.operators.BinaryOperator;
 import msi.gaml.interfaces.IGamlIssue;
 import msi.gaml.operators.Cast;
+import msi.gaml.species.ISpecies;
 import msi.gaml.statements.AbstractContainerStatement.ContainerValidator;
 import msi.gaml.types.IType;
 import msi.gaml.types.Types;
@@ -318,7 +324,8 @@ public abstract class AbstractContainerStatement extends AbstractStatement {
 	@Override
 	public Object privateExecuteIn(final IScope scope) throws GamaRuntimeException {
 		// We then identify the container
-		final IContainer.Modifiable container = identifyContainer(scope);
+		final Object target = list.value(scope);
+		final IContainer.Modifiable container = identifyContainer(scope, target);
 
 		final Object position = identifyIndex(scope, container);
 		final Object object = identifyValue(scope, container);
@@ -328,6 +335,8 @@ public abstract class AbstractContainerStatement extends AbstractStatement {
 		// If the list is an attribute of an agent, we change its value
 		if (isDirect && list instanceof IVarExpression.Agent) {
 			((IVarExpression) list).setVal(scope, container, false);
+		} else if (!isDirect && target instanceof IAgent agent) {
+			updateAttributes(scope, agent, (IMap<String, Object>) container);
 		}
 		// The defaut return value is the changed container
 		return container;
@@ -399,14 +408,51 @@ public abstract class AbstractContainerStatement extends AbstractStatement {
 	 * @throws GamaRuntimeException
 	 * @return the container to which this command will be applied
 	 */
-	private IContainer.Modifiable identifyContainer(final IScope scope) throws GamaRuntimeException {
-		final Object cont = list.value(scope);
+	private IContainer.Modifiable identifyContainer(final IScope scope, final Object cont)
+			throws GamaRuntimeException {
 		if (isDirect) return (IContainer.Modifiable) cont;
+		// Agents return a copy of their attributes, which is written back by updateAttributes()
 		if (cont instanceof IShape) return ((IShape) cont).getOrCreateAttributes();
 		throw GamaRuntimeException.warning("Cannot use " + list.serializeToGaml(false) + ", of type "
 				+ list.getGamlType().toString() + ", as a container", scope);
 	}
 
+	/**
+	 * Writes back in the agent the attributes that have been added, changed or removed in the copy returned by
+	 * {@link IShape#getOrCreateAttributes()}. The declared attributes are set through their variable (so that the
+	 * values stored in slots are updated), the other ones in the map of attributes of the agent.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param agent
+	 *            the agent
+	 * @param copy
+	 *            the modified copy of its attributes
+	 */
+	private void updateAttributes(final IScope scope, final IAgent agent, final IMap<String, Object> copy) {
+		final ISpecies species = agent.getSpecies();
+		final List<String> removed = new ArrayList<>();
+		agent.forEachAttribute((k, v) -> {
+			if (!copy.containsKey(k)) { removed.add(k); }
+			return true;
+		});
+		for (final String k : removed) {
+			if (species != null && species.hasVar(k)) {
+				agent.setDirectVarValue(scope, k, null);
+			} else {
+				agent.getAttributes(true).remove(k);
+			}
+		}
+		copy.forEach((k, v) -> {
+			if (v == agent.getAttribute(k) && agent.hasAttribute(k)) return;
+			if (species != null && species.hasVar(k)) {
+				agent.setDirectVarValue(scope, k, v);
+			} else {
+				agent.setAttribute(k, v);
+			}
+		});
+	}
+
 	/**
 	 * Method to add, remove or put one individual item
 	 *
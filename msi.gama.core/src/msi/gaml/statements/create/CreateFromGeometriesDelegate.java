@@ -15,14 +15,19 @@ import java.util.Map;
 
 import msi.gama.common.interfaces.ICreateDelegate;
 import msi.gama.common.interfaces.IKeyword;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.population.IPopulation;
 import msi.gama.metamodel.shape.GamaPoint;
 import msi.gama.metamodel.shape.IShape;
+import msi.gama.metamodel.topology.ISpatialIndex;
+import msi.gama.metamodel.topology.ITopology;
 import msi.gama.runtime.IScope;
 import msi.gama.util.IAddressableContainer;
 import msi.gama.util.IList;
 import msi.gama.util.file.GamaGeometryFile;
 import msi.gaml.statements.Arguments;
 import msi.gaml.statements.CreateStatement;
+import msi.gaml.statements.RemoteSequence;
 import msi.gaml.types.GamaGeometryType;
 import msi.gaml.types.IType;
 import msi.gaml.types.Types;
@@ -79,6 +84,27 @@ public class CreateFromGeometriesDelegate implements ICreateDelegate {
 		return true;
 	}
 
+	@Override
+	public boolean handlesCreation() {
+		return true;
+	}
+
+	/**
+	 * Creates the agents, then signals to the spatial index that they have been created in bulk, so that the index of
+	 * static species (e.g. buildings or roads read from a shapefile or an OSM file) is packed at once.
+	 */
+	@Override
+	public IList<? extends IAgent> createAgents(final IScope scope, final IPopulation<? extends IAgent> population,
+			final List<Map<String, Object>> inits, final CreateStatement statement, final RemoteSequence sequence) {
+		final IList<? extends IAgent> agents = statement.createAgents(scope, population, inits);
+		final ITopology topology = population.getTopology();
+		if (!agents.isEmpty() && topology != null
+				&& topology.getSpatialIndex() instanceof ISpatialIndex.Compound index) {
+			index.loaded(population.getSpecies());
+		}
+		return agents;
+	}
+
 	/**
 	 * Method fromFacetType()
 	 *
@@ -24,6 +24,8 @@ import msi.gama.common.interfaces.ISkill;
 import msi.gama.common.interfaces.IVarAndActionSupport;
 import msi.gama.common.util.JavaUtils;
 import msi.gama.common.util.StringUtils;
+import msi.gama.metamodel.agent.AbstractAgent;
+import msi.gama.metamodel.agent.AgentSlots;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.precompiler.GamlAnnotations.doc;
 import msi.gama.precompiler.GamlAnnotations.facet;
@@ -48,6 +50,7 @@ import msi.gaml.descriptions.ConstantExpressionDescription;
 import msi.gaml.descriptions.ExperimentDescription;
 import msi.gaml.descriptions.IDescription;
 import msi.gaml.descriptions.IExpressionDescription;
+import msi.gaml.descriptions.SlotLayout;
 import msi.gaml.descriptions.SpeciesDescription;
 import msi.gaml.descriptions.VariableDescription;
 import msi.gaml.expressions.IExpression;
@@ -520,6 +523,12 @@ public class Variable extends Symbol implements IVariable {
 
 	/** The must notify of changes. */
 	protected boolean mustNotifyOfChanges;
+
+	/** The layout of the species in which the slot of the variable has been computed. */
+	protected SlotLayout layout = SlotLayout.EMPTY;
+
+	/** The slot of the variable in the agents of the species, -1 if its value is not stored in a slot */
+	protected int slot = -1;
 	// private Object speciesWideValue;
 
 	/**
@@ -561,6 +570,8 @@ public class Variable extends Symbol implements IVariable {
 		initer = getDescription().getIniter();
 		setter = getDescription().getSetter();
 		if (setter != null) { sSkill = species.getSkillInstanceFor(setter.getSkillClass()); }
+		layout = species.getSlotLayout();
+		slot = layout.indexOf(getName());
 		addListeners(species);
 		mustNotifyOfChanges =
 				listeners != null && listeners.size() > 0 || onChangeExpression != null || on_changer != null;
@@ -649,6 +660,8 @@ public class Variable extends Symbol implements IVariable {
 		initer = null;
 		getter = null;
 		setter = null;
+		layout = SlotLayout.EMPTY;
+		slot = -1;
 		sSkill = null;
 		gSkill = null;
 	}
@@ -800,7 +813,7 @@ public class Variable extends Symbol implements IVariable {
 		val = checkAmong(agent, scope, val);
 		if (setter != null) {
 			setter.run(scope, agent, sSkill == null ? agent : sSkill, val);
-		} else {
+		} else if (slot < 0 || !(agent instanceof AbstractAgent aa) || !aa.setSlotValue(layout, slot, val)) {
 			agent.setAttribute(name, val);
 		}
 		// if (isSpeciesConst) {
@@ -840,6 +853,10 @@ public class Variable extends Symbol implements IVariable {
 		// if (isSpeciesConst) { return speciesWideValue; }
 		if (getter != null) return getter.run(scope, agent, gSkill == null ? agent : gSkill);
 		if (functionExpression != null) return scope.evaluate(functionExpression, agent).getValue();
+		if (slot >= 0 && agent instanceof AbstractAgent aa) {
+			final Object result = aa.getSlotValue(layout, slot);
+			if (result != AgentSlots.UNASSIGNED) return result;
+		}
 		// Var not yet initialized. May happen when asking for its value while initializing an editor
 		// See Issue #2781 + Issue #3920
 		if (!agent.hasAttribute(name) && (isNotModifiable || initExpression != null && initExpression.isConst())
@@ -153,6 +153,9 @@ public class Experiment implements IExperiment {
 
 	}
 
+	@Override
+	public void setCurrentStep(final long step) { this.currentStep = step; }
+
 	@Override
 	public void setParameter(final String parameterName, final Object value) {
 		this.params.put(parameterName, value);
@@ -79,6 +79,14 @@ public interface IExperiment {
 	 */
 	long backStep();
 
+	/**
+	 * Sets the current step, for instance when the simulation has been restored from a checkpoint.
+	 *
+	 * @param step
+	 *            the step
+	 */
+	void setCurrentStep(long step);
+
 	/**
 	 * Checks if is interrupted.
 	 *
@@ -82,6 +82,9 @@ public class ExperimentJob implements IExperimentJob {
 	/** The output file. */
 	protected Writer outputFile;
 
+	/** The checkpointer, null if no checkpoint is taken. */
+	protected JobCheckpointer checkpointer;
+
 	/** The source path. */
 	protected String sourcePath;
 
@@ -164,6 +167,14 @@ public class ExperimentJob implements IExperimentJob {
 	 */
 	public void setBufferedWriter(final Writer w) { this.outputFile = w; }
 
+	/**
+	 * Sets the checkpointer, which periodically saves the simulation and allows to resume the job.
+	 *
+	 * @param c
+	 *            the new checkpointer
+	 */
+	public void setCheckpointer(final JobCheckpointer c) { this.checkpointer = c; }
+
 	@Override
 	public void addParameter(final Parameter p) {
 		this.parameters.add(p);
@@ -276,7 +287,7 @@ public class ExperimentJob implements IExperimentJob {
 	public void load() throws IOException, GamaHeadlessException {
 		System.setProperty("user.dir", this.sourcePath);
 		final List<GamlCompilationError> errors = new ArrayList<>();
-		final IModel mdl = GamlModelBuilder.getDefaultInstance().compile(new File(this.sourcePath), errors, null);
+		final IModel mdl = GamlModelBuilder.getDefaultInstance().compileWithCache(new File(this.sourcePath), errors);
 		this.modelName = mdl.getName();
 		this.simulator = new RichExperiment(mdl);
 	}
@@ -299,12 +310,19 @@ public class ExperimentJob implements IExperimentJob {
 
 	@Override
 	public void play() {
-		if (this.outputFile != null) { this.outputFile.writeSimulationHeader(this); }
-		// DEBUG.LOG("Simulation is running...", false);
 		final long affDelay = finalStep < 100 ? 1 : finalStep / 100;
 
 		try {
-			int step = 0;
+			// A job that cannot be restored from any of its checkpoints fails, rather than running on a simulation
+			// that may have been partially restored
+			final JobCheckpointer.State resumed = checkpointer == null ? null : checkpointer.resume(this);
+			if (resumed != null) {
+				this.step = resumed.step();
+				simulator.setCurrentStep(resumed.step() + 1);
+				if (this.outputFile != null) { this.outputFile.resumeAt(resumed.writerPosition()); }
+			} else if (this.outputFile != null) { this.outputFile.writeSimulationHeader(this); }
+			// DEBUG.LOG("Simulation is running...", false);
+			long step = resumed == null ? 0 : resumed.cycles();
 			// Added because the simulation may be null in case we deal with a batch experiment
 			while (finalStep >= 0 ? step < finalStep : true) {
 				if (step % affDelay == 0) { DEBUG.LOG(".", false); }
@@ -317,9 +335,12 @@ public class ExperimentJob implements IExperimentJob {
 				}
 				doStep();
 				step++;
+				if (checkpointer != null && checkpointer.isDue(step)) { checkpointer.checkpoint(this, step); }
 			}
 		} catch (final GamaRuntimeException e) {
 			DEBUG.ERR("\n The simulation has stopped before the end due to the following exception: ", e);
+		} finally {
+			if (checkpointer != null) { checkpointer.close(this); }
 		}
 	}
 
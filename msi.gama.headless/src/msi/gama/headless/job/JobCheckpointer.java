@@ -0,0 +1,327 @@
+/*******************************************************************************************************
+ *
+ * JobCheckpointer.java, in msi.gama.headless, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.headless.job;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import msi.gama.common.interfaces.ISerialisationConstants;
+import msi.gama.kernel.simulation.SimulationAgent;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import ummisco.gama.dev.utils.DEBUG;
+import ummisco.gama.serializer.implementations.BinarySerialisation;
+
+/**
+ * Periodically writes checkpoints of the simulation of an {@link ExperimentJob}, every n cycles and/or every m
+ * minutes, so that a long headless run can be resumed from its latest checkpoint after an interruption. The
+ * simulation is serialised (with its random number generator and its cycle) between two steps, and streamed to a
+ * temporary file, so that it is never entirely held in memory; this is the only pause imposed to the job, as the file
+ * is synchronised with the disk and renamed in the background. A run interrupted while writing thus always leaves
+ * complete checkpoints. Only the most recent checkpoints of each job are kept.
+ * <p>
+ * A checkpoint file contains a header (the number of cycles played by the job, its last step and the position of its
+ * output writer) followed by the simulation, saved as a sequence of frames compressed by blocks (see
+ * {@link BinarySerialisation#saveToStream}).
+ */
+public class JobCheckpointer {
+
+	static {
+		DEBUG.ON();
+	}
+
+	/** The identifier of checkpoint files. */
+	static final int MAGIC = 0x4743504B;
+
+	/** The prefix of the names of checkpoint files. */
+	static final String PREFIX = "checkpoint-";
+
+	/** The suffix of the names of checkpoint files. */
+	static final String SUFFIX = ".gsim";
+
+	/** The default number of checkpoints kept for each job. */
+	public static final int DEFAULT_KEEP = 3;
+
+	/** The directory in which the checkpoints are written. */
+	final File directory;
+
+	/** The number of cycles between two checkpoints, 0 if not used. */
+	final long everyCycles;
+
+	/** The duration between two checkpoints in milliseconds, 0 if not used. */
+	final long everyMillis;
+
+	/** The number of checkpoints kept. */
+	final int keep;
+
+	/** Whether the job should resume from its latest checkpoint. */
+	final boolean resume;
+
+	/** The executor used to write the checkpoints. A single thread, which stops when there is nothing to write. */
+	final ExecutorService executor = new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+
+	/** The checkpoint being written, if any. */
+	Future<?> pending;
+
+	/** The time of the last checkpoint. */
+	long lastTime = System.currentTimeMillis();
+
+	/** The number of checkpoints taken. */
+	int count;
+
+	/** The total and maximal pauses imposed to the job, in nanoseconds. */
+	long totalPause, maxPause;
+
+	/**
+	 * The state of a job recorded in a checkpoint, besides its simulation.
+	 *
+	 * @param cycles
+	 *            the number of cycles played
+	 * @param step
+	 *            the last step returned by the simulator
+	 * @param writerPosition
+	 *            the position of the output writer, -1 if unknown
+	 */
+	public record State(long cycles, long step, long writerPosition) {}
+
+	/**
+	 * Instantiates a new job checkpointer.
+	 *
+	 * @param directory
+	 *            the directory in which the checkpoints are written
+	 * @param everyCycles
+	 *            the number of cycles between two checkpoints, 0 to not use it
+	 * @param everyMinutes
+	 *            the number of minutes between two checkpoints, 0 to not use it
+	 * @param keep
+	 *            the number of checkpoints to keep for each job
+	 * @param resume
+	 *            whether the job should resume from its latest checkpoint
+	 */
+	public JobCheckpointer(final String directory, final long everyCycles, final long everyMinutes, final int keep,
+			final boolean resume) {
+		this.directory = new File(directory);
+		this.directory.mkdirs();
+		this.everyCycles = Math.max(0, everyCycles);
+		this.everyMillis = Math.max(0, everyMinutes) * 60_000L;
+		this.keep = Math.max(1, keep);
+		this.resume = resume;
+	}
+
+	/**
+	 * Whether a checkpoint should be taken after a number of cycles.
+	 *
+	 * @param cycles
+	 *            the number of cycles played by the job
+	 * @return true, if a checkpoint is due
+	 */
+	public boolean isDue(final long cycles) {
+		return everyCycles > 0 && cycles % everyCycles == 0
+				|| everyMillis > 0 && System.currentTimeMillis() - lastTime >= everyMillis;
+	}
+
+	/**
+	 * Takes a checkpoint of a job: streams its simulation to a temporary file and schedules the synchronisation and the
+	 * renaming of the file. If the previous checkpoint is still being completed, waits for it first. The pause imposed
+	 * to the job is measured and reported.
+	 *
+	 * @param job
+	 *            the job
+	 * @param cycles
+	 *            the number of cycles played by the job
+	 */
+	public void checkpoint(final ExperimentJob job, final long cycles) {
+		final SimulationAgent sim = job.simulator.getSimulation();
+		if (sim == null) return;
+		final long start = System.nanoTime();
+		await();
+		final State state = new State(cycles, job.step, job.outputFile == null ? -1 : job.outputFile.getPosition());
+		final String id = job.getExperimentID();
+		final File target = new File(directory, PREFIX + id + "-" + state.cycles() + SUFFIX);
+		final File temp = new File(directory, target.getName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeInt(MAGIC);
+			out.writeLong(state.cycles());
+			out.writeLong(state.step());
+			out.writeLong(state.writerPosition());
+			BinarySerialisation.saveToStream(sim.getScope(), sim, out, ISerialisationConstants.BINARY_FORMAT, true);
+		} catch (final IOException | RuntimeException e) {
+			DEBUG.ERR("Impossible to write the checkpoint " + target + ": " + e.getMessage());
+			temp.delete();
+			return;
+		}
+		final long pause = System.nanoTime() - start;
+		count++;
+		totalPause += pause;
+		maxPause = Math.max(maxPause, pause);
+		lastTime = System.currentTimeMillis();
+		DEBUG.LOG("Checkpoint of " + job.getExperimentID() + " at cycle " + cycles + ": pause of " + pause / 1000000
+				+ "ms");
+		pending = executor.submit(() -> complete(id, temp, target));
+	}
+
+	/**
+	 * Completes a checkpoint written to a temporary file: synchronises the file with the disk, renames it and removes
+	 * the oldest checkpoints of the job.
+	 *
+	 * @param id
+	 *            the id of the job
+	 * @param temp
+	 *            the temporary file
+	 * @param target
+	 *            the checkpoint file
+	 */
+	private void complete(final String id, final File temp, final File target) {
+		try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)) {
+			channel.force(true);
+		} catch (final IOException e) {
+			DEBUG.ERR("Impossible to write the checkpoint " + target + ": " + e.getMessage());
+			temp.delete();
+			return;
+		}
+		try {
+			Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (final IOException e) {
+			DEBUG.ERR("Impossible to rename the checkpoint " + target + ": " + e.getMessage());
+			return;
+		}
+		final File[] all = checkpointsOf(id);
+		for (int i = 0; i < all.length - keep; i++) { all[i].delete(); }
+	}
+
+	/**
+	 * Restores a job from its latest checkpoint that can be restored, if it is asked to resume and checkpoints exist.
+	 * The checkpoints are tried from the most recent to the oldest. The simulation of the job must have been set up.
+	 *
+	 * @param job
+	 *            the job
+	 * @return the state of the job recorded in the checkpoint, or null if the job starts from the beginning
+	 * @throws GamaRuntimeException
+	 *             if none of the checkpoints can be restored, as the simulation may have been partially modified
+	 */
+	public State resume(final ExperimentJob job) throws GamaRuntimeException {
+		if (!resume) return null;
+		final SimulationAgent sim = job.simulator.getSimulation();
+		final File[] all = checkpointsOf(job.getExperimentID());
+		if (sim == null || all.length == 0) return null;
+		for (int i = all.length - 1; i >= 0; i--) {
+			final State state = restore(sim, all[i]);
+			if (state != null) {
+				DEBUG.LOG("Job " + job.getExperimentID() + " resumed from " + all[i] + " at cycle " + state.cycles());
+				return state;
+			}
+		}
+		throw GamaRuntimeException.error("None of the " + all.length + " checkpoints of " + job.getExperimentID()
+				+ " in " + directory + " can be restored", sim.getScope());
+	}
+
+	/**
+	 * Restores a simulation from a checkpoint. All the frames of the simulation are read before it is modified, so
+	 * that a truncated or corrupted file leaves it untouched.
+	 *
+	 * @param sim
+	 *            the simulation
+	 * @param file
+	 *            the checkpoint file
+	 * @return the state of the job recorded in the checkpoint, or null if it cannot be restored
+	 */
+	private State restore(final SimulationAgent sim, final File file) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+			if (in.readInt() != MAGIC) throw new IOException("not a checkpoint file");
+			final State state = new State(in.readLong(), in.readLong(), in.readLong());
+			BinarySerialisation.restoreFromStream(sim, in);
+			return state;
+		} catch (final IOException | RuntimeException e) {
+			DEBUG.ERR("Impossible to resume from the checkpoint " + file + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * The complete checkpoints of a job, from the oldest to the most recent.
+	 *
+	 * @param id
+	 *            the id of the job
+	 * @return the files
+	 */
+	File[] checkpointsOf(final String id) {
+		final String prefix = PREFIX + id + "-";
+		final File[] files = directory.listFiles((d, name) -> name.startsWith(prefix) && name.endsWith(SUFFIX)
+				&& cyclesOf(name, prefix) >= 0);
+		if (files == null) return new File[0];
+		Arrays.sort(files, Comparator.comparingLong(f -> cyclesOf(f.getName(), prefix)));
+		return files;
+	}
+
+	/**
+	 * The number of cycles encoded in the name of a checkpoint file.
+	 *
+	 * @param name
+	 *            the name of the file
+	 * @param prefix
+	 *            the prefix of the names of the checkpoints of the job
+	 * @return the number of cycles, or -1 if the name is not the one of a checkpoint of the job
+	 */
+	private static long cyclesOf(final String name, final String prefix) {
+		try {
+			return Long.parseLong(name.substring(prefix.length(), name.length() - SUFFIX.length()));
+		} catch (final NumberFormatException | IndexOutOfBoundsException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Waits for the checkpoint being written, if any.
+	 */
+	private void await() {
+		if (pending == null) return;
+		try {
+			pending.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (final ExecutionException e) {
+			DEBUG.ERR("Checkpoint failed: " + e.getCause());
+		}
+		pending = null;
+	}
+
+	/**
+	 * Waits for the last checkpoint to be written, stops the writing thread and reports the pauses imposed to the job.
+	 *
+	 * @param job
+	 *            the job
+	 */
+	public void close(final ExperimentJob job) {
+		await();
+		executor.shutdown();
+		if (count == 0) return;
+		DEBUG.LOG(count + " checkpoints of " + job.getExperimentID() + " written to " + directory + ". Pause: "
+				+ totalPause / count / 1000000 + "ms on average, " + maxPause / 1000000 + "ms at most");
+	}
+
+}
@@ -49,7 +49,7 @@ public class JobListFactory {
 	 */
 	public static List<IExperimentJob> constructAllJobs(final String modelPath, final long[] seeds,
 			final long finalStep, final Integer numberOfCores) throws IOException, GamaHeadlessException {
-		IModel model = GamlModelBuilder.getDefaultInstance().compile(new File(modelPath), null, null);
+		IModel model = GamlModelBuilder.getDefaultInstance().compileWithCache(new File(modelPath), null);
 		Map<JobPlanExperimentID, IExperimentJob> originalJobs = new LinkedHashMap<>();
 		if (numberOfCores != null && numberOfCores > 0) {
 			for (IExperimentPlan exp : model.getExperiments()) {
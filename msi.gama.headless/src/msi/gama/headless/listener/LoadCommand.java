@@ -18,6 +18,8 @@ import org.java_websocket.WebSocket;
 import msi.gama.common.GamlFileExtension;
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.headless.core.GamaHeadlessException;
+import msi.gama.headless.runtime.GamaHeadlessWebSocketServer;
+import msi.gama.headless.server.ExperimentPool;
 import msi.gama.headless.server.GamaServerExperimentJob;
 import msi.gama.runtime.server.CommandExecutor;
 import msi.gama.runtime.server.CommandResponse;
@@ -76,6 +78,7 @@ public class LoadCommand implements ISocketCommand {
 			final IList params, final String end, final IMap<String, Object> map)
 			throws IOException, GamaHeadlessException {
 
+		final long start = System.nanoTime();
 		final String pathToModel = map.get("model").toString();
 		final String socketId = map.get("socket_id") != null ? map.get("socket_id").toString()
 				: GamaWebSocketServer.getSocketId(socket);
@@ -106,21 +109,31 @@ public class LoadCommand implements ISocketCommand {
 		var parametersError = CommandExecutor.checkLoadParameters(params, map);
 		if (parametersError != null) return parametersError;
 
-		selectedJob = new GamaServerExperimentJob(ff.getAbsoluteFile().toString(), argExperimentName,
-				gamaWebSocketServer, socket, params, end, console, status, dialog, runtime);
-		selectedJob.load();
-		// we check if the experiment is present in the file
-		if (selectedJob.simulator.getModel().getExperiment(argExperimentName) == null)
-			return new CommandResponse(GamaServerMessage.Type.UnableToExecuteRequest,
-					"'" + argExperimentName + "' is not an experiment present in '" + ff.getAbsolutePath() + "'", map,
-					false);
-
-		selectedJob.controller.processOpen(true);
+		// Experiments prepared in advance are only used when no parameter is set, as they are already initialised
+		final ExperimentPool pool = gamaWebSocketServer instanceof GamaHeadlessWebSocketServer hs
+				&& (params == null || params.isEmpty()) ? hs.getExperimentPool() : null;
+		if (pool != null) { selectedJob = pool.take(ff.getAbsoluteFile().toString(), argExperimentName); }
+		final boolean hit = selectedJob != null;
+		if (hit) {
+			selectedJob.socket = socket;
+			selectedJob.controller.bind(socket, end, console, status, dialog, runtime);
+		} else {
+			selectedJob = new GamaServerExperimentJob(ff.getAbsoluteFile().toString(), argExperimentName,
+					gamaWebSocketServer, socket, params, end, console, status, dialog, runtime);
+			selectedJob.load();
+			// we check if the experiment is present in the file
+			if (selectedJob.simulator.getModel().getExperiment(argExperimentName) == null)
+				return new CommandResponse(GamaServerMessage.Type.UnableToExecuteRequest,
+						"'" + argExperimentName + "' is not an experiment present in '" + ff.getAbsolutePath() + "'",
+						map, false);
+			selectedJob.controller.processOpen(true);
+		}
 		selectedJob.controller.getExperiment().setStopCondition(end);
 
 		gamaWebSocketServer.addExperiment(socketId, selectedJob.getExperimentID(),
 				selectedJob.controller.getExperiment());
 		gamaWebSocketServer.execute(selectedJob.controller.executionThread);
+		if (pool != null) { pool.record(hit, System.nanoTime() - start); }
 		return new CommandResponse(GamaServerMessage.Type.CommandExecutedSuccessfully, selectedJob.getExperimentID(),
 				map, false);
 	}
@@ -25,6 +25,7 @@ import javax.net.ssl.TrustManagerFactory;
 import org.java_websocket.WebSocket;
 import org.java_websocket.server.SSLParametersWebSocketServerFactory;
 
+import msi.gama.headless.server.ExperimentPool;
 import msi.gama.kernel.experiment.IExperimentPlan;
 import msi.gama.runtime.server.CommandResponse;
 import msi.gama.runtime.server.GamaServerExperimentConfiguration;
@@ -54,6 +55,9 @@ public class GamaHeadlessWebSocketServer extends GamaWebSocketServer {
 	/** The experiments. Only used in the headless version */
 	private final Map<String, Map<String, IExperimentPlan>> launchedExperiments = new ConcurrentHashMap<>();
 
+	/** The pool of experiments prepared in advance, null if not used. */
+	private final ExperimentPool pool;
+
 	/**
 	 * Start for headless with SSL security on
 	 *
@@ -72,13 +76,16 @@ public class GamaHeadlessWebSocketServer extends GamaWebSocketServer {
 	 *            the kpwd the key password
 	 * @param pingInterval
 	 *            the ping interval
+	 * @param poolSize
+	 *            the number of experiments prepared in advance for each model, 0 to not use a pool
 	 * @return the gama web socket server
 	 * @date 16 oct. 2023
 	 */
 	public static GamaHeadlessWebSocketServer StartForSecureHeadless(final int port, final ThreadPoolExecutor runner,
-			final boolean ssl, final String jksPath, final String spwd, final String kpwd, final int pingInterval) {
+			final boolean ssl, final String jksPath, final String spwd, final String kpwd, final int pingInterval,
+			final int poolSize) {
 		GamaHeadlessWebSocketServer server =
-				new GamaHeadlessWebSocketServer(port, runner, ssl, jksPath, spwd, kpwd, pingInterval);
+				new GamaHeadlessWebSocketServer(port, runner, ssl, jksPath, spwd, kpwd, pingInterval, poolSize);
 		try {
 			server.start();
 			return server;
@@ -97,13 +104,15 @@ public class GamaHeadlessWebSocketServer extends GamaWebSocketServer {
 	 *            the runner
 	 * @param pingInterval
 	 *            the ping interval
+	 * @param poolSize
+	 *            the number of experiments prepared in advance for each model, 0 to not use a pool
 	 * @return the gama web socket server
 	 * @date 16 oct. 2023
 	 */
 	public static GamaHeadlessWebSocketServer StartForHeadless(final int port, final ThreadPoolExecutor runner,
-			final int pingInterval) {
+			final int pingInterval, final int poolSize) {
 		GamaHeadlessWebSocketServer server =
-				new GamaHeadlessWebSocketServer(port, runner, false, "", "", "", pingInterval);
+				new GamaHeadlessWebSocketServer(port, runner, false, "", "", "", pingInterval, poolSize);
 		try {
 			server.start();
 			return server;
@@ -130,12 +139,15 @@ public class GamaHeadlessWebSocketServer extends GamaWebSocketServer {
 	 *            the kpwd
 	 * @param interval
 	 *            the interval
+	 * @param poolSize
+	 *            the pool size
 	 * @date 16 oct. 2023
 	 */
 	private GamaHeadlessWebSocketServer(final int port, final ThreadPoolExecutor runner, final boolean ssl,
-			final String jksPath, final String spwd, final String kpwd, final int interval) {
+			final String jksPath, final String spwd, final String kpwd, final int interval, final int poolSize) {
 		super(port, interval);
 		executor = runner;
+		pool = poolSize > 0 ? new ExperimentPool(this, poolSize) : null;
 		if (ssl) { configureWebSocketFactoryWithSSL(jksPath, spwd, kpwd); }
 	}
 
@@ -254,6 +266,29 @@ public class GamaHeadlessWebSocketServer extends GamaWebSocketServer {
 		executor.execute(command);
 	}
 
+	/**
+	 * Gets the pool of experiments prepared in advance.
+	 *
+	 * @return the experiment pool, or null if it is not used
+	 */
+	public ExperimentPool getExperimentPool() { return pool; }
+
+	@Override
+	public IMap<String, Object> getStatistics() {
+		final IMap<String, Object> stats = super.getStatistics();
+		if (pool != null) { stats.putAll(pool.getStatistics()); }
+		return stats;
+	}
+
+	@Override
+	public void stop(final int timeout, final String closeMessage) throws InterruptedException {
+		try {
+			super.stop(timeout, closeMessage);
+		} finally {
+			if (pool != null) { pool.dispose(); }
+		}
+	}
+
 	/**
 	 * Gets the launched experiments.
 	 *
@@ -15,6 +15,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -47,10 +48,14 @@ import msi.gama.headless.common.HeadLessErrors;
 import msi.gama.headless.core.GamaHeadlessException;
 import msi.gama.headless.job.ExperimentJob;
 import msi.gama.headless.job.IExperimentJob;
+import msi.gama.headless.job.JobCheckpointer;
 import msi.gama.headless.script.ExperimentationPlanFactory;
 import msi.gama.headless.server.GamaServerGUIHandler;
+import msi.gama.headless.xml.ColumnarReader;
+import msi.gama.headless.xml.ColumnarWriter;
 import msi.gama.headless.xml.ConsoleReader;
 import msi.gama.headless.xml.Reader;
+import msi.gama.headless.xml.Writer;
 import msi.gama.headless.xml.XMLWriter;
 import msi.gama.kernel.experiment.IExperimentPlan;
 import msi.gama.kernel.model.IModel;
@@ -123,6 +128,9 @@ public class HeadlessApplication implements IApplication {
 	/** The Constant PING_INTERVAL. */
 	final public static String PING_INTERVAL = "-ping_interval";
 
+	/** The Constant POOL_PARAMETER. */
+	final public static String POOL_PARAMETER = "-pool";
+
 	/** The Constant SOCKET_PARAMETER. */
 	final public static String SOCKET_PARAMETER = "-socket";
 
@@ -166,6 +174,27 @@ public class HeadlessApplication implements IApplication {
 	/** The Constant WRITE_XMI. */
 	final public static String WRITE_XMI = "-write-xmi";
 
+	/** The Constant CHECKPOINT_PARAMETER. */
+	final public static String CHECKPOINT_PARAMETER = "-checkpoint";
+
+	/** The Constant CHECKPOINT_CYCLES_PARAMETER. */
+	final public static String CHECKPOINT_CYCLES_PARAMETER = "-checkpoint_cycles";
+
+	/** The Constant CHECKPOINT_MINUTES_PARAMETER. */
+	final public static String CHECKPOINT_MINUTES_PARAMETER = "-checkpoint_minutes";
+
+	/** The Constant CHECKPOINT_KEEP_PARAMETER. */
+	final public static String CHECKPOINT_KEEP_PARAMETER = "-checkpoint_keep";
+
+	/** The Constant RESUME_PARAMETER. */
+	final public static String RESUME_PARAMETER = "-resume";
+
+	/** The Constant BINARY_OUTPUT_PARAMETER. */
+	final public static String BINARY_OUTPUT_PARAMETER = "-binary_output";
+
+	/** The Constant CSV_PARAMETER. */
+	final public static String CSV_PARAMETER = "-csv";
+
 	/** The head less simulation. */
 	public static boolean headLessSimulation = false;
 
@@ -176,6 +205,9 @@ public class HeadlessApplication implements IApplication {
 	// the interval between each ping sent by the server, -1 to deactivate this behaviour
 	public int ping_interval = GamaWebSocketServer.DEFAULT_PING_INTERVAL;
 
+	/** The number of experiments prepared in advance for each model loaded by the server, 0 to not use a pool. */
+	public int poolSize = 0;
+
 	/** The console mode. */
 	public boolean consoleMode = false;
 
@@ -185,6 +217,21 @@ public class HeadlessApplication implements IApplication {
 	/** The verbose. */
 	public boolean verbose = false;
 
+	/** The directory of the checkpoints, null if no checkpoint is taken. */
+	public String checkpointPath = null;
+
+	/** The number of cycles and of minutes between two checkpoints (0 if not used). */
+	public long checkpointCycles = 0, checkpointMinutes = 0;
+
+	/** The number of checkpoints kept for each job. */
+	public int checkpointKeep = JobCheckpointer.DEFAULT_KEEP;
+
+	/** Whether the jobs resume from their latest checkpoint. */
+	public boolean resume = false;
+
+	/** Whether the results are written in the binary columnar format instead of XML. */
+	public boolean binaryOutput = false;
+
 	/** The processor queue. */
 	public final SimulationRuntime processorQueue = new SimulationRuntime();
 
@@ -219,7 +266,18 @@ public class HeadlessApplication implements IApplication {
 				+ PING_INTERVAL + " [pingInterval] "
 				+ "-- when in server mode (socket parameter set), defines in milliseconds the time "
 				+ "between each ping packet sent to clients to keep alive the connection. "
-				+ "The default value is 10000, set to -1 to deactivate this behaviour." + "\n\t=== Infos ===" + "\n\t\t"
+				+ "The default value is 10000, set to -1 to deactivate this behaviour." + "\n\t\t" + POOL_PARAMETER
+				+ " [size]                 -- when in server mode, number of experiments of each loaded model "
+				+ "compiled and initialised in advance to serve the next 'load' commands" + "\n\t\t"
+				+ CHECKPOINT_PARAMETER + " [directory]       -- write checkpoints of the simulations in this directory"
+				+ "\n\t\t" + CHECKPOINT_CYCLES_PARAMETER + " [cycles] -- number of cycles between two checkpoints"
+				+ "\n\t\t" + CHECKPOINT_MINUTES_PARAMETER + " [min]   -- number of minutes between two checkpoints"
+				+ "\n\t\t" + CHECKPOINT_KEEP_PARAMETER + " [number]  -- number of checkpoints kept for each simulation"
+				+ " (default " + JobCheckpointer.DEFAULT_KEEP + ")" + "\n\t\t" + RESUME_PARAMETER
+				+ "                       -- resume the simulations from their latest checkpoint" + "\n\t\t"
+				+ BINARY_OUTPUT_PARAMETER
+				+ "                -- write the results in a compact binary format (.gcol) instead of XML"
+				+ "\n\t=== Infos ===" + "\n\t\t"
 				+ HELP_PARAMETER + "                         -- get the help of the command line" + "\n\t\t"
 				+ GAMA_VERSION + "                      -- get the the version of gama" + "\n\t=== Library Runner ==="
 				+ "\n\t\t" + VALIDATE_LIBRARY_PARAMETER
@@ -232,6 +290,8 @@ public class HeadlessApplication implements IApplication {
 				+ "\n\t\t                              -- Run batch experiment in headless mode"
 				// + "\n\t\t" + GAML_PARAMETER + " [experimentName] [modelFile.gaml]"
 				// + "\n\t\t -- Run single gaml experiment in headless mode"
+				+ "\n\t\t" + CSV_PARAMETER + " [results.gcol] [results.csv]"
+				+ "\n\t\t                              -- convert binary results to CSV"
 				+ "\n\t\t" + BUILD_XML_PARAMETER + " [experimentName] [modelFile.gaml] [xmlOutputFile.xml]"
 				+ "\n\t\t                              -- build an xml parameter file from a model"
 				+ "\n\t\t[xmlHeadlessFile.xml] [outputDirectory]"
@@ -290,10 +350,43 @@ public class HeadlessApplication implements IApplication {
 			size = size - 2;
 			this.ping_interval = Integer.parseInt(after(args, PING_INTERVAL));
 		}
+		if (args.contains(POOL_PARAMETER)) {
+			size = size - 2;
+			this.poolSize = Integer.parseInt(after(args, POOL_PARAMETER));
+		}
 		if (args.contains(THREAD_PARAMETER)) {
 			size = size - 2;
 			processorQueue.setNumberOfThreads(Integer.parseInt(after(args, THREAD_PARAMETER)));
 		}
+		if (args.contains(CHECKPOINT_PARAMETER)) {
+			size = size - 2;
+			this.checkpointPath = after(args, CHECKPOINT_PARAMETER);
+		}
+		if (args.contains(CHECKPOINT_CYCLES_PARAMETER)) {
+			size = size - 2;
+			this.checkpointCycles = Long.parseLong(after(args, CHECKPOINT_CYCLES_PARAMETER));
+		}
+		if (args.contains(CHECKPOINT_MINUTES_PARAMETER)) {
+			size = size - 2;
+			this.checkpointMinutes = Long.parseLong(after(args, CHECKPOINT_MINUTES_PARAMETER));
+		}
+		if (args.contains(CHECKPOINT_KEEP_PARAMETER)) {
+			size = size - 2;
+			this.checkpointKeep = Integer.parseInt(after(args, CHECKPOINT_KEEP_PARAMETER));
+		}
+		if (args.contains(RESUME_PARAMETER)) {
+			size = size - 1;
+			this.resume = true;
+		}
+		if (args.contains(BINARY_OUTPUT_PARAMETER)) {
+			size = size - 1;
+			this.binaryOutput = true;
+		}
+		// By default, checkpoints are written every 100 cycles in the "checkpoints" folder of the output directory
+		if (checkpointPath == null && (resume || checkpointCycles > 0 || checkpointMinutes > 0)) {
+			checkpointPath = "checkpoints";
+		}
+		if (checkpointPath != null && checkpointCycles == 0 && checkpointMinutes == 0) { checkpointCycles = 100; }
 
 		// Commands
 		// ========================
@@ -310,6 +403,10 @@ public class HeadlessApplication implements IApplication {
 			size = size - 4;
 			mustContainInFile = mustContainOutFolder = false;
 		}
+		if (args.contains(CSV_PARAMETER)) {
+			size = size - 3;
+			mustContainInFile = mustContainOutFolder = false;
+		}
 
 		// Runner verification
 		// ========================
@@ -388,6 +485,11 @@ public class HeadlessApplication implements IApplication {
 			shouldExit = true;
 		}
 
+		if (args.contains(CSV_PARAMETER)) {
+			ColumnarReader.toCSV(Path.of(after(args, CSV_PARAMETER)), Path.of(args.get(args.size() - 1)));
+			shouldExit = true;
+		}
+
 		if (shouldExit) { System.exit(0); }
 
 		// ========================
@@ -410,13 +512,13 @@ public class HeadlessApplication implements IApplication {
 		} else if (args.contains(BUILD_XML_PARAMETER)) {
 			buildXML(args);
 		} else if (args.contains(SOCKET_PARAMETER)) {
-			GamaHeadlessWebSocketServer.StartForHeadless(socket, processorQueue, ping_interval);
+			GamaHeadlessWebSocketServer.StartForHeadless(socket, processorQueue, ping_interval, poolSize);
 		} else if (args.contains(SSOCKET_PARAMETER)) {
 			final String jks = args.contains(SSOCKET_PARAMETER_JKSPATH) ? after(args, SSOCKET_PARAMETER_JKSPATH) : "";
 			final String spwd = args.contains(SSOCKET_PARAMETER_SPWD) ? after(args, SSOCKET_PARAMETER_SPWD) : "";
 			final String kpwd = args.contains(SSOCKET_PARAMETER_KPWD) ? after(args, SSOCKET_PARAMETER_KPWD) : "";
 			GamaHeadlessWebSocketServer.StartForSecureHeadless(socket, processorQueue, true, jks, spwd, kpwd,
-					ping_interval);
+					ping_interval, poolSize);
 		} else {
 			runSimulation(args);
 		}
@@ -585,14 +687,14 @@ public class HeadlessApplication implements IApplication {
 	public void buildAndRunSimulation(final Collection<ExperimentJob> sims) {
 		for (ExperimentJob sim : sims) {
 			try {
-				XMLWriter ou = null;
+				Writer ou = null;
 				if (tunnelingMode) {
 					ou = new XMLWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
 				} else {
-					ou = new XMLWriter(
-							Globals.OUTPUT_PATH + "/" + Globals.OUTPUT_FILENAME + sim.getExperimentID() + ".xml");
+					ou = createWriter(Globals.OUTPUT_PATH + "/" + Globals.OUTPUT_FILENAME + sim.getExperimentID());
 				}
 				sim.setBufferedWriter(ou);
+				sim.setCheckpointer(createCheckpointer());
 				processorQueue.execute(sim);
 			} catch (final Exception e) {
 				e.printStackTrace();
@@ -601,6 +703,29 @@ public class HeadlessApplication implements IApplication {
 		}
 	}
 
+	/**
+	 * Creates the writer of the results of a job, in the binary columnar format or in XML.
+	 *
+	 * @param path
+	 *            the path of the file, without its extension
+	 * @return the writer
+	 */
+	private Writer createWriter(final String path) {
+		return binaryOutput ? new ColumnarWriter(path + ".gcol") : new XMLWriter(path + ".xml");
+	}
+
+	/**
+	 * Creates the checkpointer of a job, if checkpoints have been asked for.
+	 *
+	 * @return the job checkpointer, or null
+	 */
+	private JobCheckpointer createCheckpointer() {
+		if (checkpointPath == null) return null;
+		final String path = new File(checkpointPath).isAbsolute() || Globals.OUTPUT_PATH == null ? checkpointPath
+				: Globals.OUTPUT_PATH + "/" + checkpointPath;
+		return new JobCheckpointer(path, checkpointCycles, checkpointMinutes, checkpointKeep, resume);
+	}
+
 	/**
 	 * Stop.
 	 *
@@ -680,7 +805,8 @@ public class HeadlessApplication implements IApplication {
 		if (selectedJob == null) return;
 		Globals.OUTPUT_PATH = args.get(args.size() - 3);
 
-		selectedJob.setBufferedWriter(new XMLWriter(Globals.OUTPUT_PATH + "/" + Globals.OUTPUT_FILENAME + ".xml"));
+		selectedJob.setBufferedWriter(createWriter(Globals.OUTPUT_PATH + "/" + Globals.OUTPUT_FILENAME));
+		selectedJob.setCheckpointer(createCheckpointer());
 		processorQueue.setNumberOfThreads(numberOfCores != null ? numberOfCores : SimulationRuntime.DEFAULT_NB_THREADS);
 		processorQueue.execute(selectedJob);
 		processorQueue.shutdown();
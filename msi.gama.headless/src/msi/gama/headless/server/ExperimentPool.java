@@ -0,0 +1,354 @@
+/*******************************************************************************************************
+ *
+ * ExperimentPool.java, in msi.gama.headless, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.headless.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import msi.gama.headless.core.GamaHeadlessException;
+import msi.gama.kernel.experiment.IExperimentPlan;
+import msi.gama.lang.gaml.validation.GamlModelBuilder;
+import msi.gama.runtime.server.GamaWebSocketServer;
+import msi.gama.util.GamaMapFactory;
+import msi.gama.util.IMap;
+import msi.gaml.types.Types;
+import ummisco.gama.dev.utils.DEBUG;
+
+/**
+ * A pool of experiments compiled and initialised in advance, so that the 'load' commands of the headless server can
+ * be served without waiting for the compilation of the model and the initialisation of the experiment. A pool of
+ * experiments is kept for each model file and experiment that has been loaded once: each time an experiment is taken
+ * from it, it is refilled in the background. Only the loads that do not set parameters can be served from the pool,
+ * as the parameters are used when the experiment is initialised. The experiments of a model are discarded when its
+ * file, or one of the files it imports, is modified. At most {@link #maxPools} pools are kept: when a new one is
+ * needed, the least recently used one is discarded.
+ */
+public class ExperimentPool {
+
+	static {
+		DEBUG.ON();
+	}
+
+	/** The default maximum number of pools, i.e. of model files and experiments for which experiments are kept. */
+	public static final int DEFAULT_MAX_POOLS = 8;
+
+	/**
+	 * An experiment in the pool.
+	 */
+	static class Entry {
+
+		/** The job. */
+		final GamaServerExperimentJob job;
+
+		/** The files the model has been compiled from: the model file and the files it imports. */
+		final List<File> files;
+
+		/** The dates of modification of these files when the experiment has been prepared. */
+		final long[] modified;
+
+		/**
+		 * Instantiates a new entry.
+		 *
+		 * @param job
+		 *            the job
+		 * @param files
+		 *            the files
+		 * @param modified
+		 *            the modified
+		 */
+		Entry(final GamaServerExperimentJob job, final List<File> files, final long[] modified) {
+			this.job = job;
+			this.files = files;
+			this.modified = modified;
+		}
+
+		/**
+		 * Whether one of the files of the model has been modified since the experiment has been prepared.
+		 *
+		 * @return true, if is stale
+		 */
+		boolean isStale() {
+			for (int i = 0; i < modified.length; i++) { if (files.get(i).lastModified() != modified[i]) return true; }
+			return false;
+		}
+	}
+
+	/**
+	 * The experiments prepared for a model file and an experiment.
+	 */
+	static class Pool {
+
+		/** The experiments ready to be used. */
+		final Deque<Entry> entries = new ConcurrentLinkedDeque<>();
+
+		/** The last time the pool has been used, in nanoseconds. */
+		volatile long lastUsed = System.nanoTime();
+
+		/** Whether the pool has been discarded. The experiments prepared for it are then disposed. */
+		volatile boolean discarded;
+
+		/**
+		 * Discards the pool and disposes its experiments.
+		 */
+		void discard() {
+			discarded = true;
+			Entry entry;
+			while ((entry = entries.poll()) != null) { entry.job.dispose(); }
+		}
+	}
+
+	/** The server. */
+	final GamaWebSocketServer server;
+
+	/** The number of experiments kept for each model file and experiment. */
+	final int size;
+
+	/** The maximum number of pools. */
+	final int maxPools;
+
+	/** The pools, indexed by model file and experiment. */
+	final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+	/** The pools being refilled. */
+	final Set<String> refilling = ConcurrentHashMap.newKeySet();
+
+	/** The executor used to prepare the experiments. A single thread, which stops when there is nothing to do. */
+	final ExecutorService executor = new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+
+	/** The number of loads served, or not, from the pool. */
+	final AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+
+	/** The total latency of the loads, in nanoseconds. */
+	final AtomicLong latency = new AtomicLong();
+
+	/** The number of pools discarded to make room for new ones. */
+	final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Instantiates a new experiment pool, with at most {@link #DEFAULT_MAX_POOLS} pools.
+	 *
+	 * @param server
+	 *            the server
+	 * @param size
+	 *            the number of experiments kept for each model file and experiment
+	 */
+	public ExperimentPool(final GamaWebSocketServer server, final int size) {
+		this(server, size, DEFAULT_MAX_POOLS);
+	}
+
+	/**
+	 * Instantiates a new experiment pool.
+	 *
+	 * @param server
+	 *            the server
+	 * @param size
+	 *            the number of experiments kept for each model file and experiment
+	 * @param maxPools
+	 *            the maximum number of model files and experiments for which experiments are kept
+	 */
+	public ExperimentPool(final GamaWebSocketServer server, final int size, final int maxPools) {
+		this.server = server;
+		this.size = Math.max(1, size);
+		this.maxPools = Math.max(1, maxPools);
+	}
+
+	/**
+	 * Takes an experiment from the pool, and refills the pool in the background.
+	 *
+	 * @param path
+	 *            the absolute path of the model file
+	 * @param experiment
+	 *            the name of the experiment
+	 * @return an experiment ready to be used, or null if there is none
+	 */
+	public GamaServerExperimentJob take(final String path, final String experiment) {
+		if (executor.isShutdown()) return null;
+		final String key = path + "#" + experiment;
+		final Pool pool = pools.computeIfAbsent(key, k -> new Pool());
+		pool.lastUsed = System.nanoTime();
+		evict();
+		GamaServerExperimentJob result = null;
+		Entry entry;
+		while (result == null && (entry = pool.entries.poll()) != null) {
+			if (!entry.isStale() && isAlive(entry.job)) {
+				result = entry.job;
+			} else {
+				entry.job.dispose();
+			}
+		}
+		refill(key, pool, path, experiment);
+		return result;
+	}
+
+	/**
+	 * Discards the least recently used pools while there are too many of them.
+	 */
+	private void evict() {
+		while (pools.size() > maxPools) {
+			Map.Entry<String, Pool> oldest = null;
+			for (final Map.Entry<String, Pool> e : pools.entrySet()) {
+				if (oldest == null || e.getValue().lastUsed < oldest.getValue().lastUsed) { oldest = e; }
+			}
+			if (oldest == null) return;
+			if (pools.remove(oldest.getKey(), oldest.getValue())) {
+				oldest.getValue().discard();
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Refills a pool in the background, unless it is already being refilled.
+	 *
+	 * @param key
+	 *            the key
+	 * @param pool
+	 *            the pool
+	 * @param path
+	 *            the path
+	 * @param experiment
+	 *            the experiment
+	 */
+	private void refill(final String key, final Pool pool, final String path, final String experiment) {
+		if (!refilling.add(key)) return;
+		try {
+			executor.execute(() -> {
+				try {
+					while (!pool.discarded && pool.entries.size() < size) {
+						final Entry entry = prepare(path, experiment);
+						if (entry == null) { break; }
+						pool.entries.add(entry);
+						// The pool may have been discarded while the experiment was prepared
+						if (pool.discarded) { pool.discard(); }
+					}
+				} finally {
+					refilling.remove(key);
+				}
+			});
+		} catch (final RejectedExecutionException e) {
+			// The pool is being shut down
+			refilling.remove(key);
+		}
+	}
+
+	/**
+	 * Compiles the model and initialises the experiment, without any client.
+	 *
+	 * @param path
+	 *            the path
+	 * @param experiment
+	 *            the experiment
+	 * @return the entry of the experiment, or null if the experiment could not be prepared
+	 */
+	private Entry prepare(final String path, final String experiment) {
+		final File file = new File(path);
+		// The dates of the files known before the compilation, so that a modification made during it is detected
+		final Map<File, Long> before = new HashMap<>();
+		for (final File f : GamlModelBuilder.getDefaultInstance().getFilesOf(file)) { before.put(f, f.lastModified()); }
+		final GamaServerExperimentJob job =
+				new GamaServerExperimentJob(path, experiment, server, null, null, "", true, false, false, true);
+		try {
+			job.load();
+			if (job.simulator.getModel().getExperiment(experiment) == null) return null;
+			job.controller.processOpen(true);
+		} catch (IOException | GamaHeadlessException | RuntimeException e) {
+			DEBUG.ERR("Impossible to prepare experiment " + experiment + " of " + path + ": " + e.getMessage());
+			job.dispose();
+			return null;
+		}
+		if (!isAlive(job)) {
+			job.dispose();
+			return null;
+		}
+		final List<File> files = GamlModelBuilder.getDefaultInstance().getFilesOf(file);
+		final long[] modified = new long[files.size()];
+		for (int i = 0; i < modified.length; i++) {
+			final File f = files.get(i);
+			modified[i] = before.containsKey(f) ? before.get(f) : f.lastModified();
+		}
+		return new Entry(job, files, modified);
+	}
+
+	/**
+	 * Whether the experiment of a job is initialised and can be used.
+	 *
+	 * @param job
+	 *            the job
+	 * @return true, if is alive
+	 */
+	private static boolean isAlive(final GamaServerExperimentJob job) {
+		if (job.simulator == null) return false;
+		final IExperimentPlan plan = job.simulator.getExperimentPlan();
+		return plan != null && plan.getAgent() != null && !plan.getAgent().dead()
+				&& plan.getCurrentSimulation() != null;
+	}
+
+	/**
+	 * Stops preparing experiments and disposes the ones that have not been used. Called when the server stops.
+	 */
+	public void dispose() {
+		executor.shutdownNow();
+		try {
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for (final Pool pool : pools.values()) { pool.discard(); }
+		pools.clear();
+	}
+
+	/**
+	 * Records the latency of a load.
+	 *
+	 * @param hit
+	 *            whether the load has been served from the pool
+	 * @param nanos
+	 *            the latency in nanoseconds
+	 */
+	public void record(final boolean hit, final long nanos) {
+		(hit ? hits : misses).incrementAndGet();
+		latency.addAndGet(nanos);
+	}
+
+	/**
+	 * The statistics of the pool, reported by the 'statistics' command.
+	 *
+	 * @return the statistics
+	 */
+	public IMap<String, Object> getStatistics() {
+		final long h = hits.get(), total = h + misses.get();
+		int ready = 0;
+		for (final Pool pool : pools.values()) { ready += pool.entries.size(); }
+		final IMap<String, Object> stats = GamaMapFactory.create(Types.STRING, Types.NO_TYPE);
+		stats.put("pool_hits", h);
+		stats.put("pool_loads", total);
+		stats.put("pool_hit_rate", total == 0 ? 0d : (double) h / total);
+		stats.put("average_load_latency_ms", total == 0 ? 0d : latency.get() / 1000000d / total);
+		stats.put("pools", pools.size());
+		stats.put("pool_experiments_ready", ready);
+		stats.put("pool_evictions", evictions.get());
+		return stats;
+	}
+
+}
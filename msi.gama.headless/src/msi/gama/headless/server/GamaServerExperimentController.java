@@ -29,7 +29,6 @@ import msi.gama.runtime.server.GamaServerExperimentConfiguration;
 import msi.gama.runtime.server.GamaServerMessage;
 import msi.gama.util.IList;
 import msi.gama.util.IMap;
-import msi.gama.util.file.json.Json;
 import msi.gaml.operators.Cast;
 import ummisco.gama.dev.utils.DEBUG;
 
@@ -42,7 +41,7 @@ public class GamaServerExperimentController extends AbstractExperimentController
 	final IList parameters;
 
 	/** The stop condition. */
-	final String stopCondition;
+	String stopCondition;
 
 	/** The execution thread. */
 	public MyRunnable executionThread;
@@ -82,14 +81,10 @@ public class GamaServerExperimentController extends AbstractExperimentController
 					final IScope scope = sim == null ? GAMA.getRuntimeScope() : sim.getScope();
 					if (Cast.asBool(scope, exp.getStopCondition().value(scope))) {
 						if (!"".equals(stopCondition)) {
-							mexp.socket
-									.send(Json.getNew()
-											.valueOf(
-													new CommandResponse(GamaServerMessage.Type.SimulationEnded, "",
-															(IMap<String, Object>) mexp.simulator.getExperimentPlan()
-																	.getAgent().getAttribute("%%playCommand%%"),
-															false))
-											.toString());
+							new CommandResponse(GamaServerMessage.Type.SimulationEnded, "",
+									(IMap<String, Object>) mexp.simulator.getExperimentPlan().getAgent()
+											.getAttribute("%%playCommand%%"),
+									false).sendTo(mexp.socket);
 						}
 						break;
 					}
@@ -125,6 +120,30 @@ public class GamaServerExperimentController extends AbstractExperimentController
 		commandThread.start();
 	}
 
+	/**
+	 * Binds the controller to a client, for instance when an experiment prepared in advance is handed to it.
+	 *
+	 * @param sock
+	 *            the socket of the client
+	 * @param stop
+	 *            the stop condition
+	 * @param console
+	 *            the console
+	 * @param status
+	 *            the status
+	 * @param dialog
+	 *            the dialog
+	 * @param runtime
+	 *            the runtime
+	 */
+	public void bind(final WebSocket sock, final String stop, final boolean console, final boolean status,
+			final boolean dialog, final boolean runtime) {
+		stopCondition = stop;
+		serverConfiguration = new GamaServerExperimentConfiguration(sock, _job.getExperimentID(), console, status,
+				dialog, runtime);
+		if (scope != null) { scope.setServerConfiguration(serverConfiguration); }
+	}
+
 	/**
 	 * Process user command.
 	 *
@@ -107,7 +107,7 @@ public class GamaServerExperimentJob extends ExperimentJob {
 	public void load() throws IOException, GamaHeadlessException {
 		System.setProperty("user.dir", this.sourcePath);
 		final List<GamlCompilationError> errors = new ArrayList<>();
-		final IModel mdl = GamlModelBuilder.getDefaultInstance().compile(new File(this.sourcePath), errors, null);
+		final IModel mdl = GamlModelBuilder.getDefaultInstance().compileWithCache(new File(this.sourcePath), errors);
 		this.modelName = mdl.getName();
 		this.simulator = new RichExperiment(mdl);
 	}
@@ -0,0 +1,258 @@
+/*******************************************************************************************************
+ *
+ * ColumnarReader.java, in msi.gama.headless, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.headless.xml;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads the files written by {@link ColumnarWriter} and converts them to CSV: one row per step, with the step
+ * followed by the values of the variables ("NA" when a variable has no value at a step).
+ */
+public class ColumnarReader implements AutoCloseable {
+
+	/** The stream. */
+	private final DataInputStream in;
+
+	/** The id of the simulation. */
+	private final String id;
+
+	/** The steps of the current block. */
+	private long[] steps = new long[0];
+
+	/** The names of the variables of the current block. */
+	private String[] names = new String[0];
+
+	/** The values of the current block, by variable then by step. */
+	private Object[][] columns = new Object[0][];
+
+	/**
+	 * Opens a file written by {@link ColumnarWriter}.
+	 *
+	 * @param path
+	 *            the path
+	 * @throws IOException
+	 *            Signals that an I/O exception has occurred.
+	 */
+	public ColumnarReader(final Path path) throws IOException {
+		in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+		if (in.readInt() != ColumnarWriter.MAGIC) {
+			in.close();
+			throw new IOException(path + " is not a columnar output file");
+		}
+		final byte version = in.readByte();
+		if (version != ColumnarWriter.VERSION) {
+			in.close();
+			throw new IOException("Unsupported version " + version + " of " + path);
+		}
+		id = in.readUTF();
+	}
+
+	/**
+	 * Gets the id of the simulation.
+	 *
+	 * @return the id
+	 */
+	public String getId() { return id; }
+
+	/**
+	 * Gets the steps of the current block.
+	 *
+	 * @return the steps
+	 */
+	public long[] getSteps() { return steps; }
+
+	/**
+	 * Gets the names of the variables of the current block.
+	 *
+	 * @return the names
+	 */
+	public String[] getNames() { return names; }
+
+	/**
+	 * Gets the values of a variable in the current block: Long, Double, Boolean or String, null when the variable has
+	 * no value at a step.
+	 *
+	 * @param variable
+	 *            the index of the variable
+	 * @return the values
+	 */
+	public Object[] getColumn(final int variable) {
+		return columns[variable];
+	}
+
+	/**
+	 * Reads the next block. If the file has not been closed properly, its last block can be truncated: the reading
+	 * then stops after the last complete block.
+	 *
+	 * @return true, if a block has been read, false at the end of the file
+	 * @throws IOException
+	 *            Signals that an I/O exception has occurred.
+	 */
+	public boolean next() throws IOException {
+		try {
+			final int count = in.readInt();
+			if (count <= 0) return false;
+			final long[] blockSteps = new long[count];
+			long previous = 0;
+			for (int i = 0; i < count; i++) { blockSteps[i] = previous += readVarLong(); }
+			final int size = in.readInt();
+			final String[] blockNames = new String[size];
+			final Object[][] blockColumns = new Object[size][];
+			for (int v = 0; v < size; v++) {
+				blockNames[v] = in.readUTF();
+				blockColumns[v] = readColumn(in.readByte(), count);
+			}
+			steps = blockSteps;
+			names = blockNames;
+			columns = blockColumns;
+			return true;
+		} catch (EOFException e) {
+			// The file has not been closed properly: the blocks already read are the complete ones
+			return false;
+		}
+	}
+
+	/**
+	 * Reads a column.
+	 *
+	 * @param type
+	 *            the type of the column
+	 * @param count
+	 *            the number of steps
+	 * @return the values
+	 * @throws IOException
+	 *            Signals that an I/O exception has occurred.
+	 */
+	private Object[] readColumn(final byte type, final int count) throws IOException {
+		final byte[] bitmap = new byte[(count + 7) / 8];
+		in.readFully(bitmap);
+		final Object[] column = new Object[count];
+		long previous = 0;
+		for (int i = 0; i < count; i++) {
+			if ((bitmap[i >> 3] & 1 << (i & 7)) == 0) { continue; }
+			column[i] = switch (type) {
+				case ColumnarWriter.INT -> {
+					final long l = readVarLong();
+					previous += l >>> 1 ^ -(l & 1);
+					yield previous;
+				}
+				case ColumnarWriter.FLOAT -> in.readDouble();
+				case ColumnarWriter.BOOLEAN -> in.readByte() != 0;
+				case ColumnarWriter.STRING -> {
+					final byte[] bytes = new byte[in.readInt()];
+					in.readFully(bytes);
+					yield new String(bytes, StandardCharsets.UTF_8);
+				}
+				default -> throw new IOException("Unknown column type " + type);
+			};
+		}
+		return column;
+	}
+
+	/**
+	 * Reads an unsigned varint.
+	 *
+	 * @return the long
+	 * @throws IOException
+	 *            Signals that an I/O exception has occurred.
+	 */
+	private long readVarLong() throws IOException {
+		long result = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final byte b = in.readByte();
+			result |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return result;
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Converts a file written by {@link ColumnarWriter} to CSV. A new header row is written whenever the variables
+	 * change.
+	 *
+	 * @param input
+	 *            the file to read
+	 * @param output
+	 *            the CSV file to write
+	 * @throws IOException
+	 *            Signals that an I/O exception has occurred.
+	 */
+	public static void toCSV(final Path input, final Path output) throws IOException {
+		try (ColumnarReader reader = new ColumnarReader(input);
+				BufferedWriter csv = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+			String[] header = null;
+			final StringBuilder sb = new StringBuilder();
+			while (reader.next()) {
+				final String[] names = reader.getNames();
+				if (!Arrays.equals(header, names)) {
+					header = names;
+					sb.setLength(0);
+					sb.append("step");
+					for (final String name : names) { sb.append(',').append(escape(name)); }
+					csv.write(sb.append('\n').toString());
+				}
+				final long[] steps = reader.getSteps();
+				for (int i = 0; i < steps.length; i++) {
+					sb.setLength(0);
+					sb.append(steps[i]);
+					for (int v = 0; v < names.length; v++) {
+						final Object value = reader.getColumn(v)[i];
+						sb.append(',').append(value == null ? "NA" : escape(value.toString()));
+					}
+					csv.write(sb.append('\n').toString());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Escapes a value for CSV.
+	 *
+	 * @param s
+	 *            the s
+	 * @return the string
+	 */
+	private static String escape(final String s) {
+		if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) return s;
+		return '"' + s.replace("\"", "\"\"") + '"';
+	}
+
+	/**
+	 * Converts a file to CSV from the command line.
+	 *
+	 * @param args
+	 *            the input file and, optionally, the CSV file (by default, the input file with a .csv extension)
+	 * @throws IOException
+	 *            Signals that an I/O exception has occurred.
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: ColumnarReader input [output.csv]");
+			return;
+		}
+		final Path input = Path.of(args[0]);
+		toCSV(input, args.length > 1 ? Path.of(args[1]) : Path.of(args[0].replaceFirst("\\.[^.]*$", "") + ".csv"));
+	}
+
+}
@@ -0,0 +1,346 @@
+/*******************************************************************************************************
+ *
+ * ColumnarWriter.java, in msi.gama.headless, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.headless.xml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import msi.gama.headless.job.ExperimentJob;
+import msi.gama.headless.job.ListenedVariable;
+
+/**
+ * A writer that stores the results of a simulation in a compact binary file, organised in blocks of steps. In each
+ * block, the values of a variable are stored together (as a column) and typed: integers, floats, booleans or
+ * strings. Nothing is written to the file until a block is complete, so that the cost of the writing is paid once for
+ * many steps. The file can be converted to CSV with {@link ColumnarReader}.
+ * <p>
+ * Format (big-endian): a header (the magic number, the version and the id of the simulation), followed by blocks and
+ * an empty block that marks the end of the file. A block is made of its number of steps, the steps (as varints of
+ * their differences), its number of variables and, for each variable, its name, the type of the column, a bitmap of
+ * the steps where the variable has a value and these values: zigzag varints of their differences for integers,
+ * doubles for floats, bytes for booleans and UTF-8 strings (preceded by their length) for everything else.
+ */
+public class ColumnarWriter implements Writer {
+
+	/** The magic number of the files. */
+	static final int MAGIC = 0x47434F4C;
+
+	/** The version of the format. */
+	static final byte VERSION = 1;
+
+	/** The types of columns. */
+	static final byte INT = 0, FLOAT = 1, BOOLEAN = 2, STRING = 3;
+
+	/** The default number of steps in a block. */
+	public static final int DEFAULT_BLOCK_STEPS = 1000;
+
+	/** The channel of the file. */
+	private FileChannel channel;
+
+	/** The number of steps in a block. */
+	private final int blockSteps;
+
+	/** The steps of the current block. */
+	private final long[] steps;
+
+	/** The names of the variables of the current block. */
+	private String[] names;
+
+	/** The values of the current block, by variable then by step. Null if a variable has no value at a step. */
+	private Object[][] columns;
+
+	/** The number of steps in the current block. */
+	private int count;
+
+	/** The buffer in which the blocks are encoded. */
+	private final Buffer buffer = new Buffer();
+
+	/** The stream used to encode the blocks. */
+	private final DataOutputStream out = new DataOutputStream(buffer);
+
+	/**
+	 * A byte array output stream that gives access to its internal array.
+	 */
+	static class Buffer extends ByteArrayOutputStream {
+
+		/**
+		 * Instantiates a new buffer.
+		 */
+		Buffer() {
+			super(1 << 16);
+		}
+
+		/**
+		 * Wraps the content of the buffer.
+		 *
+		 * @return the byte buffer
+		 */
+		ByteBuffer wrap() {
+			return ByteBuffer.wrap(buf, 0, count);
+		}
+	}
+
+	/**
+	 * Instantiates a new columnar writer.
+	 *
+	 * @param f
+	 *            the path of the file
+	 */
+	public ColumnarWriter(final String f) {
+		this(f, DEFAULT_BLOCK_STEPS);
+	}
+
+	/**
+	 * Instantiates a new columnar writer. The file is only emptied when the header is written, so that a resumed job
+	 * can keep what has been written before its checkpoint.
+	 *
+	 * @param f
+	 *            the path of the file
+	 * @param blockSteps
+	 *            the number of steps in a block
+	 */
+	public ColumnarWriter(final String f, final int blockSteps) {
+		this.blockSteps = Math.max(1, blockSteps);
+		this.steps = new long[this.blockSteps];
+		try {
+			this.channel = FileChannel.open(Path.of(f), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public void writeSimulationHeader(final ExperimentJob s) {
+		if (channel == null) return;
+		try {
+			channel.truncate(0);
+			buffer.reset();
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeUTF(s.getExperimentID());
+			write();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public void writeResultStep(final long step, final ListenedVariable[] vars) {
+		if (channel == null) return;
+		if (count > 0 && !sameVariables(vars)) { flush(); }
+		if (count == 0) {
+			names = new String[vars.length];
+			columns = new Object[vars.length][blockSteps];
+			for (int i = 0; i < vars.length; i++) { names[i] = vars[i].getName(); }
+		}
+		steps[count] = step;
+		for (int i = 0; i < vars.length; i++) { columns[i][count] = valueOf(vars[i].getValue()); }
+		if (++count == blockSteps) { flush(); }
+	}
+
+	/**
+	 * Whether the variables are the ones of the current block.
+	 *
+	 * @param vars
+	 *            the vars
+	 * @return true, if successful
+	 */
+	private boolean sameVariables(final ListenedVariable[] vars) {
+		if (vars.length != names.length) return false;
+		for (int i = 0; i < vars.length; i++) { if (!names[i].equals(vars[i].getName())) return false; }
+		return true;
+	}
+
+	/**
+	 * The value kept for a variable: numbers and booleans as they are, everything else as a string, as it could
+	 * change before the block is written.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the object, or null if the variable has no value
+	 */
+	private static Object valueOf(final Object value) {
+		if (value == null || value instanceof ListenedVariable.NA) return null;
+		if (value instanceof Number || value instanceof Boolean) return value;
+		return value.toString();
+	}
+
+	/**
+	 * Encodes the current block and writes it to the file.
+	 */
+	private void flush() {
+		if (count == 0) return;
+		try {
+			buffer.reset();
+			out.writeInt(count);
+			long previous = 0;
+			for (int i = 0; i < count; i++) {
+				writeVarLong(steps[i] - previous);
+				previous = steps[i];
+			}
+			out.writeInt(names.length);
+			for (int v = 0; v < names.length; v++) { writeColumn(names[v], columns[v]); }
+			write();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		count = 0;
+		columns = null;
+	}
+
+	/**
+	 * Encodes a column of the current block.
+	 *
+	 * @param name
+	 *            the name of the variable
+	 * @param column
+	 *            the values
+	 * @throws IOException
+	 *            Signals that an I/O exception has occurred.
+	 */
+	private void writeColumn(final String name, final Object[] column) throws IOException {
+		out.writeUTF(name);
+		final byte type = typeOf(column);
+		out.writeByte(type);
+		final byte[] bitmap = new byte[(count + 7) / 8];
+		for (int i = 0; i < count; i++) { if (column[i] != null) { bitmap[i >> 3] |= 1 << (i & 7); } }
+		out.write(bitmap);
+		long previous = 0;
+		for (int i = 0; i < count; i++) {
+			final Object value = column[i];
+			if (value == null) { continue; }
+			switch (type) {
+				case INT -> {
+					final long l = ((Number) value).longValue();
+					writeVarLong(zigzag(l - previous));
+					previous = l;
+				}
+				case FLOAT -> out.writeDouble(((Number) value).doubleValue());
+				case BOOLEAN -> out.writeByte((Boolean) value ? 1 : 0);
+				default -> {
+					final byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+					out.writeInt(bytes.length);
+					out.write(bytes);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The type of a column: the most specific type shared by all its values.
+	 *
+	 * @param column
+	 *            the column
+	 * @return the type
+	 */
+	private byte typeOf(final Object[] column) {
+		boolean ints = true, numbers = true, booleans = true;
+		for (int i = 0; i < count; i++) {
+			final Object value = column[i];
+			if (value == null) { continue; }
+			final boolean integral = value instanceof Integer || value instanceof Long || value instanceof Short
+					|| value instanceof Byte;
+			ints &= integral;
+			numbers &= value instanceof Number;
+			booleans &= value instanceof Boolean;
+		}
+		if (ints && numbers) return INT;
+		if (numbers) return FLOAT;
+		if (booleans) return BOOLEAN;
+		return STRING;
+	}
+
+	/**
+	 * Zigzag encoding, which maps small negative numbers to small positive ones.
+	 *
+	 * @param l
+	 *            the l
+	 * @return the long
+	 */
+	private static long zigzag(final long l) {
+		return l << 1 ^ l >> 63;
+	}
+
+	/**
+	 * Writes an unsigned varint.
+	 *
+	 * @param l
+	 *            the l
+	 * @throws IOException
+	 *            Signals that an I/O exception has occurred.
+	 */
+	private void writeVarLong(long l) throws IOException {
+		while ((l & ~0x7FL) != 0) {
+			out.writeByte((int) (l & 0x7F | 0x80));
+			l >>>= 7;
+		}
+		out.writeByte((int) l);
+	}
+
+	/**
+	 * Writes the content of the buffer to the file.
+	 *
+	 * @throws IOException
+	 *            Signals that an I/O exception has occurred.
+	 */
+	private void write() throws IOException {
+		final ByteBuffer bytes = buffer.wrap();
+		while (bytes.hasRemaining()) { channel.write(bytes); }
+		buffer.reset();
+	}
+
+	@Override
+	public long getPosition() {
+		if (channel == null) return -1;
+		flush();
+		try {
+			return channel.position();
+		} catch (IOException e) {
+			e.printStackTrace();
+			return -1;
+		}
+	}
+
+	@Override
+	public void resumeAt(final long position) {
+		if (channel == null || position < 0) return;
+		count = 0;
+		columns = null;
+		try {
+			channel.truncate(position);
+			channel.position(position);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public void close() {
+		if (channel == null) return;
+		flush();
+		try {
+			buffer.reset();
+			out.writeInt(0);
+			write();
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		channel = null;
+	}
+
+}
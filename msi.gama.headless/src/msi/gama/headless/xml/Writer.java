@@ -34,6 +34,21 @@ public interface Writer {
 	 */
 	public void writeResultStep(long step, ListenedVariable[] vars);
 
+	/**
+	 * The position of the writer in its output, recorded in checkpoints.
+	 *
+	 * @return the position, or -1 if it is unknown
+	 */
+	default long getPosition() { return -1; }
+
+	/**
+	 * Resumes writing at a position previously returned by {@link #getPosition()}, discarding what has been written
+	 * after it. Replaces the call to {@link #writeSimulationHeader(ExperimentJob)} when a job is resumed.
+	 *
+	 * @param position the position
+	 */
+	default void resumeAt(final long position) {}
+
 	/**
 	 * Close.
 	 */
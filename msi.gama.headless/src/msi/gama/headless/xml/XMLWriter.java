@@ -11,6 +11,12 @@
 package msi.gama.headless.xml;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
 import msi.gama.headless.core.*;
 import msi.gama.headless.job.ExperimentJob;
 import msi.gama.headless.job.ListenedVariable;
@@ -23,16 +29,19 @@ public class XMLWriter implements Writer {
 	/** The file. */
 	private BufferedWriter file;
 
+	/** The channel of the file, null if the writer does not write to a file. */
+	private FileChannel channel;
+
 	/**
-	 * Instantiates a new XML writer.
+	 * Instantiates a new XML writer. The file is only emptied when the header is written, so that a resumed job can
+	 * keep what has been written before its checkpoint.
 	 *
 	 * @param f the f
 	 */
 	public XMLWriter(final String f) {
 		try {
-			this.file = new BufferedWriter(new FileWriter(f));
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
+			this.channel = FileChannel.open(Path.of(f), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			this.file = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -82,6 +91,7 @@ public class XMLWriter implements Writer {
 		String res = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
 		res += "<Simulation id=\"" + s.getExperimentID() + "\" >\n";
 		try {
+			if (channel != null) { channel.truncate(0); }
 			this.file.write(res);
 			this.file.flush();
 		} catch (IOException e) {
@@ -90,4 +100,28 @@ public class XMLWriter implements Writer {
 
 	}
 
+	@Override
+	public long getPosition() {
+		if (channel == null) return -1;
+		try {
+			this.file.flush();
+			return channel.position();
+		} catch (IOException e) {
+			e.printStackTrace();
+			return -1;
+		}
+	}
+
+	@Override
+	public void resumeAt(final long position) {
+		if (channel == null || position < 0) return;
+		try {
+			this.file.flush();
+			channel.truncate(position);
+			channel.position(position);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
 }
@@ -14,16 +14,24 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.xtext.resource.SynchronizedXtextResourceSet;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Iterables;
 import com.google.inject.Injector;
 
 import msi.gama.kernel.model.IModel;
+import msi.gama.lang.gaml.indexer.GamlResourceIndexer;
 import msi.gama.lang.gaml.resource.GamlResource;
 import msi.gama.precompiler.GamlProperties;
 import msi.gaml.compilation.GamlCompilationError;
@@ -55,6 +63,23 @@ public class GamlModelBuilder implements IGamlModelBuilder {
 	/** The build resource set. */
 	private final ResourceSet buildResourceSet;
 
+	/** The maximum number of model descriptions kept by {@link #compileWithCache(File, List)}. */
+	private static final int MAX_CACHED_MODELS = 32;
+
+	/**
+	 * The descriptions of the models compiled by {@link #compileWithCache(File, List)}, indexed by their path. The
+	 * least recently used ones are discarded beyond {@link #MAX_CACHED_MODELS}.
+	 */
+	private final Cache<String, CachedModel> cachedModels =
+			CacheBuilder.newBuilder().maximumSize(MAX_CACHED_MODELS).build();
+
+	/**
+	 * The validated description of a model, the files it has been built from (the model and its imports), their sizes
+	 * and dates of modification, the hash of their contents, and the errors and warnings produced by its validation.
+	 */
+	private record CachedModel(ModelDescription description, List<File> files, String stamp, String hash,
+			List<GamlCompilationError> errors) {}
+
 	/**
 	 * A constructor that builds the resource set based on an existing injecto
 	 *
@@ -128,6 +153,151 @@ public class GamlModelBuilder implements IGamlModelBuilder {
 		return model;
 	}
 
+	/**
+	 * Compiles a file to a GAMA model, like {@link #compile(File, List, GamlProperties)}, but only parses and validates
+	 * it once: its description is kept, indexed by the path of the file, and each call only instantiates a new model
+	 * from it. The description is built again when the contents of the file, or of one of the files it imports, have
+	 * changed (which is only checked, by hashing them, when their sizes or dates of modification have changed). Meant
+	 * for the runs of many replications of the same model (headless jobs), which can then instantiate their models
+	 * concurrently. Only the {@link #MAX_CACHED_MODELS} most recently used descriptions are kept.
+	 *
+	 * @param myFile
+	 *            the model file
+	 * @param errors
+	 *            a list that will be filled with compilation errors / warnings (can be null)
+	 * @return a new instance of the compiled model
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws IllegalArgumentException
+	 *             Signals that errors occured
+	 */
+	public IModel compileWithCache(final File myFile, final List<GamlCompilationError> errors)
+			throws IOException, IllegalArgumentException {
+		if (myFile == null) throw new IOException("Model file is null");
+		final String fileName = myFile.getAbsolutePath();
+		if (!myFile.exists()) throw new IOException("Model file does not exist: " + fileName);
+		CachedModel cached = upToDate(fileName, cachedModels.getIfPresent(fileName));
+		if (cached == null) { cached = cacheModel(myFile); }
+		if (errors != null) { errors.addAll(cached.errors); }
+		// Descriptions are not meant to be compiled concurrently
+		synchronized (cached.description) {
+			return (IModel) cached.description.compile();
+		}
+	}
+
+	/**
+	 * Builds the description of a model and caches it, unless another thread has just done it.
+	 *
+	 * @param myFile
+	 *            the my file
+	 * @return the cached model
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws IllegalArgumentException
+	 *             Signals that errors occured
+	 */
+	private synchronized CachedModel cacheModel(final File myFile) throws IOException, IllegalArgumentException {
+		final String fileName = myFile.getAbsolutePath();
+		final CachedModel existing = upToDate(fileName, cachedModels.getIfPresent(fileName));
+		if (existing != null) return existing;
+		DEBUG.LOG(fileName + " model is being compiled...");
+		final List<GamlCompilationError> errors = new ArrayList<>();
+		final URI uri = URI.createFileURI(fileName);
+		final ModelDescription description = buildModelDescription(uri, errors);
+		if (description == null) {
+			cachedModels.invalidate(fileName);
+			throw new IllegalArgumentException("Compilation errors: \n" + StreamEx.of(errors).joining("\n"));
+		}
+		final List<File> files = new ArrayList<>();
+		files.add(myFile);
+		for (final URI imported : GamlResourceIndexer.allImportsOf(uri).keySet()) {
+			if (imported.isFile()) { files.add(new File(imported.toFileString())); }
+		}
+		final CachedModel result = new CachedModel(description, files, stampOf(files), hashOf(files), errors);
+		cachedModels.put(fileName, result);
+		return result;
+	}
+
+	/**
+	 * Returns the model passed if the files it has been built from have not changed since, null otherwise. The contents
+	 * of the files are only read and hashed when their sizes or dates of modification have changed.
+	 *
+	 * @param fileName
+	 *            the path of the model file
+	 * @param cached
+	 *            the cached model, or null
+	 * @return the cached model (with the new sizes and dates of its files if only them have changed), or null
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private CachedModel upToDate(final String fileName, final CachedModel cached) throws IOException {
+		if (cached == null) return null;
+		final String stamp = stampOf(cached.files);
+		if (stamp.equals(cached.stamp)) return cached;
+		if (!cached.hash.equals(hashOf(cached.files))) return null;
+		// The files have been touched, but their contents are the same
+		final CachedModel touched =
+				new CachedModel(cached.description, cached.files, stamp, cached.hash, cached.errors);
+		cachedModels.put(fileName, touched);
+		return touched;
+	}
+
+	/**
+	 * Returns the sizes and dates of modification of the files.
+	 *
+	 * @param files
+	 *            the files
+	 * @return the stamp
+	 */
+	private static String stampOf(final List<File> files) {
+		final StringBuilder sb = new StringBuilder();
+		for (final File file : files) { sb.append(file.length()).append(':').append(file.lastModified()).append(';'); }
+		return sb.toString();
+	}
+
+	/**
+	 * Computes the hash of the contents of the files.
+	 *
+	 * @param files
+	 *            the files
+	 * @return the hash, in hexadecimal
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static String hashOf(final List<File> files) throws IOException {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for (final File file : files) {
+				if (file.exists()) { digest.update(Files.readAllBytes(file.toPath())); }
+				// Separates the files (and distinguishes missing ones from empty ones)
+				digest.update((byte) 0);
+			}
+			return HexFormat.of().formatHex(digest.digest());
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * The files from which a model has been compiled by {@link #compileWithCache(File, List)}: the model file and the
+	 * files it imports.
+	 *
+	 * @param myFile
+	 *            the model file
+	 * @return the files, or only the model file if it has not been compiled with the cache
+	 */
+	public List<File> getFilesOf(final File myFile) {
+		final CachedModel cached = cachedModels.getIfPresent(myFile.getAbsolutePath());
+		return cached == null ? List.of(myFile) : cached.files;
+	}
+
+	/**
+	 * Forgets the descriptions of the models compiled by {@link #compileWithCache(File, List)}.
+	 */
+	public void clearCache() {
+		cachedModels.invalidateAll();
+	}
+
 	/**
 	 * Compile.
 	 *
@@ -10,7 +10,9 @@
  ********************************************************************************************************/
 package ummisco.gama.serializer.gaml;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
@@ -28,6 +30,7 @@ import msi.gama.util.file.GamaFile;
 import msi.gaml.types.IContainerType;
 import msi.gaml.types.IType;
 import msi.gaml.types.Types;
+import ummisco.gama.serializer.implementations.BinarySerialisation;
 
 /**
  * The Class GamaSavedSimulationFile.
@@ -36,13 +39,13 @@ import msi.gaml.types.Types;
 		name = IKeyword.AGENT,
 		extensions = { IKeyword.AGENT },
 		buffer_type = IType.LIST,
-		buffer_content = IType.STRING,
+		buffer_content = IType.NONE,
 		buffer_index = IType.INT,
 		concept = { IConcept.FILE, IConcept.SAVE_FILE },
-		doc = @doc ("Represents a saved agent file. The internal contents is a string at index 0 that contains the binary (bytes) representation of the agent"))
+		doc = @doc ("Represents a saved agent file. The internal contents is, at index 0, the object or the agent (recreated in the current simulation) read from the file"))
 // TODO : this type needs to be improved ....
 @SuppressWarnings ({ "unchecked" })
-public class GamaSavedAgentFile extends GamaFile<IList<String>, String> implements ISerialisationConstants {
+public class GamaSavedAgentFile extends GamaFile<IList<Object>, Object> implements ISerialisationConstants {
 
 	/**
 	 * Instantiates a new gama saved simulation file.
@@ -60,14 +63,18 @@ public class GamaSavedAgentFile extends GamaFile<IList<String>, String> implemen
 	}
 
 	@Override
-	public IContainerType<?> getGamlType() { return Types.FILE.of(Types.INT, Types.STRING); }
+	public IContainerType<?> getGamlType() { return Types.FILE.of(Types.INT, Types.NO_TYPE); }
 
+	/**
+	 * Reads the record through a stream, so that the file is never entirely held in memory (see
+	 * {@link BinarySerialisation#createFromStream(IScope, InputStream)}).
+	 */
 	@Override
 	protected void fillBuffer(final IScope scope) throws GamaRuntimeException {
-		byte[] bytes;
-		try {
-			bytes = Files.readAllBytes(Path.of(getPath(scope)));
-			setBuffer(GamaListFactory.create(scope, Types.STRING, new String(bytes, STRING_BYTE_ARRAY_CHARSET)));
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(Path.of(getPath(scope))))) {
+			final IList<Object> contents = GamaListFactory.create(Types.NO_TYPE);
+			contents.add(BinarySerialisation.createFromStream(scope, in));
+			setBuffer(contents);
 		} catch (IOException e) {
 			setBuffer(GamaListFactory.create());
 			throw GamaRuntimeException.create(e, scope);
@@ -26,10 +26,10 @@ import msi.gaml.types.IType;
 		name = IKeyword.SIMULATION,
 		extensions = { "gsim", IKeyword.SIMULATION },
 		buffer_type = IType.LIST,
-		buffer_content = IType.STRING,
+		buffer_content = IType.NONE,
 		buffer_index = IType.INT,
 		concept = { IConcept.FILE, IConcept.SAVE_FILE },
-		doc = @doc ("Represents a saved simulation file. The internal contents is a string at index 0 that contains the binary (bytes) representation of the simulation"))
+		doc = @doc ("Represents a saved simulation file. The internal contents is, at index 0, the simulation recreated from the file"))
 // TODO : this type needs to be improved ....
 @SuppressWarnings ({ "unchecked" })
 public class GamaSavedSimulationFile extends GamaSavedAgentFile implements ISerialisationConstants {
@@ -29,6 +29,7 @@ import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.IContainer;
 import msi.gama.util.file.json.Json;
+import msi.gama.util.file.json.JsonStreamer;
 import msi.gama.util.file.json.WriterConfig;
 import msi.gaml.compilation.GAML;
 import msi.gaml.descriptions.IDescription;
@@ -210,6 +211,10 @@ public class SerialisationOperators {
 			value = { "to_json" },
 			category = { IOperatorCategory.CASTING },
 			concept = { IConcept.SERIALIZE })
+	@test ("to_json([1, 2.5, 'a', nil]) = to_json([1, 2.5, 'a', nil], false)")
+	@test ("to_json(['a'::1/3, 'b'::['c'::[-0.5]]]) = to_json(['a'::1/3, 'b'::['c'::[-0.5]]], false)")
+	@test ("to_json([#pi, 1.0E10, 1.0E-10, #infinity]) = to_json([#pi, 1.0E10, 1.0E-10, #infinity], false)")
+	@test ("to_json([point(1, 2), #red]) = to_json([point(1, 2), #red], false)")
 	@doc (
 			value = "Serializes any object/agent/simulation into a string, using the json format and no pretty printing."
 					+ "The format used by GAMA follows simple rules. int, float, bool, string values are outputted as they are. nil is outputted as 'null'. A list is outputted as a json array. Any other object or agent is outputted as a json object. If this object possesses the \"gaml_type\" attribute, "
@@ -218,7 +223,9 @@ public class SerialisationOperators {
 					+ "This choice allows to manage cross references between agents",
 			see = { "serialize", "to_gaml" })
 	public static String toJson(final IScope scope, final Object obj) {
-		return toJson(scope, obj, false);
+		try (JsonStreamer streamer = JsonStreamer.get()) {
+			return streamer.value(obj).toString();
+		}
 	}
 
 	/**
@@ -10,12 +10,17 @@
  ********************************************************************************************************/
 package ummisco.gama.serializer.implementations;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
 
 import msi.gama.common.interfaces.ISerialisationConstants;
 import msi.gama.common.util.FileUtils;
@@ -26,6 +31,8 @@ import msi.gama.runtime.GAMA;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.ByteArrayZipper;
+import msi.gama.util.LZ4BlockInputStream;
+import msi.gama.util.LZ4BlockOutputStream;
 
 /**
  * The Class BinarySerialisationReader.
@@ -47,9 +54,9 @@ public class BinarySerialisation implements ISerialisationConstants {
 	 * @date 31 oct. 2023
 	 */
 	public static Object createFromFile(final IScope scope, final String path) {
-		try {
-			byte[] all = Files.readAllBytes(Path.of(FileUtils.constructAbsoluteFilePath(scope, path, true)));
-			return createFromBytes(scope, all);
+		try (InputStream in = new BufferedInputStream(
+				Files.newInputStream(Path.of(FileUtils.constructAbsoluteFilePath(scope, path, true))))) {
+			return createFromStream(scope, in);
 		} catch (IOException e) {
 			throw GamaRuntimeException.create(e, GAMA.getRuntimeScope());
 		}
@@ -93,17 +100,61 @@ public class BinarySerialisation implements ISerialisationConstants {
 	 * @date 31 oct. 2023
 	 */
 	public static Object createFromBytes(final IScope scope, final byte[] bytes) {
-		byte type = bytes[0];
+		try {
+			return createFromStream(scope, new ByteArrayInputStream(bytes));
+		} catch (IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	/**
+	 * Creates an object or an agent from a stream, which can contain either a single serialised form or a sequence of
+	 * frames (see {@link ISerialisationProcessor#saveAgentToStream}).
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param in
+	 *            the stream
+	 * @return the object
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static Object createFromStream(final IScope scope, final InputStream in) throws IOException {
+		byte type = (byte) in.read();
 		if (type != GAMA_OBJECT_IDENTIFIER && type != GAMA_AGENT_IDENTIFIER)
 			throw GamaRuntimeException.error("Not a GAMA serialisation record", scope);
-		ISerialisationProcessor processor = SerialisationProcessorFactory.create(bytes[1]);
-		boolean zip = bytes[2] == COMPRESSED;
-		byte[] some = Arrays.copyOfRange(bytes, 3, bytes.length);
-		if (zip) { some = ByteArrayZipper.unzip(some); }
+		ISerialisationProcessor<?> processor = SerialisationProcessorFactory.create((byte) in.read());
+		byte compression = (byte) in.read();
+		if ((compression & FRAMED) != 0) {
+			InputStream body = decompress(in, compression);
+			return type == GAMA_OBJECT_IDENTIFIER ? processor.createObjectFromStream(scope, body)
+					: processor.createAgentFromStream(scope, body);
+		}
+		byte[] some = in.readAllBytes();
+		if (compression == COMPRESSED) { some = ByteArrayZipper.unzip(some); }
 		return type == GAMA_OBJECT_IDENTIFIER ? processor.createObjectFromBytes(scope, some)
 				: processor.createAgentFromBytes(scope, some);
 	}
 
+	/**
+	 * Returns the stream from which the frames are read, depending on the compression used when writing them.
+	 *
+	 * @param in
+	 *            the in
+	 * @param compression
+	 *            the compression byte of the header
+	 * @return the input stream
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static InputStream decompress(final InputStream in, final byte compression) throws IOException {
+		return switch (compression & ~FRAMED) {
+			case LZ4_COMPRESSED -> new LZ4BlockInputStream(in);
+			case COMPRESSED -> new GZIPInputStream(in);
+			default -> in;
+		};
+	}
+
 	/**
 	 * Restore from file.
 	 *
@@ -113,9 +164,8 @@ public class BinarySerialisation implements ISerialisationConstants {
 	 * @date 8 août 2023
 	 */
 	public static void restoreFromFile(final IAgent agent, final String path) {
-		try {
-			byte[] all = Files.readAllBytes(Path.of(path));
-			restoreFromBytes(agent, all);
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(Path.of(path)))) {
+			restoreFromStream(agent, in);
 		} catch (IOException e) {
 			throw GamaRuntimeException.create(e, agent.getScope());
 		}
@@ -159,16 +209,36 @@ public class BinarySerialisation implements ISerialisationConstants {
 	 * @date 8 août 2023
 	 */
 	public static void restoreFromBytes(final IAgent sim, final byte[] bytes) throws IOException {
-		if (bytes[0] != GAMA_AGENT_IDENTIFIER) throw new IOException("Not an agent serialisation record");
-		ISerialisationProcessor processor = SerialisationProcessorFactory.create(bytes[1]);
-		boolean zip = bytes[2] == COMPRESSED;
-		byte[] some = Arrays.copyOfRange(bytes, 3, bytes.length);
-		if (zip) { some = ByteArrayZipper.unzip(some); }
-		processor.restoreAgentFromBytes(sim, some);
+		restoreFromStream(sim, new ByteArrayInputStream(bytes));
+	}
+
+	/**
+	 * Restores an agent from a stream, which can contain either a single serialised form or a sequence of frames (see
+	 * {@link ISerialisationProcessor#saveAgentToStream}).
+	 *
+	 * @param agent
+	 *            the agent
+	 * @param in
+	 *            the stream
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static void restoreFromStream(final IAgent agent, final InputStream in) throws IOException {
+		if (in.read() != GAMA_AGENT_IDENTIFIER) throw new IOException("Not an agent serialisation record");
+		ISerialisationProcessor<?> processor = SerialisationProcessorFactory.create((byte) in.read());
+		byte compression = (byte) in.read();
+		if ((compression & FRAMED) != 0) {
+			processor.restoreAgentFromStream(agent, decompress(in, compression));
+			return;
+		}
+		byte[] some = in.readAllBytes();
+		if (compression == COMPRESSED) { some = ByteArrayZipper.unzip(some); }
+		processor.restoreAgentFromBytes(agent, some);
 	}
 
 	/**
-	 * Save to file.
+	 * Save to file. The agent or object is streamed to the file as a sequence of frames, compressed by blocks if
+	 * required, so that its serialised form is never entirely held in memory.
 	 *
 	 * @author Alexis Drogoul (alexis.drogoul@ird.fr)
 	 * @param scope
@@ -187,17 +257,67 @@ public class BinarySerialisation implements ISerialisationConstants {
 	 */
 	public static final void saveToFile(final IScope scope, final Object o, final String path, final String format,
 			final boolean zip, final boolean includingHistory) {
-		try (FileOutputStream fos = new FileOutputStream(path, true)) {
+		try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(path, true))) {
 			if (o instanceof SimulationAgent sim) {
 				sim.setAttribute(SerialisedAgent.SERIALISE_HISTORY, includingHistory);
 			}
-			fos.write(saveToBytes(scope, o, format, zip));
+			saveToStream(scope, o, fos, format, zip);
 			if (o instanceof SimulationAgent sim) { sim.setAttribute(SerialisedAgent.SERIALISE_HISTORY, false); }
 		} catch (IOException e) {
 			throw GamaRuntimeException.create(e, scope);
 		}
 	}
 
+	/**
+	 * Saves an agent or an object to a stream, as a header followed by a sequence of frames, compressed by blocks (with
+	 * {@link LZ4BlockOutputStream}) if required.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param o
+	 *            the object to serialise
+	 * @param out
+	 *            the stream, which is not closed
+	 * @param format
+	 *            the format of the serialisation
+	 * @param zip
+	 *            whether to compress the frames or not
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static final void saveToStream(final IScope scope, final Object o, final OutputStream out,
+			final String format, final boolean zip) throws IOException {
+		ISerialisationProcessor<?> processor = getProcessor(scope, format);
+		out.write(o instanceof IAgent ? GAMA_AGENT_IDENTIFIER : GAMA_OBJECT_IDENTIFIER);
+		out.write(processor.getFormatIdentifier());
+		out.write(FRAMED | (zip ? LZ4_COMPRESSED : UNCOMPRESSED));
+		LZ4BlockOutputStream lz4 = zip ? new LZ4BlockOutputStream(out) : null;
+		OutputStream body = zip ? lz4 : out;
+		if (o instanceof IAgent a) {
+			processor.saveAgentToStream(scope, a, body);
+		} else {
+			processor.saveObjectToStream(scope, o, body);
+		}
+		if (lz4 != null) { lz4.finish(); }
+		out.flush();
+	}
+
+	/**
+	 * Gets the processor corresponding to a format.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param format
+	 *            the format
+	 * @return the processor
+	 */
+	private static ISerialisationProcessor<?> getProcessor(final IScope scope, final String format) {
+		ISerialisationProcessor<?> processor = SerialisationProcessorFactory.create(format);
+		if (processor == null) throw GamaRuntimeException.error("No object serializer called " + format
+				+ " found. Available serializers are " + SerialisationProcessorFactory.getAvailableProcessors(), scope);
+		return processor;
+	}
+
 	/**
 	 * Save to string.
 	 *
@@ -221,9 +341,7 @@ public class BinarySerialisation implements ISerialisationConstants {
 	 */
 	public static final byte[] saveToBytes(final IScope scope, final Object agent, final String format,
 			final boolean zip) {
-		ISerialisationProcessor processor = SerialisationProcessorFactory.create(format);
-		if (processor == null) throw GamaRuntimeException.error("No object serializer called " + format
-				+ " found. Available serializers are " + SerialisationProcessorFactory.getAvailableProcessors(), scope);
+		ISerialisationProcessor<?> processor = getProcessor(scope, format);
 		byte[] toSave = agent instanceof IAgent a ? processor.saveAgentToBytes(scope, a)
 				: processor.saveObjectToBytes(scope, agent);
 		if (zip) { toSave = ByteArrayZipper.zip(toSave); }
@@ -10,9 +10,21 @@
  ********************************************************************************************************/
 package ummisco.gama.serializer.implementations;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 import org.locationtech.jts.geom.Geometry;
 import org.nustaq.serialization.FSTConfiguration;
@@ -26,19 +38,25 @@ import msi.gama.metamodel.agent.AgentReference;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.agent.ISerialisedAgent;
 import msi.gama.metamodel.agent.SerialisedAgent;
+import msi.gama.metamodel.population.IPopulation;
 import msi.gama.metamodel.population.ISerialisedPopulation;
 import msi.gama.metamodel.population.SerialisedGrid;
 import msi.gama.metamodel.population.SerialisedPopulation;
+import msi.gama.metamodel.shape.GamaPoint;
 import msi.gama.metamodel.shape.GamaShape;
 import msi.gama.metamodel.shape.GamaShapeFactory;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.metamodel.shape.IShape.Type;
+import msi.gama.metamodel.topology.grid.GridPopulation;
 import msi.gama.metamodel.topology.grid.IGrid;
+import msi.gama.metamodel.topology.grid.IGridAgent;
 import msi.gama.runtime.IScope;
+import msi.gama.runtime.concurrent.GamaExecutorService;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.GamaFont;
 import msi.gama.util.GamaListFactory;
 import msi.gama.util.GamaMapFactory;
+import msi.gama.util.IContainer;
 import msi.gama.util.IList;
 import msi.gama.util.IMap;
 import msi.gaml.compilation.kernel.GamaClassLoader;
@@ -55,6 +73,12 @@ import msi.gaml.types.IType;
  */
 public abstract class FSTAbstractProcessor extends AbstractSerialisationProcessor<SerialisedAgent> {
 
+	/** The number of agents of a population written in a single frame by {@link #saveAgentToStream}. */
+	public static final int CHUNK_SIZE = 10000;
+
+	/** The kinds of frames. */
+	static final byte END_FRAME = 0, AGENT_FRAME = 1, POPULATION_FRAME = 2, OBJECT_FRAME = 3;
+
 	/** The fst. */
 	FSTConfiguration fst;
 
@@ -468,4 +492,301 @@ public abstract class FSTAbstractProcessor extends AbstractSerialisationProcesso
 		image.restoreAs(sim.getScope(), sim);
 	}
 
+	/**
+	 * Save agent to stream. The agent is written first, without its populations, then each population in chunks of at
+	 * most {@link #CHUNK_SIZE} agents (the first chunk of a grid also contains its matrix). The chunks are encoded in
+	 * parallel, by batches of as many chunks as there are threads allowed, so that only one batch is held in memory at
+	 * a time. Every population is written, even empty, so that its agents can be killed on restoration.
+	 *
+	 * As FST only keeps the references shared inside a frame, the agent is written in a single frame if some of its
+	 * values (lists, maps, geometries...) would be shared by different frames (see {@link #sharesValuesBetweenFrames}),
+	 * so that these values remain shared once restored.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param agent
+	 *            the agent
+	 * @param stream
+	 *            the stream
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Override
+	public void saveAgentToStream(final IScope scope, final IAgent agent, final OutputStream stream)
+			throws IOException {
+		DataOutputStream out = new DataOutputStream(stream);
+		SerialisedAgent image = SerialisedAgent.of(agent, false);
+		Map<String, IPopulation<? extends IAgent>> populations = new LinkedHashMap<>();
+		for (Iterator<Map.Entry<String, Object>> it = image.attributes().entrySet().iterator(); it.hasNext();) {
+			Map.Entry<String, Object> entry = it.next();
+			if (entry.getValue() instanceof IPopulation<?> p) {
+				populations.put(entry.getKey(), p);
+				it.remove();
+			}
+		}
+		if (sharesValuesBetweenFrames(image, populations)) {
+			writeFrame(out, AGENT_FRAME, null, write(scope, SerialisedAgent.of(agent, true)));
+			out.writeByte(END_FRAME);
+			out.flush();
+			return;
+		}
+		writeFrame(out, AGENT_FRAME, null,
+				write(scope, new SerialisedAgent(image.index(), image.species(), image.attributes(), new HashMap<>())));
+		final int batch = Math.max(1, GamaExecutorService.THREADS_NUMBER.getValue());
+		for (Map.Entry<String, IPopulation<? extends IAgent>> entry : populations.entrySet()) {
+			final IPopulation<? extends IAgent> pop = entry.getValue();
+			final String species = pop.getSpecies().getName();
+			final IAgent[] agents = pop.toArray(new IAgent[pop.size()]);
+			final int chunks = Math.max(1, (agents.length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+			for (int start = 0; start < chunks; start += batch) {
+				final int first = start;
+				final byte[][] frames = new byte[Math.min(batch, chunks - start)][];
+				final IntConsumer encode = i -> {
+					int c = first + i;
+					List<ISerialisedAgent> chunk = new ArrayList<>(CHUNK_SIZE);
+					for (int j = c * CHUNK_SIZE; j < Math.min(agents.length, (c + 1) * CHUNK_SIZE); j++) {
+						chunk.add(SerialisedAgent.of(agents[j], true));
+					}
+					frames[i] = write(scope, c == 0 && pop.isGrid()
+							? new SerialisedGrid(species, chunk, ((GridPopulation) pop).getTopology().getPlaces())
+							: new SerialisedPopulation(species, chunk));
+				};
+				if (frames.length == 1) {
+					encode.accept(0);
+				} else {
+					GamaExecutorService
+							.executeThreaded(() -> IntStream.range(0, frames.length).parallel().forEach(encode));
+				}
+				for (byte[] frame : frames) { writeFrame(out, POPULATION_FRAME, entry.getKey(), frame); }
+			}
+		}
+		out.writeByte(END_FRAME);
+		out.flush();
+	}
+
+	/**
+	 * Whether some values of an agent and of the agents of its populations would be written in different frames by
+	 * {@link #saveAgentToStream}: the attributes of the agent in the first frame, then the agents of each population
+	 * by chunks of {@link #CHUNK_SIZE}. Only the values that can be modified in place, i.e. the containers and the
+	 * geometries, are taken into account, and the containers are explored.
+	 *
+	 * @param image
+	 *            the agent, without its populations
+	 * @param populations
+	 *            the populations of the agent
+	 * @return true if a value would be shared by two frames
+	 */
+	static boolean sharesValuesBetweenFrames(final SerialisedAgent image,
+			final Map<String, IPopulation<? extends IAgent>> populations) {
+		final Map<Object, Integer> frames = new IdentityHashMap<>();
+		for (Object v : image.attributes().values()) { if (!markValueFrame(v, -1, frames)) return true; }
+		int first = 0;
+		for (IPopulation<? extends IAgent> pop : populations.values()) {
+			int i = 0;
+			for (IAgent a : pop) {
+				if (!markFrame(a, first + i++ / CHUNK_SIZE, frames)) return true;
+			}
+			first += Math.max(1, (i + CHUNK_SIZE - 1) / CHUNK_SIZE);
+		}
+		return false;
+	}
+
+	/**
+	 * Records the frame in which an agent is written, i.e. the ones of its geometry, of its attributes and of the
+	 * agents of its populations.
+	 *
+	 * @param agent
+	 *            the agent
+	 * @param frame
+	 *            the frame
+	 * @param frames
+	 *            the frames of the values already met
+	 * @return false if one of the values of the agent has already been met in another frame
+	 */
+	private static boolean markFrame(final IAgent agent, final int frame, final Map<Object, Integer> frames) {
+		final boolean[] alone = { agent instanceof IGridAgent || markValueFrame(agent.getGeometry(), frame, frames) };
+		agent.forEachAttribute((k, v) -> {
+			if (v instanceof IPopulation<?> pop) {
+				for (IAgent a : pop) {
+					if (!markFrame(a, frame, frames)) {
+						alone[0] = false;
+						break;
+					}
+				}
+			} else if (!SerialisedAgent.NON_SERIALISABLE.contains(k)) { alone[0] &= markValueFrame(v, frame, frames); }
+			return alone[0];
+		});
+		return alone[0];
+	}
+
+	/**
+	 * Records the frame in which a value is written, and the ones of the values it contains. Agents, which are
+	 * written as references, and values that cannot be modified in place are ignored.
+	 *
+	 * @param value
+	 *            the value
+	 * @param frame
+	 *            the frame
+	 * @param frames
+	 *            the frames of the values already met
+	 * @return false if the value, or one of the values it contains, has already been met in another frame
+	 */
+	private static boolean markValueFrame(final Object value, final int frame, final Map<Object, Integer> frames) {
+		if (value instanceof IAgent || !(value instanceof Collection || value instanceof Map
+				|| value instanceof Object[] || value instanceof IContainer
+				|| value instanceof IShape && !(value instanceof GamaPoint)))
+			return true;
+		final Integer previous = frames.putIfAbsent(value, frame);
+		if (previous != null) return previous.intValue() == frame;
+		if (value instanceof Map<?, ?> map) {
+			for (Map.Entry<?, ?> e : map.entrySet()) {
+				if (!markValueFrame(e.getKey(), frame, frames) || !markValueFrame(e.getValue(), frame, frames))
+					return false;
+			}
+		} else if (value instanceof Collection<?> c) {
+			for (Object v : c) { if (!markValueFrame(v, frame, frames)) return false; }
+		} else if (value instanceof Object[] array) {
+			for (Object v : array) { if (!markValueFrame(v, frame, frames)) return false; }
+		}
+		return true;
+	}
+
+	@Override
+	public void saveObjectToStream(final IScope scope, final Object obj, final OutputStream stream)
+			throws IOException {
+		DataOutputStream out = new DataOutputStream(stream);
+		writeFrame(out, OBJECT_FRAME, null, write(scope, obj));
+		out.writeByte(END_FRAME);
+		out.flush();
+	}
+
+	@Override
+	public void restoreAgentFromStream(final IAgent agent, final InputStream stream) throws IOException {
+		if (readFrames(agent.getScope(), stream) instanceof SerialisedAgent sa) {
+			restoreFromSerialisedForm(agent, sa);
+		} else
+			throw new IOException("Not an agent serialisation record");
+	}
+
+	@Override
+	public IAgent createAgentFromStream(final IScope scope, final InputStream stream) throws IOException {
+		if (readFrames(scope, stream) instanceof SerialisedAgent sa) return sa.recreateIn(scope);
+		return null;
+	}
+
+	@Override
+	public Object createObjectFromStream(final IScope scope, final InputStream stream) throws IOException {
+		return readFrames(scope, stream);
+	}
+
+	/**
+	 * Writes a frame.
+	 *
+	 * @param out
+	 *            the out
+	 * @param kind
+	 *            the kind of frame
+	 * @param name
+	 *            the name of the population, or null
+	 * @param bytes
+	 *            the serialised form
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void writeFrame(final DataOutputStream out, final byte kind, final String name, final byte[] bytes)
+			throws IOException {
+		out.writeByte(kind);
+		if (name != null) { out.writeUTF(name); }
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads frames until the end frame. The frames of populations are decoded in parallel, by batches of as many frames
+	 * as there are threads allowed.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param stream
+	 *            the stream
+	 * @return the serialised agent or the object read
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private Object readFrames(final IScope scope, final InputStream stream) throws IOException {
+		DataInputStream in = new DataInputStream(stream);
+		final int batch = Math.max(1, GamaExecutorService.THREADS_NUMBER.getValue());
+		final List<String> names = new ArrayList<>();
+		final List<byte[]> frames = new ArrayList<>();
+		Object result = null;
+		for (byte kind = in.readByte();; kind = in.readByte()) {
+			if (kind == POPULATION_FRAME) {
+				names.add(in.readUTF());
+				frames.add(readFrame(in));
+				if (frames.size() < batch) { continue; }
+			}
+			addPopulations(scope, result, names, frames);
+			if (kind == END_FRAME) return result;
+			if (kind != POPULATION_FRAME) { result = createObjectFromBytes(scope, readFrame(in)); }
+		}
+	}
+
+	/**
+	 * Reads the bytes of a frame.
+	 *
+	 * @param in
+	 *            the in
+	 * @return the bytes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private byte[] readFrame(final DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Decodes a batch of population frames and adds them to the populations of the agent. The chunks of a population
+	 * are gathered in the first one.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param result
+	 *            the serialised agent
+	 * @param names
+	 *            the names of the populations, cleared afterwards
+	 * @param frames
+	 *            the frames, cleared afterwards
+	 */
+	private void addPopulations(final IScope scope, final Object result, final List<String> names,
+			final List<byte[]> frames) {
+		if (frames.isEmpty()) return;
+		final Object[] decoded = new Object[frames.size()];
+		if (decoded.length == 1) {
+			decoded[0] = createObjectFromBytes(scope, frames.get(0));
+		} else {
+			try {
+				fst.setScope(scope);
+				GamaExecutorService.executeThreaded(() -> IntStream.range(0, decoded.length).parallel()
+						.forEach(i -> decoded[i] = fst.asObject(frames.get(i))));
+			} finally {
+				fst.setScope(null);
+			}
+		}
+		if (result instanceof SerialisedAgent sa) {
+			for (int i = 0; i < decoded.length; i++) {
+				if (!(decoded[i] instanceof ISerialisedPopulation pop)) { continue; }
+				ISerialisedPopulation existing = sa.innerPopulations().get(names.get(i));
+				if (existing == null) {
+					sa.innerPopulations().put(names.get(i), pop);
+				} else {
+					existing.agents().addAll(pop.agents());
+				}
+			}
+		}
+		names.clear();
+		frames.clear();
+	}
+
 }
@@ -10,6 +10,10 @@
  ********************************************************************************************************/
 package ummisco.gama.serializer.implementations;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.agent.ISerialisedAgent;
 import msi.gama.runtime.IScope;
@@ -84,6 +88,73 @@ public interface ISerialisationProcessor<SerialisedForm extends ISerialisedAgent
 	 */
 	Object createObjectFromBytes(final IScope scope, final byte[] input);
 
+	/**
+	 * Saves an agent to a stream, as a sequence of frames (the agent itself, then its populations by chunks of agents),
+	 * so that its serialised form never needs to be held entirely in memory.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param agent
+	 *            the agent
+	 * @param out
+	 *            the stream
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void saveAgentToStream(IScope scope, IAgent agent, OutputStream out) throws IOException;
+
+	/**
+	 * Saves an object to a stream, in a single frame.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param obj
+	 *            the obj
+	 * @param out
+	 *            the stream
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void saveObjectToStream(IScope scope, Object obj, OutputStream out) throws IOException;
+
+	/**
+	 * Restores an agent from the frames written by {@link #saveAgentToStream(IScope, IAgent, OutputStream)}.
+	 *
+	 * @param agent
+	 *            the agent
+	 * @param in
+	 *            the stream
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void restoreAgentFromStream(IAgent agent, InputStream in) throws IOException;
+
+	/**
+	 * Creates an agent from the frames written by {@link #saveAgentToStream(IScope, IAgent, OutputStream)}.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param in
+	 *            the stream
+	 * @return the agent
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	IAgent createAgentFromStream(IScope scope, InputStream in) throws IOException;
+
+	/**
+	 * Creates an object from the frames written by {@link #saveObjectToStream(IScope, Object, OutputStream)}.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param in
+	 *            the stream
+	 * @return the object
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	Object createObjectFromStream(IScope scope, InputStream in) throws IOException;
+
 	/**
 	 * Gets the format identifier.
 	 *
@@ -10,20 +10,66 @@
  ********************************************************************************************************/
 package ummisco.gama.serializer.implementations;
 
-import java.util.LinkedList;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import org.locationtech.jts.geom.CoordinateFilter;
+import org.locationtech.jts.geom.Geometry;
+
 import msi.gama.common.interfaces.ISerialisationConstants;
 import msi.gama.kernel.experiment.ISimulationRecorder;
 import msi.gama.kernel.simulation.SimulationAgent;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.agent.ISerialisedAgent;
 import msi.gama.metamodel.agent.SerialisedAgent;
+import msi.gama.metamodel.population.IPopulation;
+import msi.gama.metamodel.population.ISerialisedPopulation;
+import msi.gama.metamodel.population.SerialisedGrid;
+import msi.gama.metamodel.population.SerialisedPopulation;
+import msi.gama.metamodel.shape.GamaPoint;
+import msi.gama.metamodel.shape.IShape;
+import msi.gama.metamodel.topology.grid.GridPopulation;
+import msi.gama.metamodel.topology.grid.IGrid;
+import msi.gama.runtime.IScope;
 import msi.gama.util.ByteArrayZipper;
+import msi.gama.util.GamaColor;
+import msi.gama.util.GamaDate;
 import ummisco.gama.dev.utils.DEBUG;
+import ummisco.gama.serializer.implementations.SimulationHistory.Frame;
 
 /**
- * The Class SerialisedSimulationRecorder. Used to record, store, and retrieve simulation states
+ * The Class SerialisedSimulationRecorder. Used to record, store, and retrieve simulation states.
+ * <p>
+ * A complete state of the simulation (keyframe) is only recorded periodically (see
+ * {@link msi.gama.common.preferences.GamaPreferences.External#RECORDER_KEYFRAME_INTERVAL}). The other cycles are
+ * recorded as deltas: each agent of the simulation is identified by its path (the names of the populations and the
+ * indices of the agents from the simulation, like "/prey/3/parasite/0"), and only the agents whose attributes differ
+ * from the previous record (compared through a fingerprint computed from their values) are serialised, along with the
+ * paths of the agents that have died. The agents that share mutable values (lists, maps, geometries...) with an agent
+ * that has changed are serialised with it, in the same object graph, so that these values remain shared once rebuilt.
+ * A keyframe is encoded like a delta from an empty simulation (all the agents are stored). A cycle is rebuilt by
+ * applying the nearest keyframe, then the deltas that follow it, to an empty state.
+ * <p>
+ * The records are compressed in the background. When the records of a simulation, compressed or not, exceed their
+ * memory budget (see {@link msi.gama.common.preferences.GamaPreferences.External#RECORDER_MEMORY}), recording waits
+ * for the compression to catch up.
  *
  * @author Alexis Drogoul (alexis.drogoul@ird.fr)
  * @date 8 août 2023
@@ -34,53 +80,8 @@ public class SerialisedSimulationRecorder implements ISimulationRecorder, ISeria
 		DEBUG.ON();
 	}
 
-	/**
-	 * The Class HistoryNode.
-	 *
-	 * @author Alexis Drogoul (alexis.drogoul@ird.fr)
-	 * @date 22 oct. 2023
-	 */
-	private static class HistoryNode {
-
-		/** The bytes. */
-		byte[] bytes;
-
-		/** The cycle. */
-		long cycle;
-
-		/** The path to model. */
-		String pathToModel;
-
-		/** The experiment name. */
-		String experimentName;
-
-		/**
-		 * Instantiates a new history node.
-		 *
-		 * @author Alexis Drogoul (alexis.drogoul@ird.fr)
-		 * @param state
-		 *            the state
-		 * @date 22 oct. 2023
-		 */
-		public HistoryNode(final byte[] state, final long cycle, final String path, final String exp) {
-			bytes = state;
-			this.cycle = cycle;
-			pathToModel = path;
-			experimentName = exp;
-		}
-
-	}
-
-	/**
-	 * The Class SimulationHistory.
-	 *
-	 * @author Alexis Drogoul (alexis.drogoul@ird.fr)
-	 * @date 22 oct. 2023
-	 */
-	private static class SimulationHistory extends LinkedList<HistoryNode> {}
-
-	/** The executor. */
-	ExecutorService executor = Executors.newCachedThreadPool();
+	/** The executor used to compress the records. A single thread, which stops when there is nothing to compress. */
+	ExecutorService executor = new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
 
 	/** The processor. */
 	ISerialisationProcessor processor;
@@ -111,17 +112,266 @@ public class SerialisedSimulationRecorder implements ISimulationRecorder, ISeria
 	public void record(final SimulationAgent sim) {
 		try {
 			long startTime = System.nanoTime();
-			byte[] state = processor.saveAgentToBytes(sim.getScope(), sim);
-			LinkedList<HistoryNode> history = getSimulationHistory(sim);
-			HistoryNode node = new HistoryNode(state, sim.getClock().getCycle(), sim.getModel().getFilePath(),
-					sim.getExperiment().getSpecies().getName());
-			history.push(node);
-			asyncZip(node, startTime);
+			IScope scope = sim.getScope();
+			long cycle = sim.getClock().getCycle();
+			SimulationHistory history = getSimulationHistory(sim);
+			boolean keyframe = history.needsKeyframe(cycle);
+			Capture capture = new Capture();
+			capture(scope, sim, "", capture);
+			// Compared to nothing, all the agents are changes, which make up the keyframe
+			Map<String, Object> changes = capture.changes(keyframe ? Map.of() : history.fingerprints);
+			List<String> deaths = new ArrayList<>();
+			if (!keyframe) {
+				for (String path : history.fingerprints.keySet()) {
+					if (!capture.fingerprints.containsKey(path)) { deaths.add(path); }
+				}
+			}
+			history.fingerprints = capture.fingerprints;
+			asyncZip(history, history.add(cycle, keyframe, encodeDelta(scope, changes, deaths)), startTime);
+			history.awaitBudget();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		} catch (Throwable e) {
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * The state of a capture: the images and fingerprints of the agents, and the mutable values they refer to, so that
+	 * the agents that share some of them are recorded together.
+	 */
+	private static class Capture {
+
+		/**
+		 * A mutable value met during the capture.
+		 */
+		static class Value {
+
+			/** The path of the first agent that refers to it. */
+			final String owner;
+
+			/** Its hash, 0 while it is being computed. */
+			long hash;
+
+			/**
+			 * Instantiates a new value.
+			 *
+			 * @param owner
+			 *            the path of the first agent that refers to it
+			 */
+			Value(final String owner) {
+				this.owner = owner;
+			}
+
+		}
+
+		/** The fingerprints of the agents (and of the matrices of the grids), indexed by their paths. */
+		final Map<String, Long> fingerprints = new HashMap<>();
+
+		/** The images of the agents (and the matrices of the grids), in the order of their capture. */
+		final Map<String, Object> images = new LinkedHashMap<>();
+
+		/** The mutable values met, with the first agent that refers to them and their hash. */
+		final Map<Object, Value> values = new IdentityHashMap<>();
+
+		/** The agents that share values with others, linked to a representative of their group. */
+		final Map<String, String> groups = new HashMap<>();
+
+		/**
+		 * Records that two agents share a value.
+		 *
+		 * @param a
+		 *            the path of the first agent
+		 * @param b
+		 *            the path of the second agent
+		 */
+		void link(final String a, final String b) {
+			String ra = find(a), rb = find(b);
+			// The second agent is usually alone, so that the groups remain flat
+			if (!ra.equals(rb)) { groups.put(rb, ra); }
+		}
+
+		/**
+		 * The representative of the group of an agent.
+		 *
+		 * @param path
+		 *            the path of the agent
+		 * @return the path of the representative
+		 */
+		String find(final String path) {
+			String root = path;
+			for (String parent = groups.get(root); parent != null; parent = groups.get(root)) { root = parent; }
+			if (!root.equals(path)) { groups.put(path, root); }
+			return root;
+		}
+
+		/**
+		 * The images of the agents whose fingerprint is new or different from the previous one, along with the agents
+		 * they share values with, in the order of their capture (hosts before their micro-agents).
+		 *
+		 * @param previous
+		 *            the fingerprints of the previous record
+		 * @return the images, indexed by their paths
+		 */
+		Map<String, Object> changes(final Map<String, Long> previous) {
+			Set<String> changed = new HashSet<>();
+			fingerprints.forEach((path, hash) -> {
+				if (!hash.equals(previous.get(path))) { changed.add(path); }
+			});
+			if (!groups.isEmpty()) {
+				Set<String> roots = new HashSet<>();
+				for (String path : changed) { roots.add(find(path)); }
+				for (String path : images.keySet()) { if (roots.contains(find(path))) { changed.add(path); } }
+			}
+			Map<String, Object> result = new LinkedHashMap<>();
+			images.forEach((path, image) -> { if (changed.contains(path)) { result.put(path, image); } });
+			return result;
+		}
+
+	}
+
+	/**
+	 * Captures an agent and, recursively, the agents of its populations, and computes their fingerprints from the values
+	 * of their attributes. Populations are not part of the image of their host.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param agent
+	 *            the agent
+	 * @param path
+	 *            the path of the agent
+	 * @param capture
+	 *            the capture
+	 */
+	private void capture(final IScope scope, final IAgent agent, final String path, final Capture capture) {
+		SerialisedAgent image = SerialisedAgent.of(agent, false);
+		Map<String, IPopulation<?>> populations = new LinkedHashMap<>();
+		long hash = mix(image.species().hashCode(), image.index());
+		for (Iterator<Map.Entry<String, Object>> it = image.attributes().entrySet().iterator(); it.hasNext();) {
+			Map.Entry<String, Object> entry = it.next();
+			if (entry.getValue() instanceof IPopulation<?> p) {
+				populations.put(entry.getKey(), p);
+				it.remove();
+			} else {
+				// The order of the attributes does not matter
+				hash += mix(entry.getKey().hashCode(), fingerprint(scope, entry.getValue(), path, capture));
+			}
+		}
+		capture.images.put(path, image);
+		capture.fingerprints.put(path, hash);
+		populations.forEach((name, p) -> {
+			String populationPath = path + "/" + name;
+			if (p.isGrid()) {
+				IGrid places = ((GridPopulation) p).getTopology().getPlaces();
+				capture.images.put(populationPath, places);
+				capture.fingerprints.put(populationPath, fingerprint(scope, places, populationPath, capture));
+			}
+			for (IAgent a : p) { capture(scope, a, populationPath + "/" + a.getIndex(), capture); }
+		});
+	}
+
+	/**
+	 * Computes the fingerprint of the value of an attribute, without serialising it when it is made of simple values,
+	 * containers or geometries. Agents are only identified by their species and index. The mutable values are hashed
+	 * once per capture, and the agents that refer to the same ones are linked.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param value
+	 *            the value
+	 * @param path
+	 *            the path of the agent that refers to it
+	 * @param capture
+	 *            the capture
+	 * @return the fingerprint
+	 */
+	private long fingerprint(final IScope scope, final Object value, final String path, final Capture capture) {
+		if (value == null) return 0;
+		if (value instanceof Number || value instanceof String || value instanceof Boolean
+				|| value instanceof Character || value instanceof Enum || value instanceof GamaColor
+				|| value instanceof GamaDate)
+			return mix(value.getClass().hashCode(), value.hashCode());
+		if (value instanceof GamaPoint p)
+			return mix(mix(Double.hashCode(p.x), Double.hashCode(p.y)), Double.hashCode(p.z));
+		if (value instanceof IAgent a) return mix(a.getSpeciesName().hashCode(), a.getIndex());
+		Capture.Value known = capture.values.get(value);
+		if (known != null) {
+			if (!known.owner.equals(path)) { capture.link(known.owner, path); }
+			// Still 0 if the value contains itself
+			return known.hash;
+		}
+		known = new Capture.Value(path);
+		capture.values.put(value, known);
+		long hash = value.getClass().hashCode();
+		if (value instanceof Map<?, ?> m) {
+			for (Map.Entry<?, ?> e : m.entrySet()) {
+				hash = mix(mix(hash, fingerprint(scope, e.getKey(), path, capture)),
+						fingerprint(scope, e.getValue(), path, capture));
+			}
+		} else if (value instanceof Collection<?> c) {
+			for (Object o : c) { hash = mix(hash, fingerprint(scope, o, path, capture)); }
+		} else if (value instanceof Object[] array) {
+			for (Object o : array) { hash = mix(hash, fingerprint(scope, o, path, capture)); }
+		} else if (value instanceof IShape s) {
+			Double depth = s.getDepth();
+			hash = mix(mix(hash, depth == null ? 0 : Double.hashCode(depth)), s.getGeometricalType().ordinal());
+			hash = mix(hash, fingerprint(scope, s.getAgent(), path, capture));
+			Geometry g = s.getInnerGeometry();
+			if (g != null) {
+				long[] coordinates = { mix(g.getGeometryType().hashCode(), g.getNumGeometries()) };
+				g.apply((CoordinateFilter) c -> coordinates[0] = mix(mix(mix(coordinates[0], Double.hashCode(c.x)),
+						Double.hashCode(c.y)), Double.hashCode(c.getZ())));
+				hash = mix(hash, coordinates[0]);
+			}
+		} else {
+			// Matrices, graphs, files, etc.
+			for (byte b : processor.saveObjectToBytes(scope, value)) { hash = mix(hash, b); }
+		}
+		known.hash = hash;
+		return hash;
+	}
+
+	/**
+	 * Mixes a value into a hash.
+	 *
+	 * @param hash
+	 *            the hash
+	 * @param value
+	 *            the value
+	 * @return the new hash
+	 */
+	private static long mix(final long hash, final long value) {
+		long h = (hash ^ value) * 0x9E3779B97F4A7C15L;
+		return h ^ h >>> 32;
+	}
+
+	/**
+	 * Encodes a delta: the images of the agents that have changed, serialised together so that the values they share
+	 * remain shared once rebuilt, then the paths of the agents that have died.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param changes
+	 *            the changes
+	 * @param deaths
+	 *            the deaths
+	 * @return the bytes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private byte[] encodeDelta(final IScope scope, final Map<String, Object> changes, final List<String> deaths)
+			throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			byte[] images = processor.saveObjectToBytes(scope, changes);
+			out.writeInt(images.length);
+			out.write(images);
+			out.writeInt(deaths.size());
+			for (String path : deaths) { out.writeUTF(path); }
+		}
+		return bytes.toByteArray();
+	}
+
 	/**
 	 * Gets the simulation history.
 	 *
@@ -131,35 +381,43 @@ public class SerialisedSimulationRecorder implements ISimulationRecorder, ISeria
 	 * @return the simulation history
 	 * @date 22 oct. 2023
 	 */
-	@SuppressWarnings ("unchecked")
-	private LinkedList<HistoryNode> getSimulationHistory(final SimulationAgent sim) {
-		LinkedList<HistoryNode> history = (LinkedList<HistoryNode>) sim.getAttribute(SerialisedAgent.HISTORY_KEY);
-		if (history == null) {
-			history = new LinkedList<>();
-			sim.setAttribute(SerialisedAgent.HISTORY_KEY, history);
-		}
-		return history;
+	private SimulationHistory getSimulationHistory(final SimulationAgent sim) {
+		Object history = sim.getAttribute(SerialisedAgent.HISTORY_KEY);
+		if (!(history instanceof SimulationHistory)) {
+			SimulationHistory created = new SimulationHistory();
+			sim.setAttribute(SerialisedAgent.HISTORY_KEY, created);
+			sim.postDisposeAction(scope -> {
+				created.dispose();
+				return null;
+			});
+			history = created;
+		}
+		return (SimulationHistory) history;
 	}
 
 	/**
 	 * Async zip.
 	 *
 	 * @author Alexis Drogoul (alexis.drogoul@ird.fr)
-	 * @param node
-	 *            the node
+	 * @param history
+	 *            the history
+	 * @param frame
+	 *            the frame
 	 * @date 8 août 2023
 	 */
-	protected void asyncZip(final HistoryNode node, final long startTime) {
+	protected void asyncZip(final SimulationHistory history, final Frame frame, final long startTime) {
+		final byte[] bytes = frame.bytes;
 		executor.execute(() -> {
-			node.bytes = ByteArrayZipper.zip(node.bytes);
-			DEBUG.OUT("Serialised in " + processor.getFormat() + " and compressed to " + node.bytes.length / 1000000d
-					+ "Mb in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
-
+			byte[] zipped = ByteArrayZipper.zip(bytes);
+			history.compressed(frame, bytes, zipped);
+			DEBUG.OUT("Serialised " + (frame.keyframe ? "keyframe" : "delta") + " in " + processor.getFormat()
+					+ " and compressed to " + zipped.length / 1000000d + "Mb in "
+					+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
 		});
 	}
 
 	/**
-	 * Restore.
+	 * Restores the simulation to the most recent cycle recorded before its current one.
 	 *
 	 * @author Alexis Drogoul (alexis.drogoul@ird.fr)
 	 * @param sim
@@ -168,23 +426,132 @@ public class SerialisedSimulationRecorder implements ISimulationRecorder, ISeria
 	 */
 	@Override
 	public void restore(final SimulationAgent sim) {
+		long cycle = getSimulationHistory(sim).previousCycle(sim.getClock().getCycle());
+		if (cycle >= 0) { restore(sim, cycle); }
+	}
+
+	/**
+	 * Restores the simulation to a recorded cycle, rebuilt from the nearest keyframe and the deltas that follow it. The
+	 * records made after this cycle are discarded.
+	 *
+	 * @param sim
+	 *            the sim
+	 * @param cycle
+	 *            the cycle
+	 */
+	@Override
+	public void restore(final SimulationAgent sim, final long cycle) {
 		try {
 			synchronized (sim) {
-				LinkedList<HistoryNode> history = getSimulationHistory(sim);
-				HistoryNode node = history.pop();
-				if (node != null && node.cycle == sim.getClock().getCycle()) { node = history.pop(); }
-				if (node != null) {
-					long startTime = System.nanoTime();
-					processor.restoreAgentFromBytes(sim, ByteArrayZipper.unzip(node.bytes));
-					DEBUG.OUT("Deserialise from " + processor.getFormat() + " in "
-							+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
-				}
+				SimulationHistory history = getSimulationHistory(sim);
+				List<Frame> frames = history.framesUpTo(cycle);
+				if (frames.isEmpty()) return;
+				long startTime = System.nanoTime();
+				IScope scope = sim.getScope();
+				Map<String, SerialisedAgent> agents = new HashMap<>();
+				Map<String, ISerialisedPopulation> populations = new HashMap<>();
+				for (Frame frame : frames) { applyDelta(scope, history.data(frame), agents, populations); }
+				SerialisedAgent image = agents.get("");
+				if (image == null) return;
+				image.restoreAs(scope, sim);
+				history.truncateAfter(frames.get(frames.size() - 1).cycle);
+				Capture capture = new Capture();
+				capture(scope, sim, "", capture);
+				history.fingerprints = capture.fingerprints;
+				DEBUG.OUT("Deserialise from " + processor.getFormat() + " (" + frames.size() + " records) in "
+						+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
 			}
 		} catch (Throwable e) {
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * Applies a delta (or a keyframe) to the serialised agents, indexed by their paths.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param delta
+	 *            the delta
+	 * @param agents
+	 *            the agents
+	 * @param populations
+	 *            the populations
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void applyDelta(final IScope scope, final byte[] delta, final Map<String, SerialisedAgent> agents,
+			final Map<String, ISerialisedPopulation> populations) throws IOException {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(delta))) {
+			byte[] images = new byte[in.readInt()];
+			in.readFully(images);
+			Map<?, ?> changes = (Map<?, ?>) processor.createObjectFromBytes(scope, images);
+			changes.forEach((path, image) -> applyChange((String) path, image, agents, populations));
+			for (int i = in.readInt(); i > 0; i--) {
+				String path = in.readUTF();
+				SerialisedAgent dead = agents.remove(path);
+				if (dead == null) { continue; }
+				ISerialisedPopulation p = populations.get(path.substring(0, path.lastIndexOf('/')));
+				if (p != null) { p.agents().removeIf(a -> a == dead); }
+			}
+		}
+	}
+
+	/**
+	 * Applies the change of an agent (or of the matrix of a grid) to the serialised agents. Paths with an odd number
+	 * of separators denote populations, the others denote agents; the empty path denotes the simulation.
+	 *
+	 * @param path
+	 *            the path
+	 * @param change
+	 *            the image of the agent, or the matrix of the grid
+	 * @param agents
+	 *            the agents
+	 * @param populations
+	 *            the populations
+	 */
+	private void applyChange(final String path, final Object change, final Map<String, SerialisedAgent> agents,
+			final Map<String, ISerialisedPopulation> populations) {
+		int separator = path.lastIndexOf('/');
+		if (path.chars().filter(c -> c == '/').count() % 2 == 1) {
+			SerialisedAgent host = agents.get(path.substring(0, separator));
+			if (host == null) return;
+			String name = path.substring(separator + 1);
+			List<ISerialisedAgent> cells =
+					populations.get(path) instanceof SerialisedGrid grid ? grid.agents() : new ArrayList<>();
+			SerialisedGrid updated = new SerialisedGrid(name, cells, (IGrid) change);
+			host.innerPopulations().put(name, updated);
+			populations.put(path, updated);
+			return;
+		}
+		SerialisedAgent image = (SerialisedAgent) change;
+		SerialisedAgent existing = agents.get(path);
+		if (existing != null) {
+			existing.attributes().clear();
+			existing.attributes().putAll(image.attributes());
+			return;
+		}
+		if (separator < 0) {
+			agents.put(path, new SerialisedAgent(image.index(), image.species(), image.attributes(), new HashMap<>()));
+			return;
+		}
+		// The agent has been created since the previous record
+		String populationPath = path.substring(0, separator);
+		ISerialisedPopulation population = populations.get(populationPath);
+		if (population == null) {
+			int hostSeparator = populationPath.lastIndexOf('/');
+			SerialisedAgent host = agents.get(populationPath.substring(0, hostSeparator));
+			if (host == null) return;
+			String name = populationPath.substring(hostSeparator + 1);
+			population = new SerialisedPopulation(name, new ArrayList<>());
+			host.innerPopulations().put(name, population);
+			populations.put(populationPath, population);
+		}
+		SerialisedAgent created = new SerialisedAgent(image.index(), image.species(), image.attributes(), new HashMap<>());
+		population.agents().add(created);
+		agents.put(path, created);
+	}
+
 	/**
 	 * Can step back.
 	 *
@@ -195,7 +562,7 @@ public class SerialisedSimulationRecorder implements ISimulationRecorder, ISeria
 	 */
 	@Override
 	public boolean canStepBack(final SimulationAgent sim) {
-		return getSimulationHistory(sim).size() > 0;
+		return getSimulationHistory(sim).previousCycle(sim.getClock().getCycle()) >= 0;
 
 	}
 
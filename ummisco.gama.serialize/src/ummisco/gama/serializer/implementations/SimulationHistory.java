@@ -0,0 +1,399 @@
+/*******************************************************************************************************
+ *
+ * SimulationHistory.java, in ummisco.gama.serialize, is part of the source code of the GAMA modeling and simulation
+ * platform (v.1.9.3).
+ *
+ * (c) 2007-2023 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package ummisco.gama.serializer.implementations;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.common.util.FileUtils;
+import msi.gama.util.ByteArrayZipper;
+import ummisco.gama.dev.utils.DEBUG;
+
+/**
+ * The states recorded for one simulation: complete states (keyframes), each followed by the deltas of the next
+ * recorded cycles (the agents whose attributes have changed, and the agents that have been created or have died). The
+ * memory used by the compressed records is bounded (see {@link GamaPreferences.External#RECORDER_MEMORY}): when it is
+ * exceeded, the oldest records are either moved to a spill file, or discarded by whole segments (a keyframe and its
+ * deltas), so that all the remaining cycles can still be rebuilt. The space of the records discarded from the spill
+ * file is reused, and the file is shortened when its end is free. It is deleted when the simulation is disposed.
+ * <p>
+ * All the methods are synchronized, as the records are compressed in the background. The records waiting to be
+ * compressed count in the memory used, with their uncompressed size: only the compressed ones can be moved or
+ * discarded, so the recorder waits for the compression when the budget is exceeded (see {@link #awaitBudget()}).
+ */
+class SimulationHistory {
+
+	/**
+	 * A record: the complete state of the simulation or a delta, in memory or in the spill file.
+	 */
+	static class Frame {
+
+		/** The cycle. */
+		final long cycle;
+
+		/** Whether it is a keyframe. */
+		final boolean keyframe;
+
+		/** The bytes, or null if the frame has been moved to the spill file. */
+		byte[] bytes;
+
+		/** Whether the bytes are compressed. */
+		boolean zipped;
+
+		/** The offset and length of the bytes in the spill file. */
+		long offset = -1;
+
+		/** The length. */
+		int length;
+
+		/**
+		 * Instantiates a new frame.
+		 *
+		 * @param cycle
+		 *            the cycle
+		 * @param keyframe
+		 *            the keyframe
+		 * @param bytes
+		 *            the bytes
+		 */
+		Frame(final long cycle, final boolean keyframe, final byte[] bytes) {
+			this.cycle = cycle;
+			this.keyframe = keyframe;
+			this.bytes = bytes;
+			length = bytes.length;
+		}
+
+	}
+
+	/** The frames, from the oldest to the most recent. */
+	final ArrayDeque<Frame> frames = new ArrayDeque<>();
+
+	/** The fingerprints of the agents in the last recorded state, indexed by their path in the simulation. */
+	Map<String, Long> fingerprints = new HashMap<>();
+
+	/** The number of frames recorded since the last keyframe. */
+	int sinceKeyframe;
+
+	/** The memory used by the frames kept in memory, compressed or waiting to be compressed. */
+	long memory;
+
+	/** The number of bytes waiting to be compressed, including the ones of the frames discarded in the meantime. */
+	long pending;
+
+	/** The spill file and its channel, created when needed. */
+	transient File spillFile;
+
+	/** The spill. */
+	transient FileChannel spill;
+
+	/** The size of the spill file actually used. */
+	long spillSize;
+
+	/** The free ranges of the spill file, before spillSize: their length indexed by their offset. */
+	final TreeMap<Long, Long> holes = new TreeMap<>();
+
+	/**
+	 * Whether the next record should be a keyframe.
+	 *
+	 * @param cycle
+	 *            the cycle to record
+	 * @return true, if successful
+	 */
+	synchronized boolean needsKeyframe(final long cycle) {
+		return frames.isEmpty() || frames.getLast().cycle >= cycle
+				|| sinceKeyframe >= GamaPreferences.External.RECORDER_KEYFRAME_INTERVAL.getValue();
+	}
+
+	/**
+	 * Adds a frame, which waits to be compressed.
+	 *
+	 * @param cycle
+	 *            the cycle
+	 * @param keyframe
+	 *            whether the bytes represent a complete state
+	 * @param bytes
+	 *            the bytes
+	 * @return the frame
+	 */
+	synchronized Frame add(final long cycle, final boolean keyframe, final byte[] bytes) {
+		Frame frame = new Frame(cycle, keyframe, bytes);
+		frames.addLast(frame);
+		sinceKeyframe = keyframe ? 0 : sinceKeyframe + 1;
+		memory += bytes.length;
+		pending += bytes.length;
+		return frame;
+	}
+
+	/**
+	 * Waits until the memory used is within the budget, or until there is nothing left to compress.
+	 *
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while waiting
+	 */
+	synchronized void awaitBudget() throws InterruptedException {
+		long budget = GamaPreferences.External.RECORDER_MEMORY.getValue() * 1024L * 1024L;
+		while (pending > 0 && memory > budget) { wait(); }
+	}
+
+	/**
+	 * Replaces the bytes of a frame by their compressed version, unless the frame has been discarded in the meantime,
+	 * and trims the history to its memory budget.
+	 *
+	 * @param frame
+	 *            the frame
+	 * @param original
+	 *            the original bytes
+	 * @param zipped
+	 *            the compressed bytes
+	 */
+	synchronized void compressed(final Frame frame, final byte[] original, final byte[] zipped) {
+		pending -= original.length;
+		if (frame.bytes == original && frames.contains(frame)) {
+			frame.bytes = zipped;
+			frame.zipped = true;
+			frame.length = zipped.length;
+			memory += zipped.length - original.length;
+			trim();
+		}
+		notifyAll();
+	}
+
+	/**
+	 * The most recent recorded cycle strictly before a cycle.
+	 *
+	 * @param cycle
+	 *            the cycle
+	 * @return the cycle, or -1 if there is none
+	 */
+	synchronized long previousCycle(final long cycle) {
+		Iterator<Frame> it = frames.descendingIterator();
+		while (it.hasNext()) {
+			Frame f = it.next();
+			if (f.cycle < cycle) return f.cycle;
+		}
+		return -1;
+	}
+
+	/**
+	 * The frames needed to rebuild a cycle: the nearest keyframe at or before this cycle, followed by its deltas up to
+	 * this cycle.
+	 *
+	 * @param cycle
+	 *            the cycle
+	 * @return the frames, empty if the cycle cannot be rebuilt
+	 */
+	synchronized List<Frame> framesUpTo(final long cycle) {
+		List<Frame> result = new ArrayList<>();
+		for (Frame f : frames) {
+			if (f.cycle > cycle) { break; }
+			if (f.keyframe) { result.clear(); }
+			if (f.keyframe || !result.isEmpty()) { result.add(f); }
+		}
+		return result;
+	}
+
+	/**
+	 * Discards the frames recorded after a cycle.
+	 *
+	 * @param cycle
+	 *            the cycle
+	 */
+	synchronized void truncateAfter(final long cycle) {
+		while (!frames.isEmpty() && frames.getLast().cycle > cycle) { discard(frames.removeLast()); }
+		sinceKeyframe = 0;
+		for (Iterator<Frame> it = frames.descendingIterator(); it.hasNext() && !it.next().keyframe;) {
+			sinceKeyframe++;
+		}
+	}
+
+	/**
+	 * The uncompressed bytes of a frame.
+	 *
+	 * @param frame
+	 *            the frame
+	 * @return the bytes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	synchronized byte[] data(final Frame frame) throws IOException {
+		byte[] bytes = frame.bytes;
+		if (bytes == null) {
+			bytes = new byte[frame.length];
+			ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			long position = frame.offset;
+			while (buffer.hasRemaining()) {
+				int read = spill.read(buffer, position);
+				if (read < 0) throw new IOException("Truncated history file " + spillFile);
+				position += read;
+			}
+		}
+		return frame.zipped ? ByteArrayZipper.unzip(bytes) : bytes;
+	}
+
+	/**
+	 * Releases the memory or the space in the spill file used by a frame that has been removed.
+	 *
+	 * @param frame
+	 *            the frame
+	 */
+	private void discard(final Frame frame) {
+		if (frame.bytes == null) {
+			free(frame.offset, frame.length);
+		} else {
+			memory -= frame.length;
+		}
+	}
+
+	/**
+	 * Moves the oldest frames to the spill file, or discards them, until the memory used is within the budget. The
+	 * segment of the last keyframe is never discarded.
+	 */
+	private void trim() {
+		long budget = GamaPreferences.External.RECORDER_MEMORY.getValue() * 1024L * 1024L;
+		if (memory <= budget) return;
+		if (GamaPreferences.External.RECORDER_SPILL.getValue()) {
+			for (Frame f : frames) {
+				if (memory <= budget) return;
+				if (f.bytes != null && f.zipped && !spill(f)) { break; }
+			}
+		}
+		while (memory > budget) {
+			Iterator<Frame> it = frames.iterator();
+			it.next();
+			boolean hasNextSegment = false;
+			while (it.hasNext()) {
+				if (it.next().keyframe) {
+					hasNextSegment = true;
+					break;
+				}
+			}
+			if (!hasNextSegment) return;
+			do { discard(frames.removeFirst()); } while (!frames.getFirst().keyframe);
+		}
+	}
+
+	/**
+	 * Moves a frame to the spill file, in the first free range large enough, or at its end.
+	 *
+	 * @param frame
+	 *            the frame
+	 * @return true, if successful
+	 */
+	private boolean spill(final Frame frame) {
+		try {
+			if (spill == null) {
+				File dir = new File(FileUtils.CACHE, "history");
+				dir.mkdirs();
+				spillFile = File.createTempFile("simulation", ".bin", dir);
+				spillFile.deleteOnExit();
+				spill = FileChannel.open(spillFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+			}
+			long offset = allocate(frame.length);
+			ByteBuffer buffer = ByteBuffer.wrap(frame.bytes);
+			long position = offset;
+			try {
+				while (buffer.hasRemaining()) { position += spill.write(buffer, position); }
+			} catch (IOException e) {
+				free(offset, frame.length);
+				throw e;
+			}
+			frame.offset = offset;
+			memory -= frame.length;
+			frame.bytes = null;
+			return true;
+		} catch (IOException e) {
+			DEBUG.ERR("Impossible to move the history of the simulation to " + spillFile + ": " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Reserves a range of the spill file.
+	 *
+	 * @param length
+	 *            the length
+	 * @return the offset of the range
+	 */
+	private long allocate(final long length) {
+		for (Map.Entry<Long, Long> hole : holes.entrySet()) {
+			if (hole.getValue() < length) { continue; }
+			long offset = hole.getKey();
+			holes.remove(offset);
+			if (hole.getValue() > length) { holes.put(offset + length, hole.getValue() - length); }
+			return offset;
+		}
+		long offset = spillSize;
+		spillSize += length;
+		return offset;
+	}
+
+	/**
+	 * Frees a range of the spill file, merging it with the adjacent free ranges. The file is shortened when its end
+	 * becomes free.
+	 *
+	 * @param offset
+	 *            the offset
+	 * @param length
+	 *            the length
+	 */
+	private void free(final long offset, final long length) {
+		long start = offset, end = offset + length;
+		Map.Entry<Long, Long> before = holes.floorEntry(start);
+		if (before != null && before.getKey() + before.getValue() == start) {
+			holes.remove(before.getKey());
+			start = before.getKey();
+		}
+		Long after = holes.remove(end);
+		if (after != null) { end += after; }
+		if (end < spillSize) {
+			holes.put(start, end - start);
+			return;
+		}
+		spillSize = start;
+		try {
+			spill.truncate(spillSize);
+		} catch (IOException e) {
+			DEBUG.ERR("Impossible to shorten the history file " + spillFile + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Discards all the frames, closes the spill file and deletes it.
+	 */
+	synchronized void dispose() {
+		frames.clear();
+		fingerprints.clear();
+		holes.clear();
+		memory = 0;
+		spillSize = 0;
+		if (spill == null) return;
+		try {
+			spill.close();
+		} catch (IOException e) {
+			DEBUG.ERR("Impossible to close the history file " + spillFile + ": " + e.getMessage());
+		}
+		spill = null;
+		spillFile.delete();
+		spillFile = null;
+	}
+
+}